@@ -0,0 +1,54 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.text.StringEscapeUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntegrationEscapeUtilsBenchmark {
+    @Param({ "/opt/jenkins/workspace/detect-project/source", "Test Project (release 1.0); owner=$USER, path=C:\\Program Files\\*" })
+    public String argument;
+
+    @Benchmark
+    public String escapePowerShell() {
+        return IntegrationEscapeUtils.escapePowerShell(argument);
+    }
+
+    @Benchmark
+    public String escapePowerShellTranslator() {
+        return IntegrationEscapeUtils.ESCAPE_POWERSHELL.translate(argument);
+    }
+
+    @Benchmark
+    public String escapeXSI() {
+        return IntegrationEscapeUtils.escapeXSI(argument);
+    }
+
+    @Benchmark
+    public String escapeXSITranslator() {
+        return StringEscapeUtils.ESCAPE_XSI.translate(argument);
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.extensions.global;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import jenkins.util.xml.XMLUtils;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DetectGlobalConfigXmlReaderBenchmark {
+    private static final Set<String> ELEMENT_NAMES = new HashSet<>(Arrays.asList("blackDuckUrl", "blackDuckCredentialsId", "blackDuckTimeout", "trustBlackDuckCertificates"));
+    private static final String CONFIG_XML = "<?xml version='1.1' encoding='UTF-8'?>\n"
+                                                 + "<com.synopsys.integration.jenkins.detect.extensions.global.DetectGlobalConfig plugin=\"blackduck-detect\">\n"
+                                                 + "  <blackDuckUrl>https://blackduck.domain.com</blackDuckUrl>\n"
+                                                 + "  <blackDuckCredentialsId>api-token</blackDuckCredentialsId>\n"
+                                                 + "  <trustBlackDuckCertificates>true</trustBlackDuckCertificates>\n"
+                                                 + "  <blackDuckTimeout>120</blackDuckTimeout>\n"
+                                                 + "  <downloadStrategy class=\"com.synopsys.integration.jenkins.detect.extensions.ScriptOrJarDownloadStrategy\"/>\n"
+                                                 + "</com.synopsys.integration.jenkins.detect.extensions.global.DetectGlobalConfig>";
+
+    @Benchmark
+    public Map<String, String> readValues() throws XMLStreamException {
+        return DetectGlobalConfigXmlReader.readValues(new StringReader(CONFIG_XML), ELEMENT_NAMES);
+    }
+
+    /**
+     * The way a posted config.xml was read before DetectGlobalConfigXmlReader: transformed into a string, then parsed into a DOM and searched once per element.
+     */
+    @Benchmark
+    public Map<String, String> readValuesWithDom() throws IOException, ParserConfigurationException, TransformerException, SAXException {
+        StringWriter out = new StringWriter();
+        XMLUtils.safeTransform(new StreamSource(new StringReader(CONFIG_XML)), new StreamResult(out));
+
+        DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        Document doc = builder.parse(new InputSource(new StringReader(out.toString())));
+
+        Map<String, String> values = new HashMap<>();
+        for (String elementName : ELEMENT_NAMES) {
+            Optional.ofNullable(doc.getElementsByTagName(elementName).item(0))
+                .map(Node::getFirstChild)
+                .map(Node::getNodeValue)
+                .map(String::trim)
+                .ifPresent(value -> values.put(elementName, value));
+        }
+        return values;
+    }
+
+}
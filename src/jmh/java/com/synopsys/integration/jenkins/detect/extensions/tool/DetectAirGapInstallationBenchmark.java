@@ -0,0 +1,97 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.extensions.tool;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hudson.BulkChange;
+import hudson.XmlFile;
+import hudson.util.XStream2;
+
+/**
+ * Measures DescriptorImpl.getInstallations(), served from the in-memory snapshot, against the same call preceded by load(), which is what getInstallations() did on
+ * every call before. The descriptor keeps its tool XML in a temporary file, since there is no Jenkins home to keep it in.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DetectAirGapInstallationBenchmark {
+    @Param({ "1", "10", "50" })
+    public int installationCount;
+
+    private File toolDirectory;
+    private XmlFile toolXmlFile;
+    private DetectAirGapInstallation.DescriptorImpl descriptor;
+
+    @Setup
+    public void setUp() throws IOException {
+        DetectAirGapInstallation[] installations = new DetectAirGapInstallation[installationCount];
+        for (int installation = 0; installation < installationCount; installation++) {
+            installations[installation] = new DetectAirGapInstallation("air-gap-" + installation, "/opt/detect/air-gap-" + installation, Collections.emptyList());
+        }
+
+        toolDirectory = Files.createTempDirectory("detectAirGapBenchmark").toFile();
+        toolXmlFile = new XmlFile(new XStream2(), new File(toolDirectory, DetectAirGapInstallation.DescriptorImpl.class.getName() + ".xml"));
+
+        // The descriptor would save itself through Jenkins, so the XML is written directly instead.
+        DetectAirGapInstallation.DescriptorImpl configuredDescriptor = new DetectAirGapInstallation.DescriptorImpl(toolXmlFile);
+        BulkChange bulkChange = new BulkChange(configuredDescriptor);
+        try {
+            configuredDescriptor.setInstallations(installations);
+            toolXmlFile.write(configuredDescriptor);
+        } finally {
+            bulkChange.abort();
+        }
+
+        descriptor = new DetectAirGapInstallation.DescriptorImpl(toolXmlFile);
+        if (descriptor.getInstallations().length != installationCount) {
+            throw new IllegalStateException("The descriptor did not load the installations written for the benchmark");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        toolXmlFile.delete();
+        Files.deleteIfExists(toolDirectory.toPath());
+    }
+
+    @Benchmark
+    public DetectAirGapInstallation[] getInstallations() {
+        return descriptor.getInstallations();
+    }
+
+    /**
+     * The way DescriptorImpl.getInstallations() worked before the snapshot: the tool XML was read and unmarshalled again on every call.
+     */
+    @Benchmark
+    public DetectAirGapInstallation[] getInstallationsWithLoad() {
+        descriptor.load();
+        return descriptor.getInstallations();
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service;
+
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.synopsys.integration.IntegrationEscapeUtils;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+import com.synopsys.integration.jenkins.wrapper.JenkinsVersionHelper;
+import com.synopsys.integration.util.IntEnvironmentVariables;
+
+import hudson.model.TaskListener;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DetectArgumentServiceBenchmark {
+    private static final List<String> INITIAL_ARGUMENTS = Collections.singletonList("/tmp/detect8.sh");
+
+    @Param({ "10", "10000" })
+    public int argumentCount;
+
+    @Param({ "false", "true" })
+    public boolean withMacros;
+
+    private final Function<String, String> argumentEscaper = IntegrationEscapeUtils::escapeXSI;
+
+    private DetectArgumentService detectArgumentService;
+    private IntEnvironmentVariables intEnvironmentVariables;
+    private Map<String, String> environmentVariables;
+    private String detectArgumentString;
+
+    @Setup
+    public void setUp() {
+        TaskListener taskListener = Mockito.mock(TaskListener.class);
+        Mockito.when(taskListener.getLogger()).thenReturn(new PrintStream(NullOutputStream.NULL_OUTPUT_STREAM));
+        JenkinsVersionHelper jenkinsVersionHelper = Mockito.mock(JenkinsVersionHelper.class);
+        Mockito.when(jenkinsVersionHelper.getJenkinsVersion()).thenReturn(Optional.of("2.377"));
+        Mockito.when(jenkinsVersionHelper.getPluginVersion("blackduck-detect")).thenReturn(Optional.of("8.0.0"));
+        detectArgumentService = new DetectArgumentService(JenkinsIntLogger.logToListener(taskListener), jenkinsVersionHelper);
+
+        intEnvironmentVariables = IntEnvironmentVariables.empty();
+        intEnvironmentVariables.put("PROJECT_NAME", "Test Project");
+        intEnvironmentVariables.put("BUILD_NUMBER", "42");
+        environmentVariables = intEnvironmentVariables.getVariables();
+
+        StringBuilder argumentString = new StringBuilder();
+        for (int i = 0; i < argumentCount; i++) {
+            if (withMacros) {
+                argumentString.append("--detect.custom.property").append(i).append("=\"$PROJECT_NAME build ${BUILD_NUMBER}\" ");
+            } else {
+                argumentString.append("--detect.custom.property").append(i).append("=\"Test Project build 42\" ");
+            }
+        }
+        detectArgumentString = argumentString.toString();
+    }
+
+    @Benchmark
+    public List<String> getDetectArguments() {
+        return detectArgumentService.getDetectArguments(intEnvironmentVariables, argumentEscaper, INITIAL_ARGUMENTS, detectArgumentString);
+    }
+
+    @Benchmark
+    public List<String> parseDetectArgumentString() {
+        return detectArgumentService.parseDetectArgumentString(environmentVariables, argumentEscaper, detectArgumentString);
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service;
+
+import static com.synopsys.integration.blackduck.configuration.BlackDuckServerConfigKeys.KEYS;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.synopsys.integration.blackduck.configuration.BlackDuckServerConfigBuilder;
+import com.synopsys.integration.jenkins.detect.extensions.global.DetectGlobalConfig;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+import com.synopsys.integration.jenkins.service.JenkinsConfigService;
+import com.synopsys.integration.jenkins.wrapper.JenkinsProxyHelper;
+import com.synopsys.integration.jenkins.wrapper.JenkinsVersionHelper;
+import com.synopsys.integration.jenkins.wrapper.SynopsysCredentialsHelper;
+import com.synopsys.integration.util.IntEnvironmentVariables;
+
+import hudson.model.TaskListener;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DetectEnvironmentServiceBenchmark {
+    private DetectEnvironmentService detectEnvironmentService;
+
+    @Setup
+    public void setUp() {
+        TaskListener taskListener = Mockito.mock(TaskListener.class);
+        Mockito.when(taskListener.getLogger()).thenReturn(new PrintStream(NullOutputStream.NULL_OUTPUT_STREAM));
+        JenkinsProxyHelper jenkinsProxyHelper = Mockito.mock(JenkinsProxyHelper.class);
+        SynopsysCredentialsHelper synopsysCredentialsHelper = Mockito.mock(SynopsysCredentialsHelper.class);
+        JenkinsVersionHelper jenkinsVersionHelper = Mockito.mock(JenkinsVersionHelper.class);
+        Mockito.when(jenkinsVersionHelper.getPluginVersion("blackduck-detect")).thenReturn(Optional.of("8.0.0"));
+
+        BlackDuckServerConfigBuilder blackDuckServerConfigBuilder = new BlackDuckServerConfigBuilder(KEYS.common)
+                                                                       .setUrl("https://blackduck.domain.com")
+                                                                       .setApiToken("api-token")
+                                                                       .setTimeoutInSeconds(120);
+        DetectGlobalConfig detectGlobalConfig = Mockito.mock(DetectGlobalConfig.class);
+        Mockito.when(detectGlobalConfig.getBlackDuckServerConfigBuilder(jenkinsProxyHelper, synopsysCredentialsHelper)).thenReturn(blackDuckServerConfigBuilder);
+        JenkinsConfigService jenkinsConfigService = Mockito.mock(JenkinsConfigService.class);
+        Mockito.when(jenkinsConfigService.getGlobalConfiguration(DetectGlobalConfig.class)).thenReturn(Optional.of(detectGlobalConfig));
+
+        // Roughly the size of a build environment on a typical agent.
+        Map<String, String> environmentVariables = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            environmentVariables.put("BUILD_VARIABLE_" + i, "/opt/jenkins/workspace/detect-project/" + i);
+        }
+
+        detectEnvironmentService = new DetectEnvironmentService(
+            JenkinsIntLogger.logToListener(taskListener),
+            jenkinsProxyHelper,
+            jenkinsVersionHelper,
+            synopsysCredentialsHelper,
+            jenkinsConfigService,
+            environmentVariables
+        );
+    }
+
+    @Benchmark
+    public IntEnvironmentVariables createDetectEnvironment() {
+        return detectEnvironmentService.createDetectEnvironment();
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service.strategy;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.synopsys.integration.exception.IntegrationException;
+import com.synopsys.integration.jenkins.detect.DetectJenkinsEnvironmentVariable;
+import com.synopsys.integration.jenkins.detect.extensions.AirGapDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.extensions.DetectDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.extensions.InheritFromGlobalDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.extensions.ScriptOrJarDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.extensions.global.DetectGlobalConfig;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+import com.synopsys.integration.jenkins.service.JenkinsConfigService;
+import com.synopsys.integration.jenkins.wrapper.JenkinsProxyHelper;
+import com.synopsys.integration.util.IntEnvironmentVariables;
+import com.synopsys.integration.util.OperatingSystemType;
+
+import hudson.model.TaskListener;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DetectStrategyServiceBenchmark {
+    private static final String NODE_NAME = "benchmark-agent";
+    private static final String REMOTE_JDK_HOME = "/opt/jdk";
+
+    @Param({ "SCRIPT", "JAR", "AIR_GAP", "INHERIT" })
+    public String downloadStrategy;
+
+    @Param({ "false", "true" })
+    public boolean knownNode;
+
+    private DetectStrategyService detectStrategyService;
+    private IntEnvironmentVariables intEnvironmentVariables;
+    private DetectDownloadStrategy detectDownloadStrategy;
+
+    @Setup
+    public void setUp() {
+        TaskListener taskListener = Mockito.mock(TaskListener.class);
+        Mockito.when(taskListener.getLogger()).thenReturn(new PrintStream(NullOutputStream.NULL_OUTPUT_STREAM));
+        JenkinsIntLogger logger = JenkinsIntLogger.logToListener(taskListener);
+
+        DetectGlobalConfig detectGlobalConfig = Mockito.mock(DetectGlobalConfig.class);
+        Mockito.when(detectGlobalConfig.getDownloadStrategy()).thenReturn(new ScriptOrJarDownloadStrategy());
+        JenkinsConfigService jenkinsConfigService = Mockito.mock(JenkinsConfigService.class);
+        Mockito.when(jenkinsConfigService.getGlobalConfiguration(DetectGlobalConfig.class)).thenReturn(Optional.of(detectGlobalConfig));
+
+        intEnvironmentVariables = IntEnvironmentVariables.empty();
+        intEnvironmentVariables.put(RemoteJavaService.JAVA_HOME, REMOTE_JDK_HOME);
+        switch (downloadStrategy) {
+            case "JAR":
+                intEnvironmentVariables.put(DetectJenkinsEnvironmentVariable.USER_PROVIDED_JAR_PATH.stringValue(), "/tmp/detect.jar");
+                detectDownloadStrategy = new ScriptOrJarDownloadStrategy();
+                break;
+            case "AIR_GAP":
+                AirGapDownloadStrategy airGapDownloadStrategy = new AirGapDownloadStrategy();
+                airGapDownloadStrategy.setAirGapInstallationName("Detect Air Gap");
+                detectDownloadStrategy = airGapDownloadStrategy;
+                break;
+            case "INHERIT":
+                detectDownloadStrategy = new InheritFromGlobalDownloadStrategy();
+                break;
+            default:
+                detectDownloadStrategy = new ScriptOrJarDownloadStrategy();
+        }
+
+        NodeCapabilityCache nodeCapabilityCache = null;
+        if (knownNode) {
+            nodeCapabilityCache = new NodeCapabilityCache(NODE_NAME);
+            RemoteJavaInfo remoteJavaInfo = new RemoteJavaInfo(REMOTE_JDK_HOME + "/bin/java", RemoteJavaService.NODE_ENVIRONMENT_SOURCE, "openjdk 11");
+            DetectSetupResult detectSetupResult = new DetectSetupResult(OperatingSystemType.LINUX, new ArrayList<>(Collections.singletonList(remoteJavaInfo.getExecutablePath())), remoteJavaInfo);
+            nodeCapabilityCache.record(detectSetupResult, REMOTE_JDK_HOME, intEnvironmentVariables.getVariables());
+        }
+
+        detectStrategyService = new DetectStrategyService(logger, Mockito.mock(JenkinsProxyHelper.class), "/opt/jenkins/tools", jenkinsConfigService, null, nodeCapabilityCache);
+    }
+
+    @TearDown
+    public void tearDown() {
+        NodeCapabilityCache.invalidateAll();
+    }
+
+    @Benchmark
+    public DetectExecutionStrategy getExecutionStrategy() throws IntegrationException {
+        return detectStrategyService.getExecutionStrategy(intEnvironmentVariables, REMOTE_JDK_HOME, detectDownloadStrategy);
+    }
+
+}
@@ -49,7 +49,68 @@ public class IntegrationEscapeUtils extends StringEscapeUtils {
         );
     }
 
+    // Characters that are prefixed with the escape character. Line breaks are removed instead, exactly as the lookup translators do.
+    private static final String POWERSHELL_SPECIAL_CHARACTERS = "|&;<>()$`\\\"' \t*?[#~=%,";
+    private static final String XSI_SPECIAL_CHARACTERS = "|&;<>()$`\\\"' \t*?[#~=%";
+    private static final boolean[] POWERSHELL_ESCAPED = createEscapedTable(POWERSHELL_SPECIAL_CHARACTERS);
+    private static final boolean[] XSI_ESCAPED = createEscapedTable(XSI_SPECIAL_CHARACTERS);
+
+    /**
+     * Produces the same output as {@link #ESCAPE_POWERSHELL}, but in a single pass that returns the input itself when nothing needs escaping.
+     */
     public static String escapePowerShell(String input) {
-        return ESCAPE_POWERSHELL.translate(input);
+        return escape(input, POWERSHELL_ESCAPED, '`');
+    }
+
+    /**
+     * Produces the same output as {@link StringEscapeUtils#ESCAPE_XSI}, but in a single pass that returns the input itself when nothing needs escaping.
+     */
+    public static String escapeXSI(String input) {
+        return escape(input, XSI_ESCAPED, '\\');
+    }
+
+    private static String escape(String input, boolean[] escaped, char escapeCharacter) {
+        if (input == null) {
+            return null;
+        }
+
+        int length = input.length();
+        int firstSpecial = 0;
+        while (firstSpecial < length && !isSpecial(input.charAt(firstSpecial), escaped)) {
+            firstSpecial++;
+        }
+        if (firstSpecial == length) {
+            return input;
+        }
+
+        StringBuilder escapedInput = new StringBuilder(length + 16);
+        escapedInput.append(input, 0, firstSpecial);
+        for (int i = firstSpecial; i < length; i++) {
+            char character = input.charAt(i);
+            if (character == '\n') {
+                continue;
+            }
+            if (character == '\r' && i + 1 < length && input.charAt(i + 1) == '\n') {
+                i++;
+                continue;
+            }
+            if (character < escaped.length && escaped[character]) {
+                escapedInput.append(escapeCharacter);
+            }
+            escapedInput.append(character);
+        }
+        return escapedInput.toString();
+    }
+
+    private static boolean isSpecial(char character, boolean[] escaped) {
+        return character == '\n' || character == '\r' || (character < escaped.length && escaped[character]);
+    }
+
+    private static boolean[] createEscapedTable(String specialCharacters) {
+        boolean[] escaped = new boolean[128];
+        for (int i = 0; i < specialCharacters.length(); i++) {
+            escaped[specialCharacters.charAt(i)] = true;
+        }
+        return escaped;
     }
 }
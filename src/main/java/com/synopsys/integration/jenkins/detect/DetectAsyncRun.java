@@ -0,0 +1,406 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+import com.synopsys.integration.jenkins.detect.extensions.DetectDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.service.DetectManifestCheck;
+import com.synopsys.integration.jenkins.detect.service.DetectRunThrottle;
+import com.synopsys.integration.jenkins.detect.service.DetectScanCoalescer;
+import com.synopsys.integration.jenkins.detect.service.DetectScanLedger;
+import com.synopsys.integration.jenkins.detect.service.process.DetectProcess;
+import com.synopsys.integration.jenkins.detect.service.process.DetectProcessLauncher;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+
+/**
+ * Runs Detect on a node without holding a controller thread while it executes. Setup runs on a small shared pool, waiting for a free run slot holds no thread at all,
+ * and once Detect has been launched the shared Jenkins timer periodically hands a check of its process to a small pool of its own, so that slow agent channels never
+ * hold timer threads. The controller therefore uses a fixed number of threads no matter how many scans are running. A run whose process outlives the controller can be picked up again with {@link #resume(DetectProcess, JenkinsIntLogger)}.
+ */
+public class DetectAsyncRun {
+    public static final long POLL_INTERVAL_MILLIS = SystemProperties.getLong(DetectAsyncRun.class.getName() + ".pollIntervalMillis", 2000L);
+    private static final int SETUP_THREADS = SystemProperties.getInteger(DetectAsyncRun.class.getName() + ".setupThreads", 4);
+    private static final int POLL_THREADS = SystemProperties.getInteger(DetectAsyncRun.class.getName() + ".pollThreads", 8);
+    private static final ExecutorService SETUP_EXECUTOR = createExecutor(SETUP_THREADS, "Synopsys Detect setup");
+    private static final ExecutorService POLL_EXECUTOR = createExecutor(POLL_THREADS, "Synopsys Detect poll");
+
+    @Nullable
+    private final DetectRunner detectRunner;
+    @Nullable
+    private final DetectProcessLauncher detectProcessLauncher;
+    private final JenkinsIntLogger logger;
+    private final CompletableFuture<Integer> exitCode = new CompletableFuture<>();
+    private volatile boolean superseded = false;
+    // Keeps a run from queueing another check while one is still waiting on the node.
+    private final AtomicBoolean polling = new AtomicBoolean(false);
+
+    // Guarded by this.
+    private boolean stopped = false;
+    private boolean finished = false;
+    @Nullable
+    private CompletableFuture<DetectRunThrottle.Permit> futurePermit;
+    @Nullable
+    private DetectRunThrottle.Permit permit;
+    @Nullable
+    private DetectProcess detectProcess;
+    @Nullable
+    private ScheduledFuture<?> poll;
+
+    public DetectAsyncRun(DetectRunner detectRunner, DetectProcessLauncher detectProcessLauncher, JenkinsIntLogger logger) {
+        this.detectRunner = detectRunner;
+        this.detectProcessLauncher = detectProcessLauncher;
+        this.logger = logger;
+    }
+
+    private DetectAsyncRun(DetectProcess detectProcess, JenkinsIntLogger logger) {
+        this.detectRunner = null;
+        this.detectProcessLauncher = null;
+        this.logger = logger;
+        this.detectProcess = detectProcess;
+    }
+
+    /**
+     * Waits for a Detect process that was launched before the controller restarted. The run slot it held is not taken again, since slots do not survive a restart.
+     */
+    public static DetectAsyncRun resume(DetectProcess detectProcess, JenkinsIntLogger logger) {
+        DetectAsyncRun detectAsyncRun = new DetectAsyncRun(detectProcess, logger);
+        synchronized (detectAsyncRun) {
+            detectAsyncRun.schedulePoll();
+        }
+        return detectAsyncRun;
+    }
+
+    /**
+     * @return The exit code of Detect once it has finished. The future completes exceptionally if Detect could not be run, and is cancelled by {@link #stop()}.
+     */
+    public CompletableFuture<Integer> getExitCode() {
+        return exitCode;
+    }
+
+    public CompletableFuture<Integer> start(@Nullable String remoteJdkHome, String detectArgumentString, DetectDownloadStrategy detectDownloadStrategy) {
+        return start(remoteJdkHome, detectArgumentString, detectDownloadStrategy, launchedProcess -> {});
+    }
+
+    /**
+     * @param onLaunch Called with the process once Detect has been launched, before it is first checked on.
+     * @return The exit code of Detect once it has finished. The future completes exceptionally if Detect could not be run, and is cancelled by {@link #stop()}.
+     */
+    public CompletableFuture<Integer> start(@Nullable String remoteJdkHome, String detectArgumentString, DetectDownloadStrategy detectDownloadStrategy, Consumer<DetectProcess> onLaunch) {
+        if (null == detectRunner || null == detectProcessLauncher) {
+            throw new IllegalStateException("A resumed Detect run cannot be started again");
+        }
+        SETUP_EXECUTOR.execute(() -> {
+            DetectManifestCheck.Result manifestCheckResult;
+            try {
+                manifestCheckResult = detectRunner.checkManifests(detectArgumentString);
+            } catch (Exception e) {
+                finish(() -> exitCode.completeExceptionally(e));
+                return;
+            }
+            if (manifestCheckResult.isUnchanged()) {
+                finish(() -> exitCode.complete(0));
+                return;
+            }
+
+            DetectScanLedger.Claim scanClaim = detectRunner.claimScan(detectArgumentString);
+            if (!scanClaim.isDuplicate()) {
+                prepareAndQueueLaunch(remoteJdkHome, detectArgumentString, detectDownloadStrategy, onLaunch, manifestCheckResult, scanClaim);
+                return;
+            }
+            // Waiting for the identical scan holds no thread. If it is given up, this run scans after all.
+            scanClaim.getScannedExitCode().whenComplete((scannedExitCode, throwable) -> {
+                if (null == throwable) {
+                    finish(() -> exitCode.complete(scannedExitCode));
+                } else if (!exitCode.isDone()) {
+                    SETUP_EXECUTOR.execute(() -> prepareAndQueueLaunch(
+                        remoteJdkHome,
+                        detectArgumentString,
+                        detectDownloadStrategy,
+                        onLaunch,
+                        manifestCheckResult,
+                        DetectScanLedger.Claim.NOT_TRACKED
+                    ));
+                }
+            });
+        });
+        return exitCode;
+    }
+
+    /**
+     * Launches a command line that has already been prepared, once a run slot is free.
+     * @return The exit code of Detect once it has finished. The future completes exceptionally if Detect could not be run, and is cancelled by {@link #stop()}.
+     */
+    public CompletableFuture<Integer> start(DetectCommandLine detectCommandLine) {
+        if (null == detectRunner || null == detectProcessLauncher) {
+            throw new IllegalStateException("A resumed Detect run cannot be started again");
+        }
+        queueLaunch(detectCommandLine, launchedProcess -> {});
+        return exitCode;
+    }
+
+    /**
+     * Runs setup work on the shared pool that prepares Detect runs.
+     */
+    public static void executeSetup(Runnable setup) {
+        SETUP_EXECUTOR.execute(setup);
+    }
+
+    /**
+     * @return The failure a future completed with, without the {@link CompletionException} that dependent stages wrap it in.
+     */
+    @Nullable
+    public static Throwable unwrap(@Nullable Throwable throwable) {
+        return throwable instanceof CompletionException && null != throwable.getCause() ? throwable.getCause() : throwable;
+    }
+
+    /**
+     * Kills Detect on the node if it is running and gives up its run slot.
+     */
+    public void stop() {
+        halt(() -> exitCode.cancel(false));
+    }
+
+    /**
+     * Called when a newer build of the same job supersedes this scan. Detect is not run, or killed if it is running, and the run completes with exit code 0, since
+     * the newer build scans in its place.
+     */
+    private void supersede() {
+        superseded = true;
+        halt(() -> exitCode.complete(0));
+    }
+
+    private void halt(Runnable completion) {
+        DetectProcess runningProcess;
+        synchronized (this) {
+            stopped = true;
+            runningProcess = detectProcess;
+            if (null != futurePermit) {
+                futurePermit.cancel(false);
+            }
+        }
+
+        if (null != runningProcess) {
+            kill(runningProcess);
+        }
+        finish(completion);
+    }
+
+    private void kill(DetectProcess runningProcess) {
+        try {
+            runningProcess.kill();
+        } catch (IOException e) {
+            logger.error("Could not stop Detect: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void prepareAndQueueLaunch(
+        @Nullable String remoteJdkHome,
+        String detectArgumentString,
+        DetectDownloadStrategy detectDownloadStrategy,
+        Consumer<DetectProcess> onLaunch,
+        DetectManifestCheck.Result manifestCheckResult,
+        DetectScanLedger.Claim scanClaim
+    ) {
+        exitCode.whenComplete((detectExitCode, throwable) -> {
+            // A superseded scan did not finish, so there is nothing to record for it.
+            if (null != throwable || superseded) {
+                scanClaim.abandon();
+                return;
+            }
+            scanClaim.recordExitCode(detectExitCode);
+            if (detectExitCode == 0) {
+                manifestCheckResult.recordSuccessfulScan();
+            }
+        });
+        DetectScanCoalescer.Registration coalescingRegistration = detectRunner.registerForCoalescing(detectArgumentString, this::supersede);
+        exitCode.whenComplete((detectExitCode, throwable) -> coalescingRegistration.close());
+        if (exitCode.isDone()) {
+            return;
+        }
+
+        DetectCommandLine detectCommandLine;
+        try {
+            detectCommandLine = detectRunner.prepareDetect(remoteJdkHome, detectArgumentString, detectDownloadStrategy);
+        } catch (Exception e) {
+            finish(() -> exitCode.completeExceptionally(e));
+            return;
+        }
+        queueLaunch(detectCommandLine, onLaunch);
+    }
+
+    private void queueLaunch(DetectCommandLine detectCommandLine, Consumer<DetectProcess> onLaunch) {
+        CompletableFuture<DetectRunThrottle.Permit> queuedPermit;
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            queuedPermit = detectRunner.acquireRunPermitAsync(detectCommandLine);
+            futurePermit = queuedPermit;
+        }
+        queuedPermit.whenCompleteAsync((acquiredPermit, throwable) -> {
+            if (null != throwable) {
+                finish(() -> exitCode.completeExceptionally(throwable));
+            } else {
+                launch(detectCommandLine, acquiredPermit, onLaunch);
+            }
+        }, SETUP_EXECUTOR);
+    }
+
+    private void launch(DetectCommandLine detectCommandLine, @Nullable DetectRunThrottle.Permit acquiredPermit, Consumer<DetectProcess> onLaunch) {
+        synchronized (this) {
+            permit = acquiredPermit;
+            if (stopped) {
+                finish(() -> exitCode.cancel(false));
+                return;
+            }
+        }
+
+        // The launch goes over the agent channel, so it must not hold the lock that stop() needs.
+        detectRunner.logStart();
+        DetectProcess launchedProcess;
+        try {
+            launchedProcess = detectProcessLauncher.launch(detectCommandLine);
+        } catch (IOException e) {
+            finish(() -> exitCode.completeExceptionally(e));
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish(() -> exitCode.completeExceptionally(e));
+            return;
+        }
+
+        boolean stoppedDuringLaunch;
+        synchronized (this) {
+            stoppedDuringLaunch = stopped;
+            if (!stoppedDuringLaunch) {
+                detectProcess = launchedProcess;
+            }
+        }
+        if (stoppedDuringLaunch) {
+            // The run was stopped while Detect was being launched, and halt() has already completed it.
+            kill(launchedProcess);
+            return;
+        }
+
+        onLaunch.accept(launchedProcess);
+        synchronized (this) {
+            schedulePoll();
+        }
+    }
+
+    // Must hold this.
+    private void schedulePoll() {
+        if (finished) {
+            return;
+        }
+        poll = getPollTimer().scheduleWithFixedDelay(this::queuePoll, POLL_INTERVAL_MILLIS, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void queuePoll() {
+        if (polling.compareAndSet(false, true)) {
+            POLL_EXECUTOR.execute(() -> {
+                try {
+                    poll();
+                } finally {
+                    polling.set(false);
+                }
+            });
+        }
+    }
+
+    private void poll() {
+        DetectProcess runningProcess;
+        synchronized (this) {
+            runningProcess = detectProcess;
+        }
+        if (null == runningProcess || exitCode.isDone()) {
+            return;
+        }
+
+        try {
+            Optional<Integer> detectExitCode = runningProcess.checkExitCode();
+            if (!detectExitCode.isPresent()) {
+                return;
+            }
+            logEnd();
+            finish(() -> exitCode.complete(detectExitCode.get()));
+        } catch (IOException | RuntimeException e) {
+            // The run would otherwise never complete, since nothing checks on it again.
+            finish(() -> exitCode.completeExceptionally(e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish(() -> exitCode.completeExceptionally(e));
+        }
+    }
+
+    private void finish(Runnable completion) {
+        DetectRunThrottle.Permit heldPermit;
+        synchronized (this) {
+            finished = true;
+            if (null != poll) {
+                poll.cancel(false);
+            }
+            heldPermit = permit;
+            permit = null;
+        }
+
+        if (null != heldPermit) {
+            heldPermit.close();
+        }
+        completion.run();
+    }
+
+    private void logEnd() {
+        if (null != detectRunner) {
+            detectRunner.logEnd();
+        } else {
+            logger.info(DetectRunner.ASTERISKS);
+            logger.info("END OF DETECT");
+            logger.info(DetectRunner.ASTERISKS);
+        }
+    }
+
+    private ScheduledExecutorService getPollTimer() {
+        return Timer.get();
+    }
+
+    private static ExecutorService createExecutor(int threads, String name) {
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+            threads,
+            threads,
+            60L,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            new NamingThreadFactory(new DaemonThreadFactory(), name)
+        );
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        return threadPoolExecutor;
+    }
+
+}
@@ -0,0 +1,37 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.synopsys.integration.jenkins.detect.extensions.DetectDownloadStrategy;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+
+public class DetectBulkPipelineCommands {
+    private final DetectBulkRun detectBulkRun;
+    private final DetectResultHandler detectResultHandler;
+
+    public DetectBulkPipelineCommands(DetectBulkRun detectBulkRun, JenkinsIntLogger logger) {
+        this.detectBulkRun = detectBulkRun;
+        this.detectResultHandler = new DetectResultHandler(logger);
+    }
+
+    /**
+     * Checks out and scans each repository on one of the scanning nodes. The returned future completes with the results of all repositories, or exceptionally if any of
+     * them failed or could not be scanned and the status should not be returned.
+     */
+    public CompletableFuture<List<DetectBulkResult>> startDetect(boolean returnStatus, List<DetectBulkTarget> targets, String detectArgumentString, DetectDownloadStrategy detectDownloadStrategy) {
+        return detectResultHandler.handleInvocationResultsAsync(returnStatus, detectBulkRun.start(targets, detectArgumentString, detectDownloadStrategy));
+    }
+
+    public void stopDetect() {
+        detectBulkRun.stop();
+    }
+
+}
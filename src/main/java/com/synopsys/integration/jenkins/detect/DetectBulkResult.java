@@ -0,0 +1,70 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect;
+
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * The outcome of scanning one repository of a bulk scan.
+ */
+public class DetectBulkResult extends DetectInvocationResult {
+    // Repositories that could not be checked out or scanned have no exit code of Detect.
+    public static final int NOT_SCANNED_EXIT_CODE = -1;
+
+    private final DetectBulkTarget target;
+    private final String nodeName;
+    @Nullable
+    private final String error;
+
+    public DetectBulkResult(int invocation, DetectBulkTarget target, String nodeName, int exitCode, long durationMillis) {
+        this(invocation, target, nodeName, exitCode, durationMillis, null);
+    }
+
+    public DetectBulkResult(int invocation, DetectBulkTarget target, String nodeName, int exitCode, long durationMillis, @Nullable String error) {
+        super(invocation, exitCode, durationMillis);
+        this.target = target;
+        this.nodeName = nodeName;
+        this.error = error;
+    }
+
+    public static DetectBulkResult notScanned(int invocation, DetectBulkTarget target, String nodeName, long durationMillis, String error) {
+        return new DetectBulkResult(invocation, target, nodeName, NOT_SCANNED_EXIT_CODE, durationMillis, error);
+    }
+
+    public DetectBulkTarget getTarget() {
+        return target;
+    }
+
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    @Nullable
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String getDescription() {
+        String description = String.format("repository %s on %s", target, nodeName);
+        return null != error ? String.format("%s (not scanned: %s)", description, error) : description;
+    }
+
+    @Override
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = super.toMap();
+        map.put("repository", target.getRepository());
+        map.put("ref", target.getRef());
+        map.put("nodeName", nodeName);
+        map.put("error", error);
+        return map;
+    }
+
+}
@@ -0,0 +1,305 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.synopsys.integration.jenkins.detect.exception.DetectJenkinsException;
+import com.synopsys.integration.jenkins.detect.extensions.DetectDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.service.DetectRunThrottle;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+
+import hudson.AbortException;
+import hudson.FilePath;
+import hudson.model.Node;
+
+/**
+ * Scans many repositories from one step, spread over a set of nodes. The repositories are dealt out to the nodes up front, and each node scans its own share in
+ * order; a node that runs out of work takes over the last repository of the node with the most left, so that a few slow repositories do not hold up the rest. Each
+ * repository is checked out into its own directory on the node that scans it and deleted afterwards. Setup of Detect is cached per node, so it is paid once per node
+ * rather than once per repository. A repository that cannot be checked out or scanned is recorded in the results and does not stop the others.
+ */
+public class DetectBulkRun {
+    public static final String BULK_DIRECTORY = "synopsys-detect-bulk";
+
+    private final List<Node> scanNodes;
+    private final RepositoryCheckout repositoryCheckout;
+    private final TaskRunFactory taskRunFactory;
+    private final JenkinsIntLogger logger;
+    private final int scansPerNode;
+    private final String bulkId = UUID.randomUUID().toString();
+    private final CompletableFuture<List<DetectBulkResult>> results = new CompletableFuture<>();
+
+    // Guarded by this.
+    private boolean stopped = false;
+    private final Set<DetectAsyncRun> runningScans = new HashSet<>();
+    private final List<Deque<Integer>> nodeQueues = new ArrayList<>();
+    private List<DetectBulkTarget> targets = Collections.emptyList();
+    @Nullable
+    private DetectBulkResult[] bulkResults;
+    private int remainingTargets = 0;
+    private int takenOverTargets = 0;
+    private long startTime;
+    private String detectArgumentString = StringUtils.EMPTY;
+    @Nullable
+    private DetectDownloadStrategy detectDownloadStrategy;
+
+    /**
+     * @param scanNodes The nodes to spread the repositories over.
+     * @param scansPerNode The most repositories to scan at the same time on each node.
+     */
+    public DetectBulkRun(List<Node> scanNodes, RepositoryCheckout repositoryCheckout, TaskRunFactory taskRunFactory, JenkinsIntLogger logger, int scansPerNode) {
+        this.scanNodes = new ArrayList<>(scanNodes);
+        this.repositoryCheckout = repositoryCheckout;
+        this.taskRunFactory = taskRunFactory;
+        this.logger = logger;
+        this.scansPerNode = Math.max(1, scansPerNode);
+    }
+
+    /**
+     * @return The results of all repositories in the order they were given, once every repository has been scanned or given up on. The future completes
+     * exceptionally if there is nowhere to scan, and is cancelled by {@link #stop()}.
+     */
+    public CompletableFuture<List<DetectBulkResult>> start(List<DetectBulkTarget> targets, String detectArgumentString, DetectDownloadStrategy detectDownloadStrategy) {
+        if (scanNodes.isEmpty()) {
+            results.completeExceptionally(new DetectJenkinsException("There are no online nodes to scan the repositories on."));
+            return results;
+        }
+        if (targets.isEmpty()) {
+            results.complete(Collections.emptyList());
+            return results;
+        }
+
+        synchronized (this) {
+            this.targets = new ArrayList<>(targets);
+            this.detectArgumentString = detectArgumentString;
+            this.detectDownloadStrategy = detectDownloadStrategy;
+            bulkResults = new DetectBulkResult[targets.size()];
+            remainingTargets = targets.size();
+            startTime = System.nanoTime();
+            for (int nodeIndex = 0; nodeIndex < scanNodes.size(); nodeIndex++) {
+                nodeQueues.add(new ArrayDeque<>());
+            }
+            for (int task = 0; task < targets.size(); task++) {
+                nodeQueues.get(task % scanNodes.size()).addLast(task);
+            }
+            logger.info(String.format("Scanning %d repositories on %d nodes, at most %d at a time on each node.", targets.size(), scanNodes.size(), scansPerNode));
+            for (int nodeIndex = 0; nodeIndex < scanNodes.size(); nodeIndex++) {
+                for (int slot = 0; slot < scansPerNode; slot++) {
+                    startNextTask(nodeIndex);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Kills every scan that is running and starts no more.
+     */
+    public void stop() {
+        List<DetectAsyncRun> runsToStop;
+        synchronized (this) {
+            stopped = true;
+            runsToStop = new ArrayList<>(runningScans);
+        }
+        runsToStop.forEach(DetectAsyncRun::stop);
+        results.cancel(false);
+    }
+
+    // Must hold this.
+    private void startNextTask(int nodeIndex) {
+        Integer task = nodeQueues.get(nodeIndex).pollFirst();
+        if (null == task) {
+            task = takeOverTask(nodeIndex);
+        }
+        if (null == task) {
+            return;
+        }
+        int startedTask = task;
+        DetectBulkTarget target = targets.get(startedTask);
+        String taskArgumentString = createTaskArgumentString(target);
+        DetectDownloadStrategy taskDownloadStrategy = detectDownloadStrategy;
+        // Checking out a repository is slow, so it happens on the setup pool rather than on the thread that finished the previous scan.
+        DetectAsyncRun.executeSetup(() -> scanRepository(nodeIndex, startedTask, target, taskArgumentString, taskDownloadStrategy));
+    }
+
+    // Must hold this. Takes from the back of the longest queue, which holds the repositories its node would have scanned last.
+    @Nullable
+    private Integer takeOverTask(int nodeIndex) {
+        Deque<Integer> longestQueue = null;
+        for (Deque<Integer> nodeQueue : nodeQueues) {
+            if (nodeQueue != nodeQueues.get(nodeIndex) && (null == longestQueue || nodeQueue.size() > longestQueue.size())) {
+                longestQueue = nodeQueue;
+            }
+        }
+        Integer task = null != longestQueue ? longestQueue.pollLast() : null;
+        if (null != task) {
+            takenOverTargets++;
+        }
+        return task;
+    }
+
+    private String createTaskArgumentString(DetectBulkTarget target) {
+        StringBuilder taskArgumentString = new StringBuilder(detectArgumentString);
+        if (!detectArgumentString.contains(DetectShardedRun.PROJECT_NAME_PROPERTY)) {
+            taskArgumentString.append(String.format(" --%s=%s", DetectShardedRun.PROJECT_NAME_PROPERTY, target.getName()));
+        }
+        if (!detectArgumentString.contains(DetectShardedRun.PROJECT_VERSION_PROPERTY) && null != target.getRef()) {
+            taskArgumentString.append(String.format(" --%s=%s", DetectShardedRun.PROJECT_VERSION_PROPERTY, target.getRef()));
+        }
+        return taskArgumentString.toString().trim();
+    }
+
+    private void scanRepository(int nodeIndex, int task, DetectBulkTarget target, String taskArgumentString, DetectDownloadStrategy taskDownloadStrategy) {
+        long taskStartTime = System.nanoTime();
+        Node node = scanNodes.get(nodeIndex);
+        String nodeName = StringUtils.defaultIfEmpty(node.getNodeName(), DetectRunThrottle.BUILT_IN_NODE_NAME);
+        FilePath checkout = null;
+        DetectAsyncRun detectAsyncRun;
+        try {
+            checkout = createCheckoutDirectory(node, task);
+            repositoryCheckout.checkout(node, target, checkout);
+            detectAsyncRun = taskRunFactory.create(node, checkout, target);
+        } catch (IOException | RuntimeException e) {
+            // Nothing waits on the setup pool for this task, so every failure has to be recorded here or the bulk run would never finish.
+            onTaskFinished(nodeIndex, task, DetectBulkResult.notScanned(task + 1, target, nodeName, elapsedMillis(taskStartTime), describe(e)), checkout);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            onTaskFinished(nodeIndex, task, DetectBulkResult.notScanned(task + 1, target, nodeName, elapsedMillis(taskStartTime), "Interrupted"), checkout);
+            return;
+        }
+
+        synchronized (this) {
+            if (stopped) {
+                deleteQuietly(checkout);
+                return;
+            }
+            runningScans.add(detectAsyncRun);
+        }
+        logger.info(String.format("Scanning %s on %s.", target, nodeName));
+        FilePath checkoutToDelete = checkout;
+        detectAsyncRun.start(null, taskArgumentString, taskDownloadStrategy)
+            .whenComplete((exitCode, throwable) -> {
+                synchronized (this) {
+                    runningScans.remove(detectAsyncRun);
+                }
+                DetectBulkResult bulkResult;
+                if (null == throwable && null != exitCode) {
+                    bulkResult = new DetectBulkResult(task + 1, target, nodeName, exitCode, elapsedMillis(taskStartTime));
+                } else {
+                    Throwable cause = DetectAsyncRun.unwrap(throwable);
+                    String error = null == cause || cause instanceof CancellationException ? "The scan was stopped before it finished." : describe(cause);
+                    bulkResult = DetectBulkResult.notScanned(task + 1, target, nodeName, elapsedMillis(taskStartTime), error);
+                }
+                onTaskFinished(nodeIndex, task, bulkResult, checkoutToDelete);
+            });
+    }
+
+    private FilePath createCheckoutDirectory(Node node, int task) throws IOException, InterruptedException {
+        FilePath nodeRootPath = node.getRootPath();
+        if (null == nodeRootPath) {
+            throw new AbortException(String.format("The node %s is offline.", node.getNodeName()));
+        }
+        FilePath checkout = nodeRootPath.child(BULK_DIRECTORY).child(bulkId).child(String.valueOf(task + 1));
+        checkout.mkdirs();
+        return checkout;
+    }
+
+    private void onTaskFinished(int nodeIndex, int task, DetectBulkResult bulkResult, @Nullable FilePath checkout) {
+        deleteQuietly(checkout);
+
+        List<DetectBulkResult> finishedResults = null;
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            bulkResults[task] = bulkResult;
+            if (null != bulkResult.getError()) {
+                logger.warn(String.format("Could not scan %s on %s: %s", bulkResult.getTarget(), bulkResult.getNodeName(), bulkResult.getError()));
+            } else {
+                logger.info(String.format("%s on %s finished with exit code %d after %d ms.", bulkResult.getTarget(), bulkResult.getNodeName(), bulkResult.getExitCode(),
+                    bulkResult.getDurationMillis()));
+            }
+            remainingTargets--;
+            if (remainingTargets == 0) {
+                finishedResults = Collections.unmodifiableList(Arrays.asList(bulkResults));
+                logSummary(finishedResults);
+            } else {
+                startNextTask(nodeIndex);
+            }
+        }
+
+        if (null != finishedResults) {
+            results.complete(finishedResults);
+        }
+    }
+
+    // Must hold this.
+    private void logSummary(List<DetectBulkResult> finishedResults) {
+        long wallClockMillis = elapsedMillis(startTime);
+        long summedMillis = finishedResults.stream().mapToLong(DetectBulkResult::getDurationMillis).sum();
+        long notScanned = finishedResults.stream().filter(bulkResult -> null != bulkResult.getError()).count();
+        logger.info(String.format("Scanned %d repositories in %d ms; scanned one after another they would have taken %d ms. %d could not be scanned, and %d were taken over "
+                                      + "by nodes that ran out of work.", finishedResults.size() - notScanned, wallClockMillis, summedMillis, notScanned, takenOverTargets));
+    }
+
+    private static String describe(Throwable throwable) {
+        return StringUtils.defaultIfBlank(throwable.getMessage(), throwable.getClass().getSimpleName());
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private void deleteQuietly(@Nullable FilePath checkout) {
+        if (null == checkout) {
+            return;
+        }
+        try {
+            checkout.deleteRecursive();
+        } catch (IOException e) {
+            logger.warn(String.format("Could not delete the checkout at %s: %s", checkout.getRemote(), e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Checks out a repository into an empty directory on the node that scans it.
+     */
+    @FunctionalInterface
+    public interface RepositoryCheckout {
+        void checkout(Node node, DetectBulkTarget target, FilePath directory) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Creates the run that scans one checked out repository on the given node.
+     */
+    @FunctionalInterface
+    public interface TaskRunFactory {
+        DetectAsyncRun create(Node node, FilePath checkout, DetectBulkTarget target) throws IOException, InterruptedException;
+    }
+
+}
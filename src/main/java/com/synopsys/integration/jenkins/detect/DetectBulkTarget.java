@@ -0,0 +1,65 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A repository to scan in a bulk scan, optionally at a branch or tag.
+ */
+public class DetectBulkTarget {
+    public static final String REF_SEPARATOR = "#";
+
+    private final String repository;
+    @Nullable
+    private final String ref;
+
+    public DetectBulkTarget(String repository, @Nullable String ref) {
+        this.repository = repository;
+        this.ref = StringUtils.trimToNull(ref);
+    }
+
+    /**
+     * @param target The URL of the repository, followed by # and the branch or tag to scan if it is not the default branch, e.g.
+     * https://github.com/example/app.git#release/2.0
+     */
+    public static DetectBulkTarget parse(String target) {
+        String trimmedTarget = StringUtils.trimToEmpty(target);
+        int separatorIndex = trimmedTarget.lastIndexOf(REF_SEPARATOR);
+        if (separatorIndex < 0) {
+            return new DetectBulkTarget(trimmedTarget, null);
+        }
+        return new DetectBulkTarget(trimmedTarget.substring(0, separatorIndex), trimmedTarget.substring(separatorIndex + 1));
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+
+    @Nullable
+    public String getRef() {
+        return ref;
+    }
+
+    /**
+     * @return The last segment of the repository URL without .git, which is used as the project name unless the Detect arguments set one.
+     */
+    public String getName() {
+        String path = StringUtils.removeEnd(StringUtils.removeEnd(repository, "/"), ".git");
+        int nameIndex = Math.max(path.lastIndexOf('/'), path.lastIndexOf(':'));
+        return path.substring(nameIndex + 1);
+    }
+
+    @Override
+    public String toString() {
+        return null != ref ? repository + REF_SEPARATOR + ref : repository;
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect;
+
+import java.util.List;
+import java.util.Optional;
+
+import javax.annotation.Nullable;
+
+import com.synopsys.integration.util.IntEnvironmentVariables;
+
+/**
+ * Everything needed to launch Detect on the node once setup has finished.
+ */
+public class DetectCommandLine {
+    private final IntEnvironmentVariables intEnvironmentVariables;
+    private final List<String> detectCommands;
+    @Nullable
+    private final String lockedProjectVersion;
+
+    public DetectCommandLine(IntEnvironmentVariables intEnvironmentVariables, List<String> detectCommands) {
+        this(intEnvironmentVariables, detectCommands, null);
+    }
+
+    /**
+     * @param lockedProjectVersion The Black Duck project version no other Detect run may scan at the same time, if any.
+     */
+    public DetectCommandLine(IntEnvironmentVariables intEnvironmentVariables, List<String> detectCommands, @Nullable String lockedProjectVersion) {
+        this.intEnvironmentVariables = intEnvironmentVariables;
+        this.detectCommands = detectCommands;
+        this.lockedProjectVersion = lockedProjectVersion;
+    }
+
+    public IntEnvironmentVariables getIntEnvironmentVariables() {
+        return intEnvironmentVariables;
+    }
+
+    public List<String> getDetectCommands() {
+        return detectCommands;
+    }
+
+    public Optional<String> getLockedProjectVersion() {
+        return Optional.ofNullable(lockedProjectVersion);
+    }
+
+}
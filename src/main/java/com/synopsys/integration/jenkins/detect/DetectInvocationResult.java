@@ -0,0 +1,60 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The outcome of one Detect invocation in a parallel run.
+ */
+public class DetectInvocationResult {
+    private final int invocation;
+    private final int exitCode;
+    private final long durationMillis;
+
+    public DetectInvocationResult(int invocation, int exitCode, long durationMillis) {
+        this.invocation = invocation;
+        this.exitCode = exitCode;
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * @return The position of the invocation in the list it was started from, counting from 1.
+     */
+    public int getInvocation() {
+        return invocation;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * @return How the invocation is referred to in the build log.
+     */
+    public String getDescription() {
+        return "invocation " + invocation;
+    }
+
+    /**
+     * @return The result as plain values that a pipeline script can read without approval.
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("invocation", invocation);
+        map.put("exitCode", exitCode);
+        map.put("durationMillis", durationMillis);
+        return map;
+    }
+
+}
@@ -9,7 +9,14 @@ package com.synopsys.integration.jenkins.detect;
 
 public enum DetectJenkinsEnvironmentVariable {
     USER_PROVIDED_JAR_PATH("DETECT_JAR"),
-    SHOULD_ESCAPE("DETECT_PLUGIN_ESCAPING");
+    SHOULD_ESCAPE("DETECT_PLUGIN_ESCAPING"),
+    SCRIPT_CACHE_TTL("DETECT_PLUGIN_SCRIPT_CACHE_TTL"),
+    SKIP_UNCHANGED_MANIFESTS("DETECT_PLUGIN_SKIP_UNCHANGED_MANIFESTS"),
+    DEDUPLICATE_SCANS("DETECT_PLUGIN_DEDUPLICATE_SCANS"),
+    COALESCE_SCANS("DETECT_PLUGIN_COALESCE_SCANS"),
+    LOCK_PROJECT_VERSION("DETECT_PLUGIN_LOCK_PROJECT_VERSION"),
+    SCAN_PRIORITY("DETECT_PLUGIN_SCAN_PRIORITY"),
+    BLACK_DUCK_OUTAGE_MODE("DETECT_PLUGIN_BLACK_DUCK_OUTAGE_MODE");
 
     private final String environmentVariable;
 
@@ -0,0 +1,43 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.synopsys.integration.jenkins.detect.extensions.DetectDownloadStrategy;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+
+public class DetectOffloadedPipelineCommands {
+    private final DetectOffloadedRun detectOffloadedRun;
+    private final DetectResultHandler detectResultHandler;
+
+    public DetectOffloadedPipelineCommands(DetectOffloadedRun detectOffloadedRun, JenkinsIntLogger logger) {
+        this.detectOffloadedRun = detectOffloadedRun;
+        this.detectResultHandler = new DetectResultHandler(logger);
+    }
+
+    /**
+     * Scans a snapshot of the workspace on a scanning node. The returned future completes with the exit code, or exceptionally if Detect failed and the status should
+     * not be returned.
+     */
+    public CompletableFuture<Integer> startDetect(boolean returnStatus, String detectArgumentString, DetectDownloadStrategy detectDownloadStrategy) {
+        return detectResultHandler.handleExitCodeAsync(returnStatus, detectOffloadedRun.start(detectArgumentString, detectDownloadStrategy));
+    }
+
+    /**
+     * Completes once the snapshot of the workspace has been copied to the scanning node, so the workspace is no longer needed.
+     */
+    public CompletableFuture<Void> getSnapshotTaken() {
+        return detectOffloadedRun.getSnapshotTaken();
+    }
+
+    public void stopDetect() {
+        detectOffloadedRun.stop();
+    }
+
+}
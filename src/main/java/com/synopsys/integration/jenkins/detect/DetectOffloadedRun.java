@@ -0,0 +1,224 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.synopsys.integration.jenkins.detect.exception.DetectJenkinsException;
+import com.synopsys.integration.jenkins.detect.extensions.DetectDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.service.DetectRunThrottle;
+import com.synopsys.integration.jenkins.detect.service.DetectShardPlanner;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+
+import hudson.AbortException;
+import hudson.FilePath;
+import hudson.model.Node;
+
+/**
+ * Scans a snapshot of the workspace on a dedicated scanning node instead of the node that built it. Only the package manager manifests and lockfiles (and, if asked
+ * for, binaries) are copied, compressed in transit, to the scanning node that runs the fewest Detect runs; once the snapshot is taken the workspace is no longer
+ * needed, so the build can give up its executor while Detect runs. The log of Detect is written to the build's log as usual.
+ */
+public class DetectOffloadedRun {
+    public static final String SNAPSHOTS_DIRECTORY = "synopsys-detect-offload";
+    public static final List<String> BINARY_FILE_PATTERNS = Collections.unmodifiableList(Arrays.asList(
+        "*.jar", "*.war", "*.ear", "*.aar", "*.zip", "*.tar.gz", "*.tgz", "*.rpm", "*.deb", "*.dll", "*.exe", "*.so", "*.dylib"
+    ));
+    // Dependencies installed into the workspace are resolved again by Detect from the manifests, so they are not shipped.
+    public static final String SNAPSHOT_EXCLUDES = "**/node_modules/**,**/bower_components/**";
+
+    private final FilePath workspace;
+    private final List<Node> scanNodes;
+    private final ScanRunFactory scanRunFactory;
+    private final JenkinsIntLogger logger;
+    private final String snapshotIncludes;
+    private final String snapshotId = UUID.randomUUID().toString();
+    private final CompletableFuture<Void> snapshotTaken = new CompletableFuture<>();
+    private final CompletableFuture<Integer> exitCode = new CompletableFuture<>();
+
+    // Guarded by this.
+    private boolean stopped = false;
+    @Nullable
+    private DetectAsyncRun detectAsyncRun;
+
+    /**
+     * @param scanNodes The nodes that may scan the snapshot, in the order they should be preferred when they are equally busy.
+     */
+    public DetectOffloadedRun(FilePath workspace, List<Node> scanNodes, ScanRunFactory scanRunFactory, JenkinsIntLogger logger, boolean includeBinaries) {
+        this.workspace = workspace;
+        this.scanNodes = new ArrayList<>(scanNodes);
+        this.scanRunFactory = scanRunFactory;
+        this.logger = logger;
+        this.snapshotIncludes = createSnapshotIncludes(includeBinaries);
+    }
+
+    public static String createSnapshotIncludes(boolean includeBinaries) {
+        List<String> fileNamePatterns = new ArrayList<>(DetectShardPlanner.MANIFEST_FILE_NAMES);
+        if (includeBinaries) {
+            fileNamePatterns.addAll(BINARY_FILE_PATTERNS);
+        }
+        return fileNamePatterns.stream()
+                   .map(fileNamePattern -> "**/" + fileNamePattern)
+                   .collect(Collectors.joining(","));
+    }
+
+    /**
+     * @return The exit code of Detect once it has finished on the scanning node. The future completes exceptionally if the snapshot could not be taken or scanned,
+     * and is cancelled by {@link #stop()}.
+     */
+    public CompletableFuture<Integer> start(String detectArgumentString, DetectDownloadStrategy detectDownloadStrategy) {
+        if (scanNodes.isEmpty()) {
+            DetectJenkinsException exception = new DetectJenkinsException("There are no online nodes to offload the scan to.");
+            snapshotTaken.completeExceptionally(exception);
+            exitCode.completeExceptionally(exception);
+            return exitCode;
+        }
+
+        // Copying the snapshot is slow, so it happens on the setup pool rather than on the thread that started the scan.
+        DetectAsyncRun.executeSetup(() -> scanSnapshot(detectArgumentString, detectDownloadStrategy));
+        return exitCode;
+    }
+
+    /**
+     * @return Completes once the snapshot has been copied to the scanning node, after which the workspace may change or go away without affecting the scan.
+     */
+    public CompletableFuture<Void> getSnapshotTaken() {
+        return snapshotTaken;
+    }
+
+    /**
+     * Kills Detect if it is running, and does not start it otherwise.
+     */
+    public void stop() {
+        DetectAsyncRun runToStop;
+        synchronized (this) {
+            stopped = true;
+            runToStop = detectAsyncRun;
+        }
+        if (null != runToStop) {
+            runToStop.stop();
+        }
+        snapshotTaken.cancel(false);
+        exitCode.cancel(false);
+    }
+
+    private void scanSnapshot(String detectArgumentString, DetectDownloadStrategy detectDownloadStrategy) {
+        Node scanNode = chooseScanNode();
+        String nodeName = StringUtils.defaultIfEmpty(scanNode.getNodeName(), DetectRunThrottle.BUILT_IN_NODE_NAME);
+        FilePath snapshot = null;
+        DetectAsyncRun offloadedRun;
+        try {
+            long copyStartTime = System.nanoTime();
+            snapshot = copySnapshot(scanNode);
+            logger.info(String.format("Copied a snapshot of the workspace to %s in %d ms.", nodeName, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - copyStartTime)));
+            snapshotTaken.complete(null);
+            offloadedRun = scanRunFactory.create(scanNode, snapshot);
+        } catch (IOException e) {
+            fail(e, snapshot);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e, snapshot);
+            return;
+        }
+
+        synchronized (this) {
+            if (stopped) {
+                deleteQuietly(snapshot);
+                return;
+            }
+            detectAsyncRun = offloadedRun;
+        }
+        logger.info(String.format("Scanning the snapshot on %s.", nodeName));
+        FilePath snapshotToDelete = snapshot;
+        offloadedRun.start(null, detectArgumentString, detectDownloadStrategy)
+            .whenComplete((scanExitCode, throwable) -> {
+                deleteQuietly(snapshotToDelete);
+                if (null == throwable) {
+                    exitCode.complete(scanExitCode);
+                } else {
+                    exitCode.completeExceptionally(throwable);
+                }
+            });
+    }
+
+    private Node chooseScanNode() {
+        Map<String, Integer> runningScans = DetectRunThrottle.getOccupancies().stream()
+                                                .filter(occupancy -> occupancy.getName().startsWith(DetectRunThrottle.NODE_PREFIX))
+                                                .collect(Collectors.toMap(
+                                                    occupancy -> occupancy.getName().substring(DetectRunThrottle.NODE_PREFIX.length()),
+                                                    DetectRunThrottle.Occupancy::getCurrent
+                                                ));
+        Function<Node, Integer> runningScansOnNode = scanNode -> runningScans.getOrDefault(
+            StringUtils.defaultIfEmpty(scanNode.getNodeName(), DetectRunThrottle.BUILT_IN_NODE_NAME),
+            0
+        );
+        // The sort is stable, so equally busy nodes keep their order of preference.
+        List<Node> nodesByRunningScans = new ArrayList<>(scanNodes);
+        nodesByRunningScans.sort(Comparator.comparing(runningScansOnNode));
+        return nodesByRunningScans.get(0);
+    }
+
+    private FilePath copySnapshot(Node scanNode) throws IOException, InterruptedException {
+        FilePath nodeRootPath = scanNode.getRootPath();
+        if (null == nodeRootPath) {
+            throw new AbortException(String.format("The node %s is offline.", scanNode.getNodeName()));
+        }
+        FilePath target = nodeRootPath.child(SNAPSHOTS_DIRECTORY).child(snapshotId);
+        target.mkdirs();
+        int copiedFiles = workspace.copyRecursiveTo(snapshotIncludes, SNAPSHOT_EXCLUDES, target);
+        if (copiedFiles == 0) {
+            throw new AbortException("The workspace has no package manager manifests to scan on another node.");
+        }
+        logger.info(String.format("The snapshot holds %d files.", copiedFiles));
+        return target;
+    }
+
+    private void fail(Exception exception, @Nullable FilePath snapshot) {
+        deleteQuietly(snapshot);
+        snapshotTaken.completeExceptionally(exception);
+        exitCode.completeExceptionally(exception);
+    }
+
+    private void deleteQuietly(@Nullable FilePath snapshot) {
+        if (null == snapshot) {
+            return;
+        }
+        try {
+            snapshot.deleteRecursive();
+        } catch (IOException e) {
+            logger.warn(String.format("Could not delete the snapshot of the workspace at %s: %s", snapshot.getRemote(), e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates the run that scans the snapshot on the given node.
+     */
+    @FunctionalInterface
+    public interface ScanRunFactory {
+        DetectAsyncRun create(Node scanNode, FilePath snapshot) throws IOException, InterruptedException;
+    }
+
+}
@@ -0,0 +1,37 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.synopsys.integration.jenkins.detect.extensions.DetectDownloadStrategy;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+
+public class DetectParallelPipelineCommands {
+    private final DetectParallelRun detectParallelRun;
+    private final DetectResultHandler detectResultHandler;
+
+    public DetectParallelPipelineCommands(DetectParallelRun detectParallelRun, JenkinsIntLogger logger) {
+        this.detectParallelRun = detectParallelRun;
+        this.detectResultHandler = new DetectResultHandler(logger);
+    }
+
+    /**
+     * Starts one Detect invocation per argument string, sharing a single setup. The returned future completes with the results of all invocations, or exceptionally if
+     * any of them failed and the status should not be returned.
+     */
+    public CompletableFuture<List<DetectInvocationResult>> startDetect(boolean returnStatus, List<String> detectArgumentStrings, DetectDownloadStrategy detectDownloadStrategy) {
+        return detectResultHandler.handleInvocationResultsAsync(returnStatus, detectParallelRun.start(null, detectArgumentStrings, detectDownloadStrategy));
+    }
+
+    public void stopDetect() {
+        detectParallelRun.stop();
+    }
+
+}
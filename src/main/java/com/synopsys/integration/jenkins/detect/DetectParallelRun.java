@@ -0,0 +1,145 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import javax.annotation.Nullable;
+
+import com.synopsys.integration.jenkins.detect.exception.DetectJenkinsException;
+import com.synopsys.integration.jenkins.detect.extensions.DetectDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.service.process.DetectProcessLauncher;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+
+/**
+ * Runs several invocations of Detect on one node side by side. The environment, the execution strategy and the setup on the node are resolved once for all of them,
+ * and at most a fixed number of invocations run at the same time. Each invocation still takes its own run slot, so the configured concurrency limits apply as well.
+ */
+public class DetectParallelRun {
+    private final DetectRunner detectRunner;
+    private final IntFunction<DetectProcessLauncher> detectProcessLaunchers;
+    private final JenkinsIntLogger logger;
+    private final int maxParallelInvocations;
+    private final CompletableFuture<List<DetectInvocationResult>> results = new CompletableFuture<>();
+
+    // Guarded by this.
+    private boolean stopped = false;
+    private final List<DetectAsyncRun> startedRuns = new ArrayList<>();
+    private List<DetectCommandLine> detectCommandLines = Collections.emptyList();
+    @Nullable
+    private DetectInvocationResult[] invocationResults;
+    private int remainingInvocations = 0;
+
+    /**
+     * @param detectProcessLaunchers Creates the launcher for each invocation, given its position counting from 1.
+     */
+    public DetectParallelRun(DetectRunner detectRunner, IntFunction<DetectProcessLauncher> detectProcessLaunchers, JenkinsIntLogger logger, int maxParallelInvocations) {
+        this.detectRunner = detectRunner;
+        this.detectProcessLaunchers = detectProcessLaunchers;
+        this.logger = logger;
+        this.maxParallelInvocations = Math.max(1, maxParallelInvocations);
+    }
+
+    /**
+     * @return The results of all invocations in the order they were given, once every invocation has finished. The future completes exceptionally if any invocation
+     * could not be run, and is cancelled by {@link #stop()}.
+     */
+    public CompletableFuture<List<DetectInvocationResult>> start(@Nullable String remoteJdkHome, List<String> detectArgumentStrings, DetectDownloadStrategy detectDownloadStrategy) {
+        if (detectArgumentStrings.isEmpty()) {
+            results.complete(Collections.emptyList());
+            return results;
+        }
+
+        DetectAsyncRun.executeSetup(() -> {
+            List<DetectCommandLine> preparedCommandLines;
+            try {
+                preparedCommandLines = detectRunner.prepareDetect(remoteJdkHome, detectArgumentStrings, detectDownloadStrategy);
+            } catch (Exception e) {
+                results.completeExceptionally(e);
+                return;
+            }
+
+            synchronized (this) {
+                if (stopped) {
+                    return;
+                }
+                detectCommandLines = preparedCommandLines;
+                invocationResults = new DetectInvocationResult[preparedCommandLines.size()];
+                remainingInvocations = preparedCommandLines.size();
+                logger.info(String.format("Running %d Detect invocations, at most %d at a time.", remainingInvocations, maxParallelInvocations));
+                while (startedRuns.size() < Math.min(maxParallelInvocations, detectCommandLines.size())) {
+                    startNextInvocation();
+                }
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Kills every invocation that is running and starts no more.
+     */
+    public void stop() {
+        List<DetectAsyncRun> runsToStop;
+        synchronized (this) {
+            stopped = true;
+            runsToStop = new ArrayList<>(startedRuns);
+        }
+        runsToStop.forEach(DetectAsyncRun::stop);
+        results.cancel(false);
+    }
+
+    // Must hold this.
+    private void startNextInvocation() {
+        int invocation = startedRuns.size() + 1;
+        DetectAsyncRun detectAsyncRun = new DetectAsyncRun(detectRunner, detectProcessLaunchers.apply(invocation), logger);
+        startedRuns.add(detectAsyncRun);
+        long startTime = System.nanoTime();
+        detectAsyncRun.start(detectCommandLines.get(invocation - 1))
+            .whenComplete((exitCode, throwable) -> onInvocationFinished(invocation, startTime, exitCode, throwable));
+    }
+
+    private void onInvocationFinished(int invocation, long startTime, @Nullable Integer exitCode, @Nullable Throwable throwable) {
+        List<DetectAsyncRun> runsToStop = Collections.emptyList();
+        List<DetectInvocationResult> finishedResults = null;
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            if (null != throwable) {
+                Throwable cause = DetectAsyncRun.unwrap(throwable);
+                // One invocation that cannot run fails the whole step, so the others are not left running unattended.
+                stopped = true;
+                runsToStop = new ArrayList<>(startedRuns);
+                results.completeExceptionally(cause instanceof CancellationException ? new DetectJenkinsException("Detect invocation " + invocation + " was stopped before it finished.") : cause);
+            } else {
+                long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+                invocationResults[invocation - 1] = new DetectInvocationResult(invocation, exitCode, durationMillis);
+                logger.info(String.format("Detect invocation %d of %d finished with exit code %d after %d ms.", invocation, detectCommandLines.size(), exitCode, durationMillis));
+                remainingInvocations--;
+                if (startedRuns.size() < detectCommandLines.size()) {
+                    startNextInvocation();
+                } else if (remainingInvocations == 0) {
+                    finishedResults = Collections.unmodifiableList(Arrays.asList(invocationResults));
+                }
+            }
+        }
+
+        runsToStop.forEach(DetectAsyncRun::stop);
+        if (null != finishedResults) {
+            results.complete(finishedResults);
+        }
+    }
+
+}
@@ -8,33 +8,76 @@
 package com.synopsys.integration.jenkins.detect;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
 
 import com.synopsys.integration.exception.IntegrationException;
 import com.synopsys.integration.jenkins.detect.exception.DetectJenkinsException;
 import com.synopsys.integration.jenkins.detect.extensions.DetectDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.service.process.DetectProcess;
 import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
 
 public class DetectPipelineCommands {
-    private final JenkinsIntLogger logger;
+    @Nullable
     private final DetectRunner detectRunner;
+    @Nullable
+    private final DetectAsyncRun detectAsyncRun;
+    private final DetectResultHandler detectResultHandler;
 
     public DetectPipelineCommands(DetectRunner detectRunner, JenkinsIntLogger logger) {
+        this(detectRunner, logger, null);
+    }
+
+    public DetectPipelineCommands(@Nullable DetectRunner detectRunner, JenkinsIntLogger logger, @Nullable DetectAsyncRun detectAsyncRun) {
         this.detectRunner = detectRunner;
-        this.logger = logger;
+        this.detectAsyncRun = detectAsyncRun;
+        this.detectResultHandler = new DetectResultHandler(logger);
     }
 
     public int runDetect(boolean returnStatus, String detectArgumentString, DetectDownloadStrategy detectDownloadStrategy) throws IOException, IntegrationException, InterruptedException {
+        if (null == detectRunner) {
+            throw new DetectJenkinsException("Detect cannot be run without a runner. Check Jenkins and environment.");
+        }
         int exitCode = detectRunner.runDetect(null, detectArgumentString, detectDownloadStrategy);
-        if (exitCode > 0) {
-            String errorMsg = "Detect failed with exit code " + exitCode;
-            if (returnStatus) {
-                logger.error(errorMsg);
-            } else {
-                throw new DetectJenkinsException(errorMsg);
-            }
+        return detectResultHandler.handleExitCode(returnStatus, exitCode);
+    }
+
+    /**
+     * Starts Detect without blocking the calling thread. The returned future completes with the exit code, or exceptionally if Detect failed and the status should
+     * not be returned.
+     */
+    public CompletableFuture<Integer> startDetect(boolean returnStatus, String detectArgumentString, DetectDownloadStrategy detectDownloadStrategy) throws DetectJenkinsException {
+        return startDetect(returnStatus, detectArgumentString, detectDownloadStrategy, launchedProcess -> {});
+    }
+
+    /**
+     * @param onLaunch Called with the Detect process once it has been launched, so that a durable process can be saved with the build.
+     */
+    public CompletableFuture<Integer> startDetect(boolean returnStatus, String detectArgumentString, DetectDownloadStrategy detectDownloadStrategy, Consumer<DetectProcess> onLaunch)
+        throws DetectJenkinsException {
+        return detectResultHandler.handleExitCodeAsync(returnStatus, getDetectAsyncRun().start(null, detectArgumentString, detectDownloadStrategy, onLaunch));
+    }
+
+    /**
+     * Waits for the Detect process this was created with, without starting a new one. Used to pick up a durable run again after Jenkins restarts.
+     */
+    public CompletableFuture<Integer> resumeDetect(boolean returnStatus) throws DetectJenkinsException {
+        return detectResultHandler.handleExitCodeAsync(returnStatus, getDetectAsyncRun().getExitCode());
+    }
+
+    public void stopDetect() {
+        if (null != detectAsyncRun) {
+            detectAsyncRun.stop();
         }
+    }
 
-        return exitCode;
+    private DetectAsyncRun getDetectAsyncRun() throws DetectJenkinsException {
+        if (null == detectAsyncRun) {
+            throw new DetectJenkinsException("Detect cannot be started asynchronously without a launcher. Check Jenkins and environment.");
+        }
+        return detectAsyncRun;
     }
 
 }
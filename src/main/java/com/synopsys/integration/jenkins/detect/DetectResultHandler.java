@@ -0,0 +1,86 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.synopsys.integration.jenkins.detect.exception.DetectJenkinsException;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+
+/**
+ * Turns the exit codes of Detect into the result of a pipeline step: a failure is either logged, if the status should be returned, or thrown.
+ */
+class DetectResultHandler {
+    private final JenkinsIntLogger logger;
+
+    DetectResultHandler(JenkinsIntLogger logger) {
+        this.logger = logger;
+    }
+
+    int handleExitCode(boolean returnStatus, int exitCode) throws DetectJenkinsException {
+        if (exitCode > 0) {
+            String errorMsg = "Detect failed with exit code " + exitCode;
+            if (returnStatus) {
+                logger.error(errorMsg);
+            } else {
+                throw new DetectJenkinsException(errorMsg);
+            }
+        }
+
+        return exitCode;
+    }
+
+    CompletableFuture<Integer> handleExitCodeAsync(boolean returnStatus, CompletableFuture<Integer> futureExitCode) {
+        return futureExitCode
+                   .thenApply(exitCode -> {
+                       try {
+                           return handleExitCode(returnStatus, exitCode);
+                       } catch (DetectJenkinsException e) {
+                           throw new CompletionException(e);
+                       }
+                   });
+    }
+
+    <T extends DetectInvocationResult> CompletableFuture<List<T>> handleInvocationResultsAsync(boolean returnStatus, CompletableFuture<List<T>> futureInvocationResults) {
+        return futureInvocationResults
+                   .thenApply(invocationResults -> {
+                       try {
+                           return handleInvocationResults(returnStatus, invocationResults);
+                       } catch (DetectJenkinsException e) {
+                           throw new CompletionException(e);
+                       }
+                   });
+    }
+
+    private <T extends DetectInvocationResult> List<T> handleInvocationResults(boolean returnStatus, List<T> invocationResults) throws DetectJenkinsException {
+        StringBuilder failedInvocations = new StringBuilder();
+        long longestDurationMillis = 0;
+        for (DetectInvocationResult invocationResult : invocationResults) {
+            longestDurationMillis = Math.max(longestDurationMillis, invocationResult.getDurationMillis());
+            // Invocations that could not be run at all have a negative exit code.
+            if (invocationResult.getExitCode() != 0) {
+                failedInvocations.append(String.format("%n  %s: exit code %d", invocationResult.getDescription(), invocationResult.getExitCode()));
+            }
+        }
+        logger.info(String.format("All %d Detect invocations finished. The longest took %d ms.", invocationResults.size(), longestDurationMillis));
+
+        if (failedInvocations.length() > 0) {
+            String errorMsg = "Detect failed for some invocations:" + failedInvocations;
+            if (returnStatus) {
+                logger.error(errorMsg);
+            } else {
+                throw new DetectJenkinsException(errorMsg);
+            }
+        }
+
+        return invocationResults;
+    }
+
+}
@@ -8,27 +8,57 @@
 package com.synopsys.integration.jenkins.detect;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.Nullable;
 
 import com.synopsys.integration.exception.IntegrationException;
+import com.synopsys.integration.jenkins.detect.exception.DetectJenkinsException;
 import com.synopsys.integration.jenkins.detect.extensions.DetectDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.extensions.label.DetectWarmLabelFinder;
+import com.synopsys.integration.jenkins.detect.service.BlackDuckHealthMonitor;
+import com.synopsys.integration.jenkins.detect.service.BlackDuckOutageMode;
 import com.synopsys.integration.jenkins.detect.service.DetectArgumentService;
 import com.synopsys.integration.jenkins.detect.service.DetectEnvironmentService;
+import com.synopsys.integration.jenkins.detect.service.DetectManifestCheck;
+import com.synopsys.integration.jenkins.detect.service.DetectRunThrottle;
+import com.synopsys.integration.jenkins.detect.service.DetectScanCoalescer;
+import com.synopsys.integration.jenkins.detect.service.DetectScanLedger;
 import com.synopsys.integration.jenkins.detect.service.strategy.DetectExecutionStrategy;
+import com.synopsys.integration.jenkins.detect.service.strategy.DetectSetupResult;
 import com.synopsys.integration.jenkins.detect.service.strategy.DetectStrategyService;
+import com.synopsys.integration.jenkins.detect.service.strategy.NodeCapabilityCache;
 import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
 import com.synopsys.integration.jenkins.service.JenkinsRemotingService;
 import com.synopsys.integration.util.IntEnvironmentVariables;
-import com.synopsys.integration.util.OperatingSystemType;
 
 public class DetectRunner {
     public static final String ASTERISKS = "******************************************************************************";
+    public static final String OFFLINE_MODE_PROPERTY = "blackduck.offline.mode";
 
     private final DetectEnvironmentService detectEnvironmentService;
     private final JenkinsRemotingService remotingService;
     private final DetectStrategyService detectStrategyService;
     private final DetectArgumentService detectArgumentService;
     private final JenkinsIntLogger logger;
+    @Nullable
+    private final NodeCapabilityCache nodeCapabilityCache;
+    @Nullable
+    private final DetectRunThrottle detectRunThrottle;
+    @Nullable
+    private final DetectManifestCheck detectManifestCheck;
+    @Nullable
+    private final DetectScanLedger detectScanLedger;
+    @Nullable
+    private final DetectScanCoalescer detectScanCoalescer;
+    @Nullable
+    private final BlackDuckHealthMonitor blackDuckHealthMonitor;
 
     public DetectRunner(
         DetectEnvironmentService detectEnvironmentService,
@@ -37,43 +67,346 @@ public class DetectRunner {
         DetectArgumentService detectArgumentService,
         JenkinsIntLogger logger
     ) {
-        this.detectEnvironmentService = detectEnvironmentService;
-        this.remotingService = remotingService;
-        this.detectStrategyService = detectStrategyService;
-        this.detectArgumentService = detectArgumentService;
-        this.logger = logger;
+        this(new Builder(detectEnvironmentService, remotingService, detectStrategyService, detectArgumentService, logger));
+    }
+
+    private DetectRunner(Builder builder) {
+        this.detectEnvironmentService = builder.detectEnvironmentService;
+        this.remotingService = builder.remotingService;
+        this.detectStrategyService = builder.detectStrategyService;
+        this.detectArgumentService = builder.detectArgumentService;
+        this.logger = builder.logger;
+        this.nodeCapabilityCache = builder.nodeCapabilityCache;
+        this.detectRunThrottle = builder.detectRunThrottle;
+        this.detectManifestCheck = builder.detectManifestCheck;
+        this.detectScanLedger = builder.detectScanLedger;
+        this.detectScanCoalescer = builder.detectScanCoalescer;
+        this.blackDuckHealthMonitor = builder.blackDuckHealthMonitor;
+    }
+
+    /**
+     * Starts building a runner from the services every run needs. The optional services are left out unless set on the builder.
+     */
+    public static Builder builder(
+        DetectEnvironmentService detectEnvironmentService,
+        JenkinsRemotingService remotingService,
+        DetectStrategyService detectStrategyService,
+        DetectArgumentService detectArgumentService,
+        JenkinsIntLogger logger
+    ) {
+        return new Builder(detectEnvironmentService, remotingService, detectStrategyService, detectArgumentService, logger);
     }
 
     public int runDetect(String remoteJdkHome, String detectArgumentString, DetectDownloadStrategy detectDownloadStrategy)
+        throws IOException, InterruptedException, IntegrationException {
+        DetectManifestCheck.Result manifestCheckResult = checkManifests(detectArgumentString);
+        if (manifestCheckResult.isUnchanged()) {
+            return 0;
+        }
+
+        DetectScanLedger.Claim scanClaim = claimScan(detectArgumentString);
+        if (scanClaim.isDuplicate()) {
+            try {
+                return scanClaim.getScannedExitCode().get();
+            } catch (CancellationException | ExecutionException e) {
+                // The identical scan was given up, so this build scans after all.
+            }
+        }
+
+        int detectRun;
+        boolean recorded = false;
+        DetectScanCoalescer.Registration coalescingRegistration = registerForCoalescing(detectArgumentString, () -> {});
+        try {
+            DetectCommandLine detectCommandLine = prepareDetect(remoteJdkHome, detectArgumentString, detectDownloadStrategy);
+
+            try (DetectRunThrottle.Permit permit = acquireRunPermit(detectCommandLine)) {
+                // A running scan is only stopped by a newer build in pipelines, but one that was superseded while it waited for a run slot is skipped here as well.
+                if (coalescingRegistration.isSuperseded()) {
+                    return 0;
+                }
+                logStart();
+                detectRun = remotingService.launch(detectCommandLine.getIntEnvironmentVariables(), detectCommandLine.getDetectCommands());
+            }
+            logEnd();
+
+            scanClaim.recordExitCode(detectRun);
+            recorded = true;
+        } finally {
+            coalescingRegistration.close();
+            if (!recorded) {
+                scanClaim.abandon();
+            }
+        }
+
+        if (detectRun == 0) {
+            manifestCheckResult.recordSuccessfulScan();
+        }
+        return detectRun;
+    }
+
+    /**
+     * Claims the scan in the scan ledger if deduplicating scans is enabled. If the claim is a duplicate, Detect need not be run; otherwise the exit code should be
+     * recorded once Detect has finished, or the claim abandoned if it could not be run.
+     */
+    public DetectScanLedger.Claim claimScan(String detectArgumentString) {
+        if (detectScanLedger == null) {
+            return DetectScanLedger.Claim.NOT_TRACKED;
+        }
+        return detectScanLedger.claim(detectArgumentString);
+    }
+
+    /**
+     * Registers the scan with the scan coalescer if coalescing scans is enabled, so that a newer build of the same job can supersede it. The registration should be
+     * closed once the scan has finished.
+     */
+    public DetectScanCoalescer.Registration registerForCoalescing(String detectArgumentString, Runnable onSuperseded) {
+        if (detectScanCoalescer == null) {
+            return DetectScanCoalescer.Registration.NOT_REGISTERED;
+        }
+        return detectScanCoalescer.register(detectArgumentString, onSuperseded);
+    }
+
+    /**
+     * Fingerprints the package manager manifests of the workspace if skipping unchanged scans is enabled. Detect need not be run if the result is unchanged, and the
+     * result should be recorded once Detect has succeeded.
+     */
+    public DetectManifestCheck.Result checkManifests(String detectArgumentString) throws IOException, InterruptedException {
+        if (detectManifestCheck == null) {
+            return DetectManifestCheck.Result.NOT_CHECKED;
+        }
+        return detectManifestCheck.check(detectArgumentString);
+    }
+
+    /**
+     * Resolves the environment, the execution strategy and the command line, which takes one round trip to the node. Detect itself is not launched.
+     */
+    public DetectCommandLine prepareDetect(String remoteJdkHome, String detectArgumentString, DetectDownloadStrategy detectDownloadStrategy)
+        throws IOException, InterruptedException, IntegrationException {
+        return prepareDetect(remoteJdkHome, Collections.singletonList(detectArgumentString), detectDownloadStrategy).get(0);
+    }
+
+    /**
+     * Resolves the environment and the execution strategy once and builds a command line for each argument string, so several invocations of Detect on the same
+     * node share a single round trip to it.
+     */
+    public List<DetectCommandLine> prepareDetect(String remoteJdkHome, List<String> detectArgumentStrings, DetectDownloadStrategy detectDownloadStrategy)
         throws IOException, InterruptedException, IntegrationException {
         IntEnvironmentVariables intEnvironmentVariables = detectEnvironmentService.createDetectEnvironment();
-        OperatingSystemType operatingSystemType = remotingService.getRemoteOperatingSystemType();
-        DetectExecutionStrategy detectExecutionStrategy = detectStrategyService.getExecutionStrategy(
-            intEnvironmentVariables,
-            operatingSystemType,
-            remoteJdkHome,
-            detectDownloadStrategy
-        );
-
-        List<String> initialArguments = remotingService.call(detectExecutionStrategy.getSetupCallable());
-
-        List<String> detectCommands = detectArgumentService.getDetectArguments(
-            intEnvironmentVariables,
-            detectExecutionStrategy.getArgumentEscaper(),
-            initialArguments,
-            detectArgumentString
-        );
+        // Checked before the round trip to the node, so that failing fast is fast.
+        BlackDuckOutageMode blackDuckOutageMode = checkBlackDuckHealth(intEnvironmentVariables);
+        DetectExecutionStrategy detectExecutionStrategy = detectStrategyService.getExecutionStrategy(intEnvironmentVariables, remoteJdkHome, detectDownloadStrategy);
+
+        // The setup callable reports the node's operating system along with the initial arguments, so setup costs a single round trip to the node.
+        DetectSetupResult detectSetupResult = remotingService.call(detectExecutionStrategy.getSetupCallable());
+        detectExecutionStrategy.recordSetupResult(detectSetupResult);
+        if (nodeCapabilityCache != null) {
+            nodeCapabilityCache.record(detectSetupResult, remoteJdkHome, intEnvironmentVariables.getVariables());
+            DetectWarmLabelFinder.refresh(nodeCapabilityCache.getNodeName());
+        }
+
+        List<DetectCommandLine> detectCommandLines = new ArrayList<>();
+        for (String detectArgumentString : detectArgumentStrings) {
+            String effectiveArgumentString = detectArgumentString;
+            if (BlackDuckOutageMode.OFFLINE == blackDuckOutageMode && !detectArgumentString.contains(OFFLINE_MODE_PROPERTY)) {
+                effectiveArgumentString = String.format("%s --%s=true", detectArgumentString, OFFLINE_MODE_PROPERTY);
+            }
+            List<String> detectCommands = detectArgumentService.getDetectArguments(
+                intEnvironmentVariables,
+                detectExecutionStrategy.getArgumentEscaper(detectSetupResult.getOperatingSystemType()),
+                detectSetupResult.getInitialArguments(),
+                effectiveArgumentString
+            );
+            detectCommandLines.add(new DetectCommandLine(intEnvironmentVariables, detectCommands, findLockedProjectVersion(intEnvironmentVariables, detectArgumentString)));
+        }
 
+        return detectCommandLines;
+    }
+
+    /**
+     * Completes once the configured concurrency limits allow Detect to start and no other run holds the lock on the project version of the command line, without
+     * blocking the calling thread. If Black Duck is unavailable and the outage mode says to wait, no run slot is asked for until it is available again. The permit
+     * may be null if no limits apply.
+     */
+    public CompletableFuture<DetectRunThrottle.Permit> acquireRunPermitAsync(DetectCommandLine detectCommandLine) {
+        if (!isWaitingForBlackDuck(detectCommandLine)) {
+            return acquireThrottlePermitAsync(detectCommandLine);
+        }
+
+        CompletableFuture<DetectRunThrottle.Permit> futurePermit = new CompletableFuture<>();
+        blackDuckHealthMonitor.awaitRecovery().whenComplete((recovered, throwable) -> {
+            if (futurePermit.isDone()) {
+                return;
+            }
+            logger.info("Black Duck is available again.");
+            CompletableFuture<DetectRunThrottle.Permit> throttlePermit = acquireThrottlePermitAsync(detectCommandLine);
+            // A run that was stopped in the meantime gives up its place in the queue, or the slot it was just granted.
+            futurePermit.whenComplete((permit, permitThrowable) -> throttlePermit.cancel(false));
+            throttlePermit.whenComplete((permit, permitThrowable) -> {
+                if (null != permitThrowable) {
+                    futurePermit.completeExceptionally(permitThrowable);
+                } else if (!futurePermit.complete(permit) && null != permit) {
+                    permit.close();
+                }
+            });
+        });
+        return futurePermit;
+    }
+
+    public void logStart() {
         logger.info(ASTERISKS);
         logger.info("START OF DETECT");
         logger.info(ASTERISKS);
+    }
 
-        int detectRun = remotingService.launch(intEnvironmentVariables, detectCommands);
-
+    public void logEnd() {
         logger.info(ASTERISKS);
         logger.info("END OF DETECT");
         logger.info(ASTERISKS);
+    }
 
-        return detectRun;
+    @Nullable
+    private DetectRunThrottle.Permit acquireRunPermit(DetectCommandLine detectCommandLine) throws InterruptedException {
+        if (isWaitingForBlackDuck(detectCommandLine)) {
+            try {
+                blackDuckHealthMonitor.awaitRecovery().get();
+                logger.info("Black Duck is available again.");
+            } catch (ExecutionException e) {
+                // Recovery never completes exceptionally.
+            }
+        }
+        if (detectRunThrottle == null) {
+            return null;
+        }
+        return detectRunThrottle.acquire(logger, detectCommandLine.getLockedProjectVersion().orElse(null));
+    }
+
+    private CompletableFuture<DetectRunThrottle.Permit> acquireThrottlePermitAsync(DetectCommandLine detectCommandLine) {
+        if (detectRunThrottle == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return detectRunThrottle.acquireAsync(logger, detectCommandLine.getLockedProjectVersion().orElse(null));
+    }
+
+    private boolean isWaitingForBlackDuck(DetectCommandLine detectCommandLine) {
+        if (blackDuckHealthMonitor == null || !blackDuckHealthMonitor.isOpen()) {
+            return false;
+        }
+        if (BlackDuckOutageMode.WAIT != findBlackDuckOutageMode(detectCommandLine.getIntEnvironmentVariables())) {
+            return false;
+        }
+        logger.warn(String.format("Black Duck is unavailable (%s). Waiting for it to recover before running Detect.", blackDuckHealthMonitor.getStatus().getLastFailure()));
+        return true;
+    }
+
+    /**
+     * @return The outage mode to follow if Black Duck is unavailable, or {@link BlackDuckOutageMode#RUN} if it is available.
+     * @throws DetectJenkinsException If Black Duck is unavailable and the outage mode says to fail fast.
+     */
+    private BlackDuckOutageMode checkBlackDuckHealth(IntEnvironmentVariables intEnvironmentVariables) throws DetectJenkinsException {
+        if (blackDuckHealthMonitor == null || !blackDuckHealthMonitor.isOpen()) {
+            return BlackDuckOutageMode.RUN;
+        }
+
+        BlackDuckOutageMode blackDuckOutageMode = findBlackDuckOutageMode(intEnvironmentVariables);
+        String lastFailure = blackDuckHealthMonitor.getStatus().getLastFailure();
+        switch (blackDuckOutageMode) {
+            case FAIL:
+                throw new DetectJenkinsException(String.format("Black Duck is unavailable (%s). Not running Detect, since it would only time out.", lastFailure));
+            case OFFLINE:
+                logger.warn(String.format("Black Duck is unavailable (%s). Running Detect in offline mode, so nothing will be uploaded to Black Duck.", lastFailure));
+                break;
+            case RUN:
+                logger.warn(String.format("Black Duck is unavailable (%s). Detect may time out. Set %s to fail, wait or offline to avoid this.", lastFailure,
+                    DetectJenkinsEnvironmentVariable.BLACK_DUCK_OUTAGE_MODE.stringValue()));
+                break;
+            default:
+                break;
+        }
+        return blackDuckOutageMode;
+    }
+
+    private BlackDuckOutageMode findBlackDuckOutageMode(IntEnvironmentVariables intEnvironmentVariables) {
+        return BlackDuckOutageMode.resolve(intEnvironmentVariables.getValue(DetectJenkinsEnvironmentVariable.BLACK_DUCK_OUTAGE_MODE.stringValue(), ""));
+    }
+
+    @Nullable
+    private String findLockedProjectVersion(IntEnvironmentVariables intEnvironmentVariables, String detectArgumentString) {
+        if (!Boolean.parseBoolean(intEnvironmentVariables.getValue(DetectJenkinsEnvironmentVariable.LOCK_PROJECT_VERSION.stringValue(), "false"))) {
+            return null;
+        }
+
+        Optional<String> projectVersion = DetectArgumentService.findProjectVersion(intEnvironmentVariables.getVariables(), detectArgumentString);
+        if (!projectVersion.isPresent()) {
+            logger.warn("The project version cannot be locked, because the project name and version are not set explicitly. Running Detect without the lock.");
+        }
+        return projectVersion.orElse(null);
+    }
+
+    public static class Builder {
+        private final DetectEnvironmentService detectEnvironmentService;
+        private final JenkinsRemotingService remotingService;
+        private final DetectStrategyService detectStrategyService;
+        private final DetectArgumentService detectArgumentService;
+        private final JenkinsIntLogger logger;
+        @Nullable
+        private NodeCapabilityCache nodeCapabilityCache;
+        @Nullable
+        private DetectRunThrottle detectRunThrottle;
+        @Nullable
+        private DetectManifestCheck detectManifestCheck;
+        @Nullable
+        private DetectScanLedger detectScanLedger;
+        @Nullable
+        private DetectScanCoalescer detectScanCoalescer;
+        @Nullable
+        private BlackDuckHealthMonitor blackDuckHealthMonitor;
+
+        private Builder(
+            DetectEnvironmentService detectEnvironmentService,
+            JenkinsRemotingService remotingService,
+            DetectStrategyService detectStrategyService,
+            DetectArgumentService detectArgumentService,
+            JenkinsIntLogger logger
+        ) {
+            this.detectEnvironmentService = detectEnvironmentService;
+            this.remotingService = remotingService;
+            this.detectStrategyService = detectStrategyService;
+            this.detectArgumentService = detectArgumentService;
+            this.logger = logger;
+        }
+
+        public Builder nodeCapabilityCache(@Nullable NodeCapabilityCache nodeCapabilityCache) {
+            this.nodeCapabilityCache = nodeCapabilityCache;
+            return this;
+        }
+
+        public Builder detectRunThrottle(@Nullable DetectRunThrottle detectRunThrottle) {
+            this.detectRunThrottle = detectRunThrottle;
+            return this;
+        }
+
+        public Builder detectManifestCheck(@Nullable DetectManifestCheck detectManifestCheck) {
+            this.detectManifestCheck = detectManifestCheck;
+            return this;
+        }
+
+        public Builder detectScanLedger(@Nullable DetectScanLedger detectScanLedger) {
+            this.detectScanLedger = detectScanLedger;
+            return this;
+        }
+
+        public Builder detectScanCoalescer(@Nullable DetectScanCoalescer detectScanCoalescer) {
+            this.detectScanCoalescer = detectScanCoalescer;
+            return this;
+        }
+
+        public Builder blackDuckHealthMonitor(@Nullable BlackDuckHealthMonitor blackDuckHealthMonitor) {
+            this.blackDuckHealthMonitor = blackDuckHealthMonitor;
+            return this;
+        }
+
+        public DetectRunner build() {
+            return new DetectRunner(this);
+        }
     }
 }
@@ -0,0 +1,46 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect;
+
+import java.util.Map;
+
+/**
+ * The outcome of scanning one shard of a workspace.
+ */
+public class DetectShardResult extends DetectInvocationResult {
+    private final String sourcePath;
+    private final String nodeName;
+
+    public DetectShardResult(int invocation, String sourcePath, String nodeName, int exitCode, long durationMillis) {
+        super(invocation, exitCode, durationMillis);
+        this.sourcePath = sourcePath;
+        this.nodeName = nodeName;
+    }
+
+    public String getSourcePath() {
+        return sourcePath;
+    }
+
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    @Override
+    public String getDescription() {
+        return String.format("shard %s on %s", sourcePath, nodeName);
+    }
+
+    @Override
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = super.toMap();
+        map.put("sourcePath", sourcePath);
+        map.put("nodeName", nodeName);
+        return map;
+    }
+
+}
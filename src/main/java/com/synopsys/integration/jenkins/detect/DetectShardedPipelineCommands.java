@@ -0,0 +1,37 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.synopsys.integration.jenkins.detect.extensions.DetectDownloadStrategy;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+
+public class DetectShardedPipelineCommands {
+    private final DetectShardedRun detectShardedRun;
+    private final DetectResultHandler detectResultHandler;
+
+    public DetectShardedPipelineCommands(DetectShardedRun detectShardedRun, JenkinsIntLogger logger) {
+        this.detectShardedRun = detectShardedRun;
+        this.detectResultHandler = new DetectResultHandler(logger);
+    }
+
+    /**
+     * Scans the shards of the workspace, each with its own code location suffix. The returned future completes with the results of all shards, or exceptionally if
+     * any of them failed and the status should not be returned.
+     */
+    public CompletableFuture<List<DetectShardResult>> startDetect(boolean returnStatus, List<String> sourcePaths, String detectArgumentString, DetectDownloadStrategy detectDownloadStrategy) {
+        return detectResultHandler.handleInvocationResultsAsync(returnStatus, detectShardedRun.start(sourcePaths, detectArgumentString, detectDownloadStrategy));
+    }
+
+    public void stopDetect() {
+        detectShardedRun.stop();
+    }
+
+}
@@ -0,0 +1,274 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.synopsys.integration.jenkins.detect.exception.DetectJenkinsException;
+import com.synopsys.integration.jenkins.detect.extensions.DetectDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.service.DetectRunThrottle;
+import com.synopsys.integration.jenkins.detect.service.DetectShardPlanner;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+
+import hudson.AbortException;
+import hudson.FilePath;
+import hudson.model.Node;
+
+/**
+ * Scans the shards of a workspace side by side on several nodes. Each shard is copied to the node that scans it, unless that is the node holding the workspace, and
+ * is scanned with its own code location suffix so that the scans of all shards add up to one project version. At most a fixed number of shards are scanned at the
+ * same time, and each scan still takes a run slot on its node. Shards hold no executor on the nodes they are copied to, so that run slot is what limits the load there.
+ */
+public class DetectShardedRun {
+    public static final String SHARDS_DIRECTORY = "synopsys-detect-shards";
+    public static final String CODE_LOCATION_SUFFIX_PROPERTY = "--detect.project.codelocation.suffix";
+    public static final String PROJECT_NAME_PROPERTY = "detect.project.name";
+    public static final String PROJECT_VERSION_PROPERTY = "detect.project.version.name";
+
+    private final FilePath workspace;
+    private final String workspaceNodeName;
+    private final List<Node> shardNodes;
+    private final ShardRunFactory shardRunFactory;
+    private final JenkinsIntLogger logger;
+    private final int maxParallelShards;
+    private final String shardsId = UUID.randomUUID().toString();
+    private final CompletableFuture<List<DetectShardResult>> results = new CompletableFuture<>();
+
+    // Guarded by this.
+    private boolean stopped = false;
+    private final List<DetectAsyncRun> startedRuns = new ArrayList<>();
+    private List<String> shardPaths = Collections.emptyList();
+    @Nullable
+    private DetectShardResult[] shardResults;
+    private int startedShards = 0;
+    private int remainingShards = 0;
+    private long startTime;
+    private String detectArgumentString = StringUtils.EMPTY;
+    @Nullable
+    private DetectDownloadStrategy detectDownloadStrategy;
+
+    /**
+     * @param shardNodes The nodes to spread the shards over, in the order they should be used.
+     */
+    public DetectShardedRun(FilePath workspace, @Nullable String workspaceNodeName, List<Node> shardNodes, ShardRunFactory shardRunFactory, JenkinsIntLogger logger, int maxParallelShards) {
+        this.workspace = workspace;
+        this.workspaceNodeName = StringUtils.defaultString(workspaceNodeName);
+        this.shardNodes = new ArrayList<>(shardNodes);
+        this.shardRunFactory = shardRunFactory;
+        this.logger = logger;
+        this.maxParallelShards = Math.max(1, maxParallelShards);
+    }
+
+    /**
+     * @param sourcePaths The source paths relative to the workspace to scan as shards, or an empty list to find the modules of the workspace.
+     * @return The results of all shards in the order they were planned, once every shard has been scanned. The future completes exceptionally if any shard could not
+     * be scanned, and is cancelled by {@link #stop()}.
+     */
+    public CompletableFuture<List<DetectShardResult>> start(List<String> sourcePaths, String detectArgumentString, DetectDownloadStrategy detectDownloadStrategy) {
+        if (shardNodes.isEmpty()) {
+            results.completeExceptionally(new DetectJenkinsException("There are no online nodes to scan the shards on."));
+            return results;
+        }
+        if (!detectArgumentString.contains(PROJECT_NAME_PROPERTY) || !detectArgumentString.contains(PROJECT_VERSION_PROPERTY)) {
+            logger.warn(String.format("Set %s and %s so that the scans of all shards are added to the same project version.", PROJECT_NAME_PROPERTY, PROJECT_VERSION_PROPERTY));
+        }
+
+        DetectAsyncRun.executeSetup(() -> {
+            List<String> plannedShardPaths;
+            try {
+                plannedShardPaths = workspace.act(new DetectShardPlanner(sourcePaths));
+            } catch (Exception e) {
+                results.completeExceptionally(e);
+                return;
+            }
+
+            synchronized (this) {
+                if (stopped) {
+                    return;
+                }
+                this.detectArgumentString = detectArgumentString;
+                this.detectDownloadStrategy = detectDownloadStrategy;
+                shardPaths = plannedShardPaths;
+                shardResults = new DetectShardResult[plannedShardPaths.size()];
+                remainingShards = plannedShardPaths.size();
+                startTime = System.nanoTime();
+                logger.info(String.format("Scanning %d shards on %d nodes, at most %d at a time: %s", remainingShards, shardNodes.size(), maxParallelShards, String.join(", ", shardPaths)));
+                while (startedShards < Math.min(maxParallelShards, shardPaths.size())) {
+                    startNextShard();
+                }
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Kills every shard scan that is running and starts no more.
+     */
+    public void stop() {
+        List<DetectAsyncRun> runsToStop;
+        synchronized (this) {
+            stopped = true;
+            runsToStop = new ArrayList<>(startedRuns);
+        }
+        runsToStop.forEach(DetectAsyncRun::stop);
+        results.cancel(false);
+    }
+
+    // Must hold this.
+    private void startNextShard() {
+        int shard = ++startedShards;
+        String shardPath = shardPaths.get(shard - 1);
+        Node node = shardNodes.get((shard - 1) % shardNodes.size());
+        String shardArgumentString = createShardArgumentString(shardPath);
+        DetectDownloadStrategy shardDownloadStrategy = detectDownloadStrategy;
+        // Copying a shard to another node is slow, so it happens on the setup pool rather than on the thread that finished the previous shard.
+        DetectAsyncRun.executeSetup(() -> scanShard(shard, shardPath, node, shardArgumentString, shardDownloadStrategy));
+    }
+
+    // Must hold this.
+    private String createShardArgumentString(String shardPath) {
+        // A suffix set by the user is kept as it is.
+        if (detectArgumentString.contains(CODE_LOCATION_SUFFIX_PROPERTY.substring(2))) {
+            return detectArgumentString;
+        }
+        return String.format("%s %s=%s", detectArgumentString, CODE_LOCATION_SUFFIX_PROPERTY, createCodeLocationSuffix(shardPath));
+    }
+
+    /**
+     * Derives the code location suffix from the source path of the shard rather than its position, so that adding or removing a module does not move the code
+     * locations of the others onto different modules in the next build.
+     */
+    static String createCodeLocationSuffix(String shardPath) {
+        String sanitizedPath = shardPath.replace('\\', '/')
+                                   .replaceAll("^(\\./)+", "")
+                                   .replaceAll("[^A-Za-z0-9._]+", "-")
+                                   .replaceAll("^[-.]+|[-.]+$", "");
+        return "shard-" + StringUtils.defaultIfEmpty(sanitizedPath, "workspace");
+    }
+
+    private void scanShard(int shard, String shardPath, Node node, String shardArgumentString, DetectDownloadStrategy shardDownloadStrategy) {
+        long shardStartTime = System.nanoTime();
+        String nodeName = StringUtils.defaultIfEmpty(node.getNodeName(), DetectRunThrottle.BUILT_IN_NODE_NAME);
+        FilePath copiedShard = null;
+        DetectAsyncRun detectAsyncRun;
+        try {
+            FilePath shardWorkspace = workspace.child(shardPath);
+            if (!workspaceNodeName.equals(node.getNodeName())) {
+                copiedShard = copyShard(shardWorkspace, node, shard);
+                shardWorkspace = copiedShard;
+            }
+            detectAsyncRun = shardRunFactory.create(node, shardWorkspace, shard);
+        } catch (IOException e) {
+            onShardFinished(shard, shardPath, nodeName, shardStartTime, null, e, copiedShard);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            onShardFinished(shard, shardPath, nodeName, shardStartTime, null, e, copiedShard);
+            return;
+        }
+
+        synchronized (this) {
+            if (stopped) {
+                deleteQuietly(copiedShard);
+                return;
+            }
+            startedRuns.add(detectAsyncRun);
+        }
+        logger.info(String.format("Scanning shard %s on %s.", shardPath, nodeName));
+        FilePath shardToDelete = copiedShard;
+        detectAsyncRun.start(null, shardArgumentString, shardDownloadStrategy)
+            .whenComplete((exitCode, throwable) -> onShardFinished(shard, shardPath, nodeName, shardStartTime, exitCode, throwable, shardToDelete));
+    }
+
+    private FilePath copyShard(FilePath source, Node node, int shard) throws IOException, InterruptedException {
+        FilePath nodeRootPath = node.getRootPath();
+        if (null == nodeRootPath) {
+            throw new AbortException(String.format("The node %s is offline.", node.getNodeName()));
+        }
+        FilePath target = nodeRootPath.child(SHARDS_DIRECTORY).child(shardsId).child(String.valueOf(shard));
+        target.mkdirs();
+        source.copyRecursiveTo(target);
+        return target;
+    }
+
+    private void onShardFinished(int shard, String shardPath, String nodeName, long shardStartTime, @Nullable Integer exitCode, @Nullable Throwable throwable, @Nullable FilePath copiedShard) {
+        deleteQuietly(copiedShard);
+
+        List<DetectAsyncRun> runsToStop = Collections.emptyList();
+        List<DetectShardResult> finishedResults = null;
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            if (null != throwable || null == exitCode) {
+                Throwable cause = DetectAsyncRun.unwrap(throwable);
+                // One shard that cannot be scanned fails the whole step, so the others are not left running unattended.
+                stopped = true;
+                runsToStop = new ArrayList<>(startedRuns);
+                results.completeExceptionally(null == cause || cause instanceof CancellationException ? new DetectJenkinsException("The scan of shard " + shardPath + " was stopped before it finished.") : cause);
+            } else {
+                long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - shardStartTime);
+                shardResults[shard - 1] = new DetectShardResult(shard, shardPath, nodeName, exitCode, durationMillis);
+                logger.info(String.format("Shard %s on %s finished with exit code %d after %d ms.", shardPath, nodeName, exitCode, durationMillis));
+                remainingShards--;
+                if (startedShards < shardPaths.size()) {
+                    startNextShard();
+                } else if (remainingShards == 0) {
+                    finishedResults = Collections.unmodifiableList(Arrays.asList(shardResults));
+                    logTimes(finishedResults);
+                }
+            }
+        }
+
+        runsToStop.forEach(DetectAsyncRun::stop);
+        if (null != finishedResults) {
+            results.complete(finishedResults);
+        }
+    }
+
+    // Must hold this.
+    private void logTimes(List<DetectShardResult> finishedResults) {
+        long wallClockMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        long summedMillis = finishedResults.stream().mapToLong(DetectShardResult::getDurationMillis).sum();
+        logger.info(String.format("Scanned %d shards in %d ms; scanned one after another they would have taken %d ms.", finishedResults.size(), wallClockMillis, summedMillis));
+    }
+
+    private void deleteQuietly(@Nullable FilePath copiedShard) {
+        if (null == copiedShard) {
+            return;
+        }
+        try {
+            copiedShard.deleteRecursive();
+        } catch (IOException e) {
+            logger.warn(String.format("Could not delete the copy of a shard at %s: %s", copiedShard.getRemote(), e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates the run that scans one shard on the given node.
+     */
+    @FunctionalInterface
+    public interface ShardRunFactory {
+        DetectAsyncRun create(Node node, FilePath shardWorkspace, int shard) throws IOException, InterruptedException;
+    }
+
+}
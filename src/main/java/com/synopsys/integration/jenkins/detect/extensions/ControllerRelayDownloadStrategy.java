@@ -0,0 +1,67 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.extensions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import com.synopsys.integration.jenkins.annotations.HelpMarkdown;
+
+import hudson.Extension;
+import hudson.Util;
+
+public class ControllerRelayDownloadStrategy extends DetectDownloadStrategy {
+    private static final long serialVersionUID = 2298150446349157853L;
+    public static final String DISPLAY_NAME = "Download on the Jenkins controller and relay to agents";
+
+    @HelpMarkdown("The URL of the Detect jar to relay to agents.  \r\n" +
+        "If left empty, the latest Detect 8 jar is resolved and downloaded by the Jenkins controller.")
+    @Nullable
+    private String detectJarUrl;
+
+    @DataBoundConstructor
+    public ControllerRelayDownloadStrategy() {
+        // Left empty intentionally.
+    }
+
+    @Override
+    public DescriptorImpl getDescriptor() {
+        return (DescriptorImpl) super.getDescriptor();
+    }
+
+    public String getDetectJarUrl() {
+        return detectJarUrl;
+    }
+
+    @DataBoundSetter
+    public void setDetectJarUrl(String detectJarUrl) {
+        this.detectJarUrl = Util.fixEmptyAndTrim(detectJarUrl);
+    }
+
+    @Override
+    public String getDisplayName() {
+        return DISPLAY_NAME;
+    }
+
+    @Extension
+    public static class DescriptorImpl extends DetectDownloadStrategy.DownloadStrategyDescriptor {
+        public DescriptorImpl() {
+            super(ControllerRelayDownloadStrategy.class);
+            load();
+        }
+
+        @Override
+        @Nonnull
+        public String getDisplayName() {
+            return DISPLAY_NAME;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.extensions.global;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.synopsys.integration.blackduck.configuration.BlackDuckServerConfig;
+import com.synopsys.integration.exception.IntegrationException;
+import com.synopsys.integration.jenkins.detect.service.BlackDuckHealthMonitor;
+import com.synopsys.integration.jenkins.wrapper.JenkinsWrapper;
+import com.synopsys.integration.log.SilentIntLogger;
+import com.synopsys.integration.rest.response.Response;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import jenkins.model.GlobalConfiguration;
+
+/**
+ * Probes the Black Duck server of the global configuration the same way the connection test does, and reports the outcome to the {@link BlackDuckHealthMonitor}.
+ * Server errors, connection failures and answers slower than {@link BlackDuckHealthMonitor#SLOW_RESPONSE_MILLIS} count as failures; any other answer, including a
+ * rejected API token, shows that the server is up.
+ */
+@Extension
+public class BlackDuckHealthProbe extends AsyncPeriodicWork {
+    public BlackDuckHealthProbe() {
+        super("Black Duck health probe");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return BlackDuckHealthMonitor.PROBE_INTERVAL_MILLIS;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) {
+        BlackDuckHealthMonitor blackDuckHealthMonitor = BlackDuckHealthMonitor.get();
+        DetectGlobalConfig detectGlobalConfig = GlobalConfiguration.all().get(DetectGlobalConfig.class);
+        if (null == detectGlobalConfig || StringUtils.isBlank(detectGlobalConfig.getBlackDuckUrl())) {
+            blackDuckHealthMonitor.reset();
+            return;
+        }
+
+        JenkinsWrapper jenkinsWrapper = JenkinsWrapper.initializeFromJenkinsJVM();
+        BlackDuckServerConfig blackDuckServerConfig;
+        try {
+            blackDuckServerConfig = detectGlobalConfig.getBlackDuckServerConfig(jenkinsWrapper.getProxyHelper(), jenkinsWrapper.getCredentialsHelper());
+        } catch (IllegalArgumentException e) {
+            // A configuration that cannot be used says nothing about the server.
+            listener.getLogger().println("The Black Duck server cannot be probed: " + e.getMessage());
+            blackDuckHealthMonitor.reset();
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        try (Response response = blackDuckServerConfig.createBlackDuckHttpClient(new SilentIntLogger()).attemptAuthentication()) {
+            long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            if (response.getStatusCode() >= 500) {
+                blackDuckHealthMonitor.recordFailure(latencyMillis, "Black Duck answered with status code " + response.getStatusCode());
+            } else if (latencyMillis > BlackDuckHealthMonitor.SLOW_RESPONSE_MILLIS) {
+                blackDuckHealthMonitor.recordFailure(latencyMillis, String.format("Black Duck took %d ms to answer", latencyMillis));
+            } else {
+                blackDuckHealthMonitor.recordSuccess(latencyMillis);
+            }
+        } catch (IntegrationException | IOException e) {
+            blackDuckHealthMonitor.recordFailure(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), "Black Duck could not be reached: " + e.getMessage());
+        }
+        listener.getLogger().println(String.format("Black Duck is %s.", blackDuckHealthMonitor.getStatus().getState().toLowerCase(Locale.ENGLISH)));
+    }
+
+}
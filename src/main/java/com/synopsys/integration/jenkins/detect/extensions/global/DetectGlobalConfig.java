@@ -8,24 +8,23 @@
 package com.synopsys.integration.jenkins.detect.extensions.global;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.io.Serializable;
-import java.io.StringReader;
-import java.io.StringWriter;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.UnaryOperator;
 
 import javax.annotation.Nullable;
 import javax.servlet.ServletException;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.Source;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.transform.stream.StreamSource;
+import javax.xml.stream.XMLStreamException;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.impl.EnglishReasonPhraseCatalog;
@@ -36,10 +35,6 @@ import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 import org.kohsuke.stapler.WebMethod;
 import org.kohsuke.stapler.verb.POST;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
 
 import com.cloudbees.plugins.credentials.common.StandardListBoxModel;
 import com.cloudbees.plugins.credentials.impl.BaseStandardCredentials;
@@ -48,8 +43,11 @@ import com.synopsys.integration.blackduck.configuration.BlackDuckServerConfigBui
 import com.synopsys.integration.exception.IntegrationException;
 import com.synopsys.integration.jenkins.annotations.HelpMarkdown;
 import com.synopsys.integration.jenkins.detect.extensions.AirGapDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.extensions.ControllerRelayDownloadStrategy;
 import com.synopsys.integration.jenkins.detect.extensions.DetectDownloadStrategy;
 import com.synopsys.integration.jenkins.detect.extensions.ScriptOrJarDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.service.BlackDuckHealthMonitor;
+import com.synopsys.integration.jenkins.detect.service.DetectRunThrottle;
 import com.synopsys.integration.jenkins.wrapper.JenkinsProxyHelper;
 import com.synopsys.integration.jenkins.wrapper.JenkinsWrapper;
 import com.synopsys.integration.jenkins.wrapper.SynopsysCredentialsHelper;
@@ -64,16 +62,25 @@ import hudson.Util;
 import hudson.model.Descriptor;
 import hudson.security.ACL;
 import hudson.util.FormValidation;
-import hudson.util.IOUtils;
 import hudson.util.ListBoxModel;
 import hudson.util.Messages;
 import jenkins.model.GlobalConfiguration;
 import jenkins.model.Jenkins;
-import jenkins.util.xml.XMLUtils;
+import net.sf.json.JSONObject;
 
 @Extension
 public class DetectGlobalConfig extends GlobalConfiguration implements Serializable {
     private static final long serialVersionUID = -7629542889827231313L;
+    private static final String BLACK_DUCK_URL_ELEMENT = "blackDuckUrl";
+    private static final String BLACK_DUCK_CREDENTIALS_ID_ELEMENT = "blackDuckCredentialsId";
+    private static final String BLACK_DUCK_TIMEOUT_ELEMENT = "blackDuckTimeout";
+    private static final String TRUST_BLACK_DUCK_CERTIFICATES_ELEMENT = "trustBlackDuckCertificates";
+    private static final Set<String> CONFIG_XML_ELEMENTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        BLACK_DUCK_URL_ELEMENT,
+        BLACK_DUCK_CREDENTIALS_ID_ELEMENT,
+        BLACK_DUCK_TIMEOUT_ELEMENT,
+        TRUST_BLACK_DUCK_CERTIFICATES_ELEMENT
+    )));
 
     @HelpMarkdown("Provide the URL that lets you access your Black Duck server.")
     private String blackDuckUrl;
@@ -92,58 +99,141 @@ public class DetectGlobalConfig extends GlobalConfiguration implements Serializa
     @Nullable
     private DetectDownloadStrategy downloadStrategy;
 
+    @HelpMarkdown("The most Detect runs that may execute at the same time on a single node. Further runs wait on the controller until a run on that node finishes.  \r\n" +
+        "0 means no limit.")
+    private int maxConcurrentRunsPerNode;
+
+    @HelpMarkdown("The most Detect runs that may execute at the same time on the nodes that share a label. The limit applies to each label of a node separately.  \r\n" +
+        "0 means no limit.")
+    private int maxConcurrentRunsPerLabel;
+
+    @HelpMarkdown("The most Detect runs that may execute at the same time across all nodes, for example to protect the Black Duck server.  \r\n" +
+        "0 means no limit.")
+    private int maxConcurrentRuns;
+
+    // The fields above are only the persisted form. Builds read this snapshot, which is replaced as a whole, so they never see a half-applied submission and never
+    // need to lock.
+    private transient volatile Snapshot snapshot;
+
+    // Only set while a form submission is being bound, so that its setters are collected into a single snapshot and a single save. Guarded by this.
+    private transient Snapshot pendingSnapshot;
+
     @DataBoundConstructor
     public DetectGlobalConfig() {
         load();
     }
 
+    @Override
+    public synchronized void load() {
+        super.load();
+        snapshot = createSnapshotFromFields();
+    }
+
+    @Override
+    public synchronized boolean configure(StaplerRequest req, JSONObject json) throws FormException {
+        pendingSnapshot = getSnapshot();
+        try {
+            req.bindJSON(this, json);
+            publish(pendingSnapshot);
+        } finally {
+            pendingSnapshot = null;
+        }
+        save();
+        return true;
+    }
+
+    public Snapshot getSnapshot() {
+        Snapshot currentSnapshot = snapshot;
+        if (null == currentSnapshot) {
+            // Instances that were not created through the constructor (e.g. deserialized ones) have no snapshot yet.
+            currentSnapshot = createSnapshotFromFields();
+            snapshot = currentSnapshot;
+        }
+        return currentSnapshot;
+    }
+
     public String getBlackDuckUrl() {
-        return blackDuckUrl;
+        return getSnapshot().getBlackDuckUrl();
     }
 
     @DataBoundSetter
     public void setBlackDuckUrl(String blackDuckUrl) {
-        this.blackDuckUrl = blackDuckUrl;
-        save();
+        update(currentSnapshot -> currentSnapshot.toBuilder().blackDuckUrl(blackDuckUrl).build());
     }
 
     public int getBlackDuckTimeout() {
-        return blackDuckTimeout;
+        return getSnapshot().getBlackDuckTimeout();
     }
 
     @DataBoundSetter
     public void setBlackDuckTimeout(int blackDuckTimeout) {
-        this.blackDuckTimeout = blackDuckTimeout;
-        save();
+        update(currentSnapshot -> currentSnapshot.toBuilder().blackDuckTimeout(blackDuckTimeout).build());
     }
 
     public String getBlackDuckCredentialsId() {
-        return blackDuckCredentialsId;
+        return getSnapshot().getBlackDuckCredentialsId();
     }
 
     @DataBoundSetter
     public void setBlackDuckCredentialsId(String blackDuckCredentialsId) {
-        this.blackDuckCredentialsId = blackDuckCredentialsId;
-        save();
+        update(currentSnapshot -> currentSnapshot.toBuilder().blackDuckCredentialsId(blackDuckCredentialsId).build());
     }
 
     public boolean getTrustBlackDuckCertificates() {
-        return trustBlackDuckCertificates;
+        return getSnapshot().getTrustBlackDuckCertificates();
     }
 
     @DataBoundSetter
     public void setTrustBlackDuckCertificates(boolean trustBlackDuckCertificates) {
-        this.trustBlackDuckCertificates = trustBlackDuckCertificates;
-        save();
+        update(currentSnapshot -> currentSnapshot.toBuilder().trustBlackDuckCertificates(trustBlackDuckCertificates).build());
     }
 
     public DetectDownloadStrategy getDownloadStrategy() {
-        return downloadStrategy;
+        return getSnapshot().getDownloadStrategy();
     }
 
     @DataBoundSetter
     public void setDownloadStrategy(DetectDownloadStrategy downloadStrategy) {
-        this.downloadStrategy = downloadStrategy;
+        update(currentSnapshot -> currentSnapshot.toBuilder().downloadStrategy(downloadStrategy).build());
+    }
+
+    public int getMaxConcurrentRunsPerNode() {
+        return getSnapshot().getMaxConcurrentRunsPerNode();
+    }
+
+    @DataBoundSetter
+    public void setMaxConcurrentRunsPerNode(int maxConcurrentRunsPerNode) {
+        update(currentSnapshot -> currentSnapshot.toBuilder().maxConcurrentRunsPerNode(maxConcurrentRunsPerNode).build());
+    }
+
+    public int getMaxConcurrentRunsPerLabel() {
+        return getSnapshot().getMaxConcurrentRunsPerLabel();
+    }
+
+    @DataBoundSetter
+    public void setMaxConcurrentRunsPerLabel(int maxConcurrentRunsPerLabel) {
+        update(currentSnapshot -> currentSnapshot.toBuilder().maxConcurrentRunsPerLabel(maxConcurrentRunsPerLabel).build());
+    }
+
+    public int getMaxConcurrentRuns() {
+        return getSnapshot().getMaxConcurrentRuns();
+    }
+
+    @DataBoundSetter
+    public void setMaxConcurrentRuns(int maxConcurrentRuns) {
+        update(currentSnapshot -> currentSnapshot.toBuilder().maxConcurrentRuns(maxConcurrentRuns).build());
+    }
+
+    public List<DetectRunThrottle.Occupancy> getRunOccupancies() {
+        return DetectRunThrottle.getOccupancies();
+    }
+
+    public List<DetectRunThrottle.Lane> getRunLanes() {
+        return DetectRunThrottle.getLanes();
+    }
+
+    public BlackDuckHealthMonitor.Status getBlackDuckHealth() {
+        return BlackDuckHealthMonitor.get().getStatus();
     }
 
     public DetectDownloadStrategy getDefaultDownloadStrategy() {
@@ -152,7 +242,11 @@ public class DetectGlobalConfig extends GlobalConfiguration implements Serializa
 
     public Collection<Descriptor<DetectDownloadStrategy>> getAllowedDownloadStrategyDescriptors() {
         Jenkins jenkins = Jenkins.get();
-        return Arrays.asList(jenkins.getDescriptor(AirGapDownloadStrategy.class), jenkins.getDescriptor(ScriptOrJarDownloadStrategy.class));
+        return Arrays.asList(
+            jenkins.getDescriptor(AirGapDownloadStrategy.class),
+            jenkins.getDescriptor(ScriptOrJarDownloadStrategy.class),
+            jenkins.getDescriptor(ControllerRelayDownloadStrategy.class)
+        );
     }
 
     public BlackDuckServerConfig getBlackDuckServerConfig(JenkinsProxyHelper jenkinsProxyHelper, SynopsysCredentialsHelper synopsysCredentialsHelper) {
@@ -160,14 +254,7 @@ public class DetectGlobalConfig extends GlobalConfiguration implements Serializa
     }
 
     public BlackDuckServerConfigBuilder getBlackDuckServerConfigBuilder(JenkinsProxyHelper jenkinsProxyHelper, SynopsysCredentialsHelper synopsysCredentialsHelper) {
-        return createBlackDuckServerConfigBuilder(
-            jenkinsProxyHelper,
-            synopsysCredentialsHelper,
-            blackDuckUrl,
-            blackDuckCredentialsId,
-            blackDuckTimeout,
-            trustBlackDuckCertificates
-        );
+        return getSnapshot().getBlackDuckServerConfigBuilder(jenkinsProxyHelper, synopsysCredentialsHelper);
     }
 
     public ListBoxModel doFillBlackDuckCredentialsIdItems() {
@@ -242,7 +329,7 @@ public class DetectGlobalConfig extends GlobalConfiguration implements Serializa
 
     // EX: http://localhost:8080/descriptorByName/com.synopsys.integration.jenkins.detect.extensions.global.DetectGlobalConfig/config.xml
     @WebMethod(name = "config.xml")
-    public void doConfigDotXml(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException, ParserConfigurationException {
+    public void doConfigDotXml(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException {
         ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
         boolean changed = false;
         try {
@@ -255,13 +342,13 @@ public class DetectGlobalConfig extends GlobalConfiguration implements Serializa
             if (req.getMethod().equals("GET")) {
                 // read
                 rsp.setContentType("application/xml");
-                IOUtils.copy(getConfigFile().getFile(), rsp.getOutputStream());
+                Files.copy(getConfigFile().getFile().toPath(), rsp.getOutputStream());
                 return;
             }
             Functions.checkPermission(Jenkins.ADMINISTER);
             if (req.getMethod().equals("POST")) {
                 // submission
-                updateByXml(new StreamSource(req.getReader()));
+                updateByXml(req.getReader());
                 return;
             }
             // huh?
@@ -273,55 +360,71 @@ public class DetectGlobalConfig extends GlobalConfiguration implements Serializa
         }
     }
 
-    private void updateByXml(Source source) throws IOException, ParserConfigurationException {
-        Document doc;
-        try (StringWriter out = new StringWriter()) {
-            // this allows us to use UTF-8 for storing data,
-            // plus it checks any well-formedness issue in the submitted
-            // data
-            XMLUtils.safeTransform(source, new StreamResult(out));
-
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            InputSource is = new InputSource(new StringReader(out.toString()));
-
-            doc = builder.parse(is);
-        } catch (TransformerException | SAXException e) {
+    private void updateByXml(Reader reader) throws IOException {
+        Map<String, String> values;
+        try {
+            values = DetectGlobalConfigXmlReader.readValues(reader, CONFIG_XML_ELEMENTS);
+        } catch (XMLStreamException e) {
             throw new IOException("Failed to persist configuration.xml", e);
         }
 
-        String url = getNodeValue(doc, "blackDuckUrl").orElse(StringUtils.EMPTY);
-        String credentialsId = getNodeValue(doc, "blackDuckCredentialsId").orElse(StringUtils.EMPTY);
-        int timeout = getNodeIntegerValue(doc, "blackDuckTimeout").orElse(120);
-        boolean trustCerts = getNodeBooleanValue(doc, "trustBlackDuckCertificates").orElse(false);
-
-        setBlackDuckUrl(url);
-        setBlackDuckCredentialsId(credentialsId);
-        setBlackDuckTimeout(timeout);
-        setTrustBlackDuckCertificates(trustCerts);
-        save();
+        String url = Optional.ofNullable(values.get(BLACK_DUCK_URL_ELEMENT)).orElse(StringUtils.EMPTY);
+        String credentialsId = Optional.ofNullable(values.get(BLACK_DUCK_CREDENTIALS_ID_ELEMENT)).orElse(StringUtils.EMPTY);
+        int timeout = parseInteger(values.get(BLACK_DUCK_TIMEOUT_ELEMENT)).orElse(120);
+        boolean trustCerts = Optional.ofNullable(values.get(TRUST_BLACK_DUCK_CERTIFICATES_ELEMENT)).map(Boolean::valueOf).orElse(false);
+
+        // All four values are applied as one snapshot and written with one save.
+        update(currentSnapshot -> currentSnapshot.toBuilder()
+                                      .blackDuckUrl(url)
+                                      .blackDuckCredentialsId(credentialsId)
+                                      .blackDuckTimeout(timeout)
+                                      .trustBlackDuckCertificates(trustCerts)
+                                      .build());
     }
 
-    private Optional<String> getNodeValue(Document doc, String tagName) {
-        return Optional.ofNullable(doc.getElementsByTagName(tagName).item(0))
-            .map(Node::getFirstChild)
-            .map(Node::getNodeValue)
-            .map(String::trim);
-    }
-
-    private Optional<Integer> getNodeIntegerValue(Document doc, String tagName) {
+    private Optional<Integer> parseInteger(String value) {
         try {
-            return getNodeValue(doc, tagName).map(Integer::valueOf);
+            return Optional.ofNullable(value).map(Integer::valueOf);
         } catch (NumberFormatException ignored) {
             return Optional.empty();
         }
     }
 
-    private Optional<Boolean> getNodeBooleanValue(Document doc, String tagName) {
-        return getNodeValue(doc, tagName).map(Boolean::valueOf);
+    private synchronized void update(UnaryOperator<Snapshot> change) {
+        if (null != pendingSnapshot) {
+            pendingSnapshot = change.apply(pendingSnapshot);
+            return;
+        }
+        publish(change.apply(getSnapshot()));
+        save();
+    }
+
+    private synchronized void publish(Snapshot newSnapshot) {
+        blackDuckUrl = newSnapshot.getBlackDuckUrl();
+        blackDuckCredentialsId = newSnapshot.getBlackDuckCredentialsId();
+        blackDuckTimeout = newSnapshot.getBlackDuckTimeout();
+        trustBlackDuckCertificates = newSnapshot.getTrustBlackDuckCertificates();
+        downloadStrategy = newSnapshot.getDownloadStrategy();
+        maxConcurrentRunsPerNode = newSnapshot.getMaxConcurrentRunsPerNode();
+        maxConcurrentRunsPerLabel = newSnapshot.getMaxConcurrentRunsPerLabel();
+        maxConcurrentRuns = newSnapshot.getMaxConcurrentRuns();
+        snapshot = newSnapshot;
     }
 
-    private BlackDuckServerConfigBuilder createBlackDuckServerConfigBuilder(
+    private synchronized Snapshot createSnapshotFromFields() {
+        return new Snapshot.Builder()
+            .blackDuckUrl(blackDuckUrl)
+            .blackDuckCredentialsId(blackDuckCredentialsId)
+            .blackDuckTimeout(blackDuckTimeout)
+            .trustBlackDuckCertificates(trustBlackDuckCertificates)
+            .downloadStrategy(downloadStrategy)
+            .maxConcurrentRunsPerNode(maxConcurrentRunsPerNode)
+            .maxConcurrentRunsPerLabel(maxConcurrentRunsPerLabel)
+            .maxConcurrentRuns(maxConcurrentRuns)
+            .build();
+    }
+
+    private static BlackDuckServerConfigBuilder createBlackDuckServerConfigBuilder(
         JenkinsProxyHelper jenkinsProxyHelper, SynopsysCredentialsHelper synopsysCredentialsHelper,
         String blackDuckUrl, String credentialsId, int timeout, boolean alwaysTrust
     ) {
@@ -336,4 +439,153 @@ public class DetectGlobalConfig extends GlobalConfiguration implements Serializa
             .setApiToken(apiToken);
     }
 
+    /**
+     * An immutable view of the global configuration. Changes produce a new snapshot rather than modifying this one.
+     */
+    public static final class Snapshot implements Serializable {
+        private static final long serialVersionUID = 3815529377052137414L;
+
+        private final String blackDuckUrl;
+        private final String blackDuckCredentialsId;
+        private final int blackDuckTimeout;
+        private final boolean trustBlackDuckCertificates;
+        @Nullable
+        private final DetectDownloadStrategy downloadStrategy;
+        private final int maxConcurrentRunsPerNode;
+        private final int maxConcurrentRunsPerLabel;
+        private final int maxConcurrentRuns;
+
+        private Snapshot(Builder builder) {
+            this.blackDuckUrl = builder.blackDuckUrl;
+            this.blackDuckCredentialsId = builder.blackDuckCredentialsId;
+            this.blackDuckTimeout = builder.blackDuckTimeout;
+            this.trustBlackDuckCertificates = builder.trustBlackDuckCertificates;
+            this.downloadStrategy = builder.downloadStrategy;
+            this.maxConcurrentRunsPerNode = builder.maxConcurrentRunsPerNode;
+            this.maxConcurrentRunsPerLabel = builder.maxConcurrentRunsPerLabel;
+            this.maxConcurrentRuns = builder.maxConcurrentRuns;
+        }
+
+        public String getBlackDuckUrl() {
+            return blackDuckUrl;
+        }
+
+        public String getBlackDuckCredentialsId() {
+            return blackDuckCredentialsId;
+        }
+
+        public int getBlackDuckTimeout() {
+            return blackDuckTimeout;
+        }
+
+        public boolean getTrustBlackDuckCertificates() {
+            return trustBlackDuckCertificates;
+        }
+
+        public DetectDownloadStrategy getDownloadStrategy() {
+            return downloadStrategy;
+        }
+
+        public int getMaxConcurrentRunsPerNode() {
+            return maxConcurrentRunsPerNode;
+        }
+
+        public int getMaxConcurrentRunsPerLabel() {
+            return maxConcurrentRunsPerLabel;
+        }
+
+        public int getMaxConcurrentRuns() {
+            return maxConcurrentRuns;
+        }
+
+        public BlackDuckServerConfigBuilder getBlackDuckServerConfigBuilder(JenkinsProxyHelper jenkinsProxyHelper, SynopsysCredentialsHelper synopsysCredentialsHelper) {
+            return createBlackDuckServerConfigBuilder(
+                jenkinsProxyHelper,
+                synopsysCredentialsHelper,
+                blackDuckUrl,
+                blackDuckCredentialsId,
+                blackDuckTimeout,
+                trustBlackDuckCertificates
+            );
+        }
+
+        /**
+         * @return A builder holding the values of this snapshot, to create a snapshot that differs in some of them.
+         */
+        public Builder toBuilder() {
+            return new Builder(this);
+        }
+
+        public static final class Builder {
+            private String blackDuckUrl;
+            private String blackDuckCredentialsId;
+            private int blackDuckTimeout;
+            private boolean trustBlackDuckCertificates;
+            @Nullable
+            private DetectDownloadStrategy downloadStrategy;
+            private int maxConcurrentRunsPerNode;
+            private int maxConcurrentRunsPerLabel;
+            private int maxConcurrentRuns;
+
+            public Builder() {
+                // Every value starts out unset.
+            }
+
+            private Builder(Snapshot snapshot) {
+                this.blackDuckUrl = snapshot.blackDuckUrl;
+                this.blackDuckCredentialsId = snapshot.blackDuckCredentialsId;
+                this.blackDuckTimeout = snapshot.blackDuckTimeout;
+                this.trustBlackDuckCertificates = snapshot.trustBlackDuckCertificates;
+                this.downloadStrategy = snapshot.downloadStrategy;
+                this.maxConcurrentRunsPerNode = snapshot.maxConcurrentRunsPerNode;
+                this.maxConcurrentRunsPerLabel = snapshot.maxConcurrentRunsPerLabel;
+                this.maxConcurrentRuns = snapshot.maxConcurrentRuns;
+            }
+
+            public Builder blackDuckUrl(String blackDuckUrl) {
+                this.blackDuckUrl = blackDuckUrl;
+                return this;
+            }
+
+            public Builder blackDuckCredentialsId(String blackDuckCredentialsId) {
+                this.blackDuckCredentialsId = blackDuckCredentialsId;
+                return this;
+            }
+
+            public Builder blackDuckTimeout(int blackDuckTimeout) {
+                this.blackDuckTimeout = blackDuckTimeout;
+                return this;
+            }
+
+            public Builder trustBlackDuckCertificates(boolean trustBlackDuckCertificates) {
+                this.trustBlackDuckCertificates = trustBlackDuckCertificates;
+                return this;
+            }
+
+            public Builder downloadStrategy(@Nullable DetectDownloadStrategy downloadStrategy) {
+                this.downloadStrategy = downloadStrategy;
+                return this;
+            }
+
+            public Builder maxConcurrentRunsPerNode(int maxConcurrentRunsPerNode) {
+                this.maxConcurrentRunsPerNode = maxConcurrentRunsPerNode;
+                return this;
+            }
+
+            public Builder maxConcurrentRunsPerLabel(int maxConcurrentRunsPerLabel) {
+                this.maxConcurrentRunsPerLabel = maxConcurrentRunsPerLabel;
+                return this;
+            }
+
+            public Builder maxConcurrentRuns(int maxConcurrentRuns) {
+                this.maxConcurrentRuns = maxConcurrentRuns;
+                return this;
+            }
+
+            public Snapshot build() {
+                return new Snapshot(this);
+            }
+        }
+    }
+
 }
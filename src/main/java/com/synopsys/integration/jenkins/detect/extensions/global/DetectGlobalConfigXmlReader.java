@@ -0,0 +1,79 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.extensions.global;
+
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads the values of a known set of elements from a submitted config.xml in a single streaming pass, without building a DOM or copying the document into a string
+ * first. Like the DOM lookup it replaces, the first element with a given name wins wherever it appears, and its value is the trimmed text it starts with.
+ */
+public class DetectGlobalConfigXmlReader {
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    private DetectGlobalConfigXmlReader() {
+        // This class should not be instantiated.
+    }
+
+    /**
+     * @return The values of the requested elements that were present. The whole document is read, so a document that is not well-formed is rejected even when all
+     *     values were found early.
+     */
+    public static Map<String, String> readValues(Reader reader, Set<String> elementNames) throws XMLStreamException {
+        Map<String, String> values = new HashMap<>();
+        Set<String> foundElementNames = new HashSet<>();
+        XMLStreamReader xmlStreamReader = XML_INPUT_FACTORY.createXMLStreamReader(reader);
+        try {
+            String pendingElementName = null;
+            StringBuilder pendingText = new StringBuilder();
+            while (xmlStreamReader.hasNext()) {
+                int event = xmlStreamReader.next();
+                if (null != pendingElementName) {
+                    if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE) {
+                        pendingText.append(xmlStreamReader.getTextCharacters(), xmlStreamReader.getTextStart(), xmlStreamReader.getTextLength());
+                        continue;
+                    }
+                    if (pendingText.length() > 0) {
+                        values.put(pendingElementName, pendingText.toString().trim());
+                    }
+                    pendingElementName = null;
+                    pendingText.setLength(0);
+                }
+
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String elementName = xmlStreamReader.getLocalName();
+                    if (elementNames.contains(elementName) && foundElementNames.add(elementName)) {
+                        pendingElementName = elementName;
+                    }
+                }
+            }
+        } finally {
+            xmlStreamReader.close();
+        }
+        return values;
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+        // Submitted configuration must never pull in DTDs or external entities.
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return xmlInputFactory;
+    }
+
+}
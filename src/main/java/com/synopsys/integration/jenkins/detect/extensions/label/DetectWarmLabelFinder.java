@@ -0,0 +1,108 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.extensions.label;
+
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nonnull;
+
+import com.synopsys.integration.jenkins.detect.service.strategy.AirGapResolutionCache;
+import com.synopsys.integration.jenkins.detect.service.strategy.NodeCapabilityCache;
+
+import hudson.Extension;
+import hudson.model.LabelFinder;
+import hudson.model.Node;
+import hudson.model.labels.LabelAtom;
+import jenkins.model.Jenkins;
+
+/**
+ * Labels the nodes on which Detect setup has already been paid for, so that pipelines can ask for them (e.g. agent { label 'detect-warm' }): detect-warm once a
+ * Detect run has been set up on the node, detect-java once the Java that Detect runs with has been resolved there, detect-air-gap and detect-N.x once an Air Gap
+ * installation of Detect N has been found there. The labels reflect what the controller has learned since the node last connected.
+ */
+@Extension
+public class DetectWarmLabelFinder extends LabelFinder {
+    public static final String LABEL_PREFIX = "detect-";
+    public static final String WARM_LABEL = LABEL_PREFIX + "warm";
+    public static final String JAVA_LABEL = LABEL_PREFIX + "java";
+    public static final String AIR_GAP_LABEL = LABEL_PREFIX + "air-gap";
+    private static final Pattern DETECT_JAR_MAJOR_VERSION = Pattern.compile("detect-(\\d+)\\.[\\w.-]*\\.jar$");
+    private static final Pattern VERSION_LABEL = Pattern.compile(Pattern.quote(LABEL_PREFIX) + "\\d+\\.x");
+    // The labels each node was last known to have, so that the labels whose nodes change can be recomputed.
+    private static final Map<String, Set<String>> PUBLISHED_LABELS = new ConcurrentHashMap<>();
+
+    @Nonnull
+    @Override
+    public Collection<LabelAtom> findLabels(@Nonnull Node node) {
+        return findLabelNames(node.getNodeName()).stream()
+                   .map(LabelAtom::get)
+                   .collect(Collectors.toSet());
+    }
+
+    public static Set<String> findLabelNames(String nodeName) {
+        NodeCapabilityCache nodeCapabilityCache = new NodeCapabilityCache(nodeName);
+        if (!nodeCapabilityCache.getOperatingSystemType().isPresent()) {
+            return Collections.emptySet();
+        }
+
+        Set<String> labelNames = new TreeSet<>();
+        labelNames.add(WARM_LABEL);
+        if (nodeCapabilityCache.hasRemoteJavaInfo()) {
+            labelNames.add(JAVA_LABEL);
+        }
+        for (AirGapResolutionCache.Resolution resolution : new AirGapResolutionCache(nodeName).getResolutions()) {
+            labelNames.add(AIR_GAP_LABEL);
+            String jarName = Paths.get(resolution.getAirGapJarResolution().getAirGapJar()).getFileName().toString();
+            Matcher matcher = DETECT_JAR_MAJOR_VERSION.matcher(jarName);
+            if (matcher.find()) {
+                labelNames.add(LABEL_PREFIX + matcher.group(1) + ".x");
+            }
+        }
+        return labelNames;
+    }
+
+    public static boolean isDetectLabel(String labelName) {
+        return WARM_LABEL.equals(labelName) || JAVA_LABEL.equals(labelName) || AIR_GAP_LABEL.equals(labelName) || VERSION_LABEL.matcher(labelName).matches();
+    }
+
+    /**
+     * Recomputes the nodes of the labels that the node gained or lost since it was last refreshed, so that waiting builds can be scheduled onto it.
+     */
+    public static void refresh(String nodeName) {
+        Set<String> labelNames = findLabelNames(nodeName);
+        Set<String> previousLabelNames = labelNames.isEmpty() ? PUBLISHED_LABELS.remove(nodeName) : PUBLISHED_LABELS.put(nodeName, labelNames);
+        if (labelNames.equals(previousLabelNames) || (labelNames.isEmpty() && null == previousLabelNames)) {
+            return;
+        }
+
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        if (null == jenkins) {
+            return;
+        }
+        Set<String> knownLabelNames = null != previousLabelNames ? previousLabelNames : Collections.emptySet();
+        Set<String> changedLabelNames = new TreeSet<>(labelNames);
+        changedLabelNames.addAll(knownLabelNames);
+        changedLabelNames.removeIf(labelName -> labelNames.contains(labelName) && knownLabelNames.contains(labelName));
+        changedLabelNames.forEach(labelName -> jenkins.getLabelAtom(labelName).reset());
+        jenkins.getQueue().scheduleMaintenance();
+    }
+
+    public static void refreshAll() {
+        new TreeSet<>(PUBLISHED_LABELS.keySet()).forEach(DetectWarmLabelFinder::refresh);
+    }
+
+}
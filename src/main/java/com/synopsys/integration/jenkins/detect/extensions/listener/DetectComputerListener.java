@@ -0,0 +1,47 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.extensions.listener;
+
+import com.synopsys.integration.jenkins.detect.extensions.label.DetectWarmLabelFinder;
+import com.synopsys.integration.jenkins.detect.service.strategy.AirGapResolutionCache;
+import com.synopsys.integration.jenkins.detect.service.strategy.NodeCapabilityCache;
+
+import hudson.Extension;
+import hudson.model.Computer;
+import hudson.model.TaskListener;
+import hudson.slaves.ComputerListener;
+import hudson.slaves.OfflineCause;
+
+/**
+ * Forgets what was learned about a node whenever it connects or disconnects, since the agent may have come back with a different operating system, Java or
+ * Air Gap installation. The node loses its Detect labels along with it.
+ */
+@Extension
+public class DetectComputerListener extends ComputerListener {
+    @Override
+    public void onOnline(Computer computer, TaskListener listener) {
+        NodeCapabilityCache.invalidate(computer.getName());
+        AirGapResolutionCache.invalidate(computer.getName());
+        DetectWarmLabelFinder.refresh(computer.getName());
+    }
+
+    @Override
+    public void onOffline(Computer computer, OfflineCause cause) {
+        NodeCapabilityCache.invalidate(computer.getName());
+        AirGapResolutionCache.invalidate(computer.getName());
+        DetectWarmLabelFinder.refresh(computer.getName());
+    }
+
+    @Override
+    public void onConfigurationChange() {
+        NodeCapabilityCache.invalidateAll();
+        AirGapResolutionCache.invalidateAll();
+        DetectWarmLabelFinder.refreshAll();
+    }
+
+}
@@ -0,0 +1,224 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.extensions.pipeline;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import com.synopsys.integration.jenkins.annotations.HelpMarkdown;
+import com.synopsys.integration.jenkins.detect.DetectBulkPipelineCommands;
+import com.synopsys.integration.jenkins.detect.DetectBulkResult;
+import com.synopsys.integration.jenkins.detect.DetectBulkTarget;
+import com.synopsys.integration.jenkins.detect.exception.DetectJenkinsException;
+import com.synopsys.integration.jenkins.detect.extensions.DetectDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.extensions.InheritFromGlobalDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.service.DetectCommandsFactory;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Util;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+
+public class DetectBulkPipelineStep extends Step implements Serializable {
+    public static final String DISPLAY_NAME = "Synopsys Detect (bulk scan)";
+    public static final String PIPELINE_NAME = "synopsys_detect_bulk";
+    public static final int DEFAULT_SCANS_PER_NODE = 1;
+    private static final long serialVersionUID = 2871046523316941180L;
+
+    @HelpMarkdown("The repositories to scan, one URL per entry. Append # and a branch or tag to scan it instead of the default branch, e.g. https://github.com/example/app.git#release/2.0")
+    private final List<String> repositories;
+
+    @HelpMarkdown("The command line options to pass to Synopsys Detect for every repository. Unless set here, the project name is the name of the repository and the project version is the branch or tag")
+    private String detectProperties = StringUtils.EMPTY;
+
+    @HelpMarkdown("The label of the nodes to spread the repositories over. If empty, all repositories are scanned on the current node")
+    @Nullable
+    private String label;
+
+    @HelpMarkdown("The most repositories to scan at the same time on each node")
+    private int scansPerNode = DEFAULT_SCANS_PER_NODE;
+
+    @HelpMarkdown("The priority lane the scans wait in when Detect runs are limited: high, normal or low. If empty, DETECT_PLUGIN_SCAN_PRIORITY is used, or normal if that is not set either")
+    @Nullable
+    private String priority;
+
+    @HelpMarkdown("If true (checked), returns the results of all repositories even if some of them failed, instead of throwing an exception")
+    private boolean returnStatus = false;
+
+    @Nullable
+    private DetectDownloadStrategy downloadStrategyOverride;
+
+    @DataBoundConstructor
+    public DetectBulkPipelineStep(List<String> repositories) {
+        this.repositories = new ArrayList<>(repositories);
+    }
+
+    public List<String> getRepositories() {
+        return repositories;
+    }
+
+    public String getDetectProperties() {
+        return detectProperties;
+    }
+
+    @DataBoundSetter
+    public void setDetectProperties(String detectProperties) {
+        this.detectProperties = StringUtils.defaultString(detectProperties);
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    @DataBoundSetter
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
+    public int getScansPerNode() {
+        return scansPerNode;
+    }
+
+    @DataBoundSetter
+    public void setScansPerNode(int scansPerNode) {
+        this.scansPerNode = scansPerNode;
+    }
+
+    public String getPriority() {
+        return priority;
+    }
+
+    @DataBoundSetter
+    public void setPriority(String priority) {
+        this.priority = Util.fixEmptyAndTrim(priority);
+    }
+
+    public boolean getReturnStatus() {
+        return returnStatus;
+    }
+
+    @DataBoundSetter
+    public void setReturnStatus(boolean returnStatus) {
+        this.returnStatus = returnStatus;
+    }
+
+    public DetectDownloadStrategy getDownloadStrategyOverride() {
+        return downloadStrategyOverride;
+    }
+
+    @DataBoundSetter
+    public void setDownloadStrategyOverride(DetectDownloadStrategy downloadStrategyOverride) {
+        this.downloadStrategyOverride = downloadStrategyOverride;
+    }
+
+    public DetectDownloadStrategy getDefaultDownloadStrategyOverride() {
+        return new InheritFromGlobalDownloadStrategy();
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        return new Execution(context);
+    }
+
+    @Extension(optional = true)
+    public static final class DescriptorImpl extends StepDescriptor {
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return new HashSet<>(Arrays.asList(TaskListener.class, EnvVars.class, FilePath.class, Launcher.class, Node.class));
+        }
+
+        @Override
+        public String getFunctionName() {
+            return PIPELINE_NAME;
+        }
+
+        @Nonnull
+        @Override
+        public String getDisplayName() {
+            return DISPLAY_NAME;
+        }
+
+    }
+
+    /**
+     * Completes with one result per repository, each holding its repository, ref, node, exit code and duration, once every repository has been scanned or given up on.
+     */
+    public class Execution extends StepExecution {
+        private static final long serialVersionUID = 6520338178411304977L;
+        private final transient TaskListener listener;
+        private final transient EnvVars envVars;
+        private final transient FilePath workspace;
+        private final transient Launcher launcher;
+        private final transient Node node;
+        private transient volatile DetectBulkPipelineCommands detectPipelineCommands;
+
+        protected Execution(@Nonnull StepContext context) throws InterruptedException, IOException {
+            super(context);
+            listener = context.get(TaskListener.class);
+            envVars = context.get(EnvVars.class);
+            workspace = context.get(FilePath.class);
+            launcher = context.get(Launcher.class);
+            node = context.get(Node.class);
+        }
+
+        @Override
+        public boolean start() throws Exception {
+            List<DetectBulkTarget> targets = repositories.stream()
+                                                 .filter(StringUtils::isNotBlank)
+                                                 .map(DetectBulkTarget::parse)
+                                                 .collect(Collectors.toList());
+            detectPipelineCommands = DetectCommandsFactory.fromBulkPipeline(listener, envVars, launcher, node, workspace, label, scansPerNode, priority);
+            // Plain maps and lists can be read by the pipeline script without approval. Stopped runs have already been reported by stop().
+            DetectPipelineStep.completeStep(
+                getContext(),
+                detectPipelineCommands.startDetect(returnStatus, targets, detectProperties, downloadStrategyOverride),
+                bulkResults -> bulkResults.stream()
+                                .map(DetectBulkResult::toMap)
+                                .collect(Collectors.toList()),
+                () -> true
+            );
+            return false;
+        }
+
+        @Override
+        public void stop(@Nonnull Throwable cause) throws Exception {
+            DetectBulkPipelineCommands runningCommands = detectPipelineCommands;
+            if (null != runningCommands) {
+                runningCommands.stopDetect();
+            }
+            getContext().onFailure(cause);
+        }
+
+        @Override
+        public void onResume() {
+            getContext().onFailure(new DetectJenkinsException("Detect was interrupted by a restart of Jenkins. Run the step again to scan."));
+        }
+
+    }
+
+}
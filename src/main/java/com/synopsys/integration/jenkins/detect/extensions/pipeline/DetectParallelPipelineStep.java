@@ -0,0 +1,179 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.extensions.pipeline;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import com.synopsys.integration.jenkins.annotations.HelpMarkdown;
+import com.synopsys.integration.jenkins.detect.DetectInvocationResult;
+import com.synopsys.integration.jenkins.detect.DetectParallelPipelineCommands;
+import com.synopsys.integration.jenkins.detect.exception.DetectJenkinsException;
+import com.synopsys.integration.jenkins.detect.extensions.DetectDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.extensions.InheritFromGlobalDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.service.DetectCommandsFactory;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+
+public class DetectParallelPipelineStep extends Step implements Serializable {
+    public static final String DISPLAY_NAME = "Synopsys Detect (parallel invocations)";
+    public static final String PIPELINE_NAME = "synopsys_detect_parallel";
+    public static final int DEFAULT_MAX_PARALLEL_INVOCATIONS = 4;
+    private static final long serialVersionUID = -6930521447601278645L;
+
+    @HelpMarkdown("A list of command line options to pass to Synopsys Detect, one entry per invocation. Setup on the node is shared by all invocations")
+    private final List<String> detectProperties;
+
+    @HelpMarkdown("The most invocations of Detect to run at the same time on the node")
+    private int maxParallelInvocations = DEFAULT_MAX_PARALLEL_INVOCATIONS;
+
+    @HelpMarkdown("If true (checked), returns the results of all invocations even if some of them failed, instead of throwing an exception")
+    private boolean returnStatus = false;
+
+    @Nullable
+    private DetectDownloadStrategy downloadStrategyOverride;
+
+    @DataBoundConstructor
+    public DetectParallelPipelineStep(List<String> detectProperties) {
+        this.detectProperties = new ArrayList<>(detectProperties);
+    }
+
+    public List<String> getDetectProperties() {
+        return detectProperties;
+    }
+
+    public int getMaxParallelInvocations() {
+        return maxParallelInvocations;
+    }
+
+    @DataBoundSetter
+    public void setMaxParallelInvocations(int maxParallelInvocations) {
+        this.maxParallelInvocations = maxParallelInvocations;
+    }
+
+    public boolean getReturnStatus() {
+        return returnStatus;
+    }
+
+    @DataBoundSetter
+    public void setReturnStatus(boolean returnStatus) {
+        this.returnStatus = returnStatus;
+    }
+
+    public DetectDownloadStrategy getDownloadStrategyOverride() {
+        return downloadStrategyOverride;
+    }
+
+    @DataBoundSetter
+    public void setDownloadStrategyOverride(DetectDownloadStrategy downloadStrategyOverride) {
+        this.downloadStrategyOverride = downloadStrategyOverride;
+    }
+
+    public DetectDownloadStrategy getDefaultDownloadStrategyOverride() {
+        return new InheritFromGlobalDownloadStrategy();
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        return new Execution(context);
+    }
+
+    @Extension(optional = true)
+    public static final class DescriptorImpl extends StepDescriptor {
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return new HashSet<>(Arrays.asList(TaskListener.class, EnvVars.class, FilePath.class, Launcher.class, Node.class));
+        }
+
+        @Override
+        public String getFunctionName() {
+            return PIPELINE_NAME;
+        }
+
+        @Nonnull
+        @Override
+        public String getDisplayName() {
+            return DISPLAY_NAME;
+        }
+
+    }
+
+    /**
+     * Completes with one result per invocation, each holding its position, exit code and duration, once every invocation has finished.
+     */
+    public class Execution extends StepExecution {
+        private static final long serialVersionUID = 3558263146302958227L;
+        private final transient TaskListener listener;
+        private final transient EnvVars envVars;
+        private final transient FilePath workspace;
+        private final transient Launcher launcher;
+        private final transient Node node;
+        private transient volatile DetectParallelPipelineCommands detectPipelineCommands;
+
+        protected Execution(@Nonnull StepContext context) throws InterruptedException, IOException {
+            super(context);
+            listener = context.get(TaskListener.class);
+            envVars = context.get(EnvVars.class);
+            workspace = context.get(FilePath.class);
+            launcher = context.get(Launcher.class);
+            node = context.get(Node.class);
+        }
+
+        @Override
+        public boolean start() throws Exception {
+            detectPipelineCommands = DetectCommandsFactory.fromParallelPipeline(listener, envVars, launcher, node, workspace, maxParallelInvocations);
+            // Plain maps and lists can be read by the pipeline script without approval. Stopped runs have already been reported by stop().
+            DetectPipelineStep.completeStep(
+                getContext(),
+                detectPipelineCommands.startDetect(returnStatus, detectProperties, downloadStrategyOverride),
+                invocationResults -> invocationResults.stream()
+                                .map(DetectInvocationResult::toMap)
+                                .collect(Collectors.toList()),
+                () -> true
+            );
+            return false;
+        }
+
+        @Override
+        public void stop(@Nonnull Throwable cause) throws Exception {
+            DetectParallelPipelineCommands runningCommands = detectPipelineCommands;
+            if (null != runningCommands) {
+                runningCommands.stopDetect();
+            }
+            getContext().onFailure(cause);
+        }
+
+        @Override
+        public void onResume() {
+            getContext().onFailure(new DetectJenkinsException("Detect was interrupted by a restart of Jenkins. Run the step again to scan."));
+        }
+
+    }
+
+}
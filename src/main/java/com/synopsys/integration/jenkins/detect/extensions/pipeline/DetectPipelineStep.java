@@ -12,6 +12,10 @@ import java.io.Serializable;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -20,21 +24,30 @@ import org.jenkinsci.plugins.workflow.steps.Step;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
 import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
 import org.jenkinsci.plugins.workflow.steps.StepExecution;
-import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
 
 import com.synopsys.integration.jenkins.annotations.HelpMarkdown;
+import com.synopsys.integration.jenkins.detect.DetectAsyncRun;
+import com.synopsys.integration.jenkins.detect.DetectOffloadedPipelineCommands;
+import com.synopsys.integration.jenkins.detect.DetectPipelineCommands;
+import com.synopsys.integration.jenkins.detect.exception.DetectJenkinsException;
 import com.synopsys.integration.jenkins.detect.extensions.DetectDownloadStrategy;
 import com.synopsys.integration.jenkins.detect.extensions.InheritFromGlobalDownloadStrategy;
 import com.synopsys.integration.jenkins.detect.service.DetectCommandsFactory;
+import com.synopsys.integration.jenkins.detect.service.DetectScanPriority;
+import com.synopsys.integration.jenkins.detect.service.process.DetectProcess;
+import com.synopsys.integration.jenkins.detect.service.process.DurableDetectProcess;
 
 import hudson.EnvVars;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
+import hudson.Util;
 import hudson.model.Node;
+import hudson.model.Run;
 import hudson.model.TaskListener;
+import hudson.util.ListBoxModel;
 
 public class DetectPipelineStep extends Step implements Serializable {
     public static final String DISPLAY_NAME = "Synopsys Detect";
@@ -47,6 +60,23 @@ public class DetectPipelineStep extends Step implements Serializable {
     @HelpMarkdown("If true (checked), returns the status code of the Detect run instead of throwing an exception")
     private boolean returnStatus = false;
 
+    @HelpMarkdown("If true (checked), Detect keeps running on the node if Jenkins restarts, and the step waits for it again instead of failing. Only supported on Unix nodes")
+    private boolean durable = false;
+
+    @HelpMarkdown("If true (checked), starts Detect and returns a handle right away instead of waiting for it to finish. Pass the handle to waitForDetect to wait for the result. The scan is stopped if the build completes first")
+    private boolean async = false;
+
+    @HelpMarkdown("The label of dedicated scanning nodes to run Detect on instead of the current node. A snapshot of the package manager manifests and lockfiles in the workspace is copied to the least busy of them. Combined with async, the step returns as soon as the snapshot is taken, so the node block can end while Detect runs")
+    @Nullable
+    private String offloadLabel;
+
+    @HelpMarkdown("If true (checked), binaries in the workspace (such as jar, war, zip and dll files) are included in the snapshot copied to the scanning node")
+    private boolean offloadBinaries = false;
+
+    @HelpMarkdown("The priority lane (high, normal or low) this scan waits in when the concurrency limits are reached. Higher lanes start first, but no scan waits behind scans that were queued long after it. If not set, the DETECT_PLUGIN_SCAN_PRIORITY environment variable is used, and otherwise normal")
+    @Nullable
+    private String priority;
+
     @Nullable
     private DetectDownloadStrategy downloadStrategyOverride;
 
@@ -81,6 +111,51 @@ public class DetectPipelineStep extends Step implements Serializable {
         this.returnStatus = returnStatus;
     }
 
+    public boolean getDurable() {
+        return durable;
+    }
+
+    @DataBoundSetter
+    public void setDurable(boolean durable) {
+        this.durable = durable;
+    }
+
+    public boolean getAsync() {
+        return async;
+    }
+
+    @DataBoundSetter
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    public String getOffloadLabel() {
+        return offloadLabel;
+    }
+
+    @DataBoundSetter
+    public void setOffloadLabel(String offloadLabel) {
+        this.offloadLabel = Util.fixEmptyAndTrim(offloadLabel);
+    }
+
+    public boolean getOffloadBinaries() {
+        return offloadBinaries;
+    }
+
+    @DataBoundSetter
+    public void setOffloadBinaries(boolean offloadBinaries) {
+        this.offloadBinaries = offloadBinaries;
+    }
+
+    public String getPriority() {
+        return priority;
+    }
+
+    @DataBoundSetter
+    public void setPriority(String priority) {
+        this.priority = Util.fixEmptyAndTrim(priority);
+    }
+
     @Override
     public StepExecution start(StepContext context) throws Exception {
         return new Execution(context);
@@ -104,15 +179,27 @@ public class DetectPipelineStep extends Step implements Serializable {
             return DISPLAY_NAME;
         }
 
+        public ListBoxModel doFillPriorityItems() {
+            return DetectScanPriority.createListBoxModel();
+        }
+
     }
 
-    public class Execution extends SynchronousNonBlockingStepExecution<Integer> {
+    /**
+     * Completes from a callback once Detect exits on the node, so a running scan does not hold a controller thread. A durable Detect process is saved with the build
+     * so that the step can wait for it again after Jenkins restarts.
+     */
+    public class Execution extends StepExecution {
         private static final long serialVersionUID = -5807577350749324767L;
         private final transient TaskListener listener;
         private final transient EnvVars envVars;
         private final transient FilePath workspace;
         private final transient Launcher launcher;
         private final transient Node node;
+        private transient volatile DetectPipelineCommands detectPipelineCommands;
+        private transient volatile DetectOffloadedPipelineCommands detectOffloadedPipelineCommands;
+        @Nullable
+        private volatile DurableDetectProcess durableDetectProcess;
 
         protected Execution(@Nonnull StepContext context) throws InterruptedException, IOException {
             super(context);
@@ -124,11 +211,138 @@ public class DetectPipelineStep extends Step implements Serializable {
         }
 
         @Override
-        protected Integer run() throws Exception {
-            return DetectCommandsFactory.fromPipeline(listener, envVars, launcher, node, workspace)
-                       .runDetect(returnStatus, detectProperties, downloadStrategyOverride);
+        public boolean start() throws Exception {
+            if (null != offloadLabel) {
+                return startOffloaded();
+            }
+            detectPipelineCommands = DetectCommandsFactory.fromPipeline(listener, envVars, launcher, node, workspace, durable, priority);
+            if (async) {
+                // The step ends here, so a durable process is not saved with it; the scan is collected by waitForDetect.
+                CompletableFuture<Integer> futureExitCode = detectPipelineCommands.startDetect(returnStatus, detectProperties, downloadStrategyOverride);
+                String handle = DetectScanRegistry.register(getContext().get(Run.class).getExternalizableId(), detectPipelineCommands::stopDetect, futureExitCode);
+                listener.getLogger().println("Started Detect in the background. Wait for it with waitForDetect('" + handle + "').");
+                getContext().onSuccess(handle);
+                return true;
+            }
+            complete(detectPipelineCommands.startDetect(returnStatus, detectProperties, downloadStrategyOverride, this::onLaunch));
+            return false;
+        }
+
+        @Override
+        public void stop(@Nonnull Throwable cause) throws Exception {
+            DetectPipelineCommands runningCommands = detectPipelineCommands;
+            if (null != runningCommands) {
+                runningCommands.stopDetect();
+            }
+            DetectOffloadedPipelineCommands runningOffloadedCommands = detectOffloadedPipelineCommands;
+            if (null != runningOffloadedCommands) {
+                runningOffloadedCommands.stopDetect();
+            }
+            getContext().onFailure(cause);
         }
 
+        private boolean startOffloaded() throws Exception {
+            DetectOffloadedPipelineCommands offloadedCommands = DetectCommandsFactory.fromOffloadedPipeline(
+                listener,
+                envVars,
+                launcher,
+                node,
+                workspace,
+                offloadLabel,
+                offloadBinaries,
+                priority
+            );
+            detectOffloadedPipelineCommands = offloadedCommands;
+            if (durable) {
+                listener.getLogger().println("Durable execution is not supported for offloaded scans. Detect will not survive a restart of Jenkins.");
+            }
+            CompletableFuture<Integer> futureExitCode = offloadedCommands.startDetect(returnStatus, detectProperties, downloadStrategyOverride);
+            if (!async) {
+                complete(futureExitCode);
+                return false;
+            }
+
+            // The step ends once the snapshot has been taken rather than right away, so that the workspace can be released as soon as the step returns.
+            String handle = DetectScanRegistry.register(getContext().get(Run.class).getExternalizableId(), offloadedCommands::stopDetect, futureExitCode);
+            offloadedCommands.getSnapshotTaken().whenComplete((ignored, throwable) -> {
+                if (null == throwable) {
+                    listener.getLogger().println("Offloaded Detect to a scanning node. Wait for it with waitForDetect('" + handle + "').");
+                    getContext().onSuccess(handle);
+                    return;
+                }
+                DetectScanRegistry.remove(handle);
+                // Stopped runs have already been reported by stop().
+                failStep(getContext(), throwable, () -> true);
+            });
+            return false;
+        }
+
+        @Override
+        public void onResume() {
+            DurableDetectProcess savedDetectProcess = durableDetectProcess;
+            if (null == savedDetectProcess) {
+                // The connection to an attached Detect process on the node does not survive a restart of the controller.
+                getContext().onFailure(new DetectJenkinsException("Detect was interrupted by a restart of Jenkins. Run the step again to scan."));
+                return;
+            }
+
+            try {
+                TaskListener resumedListener = getContext().get(TaskListener.class);
+                savedDetectProcess.attach(resumedListener);
+                resumedListener.getLogger().println("Jenkins restarted while Detect was running. Waiting for Detect to finish on the node.");
+                detectPipelineCommands = DetectCommandsFactory.resumePipeline(resumedListener, savedDetectProcess);
+                complete(detectPipelineCommands.resumeDetect(returnStatus));
+            } catch (Exception e) {
+                getContext().onFailure(e);
+            }
+        }
+
+        private void onLaunch(DetectProcess detectProcess) {
+            if (detectProcess instanceof DurableDetectProcess) {
+                durableDetectProcess = (DurableDetectProcess) detectProcess;
+                getContext().saveState();
+            }
+        }
+
+        private void complete(CompletableFuture<Integer> futureExitCode) {
+            // Stopped runs have already been reported by stop().
+            completeStep(getContext(), futureExitCode.whenComplete((exitCode, throwable) -> durableDetectProcess = null), () -> true);
+        }
+
+    }
+
+    /**
+     * Completes the step with the exit code of Detect once it is known.
+     * @param stopped Whether a cancelled run was stopped by the step itself, which has then already reported the failure.
+     */
+    static void completeStep(StepContext context, CompletableFuture<Integer> futureExitCode, BooleanSupplier stopped) {
+        completeStep(context, futureExitCode, Function.identity(), stopped);
+    }
+
+    /**
+     * Completes the step with the result of Detect once it is known, converted to what the pipeline script receives.
+     * @param stopped Whether a cancelled run was stopped by the step itself, which has then already reported the failure.
+     */
+    static <T> void completeStep(StepContext context, CompletableFuture<T> futureResult, Function<? super T, ?> toStepResult, BooleanSupplier stopped) {
+        futureResult.whenComplete((result, throwable) -> {
+            if (null == throwable) {
+                context.onSuccess(toStepResult.apply(result));
+            } else {
+                failStep(context, throwable, stopped);
+            }
+        });
+    }
+
+    /**
+     * Fails the step, unless the run was cancelled by the step itself, which has then already reported the failure.
+     */
+    static void failStep(StepContext context, Throwable throwable, BooleanSupplier stopped) {
+        Throwable cause = DetectAsyncRun.unwrap(throwable);
+        if (!(cause instanceof CancellationException)) {
+            context.onFailure(cause);
+        } else if (!stopped.getAsBoolean()) {
+            context.onFailure(new DetectJenkinsException("Detect was stopped before it finished."));
+        }
     }
 
 }
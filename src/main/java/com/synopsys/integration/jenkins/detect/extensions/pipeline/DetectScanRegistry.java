@@ -0,0 +1,102 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.extensions.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+
+/**
+ * Keeps track of Detect scans started with {@code async: true} until {@code waitForDetect} collects them. Scans are only held in memory: a scan that has not been
+ * waited for when its build completes is stopped, and no scan survives a restart of Jenkins.
+ */
+public class DetectScanRegistry {
+    public static final String HANDLE_PREFIX = "detect-scan-";
+
+    private static final Map<String, Scan> SCANS = new ConcurrentHashMap<>();
+
+    private DetectScanRegistry() {
+        // Static access only.
+    }
+
+    /**
+     * @param stopDetect Stops the scan if its build completes before it has been waited for.
+     * @return The handle that identifies the scan to {@code waitForDetect}.
+     */
+    public static String register(String runId, Runnable stopDetect, CompletableFuture<Integer> futureExitCode) {
+        String handle = HANDLE_PREFIX + UUID.randomUUID();
+        SCANS.put(handle, new Scan(runId, stopDetect, futureExitCode));
+        return handle;
+    }
+
+    public static Optional<Scan> get(String handle) {
+        return Optional.ofNullable(SCANS.get(handle));
+    }
+
+    public static void remove(String handle) {
+        SCANS.remove(handle);
+    }
+
+    /**
+     * Stops and forgets every scan the given build started.
+     */
+    public static void stopScans(String runId) {
+        List<Scan> stoppedScans = new ArrayList<>();
+        SCANS.entrySet().removeIf(entry -> {
+            if (entry.getValue().runId.equals(runId)) {
+                stoppedScans.add(entry.getValue());
+                return true;
+            }
+            return false;
+        });
+        stoppedScans.forEach(Scan::stop);
+    }
+
+    public static class Scan {
+        private final String runId;
+        private final Runnable stopDetect;
+        private final CompletableFuture<Integer> futureExitCode;
+
+        private Scan(String runId, Runnable stopDetect, CompletableFuture<Integer> futureExitCode) {
+            this.runId = runId;
+            this.stopDetect = stopDetect;
+            this.futureExitCode = futureExitCode;
+        }
+
+        /**
+         * @return The exit code of Detect, handled according to the {@code returnStatus} the scan was started with.
+         */
+        public CompletableFuture<Integer> getFutureExitCode() {
+            return futureExitCode;
+        }
+
+        public void stop() {
+            if (!futureExitCode.isDone()) {
+                stopDetect.run();
+            }
+        }
+    }
+
+    @Extension
+    public static class ScanRunListener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onCompleted(Run<?, ?> run, TaskListener listener) {
+            stopScans(run.getExternalizableId());
+        }
+    }
+
+}
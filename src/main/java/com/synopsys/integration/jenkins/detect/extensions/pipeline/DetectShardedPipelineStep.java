@@ -0,0 +1,205 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.extensions.pipeline;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+import com.synopsys.integration.jenkins.annotations.HelpMarkdown;
+import com.synopsys.integration.jenkins.detect.DetectShardResult;
+import com.synopsys.integration.jenkins.detect.DetectShardedPipelineCommands;
+import com.synopsys.integration.jenkins.detect.exception.DetectJenkinsException;
+import com.synopsys.integration.jenkins.detect.extensions.DetectDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.extensions.InheritFromGlobalDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.service.DetectCommandsFactory;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+
+public class DetectShardedPipelineStep extends Step implements Serializable {
+    public static final String DISPLAY_NAME = "Synopsys Detect (sharded)";
+    public static final String PIPELINE_NAME = "synopsys_detect_sharded";
+    public static final int DEFAULT_MAX_PARALLEL_SHARDS = 4;
+    private static final long serialVersionUID = 5467307771453035290L;
+
+    @HelpMarkdown("The command line options to pass to Synopsys Detect for every shard. Set the project name and version so that all shards are added to the same project version")
+    private final String detectProperties;
+
+    @HelpMarkdown("The directories of the workspace to scan as separate shards. If empty, every top-level directory with a package manager manifest becomes a shard, even if the workspace has a manifest of its own. Only a workspace without such directories is scanned as one shard")
+    private List<String> sourcePaths = new ArrayList<>();
+
+    @HelpMarkdown("The label of the nodes to spread the shards over. Shards are copied to those nodes. If empty, all shards are scanned on the current node.  \r\n" +
+        "Shards scanned on other nodes do not take an executor there, so the step requires the maximum concurrent runs per node to be set in the global configuration to use a label")
+    @Nullable
+    private String label;
+
+    @HelpMarkdown("The most shards to scan at the same time")
+    private int maxParallelShards = DEFAULT_MAX_PARALLEL_SHARDS;
+
+    @HelpMarkdown("If true (checked), returns the results of all shards even if some of them failed, instead of throwing an exception")
+    private boolean returnStatus = false;
+
+    @Nullable
+    private DetectDownloadStrategy downloadStrategyOverride;
+
+    @DataBoundConstructor
+    public DetectShardedPipelineStep(String detectProperties) {
+        this.detectProperties = detectProperties;
+    }
+
+    public String getDetectProperties() {
+        return detectProperties;
+    }
+
+    public List<String> getSourcePaths() {
+        return sourcePaths;
+    }
+
+    @DataBoundSetter
+    public void setSourcePaths(List<String> sourcePaths) {
+        this.sourcePaths = null != sourcePaths ? new ArrayList<>(sourcePaths) : new ArrayList<>();
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    @DataBoundSetter
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
+    public int getMaxParallelShards() {
+        return maxParallelShards;
+    }
+
+    @DataBoundSetter
+    public void setMaxParallelShards(int maxParallelShards) {
+        this.maxParallelShards = maxParallelShards;
+    }
+
+    public boolean getReturnStatus() {
+        return returnStatus;
+    }
+
+    @DataBoundSetter
+    public void setReturnStatus(boolean returnStatus) {
+        this.returnStatus = returnStatus;
+    }
+
+    public DetectDownloadStrategy getDownloadStrategyOverride() {
+        return downloadStrategyOverride;
+    }
+
+    @DataBoundSetter
+    public void setDownloadStrategyOverride(DetectDownloadStrategy downloadStrategyOverride) {
+        this.downloadStrategyOverride = downloadStrategyOverride;
+    }
+
+    public DetectDownloadStrategy getDefaultDownloadStrategyOverride() {
+        return new InheritFromGlobalDownloadStrategy();
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        return new Execution(context);
+    }
+
+    @Extension(optional = true)
+    public static final class DescriptorImpl extends StepDescriptor {
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return new HashSet<>(Arrays.asList(TaskListener.class, EnvVars.class, FilePath.class, Launcher.class, Node.class));
+        }
+
+        @Override
+        public String getFunctionName() {
+            return PIPELINE_NAME;
+        }
+
+        @Nonnull
+        @Override
+        public String getDisplayName() {
+            return DISPLAY_NAME;
+        }
+
+    }
+
+    /**
+     * Completes with one result per shard, each holding its source path, node, exit code and duration, once every shard has been scanned.
+     */
+    public class Execution extends StepExecution {
+        private static final long serialVersionUID = -8043151239004651752L;
+        private final transient TaskListener listener;
+        private final transient EnvVars envVars;
+        private final transient FilePath workspace;
+        private final transient Launcher launcher;
+        private final transient Node node;
+        private transient volatile DetectShardedPipelineCommands detectPipelineCommands;
+
+        protected Execution(@Nonnull StepContext context) throws InterruptedException, IOException {
+            super(context);
+            listener = context.get(TaskListener.class);
+            envVars = context.get(EnvVars.class);
+            workspace = context.get(FilePath.class);
+            launcher = context.get(Launcher.class);
+            node = context.get(Node.class);
+        }
+
+        @Override
+        public boolean start() throws Exception {
+            detectPipelineCommands = DetectCommandsFactory.fromShardedPipeline(listener, envVars, launcher, node, workspace, label, maxParallelShards);
+            // Plain maps and lists can be read by the pipeline script without approval. Stopped runs have already been reported by stop().
+            DetectPipelineStep.completeStep(
+                getContext(),
+                detectPipelineCommands.startDetect(returnStatus, sourcePaths, detectProperties, downloadStrategyOverride),
+                shardResults -> shardResults.stream()
+                                .map(DetectShardResult::toMap)
+                                .collect(Collectors.toList()),
+                () -> true
+            );
+            return false;
+        }
+
+        @Override
+        public void stop(@Nonnull Throwable cause) throws Exception {
+            DetectShardedPipelineCommands runningCommands = detectPipelineCommands;
+            if (null != runningCommands) {
+                runningCommands.stopDetect();
+            }
+            getContext().onFailure(cause);
+        }
+
+        @Override
+        public void onResume() {
+            getContext().onFailure(new DetectJenkinsException("Detect was interrupted by a restart of Jenkins. Run the step again to scan."));
+        }
+
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.extensions.pipeline;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import com.synopsys.integration.jenkins.annotations.HelpMarkdown;
+import com.synopsys.integration.jenkins.detect.exception.DetectJenkinsException;
+
+import hudson.Extension;
+import hudson.model.TaskListener;
+
+public class DetectWaitStep extends Step implements Serializable {
+    public static final String DISPLAY_NAME = "Wait for Synopsys Detect";
+    public static final String PIPELINE_NAME = "waitForDetect";
+    private static final long serialVersionUID = -2350512436311093418L;
+
+    @HelpMarkdown("The handle returned by synopsys_detect when it was run with async: true")
+    private final String handle;
+
+    @DataBoundConstructor
+    public DetectWaitStep(String handle) {
+        this.handle = handle;
+    }
+
+    public String getHandle() {
+        return handle;
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        return new Execution(context);
+    }
+
+    @Extension(optional = true)
+    public static final class DescriptorImpl extends StepDescriptor {
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return Collections.singleton(TaskListener.class);
+        }
+
+        @Override
+        public String getFunctionName() {
+            return PIPELINE_NAME;
+        }
+
+        @Nonnull
+        @Override
+        public String getDisplayName() {
+            return DISPLAY_NAME;
+        }
+
+    }
+
+    /**
+     * Completes with the result of a Detect scan started in the background, honoring the returnStatus it was started with.
+     */
+    public class Execution extends StepExecution {
+        private static final long serialVersionUID = 4213409853271720694L;
+        private transient volatile boolean stopped = false;
+
+        protected Execution(@Nonnull StepContext context) {
+            super(context);
+        }
+
+        @Override
+        public boolean start() throws Exception {
+            Optional<DetectScanRegistry.Scan> scan = DetectScanRegistry.get(handle);
+            if (!scan.isPresent()) {
+                getContext().onFailure(new DetectJenkinsException(String.format("No Detect scan is known for the handle %s. It may have been collected already, or interrupted by a restart of Jenkins.", handle)));
+                return true;
+            }
+
+            getContext().get(TaskListener.class).getLogger().println("Waiting for the Detect scan " + handle + " to finish.");
+            DetectPipelineStep.completeStep(getContext(), scan.get().getFutureExitCode().whenComplete((exitCode, throwable) -> DetectScanRegistry.remove(handle)), () -> stopped);
+            return false;
+        }
+
+        @Override
+        public void stop(@Nonnull Throwable cause) throws Exception {
+            stopped = true;
+            DetectScanRegistry.get(handle).ifPresent(DetectScanRegistry.Scan::stop);
+            getContext().onFailure(cause);
+        }
+
+        @Override
+        public void onResume() {
+            getContext().onFailure(new DetectJenkinsException("Waiting for Detect was interrupted by a restart of Jenkins. Background scans do not survive a restart."));
+        }
+
+    }
+
+}
@@ -20,9 +20,11 @@ import com.synopsys.integration.jenkins.annotations.HelpMarkdown;
 import com.synopsys.integration.jenkins.detect.extensions.DetectDownloadStrategy;
 import com.synopsys.integration.jenkins.detect.extensions.InheritFromGlobalDownloadStrategy;
 import com.synopsys.integration.jenkins.detect.service.DetectCommandsFactory;
+import com.synopsys.integration.jenkins.detect.service.DetectScanPriority;
 
 import hudson.Extension;
 import hudson.Launcher;
+import hudson.Util;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.BuildListener;
@@ -30,6 +32,7 @@ import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Publisher;
 import hudson.tasks.Recorder;
+import hudson.util.ListBoxModel;
 
 public class DetectPostBuildStep extends Recorder {
     public static final String DISPLAY_NAME = "Synopsys Detect";
@@ -37,6 +40,10 @@ public class DetectPostBuildStep extends Recorder {
     @HelpMarkdown("The command line options to pass to Synopsys Detect")
     private final String detectProperties;
 
+    @HelpMarkdown("The priority lane (high, normal or low) this scan waits in when the concurrency limits are reached. Higher lanes start first, but no scan waits behind scans that were queued long after it. If not set, the DETECT_PLUGIN_SCAN_PRIORITY environment variable is used, and otherwise normal")
+    @Nullable
+    private String priority;
+
     @Nullable
     private DetectDownloadStrategy downloadStrategyOverride;
 
@@ -62,6 +69,15 @@ public class DetectPostBuildStep extends Recorder {
         return new InheritFromGlobalDownloadStrategy();
     }
 
+    public String getPriority() {
+        return priority;
+    }
+
+    @DataBoundSetter
+    public void setPriority(String priority) {
+        this.priority = Util.fixEmptyAndTrim(priority);
+    }
+
     @Override
     public BuildStepMonitor getRequiredMonitorService() {
         return BuildStepMonitor.NONE;
@@ -75,7 +91,7 @@ public class DetectPostBuildStep extends Recorder {
     // Freestyle
     @Override
     public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
-        DetectCommandsFactory.fromPostBuild(build, launcher, listener)
+        DetectCommandsFactory.fromPostBuild(build, launcher, listener, priority)
             .runDetect(detectProperties, downloadStrategyOverride);
         return true;
     }
@@ -100,6 +116,10 @@ public class DetectPostBuildStep extends Recorder {
             return DISPLAY_NAME;
         }
 
+        public ListBoxModel doFillPriorityItems() {
+            return DetectScanPriority.createListBoxModel();
+        }
+
     }
 
 }
@@ -11,13 +11,17 @@ import java.io.IOException;
 import java.util.List;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.jenkinsci.Symbol;
 import org.kohsuke.stapler.DataBoundConstructor;
 
+import com.synopsys.integration.jenkins.detect.service.strategy.AirGapResolutionCache;
+
 import hudson.EnvVars;
 import hudson.Extension;
 import hudson.Util;
+import hudson.XmlFile;
 import hudson.model.EnvironmentSpecific;
 import hudson.model.Node;
 import hudson.model.TaskListener;
@@ -47,21 +51,54 @@ public class DetectAirGapInstallation extends ToolInstallation implements NodeSp
     @Extension
     @Symbol("detectAirGap")
     public static final class DescriptorImpl extends ToolDescriptor<DetectAirGapInstallation> {
+        // Installations are read from disk once and then served from this snapshot, which is only ever replaced as a whole, so readers never need to lock or re-read
+        // the XML.
+        private transient volatile DetectAirGapInstallation[] installationSnapshot;
+        // Only set by benchmarks, which have no Jenkins home to keep the tool configuration in.
+        @Nullable
+        private final transient XmlFile configFile;
+
+        public DescriptorImpl() {
+            this(null);
+        }
+
+        DescriptorImpl(@Nullable XmlFile configFile) {
+            this.configFile = configFile;
+            load();
+        }
+
+        @Override
+        protected XmlFile getConfigFile() {
+            return null != configFile ? configFile : super.getConfigFile();
+        }
+
         @Override
         public String getDisplayName() {
             return "Detect Air Gap";
         }
 
+        @Override
+        public synchronized void load() {
+            super.load();
+            installationSnapshot = super.getInstallations().clone();
+        }
+
         @Override
         public DetectAirGapInstallation[] getInstallations() {
-            load();
-            return super.getInstallations();
+            DetectAirGapInstallation[] snapshot = installationSnapshot;
+            if (null == snapshot) {
+                snapshot = super.getInstallations().clone();
+                installationSnapshot = snapshot;
+            }
+            return snapshot.clone();
         }
 
         @Override
-        public void setInstallations(DetectAirGapInstallation... installations) {
+        public synchronized void setInstallations(DetectAirGapInstallation... installations) {
             super.setInstallations(installations);
+            installationSnapshot = installations.clone();
             save();
+            AirGapResolutionCache.invalidateAll();
         }
     }
 
@@ -0,0 +1,140 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import jenkins.util.SystemProperties;
+
+/**
+ * Tracks, on the Jenkins controller, whether the Black Duck server is answering, so that Detect runs need not each find out by timing out. The server is probed
+ * periodically; once a number of probes in a row have failed or answered too slowly the circuit opens, and the next probe that answers in time closes it again.
+ * While the circuit is open, Detect runs follow their {@link BlackDuckOutageMode}.
+ */
+public class BlackDuckHealthMonitor {
+    public static final int FAILURE_THRESHOLD = SystemProperties.getInteger(BlackDuckHealthMonitor.class.getName() + ".failureThreshold", 3);
+    public static final long SLOW_RESPONSE_MILLIS = SystemProperties.getLong(BlackDuckHealthMonitor.class.getName() + ".slowResponseMillis", TimeUnit.SECONDS.toMillis(30));
+    public static final long PROBE_INTERVAL_MILLIS = SystemProperties.getLong(BlackDuckHealthMonitor.class.getName() + ".probeIntervalMillis", TimeUnit.MINUTES.toMillis(1));
+    private static final BlackDuckHealthMonitor INSTANCE = new BlackDuckHealthMonitor();
+
+    // Guarded by this.
+    private boolean open = false;
+    private int consecutiveFailures = 0;
+    private long lastLatencyMillis = -1;
+    @Nullable
+    private String lastFailure;
+    private long changedAtMillis = System.currentTimeMillis();
+    private CompletableFuture<Void> recovery = CompletableFuture.completedFuture(null);
+
+    public static BlackDuckHealthMonitor get() {
+        return INSTANCE;
+    }
+
+    public synchronized void recordSuccess(long latencyMillis) {
+        lastLatencyMillis = latencyMillis;
+        consecutiveFailures = 0;
+        if (open) {
+            open = false;
+            changedAtMillis = System.currentTimeMillis();
+            recovery.complete(null);
+        }
+    }
+
+    public synchronized void recordFailure(long latencyMillis, String reason) {
+        lastLatencyMillis = latencyMillis;
+        lastFailure = reason;
+        consecutiveFailures++;
+        if (!open && consecutiveFailures >= FAILURE_THRESHOLD) {
+            open = true;
+            changedAtMillis = System.currentTimeMillis();
+            recovery = new CompletableFuture<>();
+        }
+    }
+
+    /**
+     * Forgets the health of the server, e.g. because no server is configured or the configuration changed. Runs waiting for recovery are released.
+     */
+    public synchronized void reset() {
+        boolean wasOpen = open;
+        open = false;
+        consecutiveFailures = 0;
+        lastLatencyMillis = -1;
+        lastFailure = null;
+        if (wasOpen) {
+            changedAtMillis = System.currentTimeMillis();
+            recovery.complete(null);
+        }
+    }
+
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * @return Completes once the circuit is closed. Cancelling the returned future does not affect other runs waiting for recovery.
+     */
+    public synchronized CompletableFuture<Void> awaitRecovery() {
+        return recovery.thenApply(recovered -> null);
+    }
+
+    public synchronized Status getStatus() {
+        return new Status(open, consecutiveFailures, lastLatencyMillis, lastFailure, changedAtMillis);
+    }
+
+    /**
+     * The health of the server as last probed, for display.
+     */
+    public static class Status {
+        private final boolean open;
+        private final int consecutiveFailures;
+        private final long lastLatencyMillis;
+        @Nullable
+        private final String lastFailure;
+        private final long changedAtMillis;
+
+        private Status(boolean open, int consecutiveFailures, long lastLatencyMillis, @Nullable String lastFailure, long changedAtMillis) {
+            this.open = open;
+            this.consecutiveFailures = consecutiveFailures;
+            this.lastLatencyMillis = lastLatencyMillis;
+            this.lastFailure = lastFailure;
+            this.changedAtMillis = changedAtMillis;
+        }
+
+        public boolean isOpen() {
+            return open;
+        }
+
+        public String getState() {
+            return open ? "Unavailable" : "Available";
+        }
+
+        public int getConsecutiveFailures() {
+            return consecutiveFailures;
+        }
+
+        /**
+         * @return How long the last probe took, or -1 if the server has not been probed.
+         */
+        public long getLastLatencyMillis() {
+            return lastLatencyMillis;
+        }
+
+        @Nullable
+        public String getLastFailure() {
+            return lastFailure;
+        }
+
+        public long getChangedAtMillis() {
+            return changedAtMillis;
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service;
+
+import java.util.Locale;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * What a Detect run does while the Black Duck health monitor considers Black Duck unavailable, as set in DETECT_PLUGIN_BLACK_DUCK_OUTAGE_MODE.
+ */
+public enum BlackDuckOutageMode {
+    // Runs Detect as usual, which then fails once its requests to Black Duck time out.
+    RUN,
+    // Fails the run before Detect is launched.
+    FAIL,
+    // Waits on the controller, without taking a run slot, until Black Duck is available again.
+    WAIT,
+    // Runs Detect in offline mode, so that it does not contact Black Duck.
+    OFFLINE;
+
+    /**
+     * @return The mode with the given name, ignoring case, or {@link #RUN} if the name is blank or unknown.
+     */
+    public static BlackDuckOutageMode resolve(@Nullable String mode) {
+        String upperCaseMode = StringUtils.trimToEmpty(mode).toUpperCase(Locale.ENGLISH);
+        for (BlackDuckOutageMode candidate : values()) {
+            if (candidate.name().equals(upperCaseMode)) {
+                return candidate;
+            }
+        }
+        return RUN;
+    }
+
+}
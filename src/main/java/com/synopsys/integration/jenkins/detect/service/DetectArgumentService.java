@@ -12,6 +12,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -27,6 +28,10 @@ import com.synopsys.integration.util.IntEnvironmentVariables;
 import hudson.Util;
 
 public class DetectArgumentService {
+    public static final String PROJECT_NAME_ARGUMENT = "--detect.project.name=";
+    public static final String PROJECT_VERSION_ARGUMENT = "--detect.project.version.name=";
+    public static final String PROJECT_NAME_VARIABLE = "DETECT_PROJECT_NAME";
+    public static final String PROJECT_VERSION_VARIABLE = "DETECT_PROJECT_VERSION_NAME";
     private static final String DETECT_LOGLEVEL_ARGUMENT = "logging.level.com.synopsys.integration";
     private static final String DETECT_PHONEHOME_JENKINS_VERSION_ARGUMENT = "detect.phone.home.passthrough.jenkins.version";
     private static final String DETECT_PHONEHOME_PLUGIN_VERSION_ARGUMENT = "detect.phone.home.passthrough.jenkins.plugin.version";
@@ -86,6 +91,28 @@ public class DetectArgumentService {
             .collect(Collectors.toList());
     }
 
+    /**
+     * Resolves the Black Duck project name and version Detect will scan, from the arguments or else from the environment, without logging anything.
+     * @return The project name and version as "name / version", if both are set explicitly.
+     */
+    public static Optional<String> findProjectVersion(Map<String, String> environmentVariables, String detectArgumentString) {
+        String projectName = environmentVariables.get(PROJECT_NAME_VARIABLE);
+        String projectVersion = environmentVariables.get(PROJECT_VERSION_VARIABLE);
+        for (String argument : Commandline.translateCommandline(detectArgumentString)) {
+            String expandedArgument = Util.replaceMacro(argument.trim(), environmentVariables);
+            if (expandedArgument.startsWith(PROJECT_NAME_ARGUMENT)) {
+                projectName = expandedArgument.substring(PROJECT_NAME_ARGUMENT.length());
+            } else if (expandedArgument.startsWith(PROJECT_VERSION_ARGUMENT)) {
+                projectVersion = expandedArgument.substring(PROJECT_VERSION_ARGUMENT.length());
+            }
+        }
+
+        if (StringUtils.isAnyBlank(projectName, projectVersion)) {
+            return Optional.empty();
+        }
+        return Optional.of(projectName + " / " + projectVersion);
+    }
+
     private boolean validateExpandedArguments(String argument) {
         if (StringUtils.isBlank(argument)) {
             return false;
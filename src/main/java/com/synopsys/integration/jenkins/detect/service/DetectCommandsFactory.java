@@ -7,12 +7,45 @@
  */
 package com.synopsys.integration.jenkins.detect.service;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.synopsys.integration.jenkins.detect.DetectAsyncRun;
+import com.synopsys.integration.jenkins.detect.DetectBulkPipelineCommands;
+import com.synopsys.integration.jenkins.detect.DetectBulkRun;
+import com.synopsys.integration.jenkins.detect.DetectBulkTarget;
 import com.synopsys.integration.jenkins.detect.DetectFreestyleCommands;
+import com.synopsys.integration.jenkins.detect.DetectOffloadedPipelineCommands;
+import com.synopsys.integration.jenkins.detect.DetectOffloadedRun;
+import com.synopsys.integration.jenkins.detect.DetectParallelPipelineCommands;
+import com.synopsys.integration.jenkins.detect.DetectParallelRun;
 import com.synopsys.integration.jenkins.detect.DetectPipelineCommands;
 import com.synopsys.integration.jenkins.detect.DetectRunner;
+import com.synopsys.integration.jenkins.detect.DetectShardedPipelineCommands;
+import com.synopsys.integration.jenkins.detect.DetectShardedRun;
+import com.synopsys.integration.jenkins.detect.extensions.global.DetectGlobalConfig;
+import com.synopsys.integration.jenkins.detect.extensions.label.DetectWarmLabelFinder;
+import com.synopsys.integration.jenkins.detect.service.process.AttachedDetectProcess;
+import com.synopsys.integration.jenkins.detect.service.process.DetectProcess;
+import com.synopsys.integration.jenkins.detect.service.process.DetectProcessLauncher;
+import com.synopsys.integration.jenkins.detect.service.process.DurableDetectProcess;
+import com.synopsys.integration.jenkins.detect.service.process.PrefixedOutputStream;
+import com.synopsys.integration.jenkins.detect.service.strategy.DetectArtifactRelayService;
 import com.synopsys.integration.jenkins.detect.service.strategy.DetectStrategyService;
+import com.synopsys.integration.jenkins.detect.service.strategy.NodeCapabilityCache;
 import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
 import com.synopsys.integration.jenkins.service.JenkinsBuildService;
 import com.synopsys.integration.jenkins.service.JenkinsConfigService;
@@ -27,22 +60,66 @@ import hudson.FilePath;
 import hudson.Launcher;
 import hudson.model.AbstractBuild;
 import hudson.model.BuildListener;
+import hudson.model.Computer;
+import hudson.model.Label;
 import hudson.model.Node;
 import hudson.model.TaskListener;
+import hudson.model.labels.LabelAtom;
 import hudson.slaves.WorkspaceList;
+import hudson.util.ArgumentListBuilder;
+import hudson.util.StreamTaskListener;
+import jenkins.model.GlobalConfiguration;
+import jenkins.model.Jenkins;
 
 public class DetectCommandsFactory {
     public static final String NULL_WORKSPACE = "Detect cannot be executed when the workspace is null";
+    public static final String NODE_TOOLS_DIRECTORY = "tools";
+    public static final String CONTROLLER_RELAY_DIRECTORY = "synopsys-detect-relay";
+    // Variables that describe the node a build runs on, which must not be carried over to the nodes that scan its shards or snapshots.
+    private static final Set<String> NODE_SPECIFIC_VARIABLES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        "PATH", "HOME", "JAVA_HOME", "TMPDIR", "TMP", "TEMP", "USER", "WORKSPACE", "WORKSPACE_TMP", "NODE_NAME", "NODE_LABELS", "EXECUTOR_NUMBER"
+    )));
     private final JenkinsWrapper jenkinsWrapper;
     private final TaskListener listener;
     private final EnvVars envVars;
     private final FilePath workspace;
+    private final Node node;
     private final JenkinsIntLogger jenkinsIntLogger;
+    private final DetectScanPriority scanPriority;
+    @Nullable
+    private final DetectGlobalConfig.Snapshot globalConfigSnapshot;
+
+    private DetectCommandsFactory(JenkinsWrapper jenkinsWrapper, TaskListener listener, EnvVars envVars, Node node, FilePath workspace) throws AbortException {
+        this(jenkinsWrapper, listener, envVars, node, workspace, null);
+    }
 
-    private DetectCommandsFactory(JenkinsWrapper jenkinsWrapper, TaskListener listener, EnvVars envVars, FilePath workspace) throws AbortException {
+    /**
+     * @param scanPriority The name of the {@link DetectScanPriority} set on the step, if any.
+     */
+    private DetectCommandsFactory(JenkinsWrapper jenkinsWrapper, TaskListener listener, EnvVars envVars, Node node, FilePath workspace, @Nullable String scanPriority)
+        throws AbortException {
+        this(jenkinsWrapper, listener, envVars, node, workspace, scanPriority, findGlobalConfigSnapshot(jenkinsWrapper));
+    }
+
+    /**
+     * @param globalConfigSnapshot The global configuration that every run of the build uses, so that a change to it while the build is being set up does not mix the
+     * old and new settings.
+     */
+    private DetectCommandsFactory(
+        JenkinsWrapper jenkinsWrapper,
+        TaskListener listener,
+        EnvVars envVars,
+        Node node,
+        FilePath workspace,
+        @Nullable String scanPriority,
+        @Nullable DetectGlobalConfig.Snapshot globalConfigSnapshot
+    ) throws AbortException {
         this.jenkinsWrapper = jenkinsWrapper;
         this.listener = listener;
         this.envVars = envVars;
+        this.node = node;
+        this.scanPriority = DetectScanPriority.resolve(scanPriority, envVars);
+        this.globalConfigSnapshot = globalConfigSnapshot;
 
         if (null == workspace) {
             throw new AbortException(NULL_WORKSPACE);
@@ -52,11 +129,18 @@ public class DetectCommandsFactory {
     }
 
     public static DetectFreestyleCommands fromPostBuild(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws IOException, InterruptedException {
+        return fromPostBuild(build, launcher, listener, null);
+    }
+
+    public static DetectFreestyleCommands fromPostBuild(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener, @Nullable String scanPriority)
+        throws IOException, InterruptedException {
         DetectCommandsFactory detectCommandsFactory = new DetectCommandsFactory(
             JenkinsWrapper.initializeFromJenkinsJVM(),
             listener,
             build.getEnvironment(listener),
-            build.getWorkspace()
+            build.getBuiltOn(),
+            build.getWorkspace(),
+            scanPriority
         );
 
         JenkinsFreestyleServicesFactory jenkinsFreestyleServicesFactory = new JenkinsFreestyleServicesFactory(
@@ -65,7 +149,7 @@ public class DetectCommandsFactory {
             detectCommandsFactory.envVars,
             launcher,
             listener,
-            build.getBuiltOn(),
+            detectCommandsFactory.node,
             detectCommandsFactory.workspace
         );
 
@@ -77,7 +161,46 @@ public class DetectCommandsFactory {
     }
 
     public static DetectPipelineCommands fromPipeline(TaskListener listener, EnvVars envVars, Launcher launcher, Node node, FilePath workspace) throws AbortException {
-        DetectCommandsFactory detectCommandsFactory = new DetectCommandsFactory(JenkinsWrapper.initializeFromJenkinsJVM(), listener, envVars, workspace);
+        return fromPipeline(listener, envVars, launcher, node, workspace, false);
+    }
+
+    public static DetectPipelineCommands fromPipeline(TaskListener listener, EnvVars envVars, Launcher launcher, Node node, FilePath workspace, boolean durable) throws AbortException {
+        return fromPipeline(listener, envVars, launcher, node, workspace, durable, null);
+    }
+
+    public static DetectPipelineCommands fromPipeline(
+        TaskListener listener,
+        EnvVars envVars,
+        Launcher launcher,
+        Node node,
+        FilePath workspace,
+        boolean durable,
+        @Nullable String scanPriority
+    ) throws AbortException {
+        DetectCommandsFactory detectCommandsFactory = new DetectCommandsFactory(JenkinsWrapper.initializeFromJenkinsJVM(), listener, envVars, node, workspace, scanPriority);
+
+        JenkinsFreestyleServicesFactory jenkinsFreestyleServicesFactory = new JenkinsFreestyleServicesFactory(
+            detectCommandsFactory.getLogger(),
+            null,
+            envVars,
+            launcher,
+            listener,
+            node,
+            workspace
+        );
+        JenkinsConfigService jenkinsConfigService = jenkinsFreestyleServicesFactory.createJenkinsConfigService();
+        JenkinsRemotingService jenkinsRemotingService = jenkinsFreestyleServicesFactory.createJenkinsRemotingService();
+
+        DetectRunner detectRunner = detectCommandsFactory.createDetectRunner(jenkinsConfigService, jenkinsRemotingService);
+        DetectProcessLauncher detectProcessLauncher = detectCommandsFactory.createDetectProcessLauncher(launcher, durable);
+        DetectAsyncRun detectAsyncRun = new DetectAsyncRun(detectRunner, detectProcessLauncher, detectCommandsFactory.getLogger());
+
+        return new DetectPipelineCommands(detectRunner, detectCommandsFactory.getLogger(), detectAsyncRun);
+    }
+
+    public static DetectParallelPipelineCommands fromParallelPipeline(TaskListener listener, EnvVars envVars, Launcher launcher, Node node, FilePath workspace, int maxParallelInvocations)
+        throws AbortException {
+        DetectCommandsFactory detectCommandsFactory = new DetectCommandsFactory(JenkinsWrapper.initializeFromJenkinsJVM(), listener, envVars, node, workspace);
 
         JenkinsFreestyleServicesFactory jenkinsFreestyleServicesFactory = new JenkinsFreestyleServicesFactory(
             detectCommandsFactory.getLogger(),
@@ -91,17 +214,239 @@ public class DetectCommandsFactory {
         JenkinsConfigService jenkinsConfigService = jenkinsFreestyleServicesFactory.createJenkinsConfigService();
         JenkinsRemotingService jenkinsRemotingService = jenkinsFreestyleServicesFactory.createJenkinsRemotingService();
 
-        return new DetectPipelineCommands(detectCommandsFactory.createDetectRunner(jenkinsConfigService, jenkinsRemotingService), detectCommandsFactory.getLogger());
+        DetectRunner detectRunner = detectCommandsFactory.createDetectRunner(jenkinsConfigService, jenkinsRemotingService);
+        DetectParallelRun detectParallelRun = new DetectParallelRun(
+            detectRunner,
+            invocation -> detectCommandsFactory.createPrefixedProcessLauncher(launcher, String.format("[Detect %d] ", invocation)),
+            detectCommandsFactory.getLogger(),
+            maxParallelInvocations
+        );
+
+        return new DetectParallelPipelineCommands(detectParallelRun, detectCommandsFactory.getLogger());
+    }
+
+    /**
+     * @param label The label of the nodes to spread the shards over. If blank, all shards are scanned on the node holding the workspace.
+     */
+    public static DetectShardedPipelineCommands fromShardedPipeline(TaskListener listener, EnvVars envVars, Launcher launcher, Node node, FilePath workspace, String label, int maxParallelShards)
+        throws AbortException {
+        DetectCommandsFactory detectCommandsFactory = new DetectCommandsFactory(JenkinsWrapper.initializeFromJenkinsJVM(), listener, envVars, node, workspace);
+        List<Node> shardNodes = findShardNodes(node, label);
+        // Shards scanned on other nodes hold no executor there, so only the limit on runs per node keeps a sharded build from overloading those nodes.
+        boolean scansOnOtherNodes = shardNodes.stream().anyMatch(shardNode -> null == node || !shardNode.getNodeName().equals(node.getNodeName()));
+        if (scansOnOtherNodes && !detectCommandsFactory.limitsRunsPerNode()) {
+            throw new AbortException(String.format(
+                "Shards are scanned on the nodes with label %s without taking an executor there. Set the maximum concurrent runs per node in the Synopsys Detect global configuration before spreading shards over other nodes.",
+                label
+            ));
+        }
+
+        DetectShardedRun detectShardedRun = new DetectShardedRun(
+            workspace,
+            null != node ? node.getNodeName() : null,
+            shardNodes,
+            (shardNode, shardWorkspace, shard) -> detectCommandsFactory.createRemoteRun(launcher, shardNode, shardWorkspace, String.format("[Shard %d] ", shard)),
+            detectCommandsFactory.getLogger(),
+            maxParallelShards
+        );
+
+        return new DetectShardedPipelineCommands(detectShardedRun, detectCommandsFactory.getLogger());
+    }
+
+    /**
+     * @param label The label of the dedicated scanning nodes to scan the snapshot of the workspace on.
+     */
+    public static DetectOffloadedPipelineCommands fromOffloadedPipeline(
+        TaskListener listener,
+        EnvVars envVars,
+        Launcher launcher,
+        Node node,
+        FilePath workspace,
+        String label,
+        boolean includeBinaries,
+        @Nullable String scanPriority
+    ) throws AbortException {
+        DetectCommandsFactory detectCommandsFactory = new DetectCommandsFactory(JenkinsWrapper.initializeFromJenkinsJVM(), listener, envVars, node, workspace, scanPriority);
+
+        DetectOffloadedRun detectOffloadedRun = new DetectOffloadedRun(
+            workspace,
+            findScanNodes(label),
+            (scanNode, snapshot) -> detectCommandsFactory.createRemoteRun(launcher, scanNode, snapshot, "[Offloaded] "),
+            detectCommandsFactory.getLogger(),
+            includeBinaries
+        );
+
+        return new DetectOffloadedPipelineCommands(detectOffloadedRun, detectCommandsFactory.getLogger());
+    }
+
+    /**
+     * @param label The label of the nodes to spread the repositories over. If blank, all repositories are scanned on the current node.
+     */
+    public static DetectBulkPipelineCommands fromBulkPipeline(
+        TaskListener listener,
+        EnvVars envVars,
+        Launcher launcher,
+        Node node,
+        FilePath workspace,
+        String label,
+        int scansPerNode,
+        @Nullable String scanPriority
+    ) throws AbortException {
+        DetectCommandsFactory detectCommandsFactory = new DetectCommandsFactory(JenkinsWrapper.initializeFromJenkinsJVM(), listener, envVars, node, workspace, scanPriority);
+        List<Node> scanNodes = StringUtils.isBlank(label) ? findShardNodes(node, label) : findScanNodes(label);
+
+        DetectBulkRun detectBulkRun = new DetectBulkRun(
+            scanNodes,
+            (scanNode, target, directory) -> detectCommandsFactory.checkoutRepository(launcher, scanNode, target, directory),
+            (scanNode, checkout, target) -> detectCommandsFactory.createRemoteRun(launcher, scanNode, checkout, String.format("[%s] ", target.getName())),
+            detectCommandsFactory.getLogger(),
+            scansPerNode
+        );
+
+        return new DetectBulkPipelineCommands(detectBulkRun, detectCommandsFactory.getLogger());
+    }
+
+    public static DetectPipelineCommands resumePipeline(TaskListener listener, DetectProcess detectProcess) {
+        JenkinsIntLogger logger = JenkinsIntLogger.logToListener(listener);
+        return new DetectPipelineCommands(null, logger, DetectAsyncRun.resume(detectProcess, logger));
+    }
+
+    private DetectProcessLauncher createDetectProcessLauncher(Launcher launcher, boolean durable) {
+        if (durable && launcher.isUnix()) {
+            String nodeName = null != node ? node.getNodeName() : "";
+            return detectCommandLine -> DurableDetectProcess.launch(launcher, workspace, nodeName, listener, detectCommandLine);
+        }
+        if (durable) {
+            getLogger().warn("Durable execution is only supported on Unix nodes. Detect will not survive a restart of Jenkins.");
+        }
+        return detectCommandLine -> AttachedDetectProcess.launch(launcher, workspace, listener, detectCommandLine);
+    }
+
+    private DetectProcessLauncher createPrefixedProcessLauncher(Launcher launcher, String prefix) {
+        TaskListener prefixedListener = new StreamTaskListener(new PrefixedOutputStream(listener.getLogger(), prefix), StandardCharsets.UTF_8);
+        return detectCommandLine -> AttachedDetectProcess.launch(launcher, workspace, prefixedListener, detectCommandLine);
+    }
+
+    private DetectAsyncRun createRemoteRun(Launcher workspaceLauncher, Node remoteNode, FilePath remoteWorkspace, String logPrefix) throws IOException, InterruptedException {
+        boolean onWorkspaceNode = null != node && node.getNodeName().equals(remoteNode.getNodeName());
+        Launcher remoteLauncher = onWorkspaceNode ? workspaceLauncher : remoteNode.createLauncher(listener);
+        EnvVars remoteEnvVars = onWorkspaceNode ? envVars : createRemoteEnvironment(remoteNode);
+        DetectCommandsFactory remoteCommandsFactory = new DetectCommandsFactory(jenkinsWrapper, listener, remoteEnvVars, remoteNode, remoteWorkspace, scanPriority.name(), globalConfigSnapshot);
+
+        JenkinsFreestyleServicesFactory jenkinsFreestyleServicesFactory = new JenkinsFreestyleServicesFactory(
+            remoteCommandsFactory.getLogger(),
+            null,
+            remoteEnvVars,
+            remoteLauncher,
+            listener,
+            remoteNode,
+            remoteWorkspace
+        );
+        JenkinsConfigService jenkinsConfigService = jenkinsFreestyleServicesFactory.createJenkinsConfigService();
+        JenkinsRemotingService jenkinsRemotingService = jenkinsFreestyleServicesFactory.createJenkinsRemotingService();
+
+        DetectRunner detectRunner = remoteCommandsFactory.createDetectRunner(jenkinsConfigService, jenkinsRemotingService);
+        DetectProcessLauncher detectProcessLauncher = remoteCommandsFactory.createPrefixedProcessLauncher(remoteLauncher, logPrefix);
+        return new DetectAsyncRun(detectRunner, detectProcessLauncher, remoteCommandsFactory.getLogger());
+    }
+
+    // Shallow clones are enough for Detect, which only reads the current state of the repository. Credentials for the repository come from the git configuration of the
+    // node.
+    private void checkoutRepository(Launcher workspaceLauncher, Node scanNode, DetectBulkTarget target, FilePath directory) throws IOException, InterruptedException {
+        boolean onWorkspaceNode = null != node && node.getNodeName().equals(scanNode.getNodeName());
+        Launcher scanLauncher = onWorkspaceNode ? workspaceLauncher : scanNode.createLauncher(listener);
+        EnvVars scanEnvVars = onWorkspaceNode ? envVars : createRemoteEnvironment(scanNode);
+        TaskListener prefixedListener = new StreamTaskListener(new PrefixedOutputStream(listener.getLogger(), String.format("[%s] ", target.getName())), StandardCharsets.UTF_8);
+
+        ArgumentListBuilder gitClone = new ArgumentListBuilder("git", "clone", "--quiet", "--depth", "1");
+        if (null != target.getRef()) {
+            // A ref starting with a dash would be read by git as another option.
+            if (target.getRef().startsWith("-")) {
+                throw new AbortException(String.format("The ref %s of %s is not a valid branch or tag name.", target.getRef(), target.getRepository()));
+            }
+            gitClone.add("--branch", target.getRef());
+        }
+        // Everything after -- is a repository and directory, so a repository such as --upload-pack=<command> cannot be read as an option.
+        gitClone.add("--", target.getRepository(), ".");
+        int exitCode = scanLauncher.launch()
+                           .cmds(gitClone)
+                           .envs(scanEnvVars)
+                           .pwd(directory)
+                           .stdout(prefixedListener)
+                           .join();
+        if (exitCode != 0) {
+            throw new AbortException(String.format("git clone of %s exited with code %d.", target, exitCode));
+        }
+    }
+
+    private EnvVars createRemoteEnvironment(Node remoteNode) throws IOException, InterruptedException {
+        EnvVars remoteEnvVars = new EnvVars();
+        Computer computer = remoteNode.toComputer();
+        if (null != computer) {
+            remoteEnvVars.putAll(computer.getEnvironment());
+            remoteEnvVars.putAll(computer.buildEnvironment(listener));
+        }
+        envVars.forEach((name, value) -> {
+            if (!NODE_SPECIFIC_VARIABLES.contains(name)) {
+                remoteEnvVars.put(name, value);
+            }
+        });
+        remoteEnvVars.put("NODE_NAME", remoteNode.getNodeName());
+        return remoteEnvVars;
+    }
+
+    private static List<Node> findShardNodes(Node node, String label) {
+        if (StringUtils.isBlank(label)) {
+            return null != node ? Collections.singletonList(node) : Collections.emptyList();
+        }
+
+        Label shardLabel = Jenkins.get().getLabel(label);
+        List<Node> shardNodes = new ArrayList<>();
+        if (null != shardLabel) {
+            for (Node labelledNode : shardLabel.getNodes()) {
+                Computer computer = labelledNode.toComputer();
+                if (null != computer && computer.isOnline()) {
+                    shardNodes.add(labelledNode);
+                }
+            }
+        }
+        // The node holding the workspace goes first, since its shards do not have to be copied.
+        shardNodes.sort(Comparator.comparing((Node shardNode) -> null == node || !shardNode.getNodeName().equals(node.getNodeName())).thenComparing(Node::getNodeName));
+        return shardNodes;
+    }
+
+    private static List<Node> findScanNodes(String label) {
+        Label scanLabel = StringUtils.isNotBlank(label) ? Jenkins.get().getLabel(label) : null;
+        List<Node> scanNodes = new ArrayList<>();
+        if (null != scanLabel) {
+            for (Node labelledNode : scanLabel.getNodes()) {
+                Computer computer = labelledNode.toComputer();
+                if (null != computer && computer.isOnline()) {
+                    scanNodes.add(labelledNode);
+                }
+            }
+        }
+        // Nodes on which Detect has already been set up go first, since they do not have to download or probe anything.
+        scanNodes.sort(Comparator.comparing((Node scanNode) -> DetectWarmLabelFinder.findLabelNames(scanNode.getNodeName()).isEmpty()).thenComparing(Node::getNodeName));
+        return scanNodes;
     }
 
     private DetectRunner createDetectRunner(JenkinsConfigService jenkinsConfigService, JenkinsRemotingService jenkinsRemotingService) {
-        return new DetectRunner(
+        NodeCapabilityCache nodeCapabilityCache = createNodeCapabilityCache();
+
+        return DetectRunner.builder(
             createDetectEnvironmentService(jenkinsConfigService),
             jenkinsRemotingService,
-            createDetectStrategyService(jenkinsConfigService),
+            createDetectStrategyService(jenkinsConfigService, nodeCapabilityCache),
             createDetectArgumentService(),
             getLogger()
-        );
+        ).nodeCapabilityCache(nodeCapabilityCache)
+            .detectRunThrottle(createDetectRunThrottle())
+            .detectManifestCheck(createDetectManifestCheck())
+            .detectScanLedger(new DetectScanLedger(getLogger(), envVars))
+            .detectScanCoalescer(new DetectScanCoalescer(getLogger(), envVars))
+            .blackDuckHealthMonitor(BlackDuckHealthMonitor.get())
+            .build();
     }
 
     private DetectArgumentService createDetectArgumentService() {
@@ -115,14 +460,89 @@ public class DetectCommandsFactory {
             jenkinsWrapper.getVersionHelper(),
             jenkinsWrapper.getCredentialsHelper(),
             jenkinsConfigService,
+            globalConfigSnapshot,
             envVars
         );
     }
 
-    private DetectStrategyService createDetectStrategyService(JenkinsConfigService jenkinsConfigService) {
-        FilePath workspaceTempDir = WorkspaceList.tempDir(this.workspace);
+    private DetectStrategyService createDetectStrategyService(JenkinsConfigService jenkinsConfigService, NodeCapabilityCache nodeCapabilityCache) {
+        FilePath remoteToolsDirectory = getRemoteToolsDirectory();
+
+        return new DetectStrategyService(
+            getLogger(),
+            jenkinsWrapper.getProxyHelper(),
+            remoteToolsDirectory.getRemote(),
+            jenkinsConfigService,
+            createDetectArtifactRelayService(remoteToolsDirectory),
+            nodeCapabilityCache,
+            globalConfigSnapshot
+        );
+    }
+
+    private NodeCapabilityCache createNodeCapabilityCache() {
+        if (null == node) {
+            return null;
+        }
+        return new NodeCapabilityCache(node.getNodeName());
+    }
 
-        return new DetectStrategyService(getLogger(), jenkinsWrapper.getProxyHelper(), workspaceTempDir.getRemote(), jenkinsConfigService);
+    private DetectManifestCheck createDetectManifestCheck() {
+        return new DetectManifestCheck(getLogger(), envVars, workspace);
+    }
+
+    private DetectRunThrottle createDetectRunThrottle() {
+        if (null == node || null == globalConfigSnapshot) {
+            return null;
+        }
+        Set<String> labels = node.getAssignedLabels().stream()
+                                 .filter(label -> !label.equals(node.getSelfLabel()))
+                                 // The labels of warm nodes come and go with what is cached there, so they are not limited like the labels nodes are configured with.
+                                 .filter(label -> !DetectWarmLabelFinder.isDetectLabel(label.getName()))
+                                 .map(LabelAtom::getName)
+                                 .collect(Collectors.toSet());
+
+        return new DetectRunThrottle(
+            node.getNodeName(),
+            labels,
+            globalConfigSnapshot.getMaxConcurrentRunsPerNode(),
+            globalConfigSnapshot.getMaxConcurrentRunsPerLabel(),
+            globalConfigSnapshot.getMaxConcurrentRuns(),
+            scanPriority
+        );
+    }
+
+    private DetectArtifactRelayService createDetectArtifactRelayService(FilePath remoteToolsDirectory) {
+        return jenkinsWrapper.getJenkins()
+                   .map(jenkins -> new File(jenkins.getRootDir(), CONTROLLER_RELAY_DIRECTORY).toPath())
+                   .map(controllerStoreDirectory -> new DetectArtifactRelayService(
+                       getLogger(),
+                       jenkinsWrapper.getProxyHelper(),
+                       controllerStoreDirectory,
+                       remoteToolsDirectory.child(DetectArtifactRelayService.RELAY_DIRECTORY)
+                   ))
+                   .orElse(null);
+    }
+
+    private boolean limitsRunsPerNode() {
+        return null != globalConfigSnapshot && globalConfigSnapshot.getMaxConcurrentRunsPerNode() > DetectRunThrottle.UNLIMITED;
+    }
+
+    @Nullable
+    private static DetectGlobalConfig.Snapshot findGlobalConfigSnapshot(JenkinsWrapper jenkinsWrapper) {
+        return jenkinsWrapper.getJenkins()
+                   .map(jenkins -> GlobalConfiguration.all().get(DetectGlobalConfig.class))
+                   .map(DetectGlobalConfig::getSnapshot)
+                   .orElse(null);
+    }
+
+    // Downloads are kept per node rather than per workspace so that every build on the node can share them. The workspace temp directory is only used if the node is
+    // unavailable.
+    private FilePath getRemoteToolsDirectory() {
+        FilePath nodeRootPath = null != node ? node.getRootPath() : null;
+        if (null != nodeRootPath) {
+            return nodeRootPath.child(NODE_TOOLS_DIRECTORY);
+        }
+        return WorkspaceList.tempDir(this.workspace);
     }
 
     private JenkinsIntLogger setLogger() {
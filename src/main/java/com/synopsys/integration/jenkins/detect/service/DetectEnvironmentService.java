@@ -11,6 +11,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.function.BiConsumer;
 
+import javax.annotation.Nullable;
+
 import org.apache.commons.lang3.StringUtils;
 
 import com.synopsys.integration.blackduck.configuration.BlackDuckServerConfigBuilder;
@@ -31,6 +33,8 @@ public class DetectEnvironmentService {
     private final SynopsysCredentialsHelper synopsysCredentialsHelper;
     private final Map<String, String> environmentVariables;
     private final JenkinsConfigService jenkinsConfigService;
+    @Nullable
+    private final DetectGlobalConfig.Snapshot globalConfigSnapshot;
 
     public DetectEnvironmentService(
         JenkinsIntLogger logger,
@@ -39,11 +43,28 @@ public class DetectEnvironmentService {
         SynopsysCredentialsHelper synopsysCredentialsHelper,
         JenkinsConfigService jenkinsConfigService,
         Map<String, String> environmentVariables
+    ) {
+        this(logger, jenkinsProxyHelper, jenkinsVersionHelper, synopsysCredentialsHelper, jenkinsConfigService, null, environmentVariables);
+    }
+
+    /**
+     * @param globalConfigSnapshot The global configuration of the build, so that the Black Duck server of the run matches its other settings. If null, the current
+     * global configuration is read.
+     */
+    public DetectEnvironmentService(
+        JenkinsIntLogger logger,
+        JenkinsProxyHelper jenkinsProxyHelper,
+        JenkinsVersionHelper jenkinsVersionHelper,
+        SynopsysCredentialsHelper synopsysCredentialsHelper,
+        JenkinsConfigService jenkinsConfigService,
+        @Nullable DetectGlobalConfig.Snapshot globalConfigSnapshot,
+        Map<String, String> environmentVariables
     ) {
         this.logger = logger;
         this.jenkinsProxyHelper = jenkinsProxyHelper;
         this.jenkinsVersionHelper = jenkinsVersionHelper;
         this.jenkinsConfigService = jenkinsConfigService;
+        this.globalConfigSnapshot = globalConfigSnapshot;
         this.synopsysCredentialsHelper = synopsysCredentialsHelper;
         this.environmentVariables = environmentVariables;
     }
@@ -66,17 +87,23 @@ public class DetectEnvironmentService {
     }
 
     private void populateAllBlackDuckEnvironmentVariables(BiConsumer<String, String> environmentPutter) {
-        Optional<DetectGlobalConfig> detectGlobalConfig = jenkinsConfigService.getGlobalConfiguration(DetectGlobalConfig.class);
-        if (!detectGlobalConfig.isPresent()) {
+        Optional<BlackDuckServerConfigBuilder> blackDuckServerConfigBuilder = getBlackDuckServerConfigBuilder();
+        if (!blackDuckServerConfigBuilder.isPresent()) {
             return;
         }
 
-        BlackDuckServerConfigBuilder blackDuckServerConfigBuilder = detectGlobalConfig.get().getBlackDuckServerConfigBuilder(jenkinsProxyHelper, synopsysCredentialsHelper);
-
-        blackDuckServerConfigBuilder.getProperties()
+        blackDuckServerConfigBuilder.get().getProperties()
             .forEach((builderPropertyKey, propertyValue) -> updateAndFilterVariables(environmentPutter, builderPropertyKey.getKey(), propertyValue));
     }
 
+    private Optional<BlackDuckServerConfigBuilder> getBlackDuckServerConfigBuilder() {
+        if (null != globalConfigSnapshot) {
+            return Optional.of(globalConfigSnapshot.getBlackDuckServerConfigBuilder(jenkinsProxyHelper, synopsysCredentialsHelper));
+        }
+        return jenkinsConfigService.getGlobalConfiguration(DetectGlobalConfig.class)
+                   .map(detectGlobalConfig -> detectGlobalConfig.getBlackDuckServerConfigBuilder(jenkinsProxyHelper, synopsysCredentialsHelper));
+    }
+
     private void updateAndFilterVariables(BiConsumer<String, String> environmentPutter, String key, String value) {
         String filteredKey = BlackDuckServerConfigBuilder.TIMEOUT_KEY.getKey().equals(key) ? TIMEOUT : key;
 
@@ -0,0 +1,119 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import com.synopsys.integration.jenkins.detect.DetectJenkinsEnvironmentVariable;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+
+import hudson.FilePath;
+
+/**
+ * Decides whether a scan can be skipped because the package manager manifests of the workspace have not changed since the last successful scan of the same project
+ * version. The check is opt-in through DETECT_PLUGIN_SKIP_UNCHANGED_MANIFESTS. The fingerprint of the last successful scan of each project version is remembered on the
+ * Jenkins controller, together with the Detect arguments it was scanned with, so that changing the arguments scans again. Nothing is skipped after the controller
+ * restarts until a scan has succeeded again.
+ */
+public class DetectManifestCheck {
+    private static final Map<String, String> LAST_SCANNED_FINGERPRINTS = new ConcurrentHashMap<>();
+
+    private final JenkinsIntLogger logger;
+    private final Map<String, String> environmentVariables;
+    private final FilePath workspace;
+
+    public DetectManifestCheck(JenkinsIntLogger logger, Map<String, String> environmentVariables, FilePath workspace) {
+        this.logger = logger;
+        this.environmentVariables = environmentVariables;
+        this.workspace = workspace;
+    }
+
+    public static void invalidateAll() {
+        LAST_SCANNED_FINGERPRINTS.clear();
+    }
+
+    public boolean isEnabled() {
+        return Boolean.parseBoolean(environmentVariables.get(DetectJenkinsEnvironmentVariable.SKIP_UNCHANGED_MANIFESTS.stringValue()));
+    }
+
+    /**
+     * Fingerprints the manifests of the workspace on its node. Logs why the scan is skipped when the fingerprint matches the last successful scan.
+     */
+    public Result check(String detectArgumentString) throws IOException, InterruptedException {
+        if (!isEnabled()) {
+            return Result.NOT_CHECKED;
+        }
+
+        Optional<String> projectVersionKey = DetectArgumentService.findProjectVersion(environmentVariables, detectArgumentString);
+        if (!projectVersionKey.isPresent()) {
+            logger.warn(String.format("Detect will scan even though %s is set, because the project name and version are not set explicitly.", DetectJenkinsEnvironmentVariable.SKIP_UNCHANGED_MANIFESTS.stringValue()));
+            return Result.NOT_CHECKED;
+        }
+
+        DetectManifestFingerprinter.ManifestFingerprint manifestFingerprint = workspace.act(new DetectManifestFingerprinter());
+        if (manifestFingerprint.getManifestCount() == 0) {
+            logger.info("Detect will scan because no package manager manifests were found in the workspace.");
+            return Result.NOT_CHECKED;
+        }
+
+        // The raw argument string is part of the fingerprint, so that scanning with other options is not skipped, while variables such as the build number are not.
+        String fingerprint = DigestUtils.sha256Hex(manifestFingerprint.getFingerprint() + '\n' + detectArgumentString);
+        boolean unchanged = fingerprint.equals(LAST_SCANNED_FINGERPRINTS.get(projectVersionKey.get()));
+        if (unchanged) {
+            logger.info(String.format(
+                "Skipping Detect: the %d package manager manifests in the workspace are unchanged since the last successful scan of this project version (fingerprint %s).",
+                manifestFingerprint.getManifestCount(),
+                fingerprint
+            ));
+        } else {
+            logger.info(String.format("Detect will scan because the %d package manager manifests in the workspace changed since the last successful scan of this project version.",
+                manifestFingerprint.getManifestCount()));
+        }
+        return new Result(projectVersionKey.get(), fingerprint, unchanged);
+    }
+
+    public static class Result {
+        public static final Result NOT_CHECKED = new Result(null, null, false);
+
+        @Nullable
+        private final String projectVersionKey;
+        @Nullable
+        private final String fingerprint;
+        private final boolean unchanged;
+
+        private Result(@Nullable String projectVersionKey, @Nullable String fingerprint, boolean unchanged) {
+            this.projectVersionKey = projectVersionKey;
+            this.fingerprint = fingerprint;
+            this.unchanged = unchanged;
+        }
+
+        /**
+         * @return True if the scan can be skipped.
+         */
+        public boolean isUnchanged() {
+            return unchanged;
+        }
+
+        /**
+         * Remembers the fingerprint once the scan it was checked for has succeeded.
+         */
+        public void recordSuccessfulScan() {
+            if (null != projectVersionKey && null != fingerprint) {
+                LAST_SCANNED_FINGERPRINTS.put(projectVersionKey, fingerprint);
+            }
+        }
+    }
+
+}
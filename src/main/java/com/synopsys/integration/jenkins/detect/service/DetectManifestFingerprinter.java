@@ -0,0 +1,143 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+/**
+ * Computes, on the node holding the workspace, a fingerprint over every package manager manifest and lockfile in it. Files are hashed in parallel; larger ones such as
+ * lockfiles are memory-mapped rather than read through a buffer. Directories that only hold downloaded dependencies or build output are not searched, so that building
+ * the workspace does not change its fingerprint.
+ */
+public class DetectManifestFingerprinter extends MasterToSlaveFileCallable<DetectManifestFingerprinter.ManifestFingerprint> {
+    public static final Set<String> SKIPPED_DIRECTORY_NAMES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("node_modules", "bower_components", "target")));
+    // Mapping a file costs more than reading it until it is a few pages long.
+    private static final long MAPPED_FILE_THRESHOLD = 64 * 1024;
+    private static final long serialVersionUID = 2975309867046402731L;
+
+    @Override
+    public ManifestFingerprint invoke(File workspace, VirtualChannel channel) throws IOException {
+        Path workspacePath = workspace.toPath();
+        List<Path> manifests = findManifests(workspacePath);
+
+        List<String> manifestHashes;
+        try {
+            manifestHashes = manifests.parallelStream()
+                                 .map(manifest -> toRelativeName(workspacePath, manifest) + '\0' + hash(manifest))
+                                 .sorted()
+                                 .collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        MessageDigest fingerprintDigest = DigestUtils.getSha256Digest();
+        manifestHashes.forEach(manifestHash -> fingerprintDigest.update((manifestHash + '\n').getBytes(StandardCharsets.UTF_8)));
+        return new ManifestFingerprint(Hex.encodeHexString(fingerprintDigest.digest()), manifestHashes.size());
+    }
+
+    private List<Path> findManifests(Path workspacePath) throws IOException {
+        List<Path> manifests = new ArrayList<>();
+        Files.walkFileTree(workspacePath, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+                if (directory.equals(workspacePath)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                String directoryName = directory.getFileName().toString();
+                if (directoryName.startsWith(".") || SKIPPED_DIRECTORY_NAMES.contains(directoryName)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (attributes.isRegularFile() && DetectShardPlanner.MANIFEST_FILE_NAMES.contains(file.getFileName().toString())) {
+                    manifests.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                // Unreadable directories cannot hold manifests Detect would read either.
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return manifests;
+    }
+
+    private static String toRelativeName(Path workspacePath, Path manifest) {
+        return workspacePath.relativize(manifest).toString().replace(File.separatorChar, '/');
+    }
+
+    private static String hash(Path manifest) {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        try (FileChannel fileChannel = FileChannel.open(manifest, StandardOpenOption.READ)) {
+            long size = fileChannel.size();
+            if (size < MAPPED_FILE_THRESHOLD) {
+                digest.update(Files.readAllBytes(manifest));
+            } else {
+                for (long position = 0; position < size; position += Integer.MAX_VALUE) {
+                    MappedByteBuffer mappedBuffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(Integer.MAX_VALUE, size - position));
+                    digest.update(mappedBuffer);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    public static class ManifestFingerprint implements Serializable {
+        private static final long serialVersionUID = -4650163512416387124L;
+
+        private final String fingerprint;
+        private final int manifestCount;
+
+        public ManifestFingerprint(String fingerprint, int manifestCount) {
+            this.fingerprint = fingerprint;
+            this.manifestCount = manifestCount;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public int getManifestCount() {
+            return manifestCount;
+        }
+    }
+
+}
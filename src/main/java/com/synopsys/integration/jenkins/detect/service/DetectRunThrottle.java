@@ -0,0 +1,443 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+
+/**
+ * Limits how many Detect runs may execute at once on a node, on each label and on the whole controller, and optionally lets only one run at a time scan a Black Duck
+ * project version. Runs that would exceed a limit wait on the controller in the order they arrived, adjusted by their {@link DetectScanPriority priority lane}; a run
+ * only waits behind earlier runs that compete for one of the same limits, so a busy node never holds up runs elsewhere. A limit of {@link #UNLIMITED} or less is not
+ * enforced.
+ */
+public class DetectRunThrottle {
+    public static final int UNLIMITED = 0;
+    public static final String GLOBAL_NAME = "All nodes";
+    public static final String NODE_PREFIX = "Node: ";
+    public static final String LABEL_PREFIX = "Label: ";
+    public static final String PROJECT_VERSION_PREFIX = "Project version: ";
+    public static final String BUILT_IN_NODE_NAME = "(built-in)";
+
+    private static final Object LOCK = new Object();
+    // Guarded by LOCK. Entries are kept once created so that peak occupancy stays visible, except for project versions, which are dropped once unlocked.
+    private static final Map<String, Occupancy> OCCUPANCIES = new TreeMap<>();
+    // Guarded by LOCK. Runs in the order they asked to start, adjusted by their priority lane.
+    private static final LinkedList<Ticket> QUEUE = new LinkedList<>();
+    // Guarded by LOCK.
+    private static final Map<DetectScanPriority, Lane> LANES = new EnumMap<>(DetectScanPriority.class);
+
+    private final String nodeName;
+    private final Collection<String> labels;
+    private final int maxConcurrentRunsPerNode;
+    private final int maxConcurrentRunsPerLabel;
+    private final int maxConcurrentRuns;
+    private final DetectScanPriority priority;
+
+    public DetectRunThrottle(String nodeName, Collection<String> labels, int maxConcurrentRunsPerNode, int maxConcurrentRunsPerLabel, int maxConcurrentRuns) {
+        this(nodeName, labels, maxConcurrentRunsPerNode, maxConcurrentRunsPerLabel, maxConcurrentRuns, DetectScanPriority.NORMAL);
+    }
+
+    public DetectRunThrottle(
+        String nodeName,
+        Collection<String> labels,
+        int maxConcurrentRunsPerNode,
+        int maxConcurrentRunsPerLabel,
+        int maxConcurrentRuns,
+        DetectScanPriority priority
+    ) {
+        this.nodeName = StringUtils.defaultIfBlank(nodeName, BUILT_IN_NODE_NAME);
+        this.labels = new TreeSet<>(labels);
+        this.maxConcurrentRunsPerNode = maxConcurrentRunsPerNode;
+        this.maxConcurrentRunsPerLabel = maxConcurrentRunsPerLabel;
+        this.maxConcurrentRuns = maxConcurrentRuns;
+        this.priority = priority;
+    }
+
+    public static List<Occupancy> getOccupancies() {
+        synchronized (LOCK) {
+            List<Occupancy> occupancies = new ArrayList<>();
+            for (Occupancy occupancy : OCCUPANCIES.values()) {
+                occupancies.add(occupancy.copy(countWaiting(occupancy.getName())));
+            }
+            return Collections.unmodifiableList(occupancies);
+        }
+    }
+
+    /**
+     * @return The queue statistics of each priority lane that has been used, in order of priority.
+     */
+    public static List<Lane> getLanes() {
+        synchronized (LOCK) {
+            List<Lane> lanes = new ArrayList<>();
+            for (DetectScanPriority lanePriority : DetectScanPriority.values()) {
+                int waiting = (int) QUEUE.stream()
+                                        .filter(ticket -> ticket.priority == lanePriority)
+                                        .count();
+                Lane lane = LANES.get(lanePriority);
+                if (null != lane || waiting > 0) {
+                    lanes.add((null != lane ? lane : new Lane(lanePriority)).copy(waiting));
+                }
+            }
+            return Collections.unmodifiableList(lanes);
+        }
+    }
+
+    public static void reset() {
+        List<Ticket> waitingTickets;
+        synchronized (LOCK) {
+            OCCUPANCIES.clear();
+            LANES.clear();
+            waitingTickets = new ArrayList<>(QUEUE);
+            QUEUE.clear();
+        }
+        waitingTickets.forEach(ticket -> ticket.futurePermit.cancel(false));
+    }
+
+    /**
+     * Blocks until this run may start. The returned permit must be closed once Detect has finished.
+     */
+    public Permit acquire(JenkinsIntLogger logger) throws InterruptedException {
+        return acquire(logger, null);
+    }
+
+    /**
+     * Blocks until this run may start and, if a project version is given, no other run is scanning it. The returned permit must be closed once Detect has finished.
+     */
+    public Permit acquire(JenkinsIntLogger logger, @Nullable String lockedProjectVersion) throws InterruptedException {
+        CompletableFuture<Permit> futurePermit = acquireAsync(logger, lockedProjectVersion);
+        try {
+            return futurePermit.get();
+        } catch (InterruptedException e) {
+            if (!futurePermit.cancel(false)) {
+                // The permit was granted while this thread was being interrupted.
+                futurePermit.thenAccept(Permit::close);
+            }
+            grantWaitingTickets();
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not acquire a Detect run slot", e.getCause());
+        }
+    }
+
+    /**
+     * Queues this run without blocking. The returned future completes once the run may start; cancelling it gives up the place in the queue. The permit it completes
+     * with must be closed once Detect has finished.
+     */
+    public CompletableFuture<Permit> acquireAsync(JenkinsIntLogger logger) {
+        return acquireAsync(logger, null);
+    }
+
+    /**
+     * Queues this run without blocking, like {@link #acquireAsync(JenkinsIntLogger)}. If a project version is given, the run also waits until no other run is scanning
+     * it, without taking a run slot while it waits.
+     */
+    public CompletableFuture<Permit> acquireAsync(JenkinsIntLogger logger, @Nullable String lockedProjectVersion) {
+        Map<String, Integer> limits = createLimits();
+        if (null != lockedProjectVersion) {
+            limits.put(PROJECT_VERSION_PREFIX + lockedProjectVersion, 1);
+        }
+        if (limits.isEmpty()) {
+            return CompletableFuture.completedFuture(new Permit(Collections.emptyMap()));
+        }
+
+        Ticket ticket = new Ticket(limits, priority, lockedProjectVersion, logger);
+        String queueDescription = null;
+        synchronized (LOCK) {
+            enqueue(ticket);
+            if (!canStart(ticket)) {
+                queueDescription = describeQueue(ticket);
+            }
+        }
+
+        if (null != queueDescription) {
+            logger.info(String.format("Waiting for a free Detect run slot in the %s priority lane (%s).", priority.getDisplayName(), queueDescription));
+        }
+        grantWaitingTickets();
+        return ticket.futurePermit;
+    }
+
+    private static void grantWaitingTickets() {
+        List<Ticket> grantedTickets = new ArrayList<>();
+        synchronized (LOCK) {
+            // Cancelled runs give up their place first, so that they do not hold up the runs queued behind them.
+            QUEUE.removeIf(ticket -> ticket.futurePermit.isDone());
+            for (Ticket ticket : new ArrayList<>(QUEUE)) {
+                if (canStart(ticket)) {
+                    QUEUE.remove(ticket);
+                    ticket.limits.forEach((name, limit) -> OCCUPANCIES.computeIfAbsent(name, Occupancy::new).occupy(limit));
+                    LANES.computeIfAbsent(ticket.priority, Lane::new).recordStart(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - ticket.queuedTime));
+                    grantedTickets.add(ticket);
+                }
+            }
+        }
+
+        for (Ticket ticket : grantedTickets) {
+            Permit permit = new Permit(ticket.limits);
+            if (ticket.futurePermit.complete(permit)) {
+                long waitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - ticket.queuedTime);
+                if (null != ticket.lockedProjectVersion) {
+                    ticket.logger.info(String.format("Acquired a Detect run slot and the lock on project version %s after waiting %d ms.", ticket.lockedProjectVersion, waitMillis));
+                } else {
+                    ticket.logger.info(String.format("Acquired a Detect run slot after waiting %d ms.", waitMillis));
+                }
+            } else {
+                permit.close();
+            }
+        }
+    }
+
+    private Map<String, Integer> createLimits() {
+        Map<String, Integer> limits = new LinkedHashMap<>();
+        if (maxConcurrentRuns > UNLIMITED) {
+            limits.put(GLOBAL_NAME, maxConcurrentRuns);
+        }
+        if (maxConcurrentRunsPerNode > UNLIMITED) {
+            limits.put(NODE_PREFIX + nodeName, maxConcurrentRunsPerNode);
+        }
+        if (maxConcurrentRunsPerLabel > UNLIMITED) {
+            labels.forEach(label -> limits.put(LABEL_PREFIX + label, maxConcurrentRunsPerLabel));
+        }
+        return limits;
+    }
+
+    // Must hold LOCK. Keeps the queue ordered by rank, and by arrival among runs of the same rank.
+    private static void enqueue(Ticket ticket) {
+        ListIterator<Ticket> iterator = QUEUE.listIterator(QUEUE.size());
+        while (iterator.hasPrevious()) {
+            if (iterator.previous().rank <= ticket.rank) {
+                iterator.next();
+                break;
+            }
+        }
+        iterator.add(ticket);
+    }
+
+    // Must hold LOCK.
+    private static boolean canStart(Ticket ticket) {
+        for (Map.Entry<String, Integer> limit : ticket.limits.entrySet()) {
+            Occupancy occupancy = OCCUPANCIES.get(limit.getKey());
+            if (null != occupancy && occupancy.getCurrent() >= limit.getValue()) {
+                return false;
+            }
+        }
+
+        for (Ticket queuedTicket : QUEUE) {
+            if (queuedTicket == ticket) {
+                return true;
+            }
+            // A run that only waits for its project version lock does not hold its place for the run slots, so it cannot stall every run that shares its limits.
+            if (!isWaitingOnlyForProjectVersion(queuedTicket) && !Collections.disjoint(queuedTicket.limits.keySet(), ticket.limits.keySet())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Must hold LOCK.
+    private static boolean isWaitingOnlyForProjectVersion(Ticket ticket) {
+        if (null == ticket.lockedProjectVersion) {
+            return false;
+        }
+        boolean projectVersionLocked = false;
+        for (Map.Entry<String, Integer> limit : ticket.limits.entrySet()) {
+            Occupancy occupancy = OCCUPANCIES.get(limit.getKey());
+            if (null != occupancy && occupancy.getCurrent() >= limit.getValue()) {
+                if (!limit.getKey().startsWith(PROJECT_VERSION_PREFIX)) {
+                    return false;
+                }
+                projectVersionLocked = true;
+            }
+        }
+        return projectVersionLocked;
+    }
+
+    // Must hold LOCK.
+    private static String describeQueue(Ticket ticket) {
+        List<String> descriptions = new ArrayList<>();
+        ticket.limits.forEach((name, limit) -> {
+            Occupancy occupancy = OCCUPANCIES.get(name);
+            int current = null != occupancy ? occupancy.getCurrent() : 0;
+            descriptions.add(String.format("%s: %d of %d running, %d waiting", name, current, limit, countWaiting(name)));
+        });
+        return String.join("; ", descriptions);
+    }
+
+    // Must hold LOCK.
+    private static int countWaiting(String name) {
+        return (int) QUEUE.stream()
+                         .filter(ticket -> ticket.limits.containsKey(name))
+                         .count();
+    }
+
+    private static class Ticket {
+        private final Map<String, Integer> limits;
+        private final DetectScanPriority priority;
+        @Nullable
+        private final String lockedProjectVersion;
+        private final JenkinsIntLogger logger;
+        private final long queuedTime = System.nanoTime();
+        // The time the run is ordered by: later for lower priority lanes, so that they are overtaken, but only by runs queued up to their lane's delay later.
+        private final long rank;
+        private final CompletableFuture<Permit> futurePermit = new CompletableFuture<>();
+
+        private Ticket(Map<String, Integer> limits, DetectScanPriority priority, @Nullable String lockedProjectVersion, JenkinsIntLogger logger) {
+            this.limits = limits;
+            this.priority = priority;
+            this.lockedProjectVersion = lockedProjectVersion;
+            this.logger = logger;
+            this.rank = queuedTime + TimeUnit.MILLISECONDS.toNanos(priority.getDelayMillis());
+        }
+    }
+
+    public static class Permit implements AutoCloseable {
+        private final Map<String, Integer> limits;
+        private boolean released = false;
+
+        private Permit(Map<String, Integer> limits) {
+            this.limits = limits;
+        }
+
+        @Override
+        public void close() {
+            synchronized (LOCK) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                limits.keySet().forEach(name -> {
+                    Occupancy occupancy = OCCUPANCIES.get(name);
+                    if (null != occupancy) {
+                        occupancy.release();
+                        if (name.startsWith(PROJECT_VERSION_PREFIX) && occupancy.getCurrent() == 0 && countWaiting(name) == 0) {
+                            OCCUPANCIES.remove(name);
+                        }
+                    }
+                });
+            }
+            grantWaitingTickets();
+        }
+    }
+
+    public static class Lane {
+        private final DetectScanPriority priority;
+        private int waiting = 0;
+        private long started = 0;
+        private long totalWaitMillis = 0;
+        private long longestWaitMillis = 0;
+
+        private Lane(DetectScanPriority priority) {
+            this.priority = priority;
+        }
+
+        public String getName() {
+            return priority.getDisplayName();
+        }
+
+        public int getWaiting() {
+            return waiting;
+        }
+
+        public long getStarted() {
+            return started;
+        }
+
+        public long getAverageWaitMillis() {
+            return started > 0 ? totalWaitMillis / started : 0;
+        }
+
+        public long getLongestWaitMillis() {
+            return longestWaitMillis;
+        }
+
+        private void recordStart(long waitMillis) {
+            started++;
+            totalWaitMillis += waitMillis;
+            longestWaitMillis = Math.max(longestWaitMillis, waitMillis);
+        }
+
+        private Lane copy(int currentlyWaiting) {
+            Lane lane = new Lane(priority);
+            lane.waiting = currentlyWaiting;
+            lane.started = started;
+            lane.totalWaitMillis = totalWaitMillis;
+            lane.longestWaitMillis = longestWaitMillis;
+            return lane;
+        }
+    }
+
+    public static class Occupancy {
+        private final String name;
+        private int current = 0;
+        private int peak = 0;
+        private int limit = UNLIMITED;
+        private int waiting = 0;
+
+        private Occupancy(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getCurrent() {
+            return current;
+        }
+
+        public int getPeak() {
+            return peak;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public int getWaiting() {
+            return waiting;
+        }
+
+        private void occupy(int newLimit) {
+            current++;
+            peak = Math.max(peak, current);
+            limit = newLimit;
+        }
+
+        private void release() {
+            current = Math.max(0, current - 1);
+        }
+
+        private Occupancy copy(int currentlyWaiting) {
+            Occupancy occupancy = new Occupancy(name);
+            occupancy.current = current;
+            occupancy.peak = peak;
+            occupancy.limit = limit;
+            occupancy.waiting = currentlyWaiting;
+            return occupancy;
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import com.synopsys.integration.jenkins.detect.DetectJenkinsEnvironmentVariable;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+
+/**
+ * Coalesces scans of the same job (or branch of a multibranch job) on the Jenkins controller, so that only the newest build's scan uses scan capacity. When a newer
+ * build registers a scan with the same Detect arguments, the older build's scan is superseded: it is skipped while it waits for a run slot, and stopped if it is
+ * running. Coalescing is opt-in through DETECT_PLUGIN_COALESCE_SCANS.
+ */
+public class DetectScanCoalescer {
+    private static final String JOB_NAME_VARIABLE = "JOB_NAME";
+    private static final String BUILD_NUMBER_VARIABLE = "BUILD_NUMBER";
+    private static final Map<String, Registration> LATEST_SCANS = new ConcurrentHashMap<>();
+
+    private final JenkinsIntLogger logger;
+    private final Map<String, String> environmentVariables;
+
+    public DetectScanCoalescer(JenkinsIntLogger logger, Map<String, String> environmentVariables) {
+        this.logger = logger;
+        this.environmentVariables = environmentVariables;
+    }
+
+    public static void invalidateAll() {
+        LATEST_SCANS.clear();
+    }
+
+    public boolean isEnabled() {
+        return Boolean.parseBoolean(environmentVariables.get(DetectJenkinsEnvironmentVariable.COALESCE_SCANS.stringValue()));
+    }
+
+    /**
+     * Registers the scan of the current build, superseding the scan of any older build of the same job with the same arguments.
+     * @param onSuperseded Called once if a newer build supersedes this scan, possibly right away if a newer build has already registered.
+     */
+    public Registration register(String detectArgumentString, Runnable onSuperseded) {
+        String jobName = environmentVariables.get(JOB_NAME_VARIABLE);
+        int buildNumber = NumberUtils.toInt(environmentVariables.get(BUILD_NUMBER_VARIABLE), -1);
+        if (!isEnabled() || StringUtils.isBlank(jobName) || buildNumber < 0) {
+            return Registration.NOT_REGISTERED;
+        }
+
+        String key = jobName + '\n' + DigestUtils.sha256Hex(detectArgumentString);
+        Registration registration = new Registration(key, jobName, buildNumber, logger, onSuperseded);
+        Registration[] superseded = new Registration[1];
+        LATEST_SCANS.compute(key, (scanKey, latest) -> {
+            if (null == latest || latest.buildNumber <= buildNumber) {
+                if (null != latest && latest.buildNumber < buildNumber) {
+                    superseded[0] = latest;
+                }
+                return registration;
+            }
+            superseded[0] = registration;
+            return latest;
+        });
+
+        if (superseded[0] == registration) {
+            registration.supersede(LATEST_SCANS.get(key));
+        } else if (null != superseded[0]) {
+            logger.info(String.format("This scan supersedes the scan of build #%d of %s.", superseded[0].buildNumber, jobName));
+            superseded[0].supersede(registration);
+        }
+        return registration;
+    }
+
+    public static class Registration {
+        public static final Registration NOT_REGISTERED = new Registration(null, null, -1, null, () -> {});
+
+        @Nullable
+        private final String key;
+        @Nullable
+        private final String jobName;
+        private final int buildNumber;
+        @Nullable
+        private final JenkinsIntLogger logger;
+        private final Runnable onSuperseded;
+        private volatile boolean superseded = false;
+
+        private Registration(@Nullable String key, @Nullable String jobName, int buildNumber, @Nullable JenkinsIntLogger logger, Runnable onSuperseded) {
+            this.key = key;
+            this.jobName = jobName;
+            this.buildNumber = buildNumber;
+            this.logger = logger;
+            this.onSuperseded = onSuperseded;
+        }
+
+        public boolean isSuperseded() {
+            return superseded;
+        }
+
+        /**
+         * Forgets the scan once it has finished, unless a newer build has registered since.
+         */
+        public void close() {
+            if (null != key) {
+                LATEST_SCANS.remove(key, this);
+            }
+        }
+
+        private void supersede(@Nullable Registration newerRegistration) {
+            synchronized (this) {
+                if (superseded) {
+                    return;
+                }
+                superseded = true;
+            }
+            if (null != logger) {
+                String newerBuild = null != newerRegistration ? "#" + newerRegistration.buildNumber : "a newer build";
+                logger.info(String.format("Skipping Detect: this scan was coalesced into the scan of build %s of %s, which supersedes it.", newerBuild, jobName));
+            }
+            onSuperseded.run();
+        }
+    }
+
+}
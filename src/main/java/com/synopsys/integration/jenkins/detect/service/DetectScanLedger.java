@@ -0,0 +1,181 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import com.synopsys.integration.jenkins.detect.DetectJenkinsEnvironmentVariable;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+
+import jenkins.util.SystemProperties;
+
+/**
+ * Remembers, on the Jenkins controller, which revisions of a project version have been scanned with which Detect arguments, so that builds of the same commit in
+ * different jobs (a branch, its pull request and its tag, for example) scan it once. The first build to claim a scan runs Detect; builds claiming the same scan while it
+ * runs wait for its exit code instead of launching Detect, and builds claiming it later reuse the exit code. Only successful scans are remembered once they finish, and
+ * only for a limited time. Deduplication is opt-in through DETECT_PLUGIN_DEDUPLICATE_SCANS.
+ */
+public class DetectScanLedger {
+    public static final List<String> REVISION_VARIABLES = Collections.unmodifiableList(Arrays.asList("GIT_COMMIT", "SVN_REVISION", "MERCURIAL_REVISION"));
+    public static final long RETENTION_MILLIS = SystemProperties.getLong(DetectScanLedger.class.getName() + ".retentionMillis", TimeUnit.DAYS.toMillis(1));
+    private static final String BUILD_TAG_VARIABLE = "BUILD_TAG";
+    private static final Map<String, Scan> SCANS = new ConcurrentHashMap<>();
+
+    private final JenkinsIntLogger logger;
+    private final Map<String, String> environmentVariables;
+
+    public DetectScanLedger(JenkinsIntLogger logger, Map<String, String> environmentVariables) {
+        this.logger = logger;
+        this.environmentVariables = environmentVariables;
+    }
+
+    public static void invalidateAll() {
+        SCANS.clear();
+    }
+
+    public boolean isEnabled() {
+        return Boolean.parseBoolean(environmentVariables.get(DetectJenkinsEnvironmentVariable.DEDUPLICATE_SCANS.stringValue()));
+    }
+
+    /**
+     * Claims the scan of the current revision with the given arguments. The claim tells whether Detect should be run, or the exit code of an identical scan should be
+     * waited for instead.
+     */
+    public Claim claim(String detectArgumentString) {
+        if (!isEnabled()) {
+            return Claim.NOT_TRACKED;
+        }
+
+        Optional<String> projectVersionKey = DetectArgumentService.findProjectVersion(environmentVariables, detectArgumentString);
+        Optional<String> revision = REVISION_VARIABLES.stream()
+                                        .map(environmentVariables::get)
+                                        .filter(StringUtils::isNotBlank)
+                                        .findFirst();
+        if (!projectVersionKey.isPresent() || !revision.isPresent()) {
+            logger.info("This scan cannot be deduplicated, because the project name and version are not set explicitly or the SCM revision is not known.");
+            return Claim.NOT_TRACKED;
+        }
+
+        pruneExpiredScans();
+        // The raw argument string is hashed, so that variables such as the build number do not tell apart scans that are otherwise identical.
+        String key = String.join("\n", projectVersionKey.get(), revision.get(), DigestUtils.sha256Hex(detectArgumentString));
+        String scanner = StringUtils.defaultIfBlank(environmentVariables.get(BUILD_TAG_VARIABLE), "another build");
+        Scan claimedScan = new Scan(scanner);
+        Scan existingScan = SCANS.putIfAbsent(key, claimedScan);
+        if (null == existingScan) {
+            return new Claim(logger, key, claimedScan, true);
+        }
+
+        if (existingScan.exitCode.isDone()) {
+            logger.info(String.format("Skipping Detect: revision %s of this project version was already scanned with the same arguments by %s.", revision.get(), existingScan.scanner));
+        } else {
+            logger.info(String.format("Revision %s of this project version is being scanned with the same arguments by %s. Waiting for its result instead of running Detect.",
+                revision.get(), existingScan.scanner));
+        }
+        return new Claim(logger, key, existingScan, false);
+    }
+
+    private void pruneExpiredScans() {
+        long now = System.currentTimeMillis();
+        SCANS.values().removeIf(scan -> scan.finishedAtMillis > 0 && now - scan.finishedAtMillis > RETENTION_MILLIS);
+    }
+
+    private static class Scan {
+        private final String scanner;
+        private final CompletableFuture<Integer> exitCode = new CompletableFuture<>();
+        private volatile long finishedAtMillis = 0;
+
+        private Scan(String scanner) {
+            this.scanner = scanner;
+        }
+    }
+
+    public static class Claim {
+        public static final Claim NOT_TRACKED = new Claim(null, null, null, false);
+
+        @Nullable
+        private final JenkinsIntLogger logger;
+        @Nullable
+        private final String key;
+        @Nullable
+        private final Scan scan;
+        private final boolean owner;
+
+        private Claim(@Nullable JenkinsIntLogger logger, @Nullable String key, @Nullable Scan scan, boolean owner) {
+            this.logger = logger;
+            this.key = key;
+            this.scan = scan;
+            this.owner = owner;
+        }
+
+        /**
+         * @return True if an identical scan has been claimed by another build, so Detect should not be run.
+         */
+        public boolean isDuplicate() {
+            return null != scan && !owner;
+        }
+
+        /**
+         * @return The exit code of the identical scan once it has finished. The future is cancelled if that scan was given up, in which case Detect should be run after
+         * all.
+         */
+        public CompletableFuture<Integer> getScannedExitCode() {
+            if (null == scan || null == logger) {
+                CompletableFuture<Integer> notScanned = new CompletableFuture<>();
+                notScanned.cancel(false);
+                return notScanned;
+            }
+            return scan.exitCode.whenComplete((exitCode, throwable) -> {
+                if (null == throwable) {
+                    logger.info(String.format("Reusing the result of the scan by %s, which finished with exit code %d.", scan.scanner, exitCode));
+                } else {
+                    logger.info(String.format("The scan by %s did not finish. Running Detect instead.", scan.scanner));
+                }
+            });
+        }
+
+        /**
+         * Records the exit code of the scan this build claimed, and passes it on to the builds waiting for it. Failed scans are forgotten, so the next build scans
+         * again.
+         */
+        public void recordExitCode(int exitCode) {
+            if (!owner || null == scan) {
+                return;
+            }
+            scan.finishedAtMillis = System.currentTimeMillis();
+            if (exitCode != 0) {
+                SCANS.remove(key, scan);
+            }
+            scan.exitCode.complete(exitCode);
+        }
+
+        /**
+         * Gives up the scan this build claimed because Detect did not finish, so that the builds waiting for it run Detect themselves.
+         */
+        public void abandon() {
+            if (!owner || null == scan) {
+                return;
+            }
+            SCANS.remove(key, scan);
+            scan.exitCode.cancel(false);
+        }
+    }
+
+}
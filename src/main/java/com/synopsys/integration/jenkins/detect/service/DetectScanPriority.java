@@ -0,0 +1,75 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.synopsys.integration.jenkins.detect.DetectJenkinsEnvironmentVariable;
+
+import hudson.util.ListBoxModel;
+import jenkins.util.SystemProperties;
+
+/**
+ * The lane a Detect run waits in when the concurrency limits are saturated. A waiting run is ordered as though it had been queued its lane's delay later than it
+ * was, so higher lanes overtake lower ones, but only by up to the difference of their delays: no run waits behind runs that asked to start long after it did.
+ */
+public enum DetectScanPriority {
+    HIGH("High", 0),
+    NORMAL("Normal", TimeUnit.MINUTES.toMillis(5)),
+    LOW("Low", TimeUnit.MINUTES.toMillis(30));
+
+    private final String displayName;
+    private final long delayMillis;
+
+    DetectScanPriority(String displayName, long defaultDelayMillis) {
+        this.displayName = displayName;
+        this.delayMillis = SystemProperties.getLong(DetectScanPriority.class.getName() + "." + name() + ".delayMillis", defaultDelayMillis);
+    }
+
+    /**
+     * @param priority The name of the priority set on the step, if any. Otherwise the priority is read from DETECT_PLUGIN_SCAN_PRIORITY, so that it can be derived from
+     * the job or branch in the pipeline. Unknown names fall back to {@link #NORMAL}.
+     */
+    public static DetectScanPriority resolve(@Nullable String priority, Map<String, String> environmentVariables) {
+        String configuredPriority = StringUtils.isNotBlank(priority) ? priority : environmentVariables.get(DetectJenkinsEnvironmentVariable.SCAN_PRIORITY.stringValue());
+        String upperCasePriority = StringUtils.trimToEmpty(configuredPriority).toUpperCase(Locale.ENGLISH);
+        for (DetectScanPriority candidate : values()) {
+            if (candidate.name().equals(upperCasePriority)) {
+                return candidate;
+            }
+        }
+        return NORMAL;
+    }
+
+    /**
+     * @return The lanes to choose from on a step, after an empty option that leaves the choice to DETECT_PLUGIN_SCAN_PRIORITY.
+     */
+    public static ListBoxModel createListBoxModel() {
+        ListBoxModel items = new ListBoxModel();
+        items.add("Default", "");
+        for (DetectScanPriority priority : values()) {
+            items.add(priority.getDisplayName(), priority.name().toLowerCase(Locale.ENGLISH));
+        }
+        return items;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public long getDelayMillis() {
+        return delayMillis;
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import hudson.AbortException;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+/**
+ * Splits a workspace into source paths that can be scanned separately. Paths given by the user are used as they are; otherwise every top-level directory that holds a
+ * package manager manifest becomes a shard. A manifest in the workspace itself is taken to be the build of those modules, such as the root pom.xml or settings.gradle of a
+ * multi-module build, so the workspace is only scanned as a whole when it has no such directories.
+ */
+public class DetectShardPlanner extends MasterToSlaveFileCallable<List<String>> {
+    public static final String WHOLE_WORKSPACE = ".";
+    public static final List<String> MANIFEST_FILE_NAMES = Collections.unmodifiableList(Arrays.asList(
+        "pom.xml",
+        "build.gradle",
+        "build.gradle.kts",
+        "settings.gradle",
+        "settings.gradle.kts",
+        "package.json",
+        "package-lock.json",
+        "yarn.lock",
+        "pnpm-lock.yaml",
+        "go.mod",
+        "go.sum",
+        "Gemfile",
+        "Gemfile.lock",
+        "requirements.txt",
+        "Pipfile",
+        "Pipfile.lock",
+        "pyproject.toml",
+        "setup.py",
+        "composer.json",
+        "composer.lock",
+        "Cargo.toml",
+        "Cargo.lock",
+        "packages.config",
+        "Directory.Packages.props",
+        "build.sbt",
+        "Podfile",
+        "Podfile.lock",
+        "Package.swift",
+        "pubspec.yaml",
+        "conanfile.txt",
+        "mix.exs"
+    ));
+    private static final long serialVersionUID = -1794127045693219640L;
+
+    private final List<String> sourcePaths;
+
+    /**
+     * @param sourcePaths The source paths relative to the workspace to use as shards, or an empty list to find the modules of the workspace.
+     */
+    public DetectShardPlanner(List<String> sourcePaths) {
+        this.sourcePaths = new ArrayList<>(sourcePaths);
+    }
+
+    @Override
+    public List<String> invoke(File workspace, VirtualChannel channel) throws IOException {
+        if (!sourcePaths.isEmpty()) {
+            for (String sourcePath : sourcePaths) {
+                if (!new File(workspace, sourcePath).isDirectory()) {
+                    throw new AbortException(String.format("The source path %s is not a directory in the workspace %s", sourcePath, workspace));
+                }
+            }
+            return sourcePaths;
+        }
+
+        List<String> modules = new ArrayList<>();
+        File[] children = workspace.listFiles(File::isDirectory);
+        if (null != children) {
+            Arrays.sort(children);
+            for (File child : children) {
+                if (!child.getName().startsWith(".") && containsManifest(child)) {
+                    modules.add(child.getName());
+                }
+            }
+        }
+
+        if (modules.isEmpty()) {
+            return Collections.singletonList(WHOLE_WORKSPACE);
+        }
+        return modules;
+    }
+
+    private static boolean containsManifest(File directory) {
+        return MANIFEST_FILE_NAMES.stream().anyMatch(manifestFileName -> new File(directory, manifestFileName).isFile());
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service.process;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import com.synopsys.integration.jenkins.detect.DetectCommandLine;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Proc;
+import hudson.model.TaskListener;
+
+/**
+ * A Detect process whose output is streamed to the build over the agent connection. It does not outlive the connection.
+ */
+public class AttachedDetectProcess implements DetectProcess {
+    private final Proc proc;
+
+    public AttachedDetectProcess(Proc proc) {
+        this.proc = proc;
+    }
+
+    public static AttachedDetectProcess launch(Launcher launcher, FilePath workspace, TaskListener listener, DetectCommandLine detectCommandLine) throws IOException {
+        Proc proc = launcher.launch()
+                        .cmds(detectCommandLine.getDetectCommands())
+                        .envs(detectCommandLine.getIntEnvironmentVariables().getVariables())
+                        .pwd(workspace)
+                        .stdout(listener)
+                        .quiet(true)
+                        .start();
+        return new AttachedDetectProcess(proc);
+    }
+
+    @Override
+    public Optional<Integer> checkExitCode() throws IOException, InterruptedException {
+        if (proc.isAlive()) {
+            return Optional.empty();
+        }
+        // The process has already exited, so this does not block.
+        return Optional.of(proc.join());
+    }
+
+    @Override
+    public void kill() throws IOException, InterruptedException {
+        proc.kill();
+    }
+
+}
@@ -0,0 +1,28 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service.process;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * A Detect process that has been launched on a node.
+ */
+public interface DetectProcess {
+    /**
+     * Checks on the process without waiting for it.
+     * @return The exit code if the process has finished.
+     */
+    Optional<Integer> checkExitCode() throws IOException, InterruptedException;
+
+    /**
+     * Kills the process and everything it started.
+     */
+    void kill() throws IOException, InterruptedException;
+
+}
@@ -0,0 +1,21 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service.process;
+
+import java.io.IOException;
+
+import com.synopsys.integration.jenkins.detect.DetectCommandLine;
+
+@FunctionalInterface
+public interface DetectProcessLauncher {
+    /**
+     * Launches Detect without waiting for it to finish.
+     */
+    DetectProcess launch(DetectCommandLine detectCommandLine) throws IOException, InterruptedException;
+
+}
@@ -0,0 +1,269 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service.process;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import com.synopsys.integration.jenkins.detect.DetectCommandLine;
+
+import hudson.AbortException;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import hudson.slaves.WorkspaceList;
+import hudson.util.ProcessTree;
+import jenkins.MasterToSlaveFileCallable;
+import jenkins.model.Jenkins;
+
+/**
+ * A Detect process that keeps running on a Unix node when the controller restarts or the agent connection drops. A small wrapper script started with nohup runs
+ * Detect, writing its output, its process id and finally its exit code into a control directory next to the workspace. The controller copies new output into the
+ * build log each time it checks on the process, and only needs the node name and the control directory to find the process again after a restart.
+ */
+public class DurableDetectProcess implements DetectProcess, Serializable {
+    public static final String CONTROL_DIRECTORY_PREFIX = "synopsys-detect-";
+    public static final String WRAPPER_SCRIPT_FILE = "detect-wrapper.sh";
+    public static final String LOG_FILE = "detect.log";
+    public static final String PID_FILE = "pid";
+    public static final String EXIT_CODE_FILE = "exit-code";
+    // Keeps each check on the process from copying an unbounded amount of output over the agent connection.
+    private static final int MAX_OUTPUT_BYTES_PER_CHECK = 1024 * 1024;
+    private static final String WRAPPER_SCRIPT = String.join("\n",
+        "control_dir=\"$1\"",
+        "shift",
+        "echo $$ > \"$control_dir/" + PID_FILE + "\"",
+        "\"$@\" > \"$control_dir/" + LOG_FILE + "\" 2>&1",
+        "echo $? > \"$control_dir/" + EXIT_CODE_FILE + ".tmp\"",
+        "mv \"$control_dir/" + EXIT_CODE_FILE + ".tmp\" \"$control_dir/" + EXIT_CODE_FILE + "\"",
+        ""
+    );
+    private static final long serialVersionUID = 2816044310728457213L;
+
+    private final String nodeName;
+    private final String controlDirectory;
+    private long logOffset = 0;
+
+    private transient TaskListener listener;
+    @Nullable
+    private transient FilePath controlDirectoryPath;
+    private transient boolean waitingForNode = false;
+
+    private DurableDetectProcess(String nodeName, FilePath controlDirectoryPath, TaskListener listener) {
+        this.nodeName = nodeName;
+        this.controlDirectory = controlDirectoryPath.getRemote();
+        this.controlDirectoryPath = controlDirectoryPath;
+        this.listener = listener;
+    }
+
+    public static DurableDetectProcess launch(Launcher launcher, FilePath workspace, String nodeName, TaskListener listener, DetectCommandLine detectCommandLine) throws IOException, InterruptedException {
+        FilePath tempDirectory = WorkspaceList.tempDir(workspace);
+        if (null == tempDirectory) {
+            throw new AbortException("Could not find a temporary directory for the workspace " + workspace.getRemote());
+        }
+        FilePath controlDirectoryPath = tempDirectory.child(CONTROL_DIRECTORY_PREFIX + UUID.randomUUID());
+        controlDirectoryPath.mkdirs();
+        FilePath wrapperScript = controlDirectoryPath.child(WRAPPER_SCRIPT_FILE);
+        wrapperScript.write(WRAPPER_SCRIPT, StandardCharsets.UTF_8.name());
+
+        // The outer shell returns as soon as the wrapper is running in the background, so the wrapper and Detect are not tied to the agent connection.
+        List<String> commands = new ArrayList<>();
+        commands.add("sh");
+        commands.add("-c");
+        commands.add("nohup sh \"$0\" \"$@\" > /dev/null 2>&1 &");
+        commands.add(wrapperScript.getRemote());
+        commands.add(controlDirectoryPath.getRemote());
+        commands.addAll(detectCommandLine.getDetectCommands());
+
+        Map<String, String> environment = new HashMap<>(detectCommandLine.getIntEnvironmentVariables().getVariables());
+        environment.put("JENKINS_SERVER_COOKIE", "durable-" + controlDirectoryPath.getName());
+
+        int exitCode = launcher.launch()
+                           .cmds(commands)
+                           .envs(environment)
+                           .pwd(workspace)
+                           .stdout(listener)
+                           .quiet(true)
+                           .join();
+        if (exitCode != 0) {
+            throw new AbortException(String.format("Could not start Detect in the background on the node (exit code %d).", exitCode));
+        }
+
+        return new DurableDetectProcess(StringUtils.defaultString(nodeName), controlDirectoryPath, listener);
+    }
+
+    /**
+     * Reconnects this process to the build log after it has been loaded from disk.
+     */
+    public void attach(TaskListener listener) {
+        this.listener = listener;
+    }
+
+    public String getControlDirectory() {
+        return controlDirectory;
+    }
+
+    @Override
+    public Optional<Integer> checkExitCode() throws IOException, InterruptedException {
+        FilePath controlDirectoryFilePath = getControlDirectoryPath();
+        if (null == controlDirectoryFilePath) {
+            logWaitingForNode();
+            return Optional.empty();
+        }
+
+        Progress progress;
+        try {
+            progress = controlDirectoryFilePath.act(new ReadProgress(logOffset));
+        } catch (IOException e) {
+            // The node went away; Detect keeps running and is picked up again once the node reconnects.
+            controlDirectoryPath = null;
+            logWaitingForNode();
+            return Optional.empty();
+        }
+        waitingForNode = false;
+
+        if (progress.output.length > 0) {
+            listener.getLogger().write(progress.output);
+            listener.getLogger().flush();
+            logOffset += progress.output.length;
+        }
+
+        if (null == progress.exitCode) {
+            return Optional.empty();
+        }
+        controlDirectoryFilePath.deleteRecursive();
+        return Optional.of(progress.exitCode);
+    }
+
+    @Override
+    public void kill() throws IOException, InterruptedException {
+        FilePath controlDirectoryFilePath = getControlDirectoryPath();
+        if (null == controlDirectoryFilePath) {
+            throw new AbortException(String.format("Could not stop Detect because the node %s is not connected.", nodeName));
+        }
+        controlDirectoryFilePath.act(new KillProcess());
+        controlDirectoryFilePath.deleteRecursive();
+    }
+
+    @Nullable
+    private FilePath getControlDirectoryPath() {
+        if (null == controlDirectoryPath) {
+            Jenkins jenkins = Jenkins.get();
+            Node node = StringUtils.isEmpty(nodeName) ? jenkins : jenkins.getNode(nodeName);
+            if (null != node) {
+                Computer computer = node.toComputer();
+                VirtualChannel channel = null != computer ? computer.getChannel() : null;
+                if (null != channel) {
+                    controlDirectoryPath = new FilePath(channel, controlDirectory);
+                }
+            }
+        }
+        return controlDirectoryPath;
+    }
+
+    private void logWaitingForNode() {
+        if (!waitingForNode) {
+            waitingForNode = true;
+            listener.getLogger().println(String.format("Waiting for the node %s to reconnect to check on Detect.", StringUtils.defaultIfEmpty(nodeName, "(built-in)")));
+        }
+    }
+
+    private static class Progress implements Serializable {
+        private static final long serialVersionUID = -4468931271290526163L;
+        private final byte[] output;
+        @Nullable
+        private final Integer exitCode;
+
+        private Progress(byte[] output, @Nullable Integer exitCode) {
+            this.output = output;
+            this.exitCode = exitCode;
+        }
+    }
+
+    private static class ReadProgress extends MasterToSlaveFileCallable<Progress> {
+        private static final long serialVersionUID = 6131683420716398570L;
+        private final long logOffset;
+
+        private ReadProgress(long logOffset) {
+            this.logOffset = logOffset;
+        }
+
+        @Override
+        public Progress invoke(File controlDirectory, VirtualChannel channel) throws IOException {
+            // Check for the exit code first, so that output written just before Detect exited is never missed.
+            File exitCodeFile = new File(controlDirectory, EXIT_CODE_FILE);
+            boolean finished = exitCodeFile.isFile();
+
+            byte[] output = new byte[0];
+            File logFile = new File(controlDirectory, LOG_FILE);
+            if (logFile.isFile() && logFile.length() > logOffset) {
+                try (InputStream inputStream = Files.newInputStream(logFile.toPath())) {
+                    long skipped = 0;
+                    while (skipped < logOffset) {
+                        skipped += inputStream.skip(logOffset - skipped);
+                    }
+                    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while (outputStream.size() < MAX_OUTPUT_BYTES_PER_CHECK && (read = inputStream.read(buffer, 0, Math.min(buffer.length, MAX_OUTPUT_BYTES_PER_CHECK - outputStream.size()))) > 0) {
+                        outputStream.write(buffer, 0, read);
+                    }
+                    output = outputStream.toByteArray();
+                }
+            }
+
+            if (!finished || logFile.length() > logOffset + output.length) {
+                return new Progress(output, null);
+            }
+            String exitCode = FileUtils.readFileToString(exitCodeFile, StandardCharsets.UTF_8).trim();
+            try {
+                return new Progress(output, Integer.valueOf(exitCode));
+            } catch (NumberFormatException e) {
+                throw new IOException("Could not read the exit code of Detect: " + exitCode, e);
+            }
+        }
+    }
+
+    private static class KillProcess extends MasterToSlaveFileCallable<Void> {
+        private static final long serialVersionUID = -2170311870406133219L;
+
+        @Override
+        public Void invoke(File controlDirectory, VirtualChannel channel) throws IOException, InterruptedException {
+            File pidFile = new File(controlDirectory, PID_FILE);
+            if (!pidFile.isFile()) {
+                return null;
+            }
+            int pid = Integer.parseInt(FileUtils.readFileToString(pidFile, StandardCharsets.UTF_8).trim());
+            ProcessTree.OSProcess process = ProcessTree.get().get(pid);
+            if (null != process) {
+                process.killRecursively();
+            }
+            return null;
+        }
+    }
+
+}
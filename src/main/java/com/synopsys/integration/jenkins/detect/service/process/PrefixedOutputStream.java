@@ -0,0 +1,36 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service.process;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import hudson.console.LineTransformationOutputStream;
+
+/**
+ * Marks each line of output with a prefix, so that the output of Detect invocations running side by side can be told apart in the build log.
+ */
+public class PrefixedOutputStream extends LineTransformationOutputStream.Delegating {
+    private final byte[] prefix;
+
+    public PrefixedOutputStream(OutputStream out, String prefix) {
+        super(out);
+        this.prefix = prefix.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected void eol(byte[] b, int len) throws IOException {
+        // Lines are written in one call so that they are not split up by the other invocations.
+        byte[] line = new byte[prefix.length + len];
+        System.arraycopy(prefix, 0, line, 0, prefix.length);
+        System.arraycopy(b, 0, line, prefix.length, len);
+        out.write(line);
+    }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service.strategy;
+
+import java.io.Serializable;
+import java.util.Optional;
+
+import javax.annotation.Nullable;
+
+/**
+ * The Detect jar found in an Air Gap installation directory, along with a key identifying the state of that directory (its file key and modification time) when the
+ * jar was found.
+ */
+public class AirGapJarResolution implements Serializable {
+    private static final long serialVersionUID = 6417905138526623981L;
+
+    private final String airGapJar;
+    @Nullable
+    private final String directoryKey;
+
+    public AirGapJarResolution(String airGapJar, @Nullable String directoryKey) {
+        this.airGapJar = airGapJar;
+        this.directoryKey = directoryKey;
+    }
+
+    public String getAirGapJar() {
+        return airGapJar;
+    }
+
+    public Optional<String> getDirectoryKey() {
+        return Optional.ofNullable(directoryKey);
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service.strategy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers, on the Jenkins controller, how each Air Gap installation was resolved on each node: the home directory translated for the node and the Detect jar found in
+ * it. A resolution is only used for a build whose home translates to the same directory, since the home can depend on the environment of the build. Entries are
+ * dropped when the tool configuration changes or the node reconnects; the agent still checks the directory key before trusting the remembered jar.
+ */
+public class AirGapResolutionCache {
+    private static final Map<String, Map<String, Resolution>> RESOLUTIONS = new ConcurrentHashMap<>();
+
+    private final String nodeName;
+
+    public AirGapResolutionCache(String nodeName) {
+        this.nodeName = nodeName;
+    }
+
+    public static void invalidate(String nodeName) {
+        RESOLUTIONS.remove(nodeName);
+    }
+
+    public static void invalidateAll() {
+        RESOLUTIONS.clear();
+    }
+
+    public Optional<Resolution> get(String airGapInstallationName, String translatedHome) {
+        if (null == airGapInstallationName) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(RESOLUTIONS.get(nodeName))
+                   .map(nodeResolutions -> nodeResolutions.get(airGapInstallationName))
+                   .filter(resolution -> resolution.getTranslatedHome().equals(translatedHome));
+    }
+
+    public Collection<Resolution> getResolutions() {
+        return Optional.ofNullable(RESOLUTIONS.get(nodeName))
+                   .<Collection<Resolution>>map(nodeResolutions -> new ArrayList<>(nodeResolutions.values()))
+                   .orElse(Collections.emptyList());
+    }
+
+    public void record(String airGapInstallationName, String translatedHome, AirGapJarResolution airGapJarResolution) {
+        if (null == airGapInstallationName) {
+            return;
+        }
+        RESOLUTIONS.computeIfAbsent(nodeName, name -> new ConcurrentHashMap<>())
+            .put(airGapInstallationName, new Resolution(translatedHome, airGapJarResolution));
+    }
+
+    public static class Resolution {
+        private final String translatedHome;
+        private final AirGapJarResolution airGapJarResolution;
+
+        public Resolution(String translatedHome, AirGapJarResolution airGapJarResolution) {
+            this.translatedHome = translatedHome;
+            this.airGapJarResolution = airGapJarResolution;
+        }
+
+        public String getTranslatedHome() {
+            return translatedHome;
+        }
+
+        public AirGapJarResolution getAirGapJarResolution() {
+            return airGapJarResolution;
+        }
+    }
+
+}
@@ -10,11 +10,17 @@ package com.synopsys.integration.jenkins.detect.service.strategy;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.function.Function;
 
+import javax.annotation.Nullable;
+
 import com.synopsys.integration.exception.IntegrationException;
 import com.synopsys.integration.jenkins.detect.exception.DetectJenkinsException;
 import com.synopsys.integration.jenkins.detect.extensions.AirGapDownloadStrategy;
@@ -22,6 +28,7 @@ import com.synopsys.integration.jenkins.detect.extensions.tool.DetectAirGapInsta
 import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
 import com.synopsys.integration.jenkins.service.JenkinsConfigService;
 import com.synopsys.integration.util.IntEnvironmentVariables;
+import com.synopsys.integration.util.OperatingSystemType;
 
 import jenkins.security.MasterToSlaveCallable;
 
@@ -34,6 +41,9 @@ public class DetectAirGapJarStrategy extends DetectExecutionStrategy {
     private final String remoteJdkHome;
     private final JenkinsConfigService jenkinsConfigService;
     private final AirGapDownloadStrategy airGapDownloadStrategy;
+    private final RemoteJavaInfo knownRemoteJavaInfo;
+    private final AirGapResolutionCache airGapResolutionCache;
+    private String airGapBaseDir;
 
     public DetectAirGapJarStrategy(
         JenkinsIntLogger logger,
@@ -41,23 +51,36 @@ public class DetectAirGapJarStrategy extends DetectExecutionStrategy {
         String remoteJdkHome,
         JenkinsConfigService jenkinsConfigService,
         AirGapDownloadStrategy airGapDownloadStrategy
+    ) {
+        this(logger, intEnvironmentVariables, remoteJdkHome, jenkinsConfigService, airGapDownloadStrategy, null, null);
+    }
+
+    public DetectAirGapJarStrategy(
+        JenkinsIntLogger logger,
+        IntEnvironmentVariables intEnvironmentVariables,
+        String remoteJdkHome,
+        JenkinsConfigService jenkinsConfigService,
+        AirGapDownloadStrategy airGapDownloadStrategy,
+        @Nullable RemoteJavaInfo knownRemoteJavaInfo,
+        @Nullable AirGapResolutionCache airGapResolutionCache
     ) {
         this.logger = logger;
         this.intEnvironmentVariables = intEnvironmentVariables;
         this.remoteJdkHome = remoteJdkHome;
         this.jenkinsConfigService = jenkinsConfigService;
         this.airGapDownloadStrategy = airGapDownloadStrategy;
+        this.knownRemoteJavaInfo = knownRemoteJavaInfo;
+        this.airGapResolutionCache = airGapResolutionCache;
     }
 
     @Override
-    public Function<String, String> getArgumentEscaper() {
+    public Function<String, String> getArgumentEscaper(OperatingSystemType remoteOperatingSystemType) {
         return Function.identity();
     }
 
-    private String getOrDownloadAirGapJar() throws DetectJenkinsException {
+    private String getOrDownloadAirGapJar(String airGapInstallationName) throws DetectJenkinsException {
         DetectAirGapInstallation airGapInstallation;
         try {
-            String airGapInstallationName = airGapDownloadStrategy.getAirGapInstallationName();
             airGapInstallation = jenkinsConfigService.getInstallationForNodeAndEnvironment(DetectAirGapInstallation.DescriptorImpl.class, airGapInstallationName).orElseThrow(
                 () -> new DetectJenkinsException(
                     String.format(
@@ -75,40 +98,98 @@ public class DetectAirGapJarStrategy extends DetectExecutionStrategy {
     }
 
     @Override
-    public MasterToSlaveCallable<ArrayList<String>, IntegrationException> getSetupCallable() throws DetectJenkinsException {
-        String airGapBaseDir = getOrDownloadAirGapJar();
+    public MasterToSlaveCallable<DetectSetupResult, IntegrationException> getSetupCallable() throws DetectJenkinsException {
+        String airGapInstallationName = airGapDownloadStrategy.getAirGapInstallationName();
+        // The home is translated for every build, since it can depend on the environment of the build as well as on the node.
+        airGapBaseDir = getOrDownloadAirGapJar(airGapInstallationName);
 
         if (airGapBaseDir == null) {
             throw new DetectJenkinsException("Detect AirGap installation directory is null. Check Jenkins tool configuration for installation directory.");
         }
 
-        return new SetupCallableImpl(logger, intEnvironmentVariables.getVariables(), remoteJdkHome, airGapBaseDir);
+        AirGapJarResolution knownAirGapJarResolution = null;
+        if (airGapResolutionCache != null) {
+            knownAirGapJarResolution = airGapResolutionCache.get(airGapInstallationName, airGapBaseDir)
+                                           .map(AirGapResolutionCache.Resolution::getAirGapJarResolution)
+                                           .orElse(null);
+        }
+
+        return new SetupCallableImpl(logger, intEnvironmentVariables.getVariables(), remoteJdkHome, airGapBaseDir, knownRemoteJavaInfo, knownAirGapJarResolution);
     }
 
-    public static class SetupCallableImpl extends MasterToSlaveCallable<ArrayList<String>, IntegrationException> {
+    @Override
+    public void recordSetupResult(DetectSetupResult detectSetupResult) {
+        if (airGapResolutionCache != null && airGapBaseDir != null) {
+            detectSetupResult.getAirGapJarResolution()
+                .ifPresent(airGapJarResolution -> airGapResolutionCache.record(airGapDownloadStrategy.getAirGapInstallationName(), airGapBaseDir, airGapJarResolution));
+        }
+    }
+
+    public static class SetupCallableImpl extends MasterToSlaveCallable<DetectSetupResult, IntegrationException> {
         private static final long serialVersionUID = -8326836838838706367L;
 
         private final JenkinsIntLogger logger;
         private final Map<String, String> environmentVariables;
         private final String remoteJdkHome;
         private final String airGapBaseDir;
+        private final RemoteJavaInfo knownRemoteJavaInfo;
+        private final AirGapJarResolution knownAirGapJarResolution;
 
         public SetupCallableImpl(JenkinsIntLogger logger, Map<String, String> environmentVariables, String remoteJdkHome, String airGapBaseDir) {
+            this(logger, environmentVariables, remoteJdkHome, airGapBaseDir, null, null);
+        }
+
+        public SetupCallableImpl(
+            JenkinsIntLogger logger,
+            Map<String, String> environmentVariables,
+            String remoteJdkHome,
+            String airGapBaseDir,
+            @Nullable RemoteJavaInfo knownRemoteJavaInfo,
+            @Nullable AirGapJarResolution knownAirGapJarResolution
+        ) {
             this.logger = logger;
             this.environmentVariables = environmentVariables;
             this.remoteJdkHome = remoteJdkHome;
             this.airGapBaseDir = airGapBaseDir;
+            this.knownRemoteJavaInfo = knownRemoteJavaInfo;
+            this.knownAirGapJarResolution = knownAirGapJarResolution;
         }
 
         @Override
-        public ArrayList<String> call() throws DetectJenkinsException {
-            String airGapJar = getAirGapJar(airGapBaseDir);
-            RemoteJavaService remoteJavaService = new RemoteJavaService(logger, remoteJdkHome, environmentVariables);
-            String javaExecutablePath = remoteJavaService.getJavaExecutablePath();
+        public DetectSetupResult call() throws DetectJenkinsException {
+            AirGapJarResolution airGapJarResolution = resolveAirGapJar();
+            String airGapJar = airGapJarResolution.getAirGapJar();
+            RemoteJavaService remoteJavaService = new RemoteJavaService(logger, remoteJdkHome, environmentVariables, knownRemoteJavaInfo);
+            RemoteJavaInfo remoteJavaInfo = remoteJavaService.resolveJava();
 
             logger.info("Detect AirGap jar configured: " + airGapJar);
 
-            return new ArrayList<>(Arrays.asList(javaExecutablePath, "-jar", airGapJar));
+            ArrayList<String> initialArguments = new ArrayList<>(Arrays.asList(remoteJavaInfo.getExecutablePath(), "-jar", airGapJar));
+            return new DetectSetupResult(OperatingSystemType.determineFromSystem(), initialArguments, remoteJavaInfo, airGapJarResolution);
+        }
+
+        private AirGapJarResolution resolveAirGapJar() throws DetectJenkinsException {
+            String directoryKey = readDirectoryKey(airGapBaseDir);
+
+            // Adding, removing or renaming a jar changes the directory's modification time, so an unchanged key means the earlier scan still holds.
+            if (knownAirGapJarResolution != null && directoryKey != null && knownAirGapJarResolution.getDirectoryKey().filter(directoryKey::equals).isPresent()
+                    && new File(knownAirGapJarResolution.getAirGapJar()).isFile()) {
+                logger.debug("Detect AirGap installation directory is unchanged since an earlier build on this node, skipping the search for the jar.");
+                return knownAirGapJarResolution;
+            }
+
+            return new AirGapJarResolution(getAirGapJar(airGapBaseDir), directoryKey);
+        }
+
+        // Windows has no file key, so there the key is the modification time alone. NTFS still updates it when a jar is added, removed or renamed, and the remembered
+        // jar must also still exist.
+        private String readDirectoryKey(String directory) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(Paths.get(directory), BasicFileAttributes.class);
+                return String.format("%s:%d", attributes.fileKey(), attributes.lastModifiedTime().toMillis());
+            } catch (IOException | InvalidPathException e) {
+                return null;
+            }
         }
 
         private String getAirGapJar(String airGapBaseDir) throws DetectJenkinsException {
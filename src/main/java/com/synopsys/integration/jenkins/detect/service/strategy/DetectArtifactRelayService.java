@@ -0,0 +1,288 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service.strategy;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.synopsys.integration.exception.IntegrationException;
+import com.synopsys.integration.jenkins.detect.exception.DetectJenkinsException;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+import com.synopsys.integration.jenkins.wrapper.JenkinsProxyHelper;
+import com.synopsys.integration.rest.client.IntHttpClient;
+import com.synopsys.integration.rest.proxy.ProxyInfo;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import jenkins.util.SystemProperties;
+
+/**
+ * Downloads Detect once on the Jenkins controller, keeps it in a store keyed by checksum, and copies it to the agent only when the agent does not already hold the same
+ * checksum. Both stores keep only the most recently used checksums, so the jars of superseded Detect releases are removed once newer ones have been relayed.
+ */
+public class DetectArtifactRelayService {
+    public static final String DETECT_LATEST_PROPERTY = "DETECT_LATEST_8";
+    public static final String DETECT_LATEST_URL =
+        "https://sig-repo.synopsys.com/api/storage/bds-integrations-release/com/synopsys/integration/synopsys-detect?properties=" + DETECT_LATEST_PROPERTY;
+    public static final String RELAY_DIRECTORY = "Detect_Relay";
+    public static final String DOWNLOADS_DIRECTORY = "downloads";
+    public static final String RELAYED_JAR_FILENAME = "synopsys-detect.jar";
+
+    public static final int RETAINED_CHECKSUMS = Math.max(1, SystemProperties.getInteger(DetectArtifactRelayService.class.getName() + ".retainedChecksums", 3));
+
+    private static final String LATEST_METADATA_FILENAME = "detect-latest.json";
+    private static final String DOWNLOADED_JAR_SUFFIX = ".jar";
+    private static final int REMEMBERED_CHECKSUMS = 64;
+    private static final Pattern CHECKSUM_NAME = Pattern.compile("[0-9a-f]{64}");
+    private static final Map<String, String> CHECKSUMS = Collections.synchronizedMap(new LinkedHashMap<String, String>(16, 0.75f, true) {
+        private static final long serialVersionUID = 2785307236545094620L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > REMEMBERED_CHECKSUMS;
+        }
+    });
+
+    private final JenkinsIntLogger logger;
+    private final JenkinsProxyHelper jenkinsProxyHelper;
+    private final Path controllerStoreDirectory;
+    private final FilePath agentStoreDirectory;
+    private final String latestDetectUrl;
+    private final long freshnessSeconds;
+
+    public DetectArtifactRelayService(JenkinsIntLogger logger, JenkinsProxyHelper jenkinsProxyHelper, Path controllerStoreDirectory, FilePath agentStoreDirectory) {
+        this(logger, jenkinsProxyHelper, controllerStoreDirectory, agentStoreDirectory, DETECT_LATEST_URL, DetectScriptCache.DEFAULT_FRESHNESS_SECONDS);
+    }
+
+    public DetectArtifactRelayService(
+        JenkinsIntLogger logger,
+        JenkinsProxyHelper jenkinsProxyHelper,
+        Path controllerStoreDirectory,
+        FilePath agentStoreDirectory,
+        String latestDetectUrl,
+        long freshnessSeconds
+    ) {
+        this.logger = logger;
+        this.jenkinsProxyHelper = jenkinsProxyHelper;
+        this.controllerStoreDirectory = controllerStoreDirectory;
+        this.agentStoreDirectory = agentStoreDirectory;
+        this.latestDetectUrl = latestDetectUrl;
+        this.freshnessSeconds = freshnessSeconds;
+    }
+
+    /**
+     * Makes the Detect jar available on the agent, downloading it on the controller first if necessary.
+     * @param detectJarUrl The URL of the jar to relay, or null to relay the latest Detect jar.
+     * @return The path of the relayed jar on the agent.
+     */
+    public String relayDetectJar(String detectJarUrl) throws IntegrationException, IOException, InterruptedException {
+        DetectScriptCache controllerCache = new DetectScriptCache(logger, controllerStoreDirectory.resolve(DOWNLOADS_DIRECTORY), freshnessSeconds);
+
+        String resolvedJarUrl = StringUtils.isNotBlank(detectJarUrl) ? detectJarUrl : resolveLatestDetectJarUrl(controllerCache);
+        String downloadedJarFileName = DigestUtils.sha256Hex(resolvedJarUrl) + DOWNLOADED_JAR_SUFFIX;
+        Path downloadedJar = controllerCache.getOrDownload(createHttpClient(resolvedJarUrl), resolvedJarUrl, downloadedJarFileName);
+        Path storedJar = storeByChecksum(downloadedJar);
+        String checksum = storedJar.getParent().getFileName().toString();
+
+        FilePath agentChecksumDirectory = agentStoreDirectory.child(checksum);
+        FilePath agentJar = agentChecksumDirectory.child(RELAYED_JAR_FILENAME);
+        long storedJarSize = Files.size(storedJar);
+        if (agentJar.exists() && agentJar.length() == storedJarSize) {
+            logger.info(String.format("Detect jar %s (sha256 %s) is already present on this node", resolvedJarUrl, checksum));
+            // Marks the checksum as recently used, so that relaying a newer release does not remove it while builds still use it.
+            agentChecksumDirectory.touch(System.currentTimeMillis());
+            return agentJar.getRemote();
+        }
+
+        logger.info(String.format("Relaying Detect jar %s (sha256 %s) from the Jenkins controller to %s", resolvedJarUrl, checksum, agentJar.getRemote()));
+        FilePath agentStagingDirectory = agentStoreDirectory.child(checksum + ".tmp-" + UUID.randomUUID());
+        try {
+            // copyRecursiveTo streams a compressed archive when the target is on a remote channel.
+            new FilePath(storedJar.getParent().toFile()).copyRecursiveTo(RELAYED_JAR_FILENAME, agentStagingDirectory);
+            if (!agentJar.exists()) {
+                if (agentChecksumDirectory.exists()) {
+                    agentChecksumDirectory.deleteRecursive();
+                }
+                agentStagingDirectory.renameTo(agentChecksumDirectory);
+            }
+        } catch (IOException e) {
+            // Another build may have relayed the same checksum to this node concurrently.
+            if (!agentJar.exists() || agentJar.length() != storedJarSize) {
+                throw e;
+            }
+        } finally {
+            if (agentStagingDirectory.exists()) {
+                agentStagingDirectory.deleteRecursive();
+            }
+        }
+
+        int removedChecksums = agentStoreDirectory.act(new RemoveSupersededChecksums(checksum, RETAINED_CHECKSUMS));
+        if (removedChecksums > 0) {
+            logger.debug(String.format("Removed the Detect jars of %d superseded checksums from this node", removedChecksums));
+        }
+        return agentJar.getRemote();
+    }
+
+    private String resolveLatestDetectJarUrl(DetectScriptCache controllerCache) throws IntegrationException, IOException {
+        Path latestMetadata = controllerCache.getOrDownload(createHttpClient(latestDetectUrl), latestDetectUrl, LATEST_METADATA_FILENAME);
+
+        try (Reader reader = Files.newBufferedReader(latestMetadata, StandardCharsets.UTF_8)) {
+            JsonObject storageProperties = new Gson().fromJson(reader, JsonObject.class);
+            JsonObject properties = null != storageProperties ? storageProperties.getAsJsonObject("properties") : null;
+            JsonArray latestUrls = null != properties ? properties.getAsJsonArray(DETECT_LATEST_PROPERTY) : null;
+            if (null != latestUrls) {
+                for (JsonElement latestUrl : latestUrls) {
+                    if (StringUtils.isNotBlank(latestUrl.getAsString())) {
+                        return latestUrl.getAsString();
+                    }
+                }
+            }
+        } catch (JsonParseException | ClassCastException | IllegalStateException e) {
+            throw new DetectJenkinsException(String.format("Could not resolve the latest Detect jar from %s: %s", latestDetectUrl, e.getMessage()), e);
+        }
+
+        throw new DetectJenkinsException(String.format("Could not resolve the latest Detect jar from %s: no %s property was found", latestDetectUrl, DETECT_LATEST_PROPERTY));
+    }
+
+    private Path storeByChecksum(Path downloadedJar) throws IOException {
+        String checksum = calculateChecksum(downloadedJar);
+
+        Path checksumDirectory = controllerStoreDirectory.resolve(checksum);
+        Path storedJar = checksumDirectory.resolve(RELAYED_JAR_FILENAME);
+        if (Files.isRegularFile(storedJar)) {
+            Files.setLastModifiedTime(checksumDirectory, FileTime.fromMillis(System.currentTimeMillis()));
+            return storedJar;
+        }
+
+        Files.createDirectories(checksumDirectory);
+        Path temporaryJar = Files.createTempFile(checksumDirectory, RELAYED_JAR_FILENAME, ".tmp");
+        try {
+            Files.copy(downloadedJar, temporaryJar, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temporaryJar, storedJar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryJar);
+        }
+
+        // A new checksum means a new release, so older downloads and checksums can go.
+        removeOldest(controllerStoreDirectory.toFile(), checksum, RETAINED_CHECKSUMS, DetectArtifactRelayService::isChecksumDirectory);
+        removeOldest(downloadedJar.getParent().toFile(), downloadedJar.getFileName().toString(), RETAINED_CHECKSUMS, file -> file.getName().endsWith(DOWNLOADED_JAR_SUFFIX));
+        removeOrphanedMetadata(downloadedJar.getParent());
+        return storedJar;
+    }
+
+    private String calculateChecksum(Path file) throws IOException {
+        // The downloaded jar only changes when the controller cache replaces it, so its checksum is remembered rather than recomputed for every build.
+        String checksumKey = String.format("%s|%d|%d", file.toAbsolutePath(), Files.size(file), Files.getLastModifiedTime(file).toMillis());
+        String checksum = CHECKSUMS.get(checksumKey);
+        if (null == checksum) {
+            try (InputStream inputStream = Files.newInputStream(file)) {
+                checksum = DigestUtils.sha256Hex(inputStream);
+            }
+            CHECKSUMS.put(checksumKey, checksum);
+        }
+        return checksum;
+    }
+
+    private static void removeOrphanedMetadata(Path downloadsDirectory) throws IOException {
+        File[] metadataFiles = downloadsDirectory.toFile().listFiles(file -> file.getName().endsWith(DOWNLOADED_JAR_SUFFIX + DetectScriptCache.METADATA_SUFFIX));
+        if (null != metadataFiles) {
+            for (File metadataFile : metadataFiles) {
+                String jarFileName = StringUtils.removeEnd(metadataFile.getName(), DetectScriptCache.METADATA_SUFFIX);
+                if (!Files.exists(downloadsDirectory.resolve(jarFileName))) {
+                    Files.deleteIfExists(metadataFile.toPath());
+                }
+            }
+        }
+    }
+
+    private static boolean isChecksumDirectory(File file) {
+        return file.isDirectory() && CHECKSUM_NAME.matcher(file.getName()).matches();
+    }
+
+    /**
+     * Removes all but the most recently modified entries of a directory that the filter accepts. The kept entry always stays and counts towards the retained ones.
+     * @return The number of entries removed.
+     */
+    private static int removeOldest(File directory, String keptName, int retained, FileFilter filter) {
+        File[] candidates = directory.listFiles(file -> !file.getName().equals(keptName) && filter.accept(file));
+        if (null == candidates || candidates.length < retained) {
+            return 0;
+        }
+
+        Arrays.sort(candidates, Comparator.comparingLong(File::lastModified).reversed());
+        int removed = 0;
+        for (File candidate : Arrays.asList(candidates).subList(retained - 1, candidates.length)) {
+            try {
+                Util.deleteRecursive(candidate);
+                removed++;
+            } catch (IOException e) {
+                // A jar that is still in use cannot be removed on every platform. It is tried again the next time a new checksum arrives.
+            }
+        }
+        return removed;
+    }
+
+    private IntHttpClient createHttpClient(String url) {
+        ProxyInfo proxyInfo;
+        try {
+            proxyInfo = jenkinsProxyHelper.getProxyInfo(url);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Synopsys Detect for Jenkins could not resolve proxy info from Jenkins because: " + e.getMessage());
+            logger.warn("Continuing without proxy...");
+            logger.trace("Stack trace:", e);
+            proxyInfo = ProxyInfo.NO_PROXY_INFO;
+        }
+        return new IntHttpClient(logger, new Gson(), 120, false, proxyInfo);
+    }
+
+    /**
+     * Removes the checksums that have been superseded from the store on the agent, in one round trip.
+     */
+    private static class RemoveSupersededChecksums extends MasterToSlaveFileCallable<Integer> {
+        private static final long serialVersionUID = -4271948723067316625L;
+
+        private final String checksum;
+        private final int retained;
+
+        public RemoveSupersededChecksums(String checksum, int retained) {
+            this.checksum = checksum;
+            this.retained = retained;
+        }
+
+        @Override
+        public Integer invoke(File agentStoreDirectory, VirtualChannel channel) {
+            return removeOldest(agentStoreDirectory, checksum, retained, DetectArtifactRelayService::isChecksumDirectory);
+        }
+    }
+
+}
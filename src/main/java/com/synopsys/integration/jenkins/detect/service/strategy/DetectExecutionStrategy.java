@@ -8,15 +8,22 @@
 package com.synopsys.integration.jenkins.detect.service.strategy;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.function.Function;
 
 import com.synopsys.integration.exception.IntegrationException;
+import com.synopsys.integration.util.OperatingSystemType;
 
 import jenkins.security.MasterToSlaveCallable;
 
 public abstract class DetectExecutionStrategy {
-    public abstract MasterToSlaveCallable<ArrayList<String>, IntegrationException> getSetupCallable() throws IntegrationException, IOException, InterruptedException;
+    public abstract MasterToSlaveCallable<DetectSetupResult, IntegrationException> getSetupCallable() throws IntegrationException, IOException, InterruptedException;
 
-    public abstract Function<String, String> getArgumentEscaper();
+    public abstract Function<String, String> getArgumentEscaper(OperatingSystemType remoteOperatingSystemType);
+
+    /**
+     * Called on the controller with the result of the setup callable, so that strategies can remember what they learned about the node.
+     */
+    public void recordSetupResult(DetectSetupResult detectSetupResult) {
+        // Nothing to remember by default.
+    }
 }
@@ -12,9 +12,12 @@ import java.util.Arrays;
 import java.util.Map;
 import java.util.function.Function;
 
+import javax.annotation.Nullable;
+
 import com.synopsys.integration.exception.IntegrationException;
 import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
 import com.synopsys.integration.util.IntEnvironmentVariables;
+import com.synopsys.integration.util.OperatingSystemType;
 
 import jenkins.security.MasterToSlaveCallable;
 
@@ -23,46 +26,71 @@ public class DetectJarStrategy extends DetectExecutionStrategy {
     private final String detectJarPath;
     private final IntEnvironmentVariables intEnvironmentVariables;
     private final String remoteJdkHome;
+    private final RemoteJavaInfo knownRemoteJavaInfo;
 
     public DetectJarStrategy(JenkinsIntLogger logger, IntEnvironmentVariables intEnvironmentVariables, String remoteJdkHome, String detectJarPath) {
+        this(logger, intEnvironmentVariables, remoteJdkHome, detectJarPath, null);
+    }
+
+    public DetectJarStrategy(
+        JenkinsIntLogger logger,
+        IntEnvironmentVariables intEnvironmentVariables,
+        String remoteJdkHome,
+        String detectJarPath,
+        @Nullable RemoteJavaInfo knownRemoteJavaInfo
+    ) {
         this.logger = logger;
         this.intEnvironmentVariables = intEnvironmentVariables;
         this.remoteJdkHome = remoteJdkHome;
         this.detectJarPath = detectJarPath;
+        this.knownRemoteJavaInfo = knownRemoteJavaInfo;
     }
 
     @Override
-    public Function<String, String> getArgumentEscaper() {
+    public Function<String, String> getArgumentEscaper(OperatingSystemType remoteOperatingSystemType) {
         return Function.identity();
     }
 
     @Override
-    public MasterToSlaveCallable<ArrayList<String>, IntegrationException> getSetupCallable() {
-        return new SetupCallableImpl(logger, intEnvironmentVariables.getVariables(), detectJarPath, remoteJdkHome);
+    public MasterToSlaveCallable<DetectSetupResult, IntegrationException> getSetupCallable() {
+        return new SetupCallableImpl(logger, intEnvironmentVariables.getVariables(), detectJarPath, remoteJdkHome, knownRemoteJavaInfo);
     }
 
-    public static class SetupCallableImpl extends MasterToSlaveCallable<ArrayList<String>, IntegrationException> {
+    public static class SetupCallableImpl extends MasterToSlaveCallable<DetectSetupResult, IntegrationException> {
         private static final long serialVersionUID = -8326836838838706367L;
         private final JenkinsIntLogger logger;
         private final Map<String, String> environmentVariables;
         private final String detectJarPath;
         private final String remoteJdkHome;
+        private final RemoteJavaInfo knownRemoteJavaInfo;
 
         public SetupCallableImpl(JenkinsIntLogger logger, Map<String, String> environmentVariables, String detectJarPath, String remoteJdkHome) {
+            this(logger, environmentVariables, detectJarPath, remoteJdkHome, null);
+        }
+
+        public SetupCallableImpl(
+            JenkinsIntLogger logger,
+            Map<String, String> environmentVariables,
+            String detectJarPath,
+            String remoteJdkHome,
+            @Nullable RemoteJavaInfo knownRemoteJavaInfo
+        ) {
             this.logger = logger;
             this.environmentVariables = environmentVariables;
             this.detectJarPath = detectJarPath;
             this.remoteJdkHome = remoteJdkHome;
+            this.knownRemoteJavaInfo = knownRemoteJavaInfo;
         }
 
         @Override
-        public ArrayList<String> call() {
-            RemoteJavaService remoteJavaService = new RemoteJavaService(logger, remoteJdkHome, environmentVariables);
-            String javaExecutablePath = remoteJavaService.getJavaExecutablePath();
+        public DetectSetupResult call() {
+            RemoteJavaService remoteJavaService = new RemoteJavaService(logger, remoteJdkHome, environmentVariables, knownRemoteJavaInfo);
+            RemoteJavaInfo remoteJavaInfo = remoteJavaService.resolveJava();
 
             logger.info("Detect jar configured: " + detectJarPath);
 
-            return new ArrayList<>(Arrays.asList(javaExecutablePath, "-jar", detectJarPath));
+            ArrayList<String> initialArguments = new ArrayList<>(Arrays.asList(remoteJavaInfo.getExecutablePath(), "-jar", detectJarPath));
+            return new DetectSetupResult(OperatingSystemType.determineFromSystem(), initialArguments, remoteJavaInfo);
         }
     }
 
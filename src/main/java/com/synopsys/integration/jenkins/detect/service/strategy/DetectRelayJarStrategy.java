@@ -0,0 +1,70 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service.strategy;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+import com.synopsys.integration.exception.IntegrationException;
+import com.synopsys.integration.jenkins.detect.extensions.ControllerRelayDownloadStrategy;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+import com.synopsys.integration.util.IntEnvironmentVariables;
+import com.synopsys.integration.util.OperatingSystemType;
+
+import jenkins.security.MasterToSlaveCallable;
+
+public class DetectRelayJarStrategy extends DetectExecutionStrategy {
+    private final JenkinsIntLogger logger;
+    private final IntEnvironmentVariables intEnvironmentVariables;
+    private final String remoteJdkHome;
+    private final DetectArtifactRelayService detectArtifactRelayService;
+    private final ControllerRelayDownloadStrategy controllerRelayDownloadStrategy;
+    private final RemoteJavaInfo knownRemoteJavaInfo;
+
+    public DetectRelayJarStrategy(
+        JenkinsIntLogger logger,
+        IntEnvironmentVariables intEnvironmentVariables,
+        String remoteJdkHome,
+        DetectArtifactRelayService detectArtifactRelayService,
+        ControllerRelayDownloadStrategy controllerRelayDownloadStrategy
+    ) {
+        this(logger, intEnvironmentVariables, remoteJdkHome, detectArtifactRelayService, controllerRelayDownloadStrategy, null);
+    }
+
+    public DetectRelayJarStrategy(
+        JenkinsIntLogger logger,
+        IntEnvironmentVariables intEnvironmentVariables,
+        String remoteJdkHome,
+        DetectArtifactRelayService detectArtifactRelayService,
+        ControllerRelayDownloadStrategy controllerRelayDownloadStrategy,
+        @Nullable RemoteJavaInfo knownRemoteJavaInfo
+    ) {
+        this.logger = logger;
+        this.intEnvironmentVariables = intEnvironmentVariables;
+        this.remoteJdkHome = remoteJdkHome;
+        this.detectArtifactRelayService = detectArtifactRelayService;
+        this.controllerRelayDownloadStrategy = controllerRelayDownloadStrategy;
+        this.knownRemoteJavaInfo = knownRemoteJavaInfo;
+    }
+
+    @Override
+    public Function<String, String> getArgumentEscaper(OperatingSystemType remoteOperatingSystemType) {
+        return Function.identity();
+    }
+
+    @Override
+    public MasterToSlaveCallable<DetectSetupResult, IntegrationException> getSetupCallable() throws IntegrationException, IOException, InterruptedException {
+        // The relay runs on the controller; once the jar is on the agent it is launched exactly like a user-provided DETECT_JAR.
+        String relayedJarPath = detectArtifactRelayService.relayDetectJar(controllerRelayDownloadStrategy.getDetectJarUrl());
+
+        return new DetectJarStrategy.SetupCallableImpl(logger, intEnvironmentVariables.getVariables(), relayedJarPath, remoteJdkHome, knownRemoteJavaInfo);
+    }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service.strategy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.synopsys.integration.exception.IntegrationException;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+import com.synopsys.integration.rest.HttpUrl;
+import com.synopsys.integration.rest.client.IntHttpClient;
+import com.synopsys.integration.rest.request.Request;
+import com.synopsys.integration.rest.response.Response;
+
+/**
+ * Node-local cache for downloaded files (such as the Detect scripts). The validators returned by the server (ETag and Last-Modified) are stored in a metadata file next to
+ * the cached copy, so that once the freshness TTL has expired the file is revalidated with a conditional GET rather than downloaded again. If the server cannot be reached,
+ * the cached copy is served as-is.
+ * <p>
+ * Instances are created on the agent; the hit and miss counters are shared by every build running on the same agent JVM.
+ */
+public class DetectScriptCache {
+    public static final String METADATA_SUFFIX = ".metadata";
+    public static final long DEFAULT_FRESHNESS_SECONDS = TimeUnit.HOURS.toSeconds(1);
+
+    private static final String ETAG_HEADER = "ETag";
+    private static final String LAST_MODIFIED_HEADER = "Last-Modified";
+    private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+    private static final String IF_MODIFIED_SINCE_HEADER = "If-Modified-Since";
+
+    private static final String ETAG_PROPERTY = "etag";
+    private static final String LAST_MODIFIED_PROPERTY = "lastModified";
+    private static final String VALIDATED_AT_PROPERTY = "validatedAt";
+    private static final String URL_PROPERTY = "url";
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    private final JenkinsIntLogger logger;
+    private final Path cacheDirectory;
+    private final long freshnessMillis;
+
+    public DetectScriptCache(JenkinsIntLogger logger, Path cacheDirectory, long freshnessSeconds) {
+        this.logger = logger;
+        this.cacheDirectory = cacheDirectory;
+        this.freshnessMillis = TimeUnit.SECONDS.toMillis(Math.max(0, freshnessSeconds));
+    }
+
+    public static long getHitCount() {
+        return HITS.get();
+    }
+
+    public static long getMissCount() {
+        return MISSES.get();
+    }
+
+    public Path getOrDownload(IntHttpClient intHttpClient, String url, String fileName) throws IntegrationException, IOException {
+        Files.createDirectories(cacheDirectory);
+        Path cachedFile = cacheDirectory.resolve(fileName);
+        Path metadataFile = cacheDirectory.resolve(fileName + METADATA_SUFFIX);
+
+        Properties metadata = readMetadata(metadataFile);
+        boolean cached = isCached(cachedFile, metadata, url);
+        long now = System.currentTimeMillis();
+
+        if (cached && now - getValidatedAt(metadata) < freshnessMillis) {
+            HITS.incrementAndGet();
+            logger.info(String.format("Using cached copy of %s at %s", url, cachedFile));
+            return cachedFile;
+        }
+
+        Request.Builder requestBuilder = new Request.Builder().url(new HttpUrl(url));
+        if (cached) {
+            addConditionalHeader(requestBuilder, IF_NONE_MATCH_HEADER, metadata.getProperty(ETAG_PROPERTY));
+            addConditionalHeader(requestBuilder, IF_MODIFIED_SINCE_HEADER, metadata.getProperty(LAST_MODIFIED_PROPERTY));
+        }
+
+        try (Response response = intHttpClient.execute(requestBuilder.build())) {
+            if (cached && response.getStatusCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                metadata.setProperty(VALIDATED_AT_PROPERTY, String.valueOf(now));
+                writeMetadata(metadataFile, metadata);
+                HITS.incrementAndGet();
+                logger.info(String.format("Cached copy of %s at %s is up to date", url, cachedFile));
+                return cachedFile;
+            }
+
+            response.throwExceptionForError();
+
+            logger.info(String.format("Downloading %s to %s", url, cachedFile));
+            Path downloadedFile = Files.createTempFile(cacheDirectory, fileName, ".tmp");
+            try (InputStream content = response.getContent()) {
+                Files.copy(content, downloadedFile, StandardCopyOption.REPLACE_EXISTING);
+                // Builds running concurrently on this node may be reading the previous copy, so it is replaced rather than overwritten in place.
+                Files.move(downloadedFile, cachedFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(downloadedFile);
+            }
+
+            Properties updatedMetadata = new Properties();
+            updatedMetadata.setProperty(URL_PROPERTY, url);
+            updatedMetadata.setProperty(VALIDATED_AT_PROPERTY, String.valueOf(now));
+            setIfPresent(updatedMetadata, ETAG_PROPERTY, response.getHeaderValue(ETAG_HEADER));
+            setIfPresent(updatedMetadata, LAST_MODIFIED_PROPERTY, response.getHeaderValue(LAST_MODIFIED_HEADER));
+            writeMetadata(metadataFile, updatedMetadata);
+
+            MISSES.incrementAndGet();
+            return cachedFile;
+        } catch (IntegrationException | IOException e) {
+            if (!cached) {
+                throw e;
+            }
+            HITS.incrementAndGet();
+            logger.warn(String.format("Could not revalidate %s, using cached copy at %s: %s", url, cachedFile, e.getMessage()));
+            logger.trace("Stack trace:", e);
+            return cachedFile;
+        }
+    }
+
+    private boolean isCached(Path cachedFile, Properties metadata, String url) throws IOException {
+        return url.equals(metadata.getProperty(URL_PROPERTY)) && Files.isRegularFile(cachedFile) && Files.size(cachedFile) > 0;
+    }
+
+    private long getValidatedAt(Properties metadata) {
+        try {
+            return Long.parseLong(metadata.getProperty(VALIDATED_AT_PROPERTY, "0"));
+        } catch (NumberFormatException ignored) {
+            return 0;
+        }
+    }
+
+    private void addConditionalHeader(Request.Builder requestBuilder, String header, String value) {
+        if (StringUtils.isNotBlank(value)) {
+            requestBuilder.addHeader(header, value);
+        }
+    }
+
+    private void setIfPresent(Properties properties, String key, String value) {
+        if (StringUtils.isNotBlank(value)) {
+            properties.setProperty(key, value);
+        }
+    }
+
+    private Properties readMetadata(Path metadataFile) {
+        Properties metadata = new Properties();
+        if (Files.isRegularFile(metadataFile)) {
+            try (InputStream inputStream = Files.newInputStream(metadataFile)) {
+                metadata.load(inputStream);
+            } catch (IOException | IllegalArgumentException e) {
+                logger.debug(String.format("Ignoring unreadable cache metadata %s: %s", metadataFile, e.getMessage()));
+                metadata.clear();
+            }
+        }
+        return metadata;
+    }
+
+    private void writeMetadata(Path metadataFile, Properties metadata) throws IOException {
+        Path temporaryMetadataFile = Files.createTempFile(cacheDirectory, metadataFile.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream outputStream = Files.newOutputStream(temporaryMetadataFile)) {
+                metadata.store(outputStream, null);
+            }
+            Files.move(temporaryMetadataFile, metadataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryMetadataFile);
+        }
+    }
+
+}
@@ -7,10 +7,8 @@
  */
 package com.synopsys.integration.jenkins.detect.service.strategy;
 
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.function.Function;
@@ -21,14 +19,11 @@ import com.synopsys.integration.exception.IntegrationException;
 import com.synopsys.integration.jenkins.detect.exception.DetectJenkinsException;
 import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
 import com.synopsys.integration.jenkins.wrapper.JenkinsProxyHelper;
-import com.synopsys.integration.rest.HttpUrl;
 import com.synopsys.integration.rest.client.IntHttpClient;
 import com.synopsys.integration.rest.credentials.Credentials;
 import com.synopsys.integration.rest.credentials.CredentialsBuilder;
 import com.synopsys.integration.rest.proxy.ProxyInfo;
 import com.synopsys.integration.rest.proxy.ProxyInfoBuilder;
-import com.synopsys.integration.rest.request.Request;
-import com.synopsys.integration.rest.response.Response;
 import com.synopsys.integration.util.OperatingSystemType;
 
 import jenkins.security.MasterToSlaveCallable;
@@ -44,30 +39,43 @@ public class DetectScriptStrategy extends DetectExecutionStrategy {
     private final OperatingSystemType operatingSystemType;
     private final JenkinsProxyHelper jenkinsProxyHelper;
     private final String toolsDirectory;
+    private final long scriptCacheFreshnessSeconds;
 
     public DetectScriptStrategy(JenkinsIntLogger logger, JenkinsProxyHelper jenkinsProxyHelper, OperatingSystemType operatingSystemType, String toolsDirectory) {
+        this(logger, jenkinsProxyHelper, operatingSystemType, toolsDirectory, DetectScriptCache.DEFAULT_FRESHNESS_SECONDS);
+    }
+
+    public DetectScriptStrategy(
+        JenkinsIntLogger logger,
+        JenkinsProxyHelper jenkinsProxyHelper,
+        OperatingSystemType operatingSystemType,
+        String toolsDirectory,
+        long scriptCacheFreshnessSeconds
+    ) {
         this.logger = logger;
         this.jenkinsProxyHelper = jenkinsProxyHelper;
         this.operatingSystemType = operatingSystemType;
         this.toolsDirectory = toolsDirectory;
+        this.scriptCacheFreshnessSeconds = scriptCacheFreshnessSeconds;
     }
 
     @Override
-    public Function<String, String> getArgumentEscaper() {
-        if (operatingSystemType == OperatingSystemType.WINDOWS) {
+    public Function<String, String> getArgumentEscaper(OperatingSystemType remoteOperatingSystemType) {
+        if (remoteOperatingSystemType == OperatingSystemType.WINDOWS) {
             return IntegrationEscapeUtils::escapePowerShell;
         }
         return IntegrationEscapeUtils::escapeXSI;
     }
 
     @Override
-    public MasterToSlaveCallable<ArrayList<String>, IntegrationException> getSetupCallable() throws IntegrationException {
-        String scriptUrl;
-        String scriptFileName;
+    public MasterToSlaveCallable<DetectSetupResult, IntegrationException> getSetupCallable() throws IntegrationException {
+        // When the operating system of the node is not known yet, the callable picks the script once it is running on the node.
+        String scriptUrl = null;
+        String scriptFileName = null;
         if (operatingSystemType == OperatingSystemType.WINDOWS) {
             scriptUrl = SUPPORTED_POWERSHELL_SCRIPT_URL;
             scriptFileName = POWERSHELL_SCRIPT_FILENAME;
-        } else {
+        } else if (operatingSystemType != null) {
             scriptUrl = SUPPORTED_SHELL_SCRIPT_URL;
             scriptFileName = SHELL_SCRIPT_FILENAME;
         }
@@ -75,7 +83,7 @@ public class DetectScriptStrategy extends DetectExecutionStrategy {
         // ProxyInfo itself isn't serializable, so we unpack it into serializable pieces and rebuild it later when we download the script. -- rotte JUL 2020
         ProxyInfo proxyInfo;
         try {
-            proxyInfo = jenkinsProxyHelper.getProxyInfo(scriptUrl);
+            proxyInfo = jenkinsProxyHelper.getProxyInfo(null != scriptUrl ? scriptUrl : SUPPORTED_SHELL_SCRIPT_URL);
         } catch (IllegalArgumentException e) {
             logger.warn("Synopsys Detect for Jenkins could not resolve proxy info from Jenkins because: " + e.getMessage());
             logger.warn("Continuing without proxy...");
@@ -92,6 +100,7 @@ public class DetectScriptStrategy extends DetectExecutionStrategy {
         return new SetupCallableImpl(
             logger,
             toolsDirectory,
+            scriptCacheFreshnessSeconds,
             scriptUrl,
             scriptFileName,
             proxyHost,
@@ -103,10 +112,11 @@ public class DetectScriptStrategy extends DetectExecutionStrategy {
         );
     }
 
-    public static class SetupCallableImpl extends MasterToSlaveCallable<ArrayList<String>, IntegrationException> {
+    public static class SetupCallableImpl extends MasterToSlaveCallable<DetectSetupResult, IntegrationException> {
         private static final long serialVersionUID = -4954105356640324485L;
         private final JenkinsIntLogger logger;
         private final String toolsDirectory;
+        private final long scriptCacheFreshnessSeconds;
         private final String scriptUrl;
         private final String proxyHost;
         private final int proxyPort;
@@ -117,11 +127,12 @@ public class DetectScriptStrategy extends DetectExecutionStrategy {
         private final String scriptFileName;
 
         public SetupCallableImpl(
-            JenkinsIntLogger logger, String toolsDirectory, String scriptUrl, String scriptFileName, String proxyHost, int proxyPort, String proxyUsername, String proxyPassword,
-            String proxyNtlmDomain, String proxyNtlmWorkstation
+            JenkinsIntLogger logger, String toolsDirectory, long scriptCacheFreshnessSeconds, String scriptUrl, String scriptFileName, String proxyHost, int proxyPort,
+            String proxyUsername, String proxyPassword, String proxyNtlmDomain, String proxyNtlmWorkstation
         ) {
             this.logger = logger;
             this.toolsDirectory = toolsDirectory;
+            this.scriptCacheFreshnessSeconds = scriptCacheFreshnessSeconds;
             this.scriptUrl = scriptUrl;
             this.scriptFileName = scriptFileName;
             this.proxyHost = proxyHost;
@@ -133,33 +144,39 @@ public class DetectScriptStrategy extends DetectExecutionStrategy {
         }
 
         @Override
-        public ArrayList<String> call() throws IntegrationException {
+        public DetectSetupResult call() throws IntegrationException {
+            OperatingSystemType remoteOperatingSystemType = OperatingSystemType.determineFromSystem();
             String scriptRemotePath;
 
             try {
                 Path installationDirectory = Paths.get(toolsDirectory, DETECT_INSTALL_DIRECTORY);
-                Files.createDirectories(installationDirectory);
-                Path detectScriptPath = installationDirectory.resolve(scriptFileName);
-
-                logger.info(String.format("Downloading Detect script from %s to %s", scriptUrl, detectScriptPath));
+                DetectScriptCache detectScriptCache = new DetectScriptCache(logger, installationDirectory, scriptCacheFreshnessSeconds);
+
+                String resolvedScriptUrl = scriptUrl;
+                String resolvedScriptFileName = scriptFileName;
+                if (null == resolvedScriptUrl) {
+                    boolean isWindows = remoteOperatingSystemType == OperatingSystemType.WINDOWS;
+                    resolvedScriptUrl = isWindows ? SUPPORTED_POWERSHELL_SCRIPT_URL : SUPPORTED_SHELL_SCRIPT_URL;
+                    resolvedScriptFileName = isWindows ? POWERSHELL_SCRIPT_FILENAME : SHELL_SCRIPT_FILENAME;
+                }
 
                 IntHttpClient intHttpClient = new IntHttpClient(logger, new Gson(), 120, false, rebuildProxyInfo());
-                Request request = new Request.Builder().url(new HttpUrl(scriptUrl)).build();
-
-                try (Response response = intHttpClient.execute(request)) {
-                    response.throwExceptionForError();
-                    Files.copy(response.getContent(), detectScriptPath, StandardCopyOption.REPLACE_EXISTING);
-                }
+                Path detectScriptPath = detectScriptCache.getOrDownload(intHttpClient, resolvedScriptUrl, resolvedScriptFileName);
 
                 scriptRemotePath = detectScriptPath.toRealPath().toString();
             } catch (Exception e) {
                 throw new DetectJenkinsException("[ERROR] The Detect script was not downloaded successfully: " + e.getMessage(), e);
             }
 
-            if (OperatingSystemType.determineFromSystem() == OperatingSystemType.WINDOWS) {
-                return new ArrayList<>(Arrays.asList("powershell", String.format("\"Import-Module '%s'; detect\"", scriptRemotePath)));
+            logger.info(String.format("Detect script cache on this node: %d hit(s), %d miss(es)", DetectScriptCache.getHitCount(), DetectScriptCache.getMissCount()));
+
+            ArrayList<String> initialArguments;
+            if (remoteOperatingSystemType == OperatingSystemType.WINDOWS) {
+                initialArguments = new ArrayList<>(Arrays.asList("powershell", String.format("\"Import-Module '%s'; detect\"", scriptRemotePath)));
+            } else {
+                initialArguments = new ArrayList<>(Arrays.asList("bash", scriptRemotePath));
             }
-            return new ArrayList<>(Arrays.asList("bash", scriptRemotePath));
+            return new DetectSetupResult(remoteOperatingSystemType, initialArguments, null);
         }
 
         private ProxyInfo rebuildProxyInfo() {
@@ -0,0 +1,63 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service.strategy;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Optional;
+
+import javax.annotation.Nullable;
+
+import com.synopsys.integration.util.OperatingSystemType;
+
+/**
+ * Everything the controller needs from the agent before launching Detect, gathered by a single setup callable so that it costs one remoting round trip.
+ */
+public class DetectSetupResult implements Serializable {
+    private static final long serialVersionUID = -2474316582693380145L;
+
+    private final OperatingSystemType operatingSystemType;
+    private final ArrayList<String> initialArguments;
+    @Nullable
+    private final RemoteJavaInfo remoteJavaInfo;
+    @Nullable
+    private final AirGapJarResolution airGapJarResolution;
+
+    public DetectSetupResult(OperatingSystemType operatingSystemType, ArrayList<String> initialArguments, @Nullable RemoteJavaInfo remoteJavaInfo) {
+        this(operatingSystemType, initialArguments, remoteJavaInfo, null);
+    }
+
+    public DetectSetupResult(
+        OperatingSystemType operatingSystemType,
+        ArrayList<String> initialArguments,
+        @Nullable RemoteJavaInfo remoteJavaInfo,
+        @Nullable AirGapJarResolution airGapJarResolution
+    ) {
+        this.operatingSystemType = operatingSystemType;
+        this.initialArguments = initialArguments;
+        this.remoteJavaInfo = remoteJavaInfo;
+        this.airGapJarResolution = airGapJarResolution;
+    }
+
+    public OperatingSystemType getOperatingSystemType() {
+        return operatingSystemType;
+    }
+
+    public ArrayList<String> getInitialArguments() {
+        return initialArguments;
+    }
+
+    public Optional<RemoteJavaInfo> getRemoteJavaInfo() {
+        return Optional.ofNullable(remoteJavaInfo);
+    }
+
+    public Optional<AirGapJarResolution> getAirGapJarResolution() {
+        return Optional.ofNullable(airGapJarResolution);
+    }
+
+}
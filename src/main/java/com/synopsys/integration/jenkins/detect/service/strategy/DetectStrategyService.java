@@ -7,14 +7,19 @@
  */
 package com.synopsys.integration.jenkins.detect.service.strategy;
 
+import javax.annotation.Nullable;
+
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 
 import com.synopsys.integration.exception.IntegrationException;
 import com.synopsys.integration.jenkins.detect.DetectJenkinsEnvironmentVariable;
 import com.synopsys.integration.jenkins.detect.exception.DetectJenkinsException;
 import com.synopsys.integration.jenkins.detect.extensions.AirGapDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.extensions.ControllerRelayDownloadStrategy;
 import com.synopsys.integration.jenkins.detect.extensions.DetectDownloadStrategy;
 import com.synopsys.integration.jenkins.detect.extensions.InheritFromGlobalDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.extensions.ScriptOrJarDownloadStrategy;
 import com.synopsys.integration.jenkins.detect.extensions.global.DetectGlobalConfig;
 import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
 import com.synopsys.integration.jenkins.service.JenkinsConfigService;
@@ -24,33 +29,79 @@ import com.synopsys.integration.util.OperatingSystemType;
 
 public class DetectStrategyService {
     private final JenkinsIntLogger logger;
-    private final String remoteTempWorkspacePath;
+    private final String remoteToolsPath;
     private final JenkinsProxyHelper jenkinsProxyHelper;
     private final JenkinsConfigService jenkinsConfigService;
+    private final DetectArtifactRelayService detectArtifactRelayService;
+    private final NodeCapabilityCache nodeCapabilityCache;
+    @Nullable
+    private final DetectGlobalConfig.Snapshot globalConfigSnapshot;
+
+    public DetectStrategyService(JenkinsIntLogger logger, JenkinsProxyHelper jenkinsProxyHelper, String remoteToolsPath, JenkinsConfigService jenkinsConfigService) {
+        this(logger, jenkinsProxyHelper, remoteToolsPath, jenkinsConfigService, null, null);
+    }
+
+    public DetectStrategyService(
+        JenkinsIntLogger logger,
+        JenkinsProxyHelper jenkinsProxyHelper,
+        String remoteToolsPath,
+        JenkinsConfigService jenkinsConfigService,
+        @Nullable DetectArtifactRelayService detectArtifactRelayService
+    ) {
+        this(logger, jenkinsProxyHelper, remoteToolsPath, jenkinsConfigService, detectArtifactRelayService, null);
+    }
+
+    public DetectStrategyService(
+        JenkinsIntLogger logger,
+        JenkinsProxyHelper jenkinsProxyHelper,
+        String remoteToolsPath,
+        JenkinsConfigService jenkinsConfigService,
+        @Nullable DetectArtifactRelayService detectArtifactRelayService,
+        @Nullable NodeCapabilityCache nodeCapabilityCache
+    ) {
+        this(logger, jenkinsProxyHelper, remoteToolsPath, jenkinsConfigService, detectArtifactRelayService, nodeCapabilityCache, null);
+    }
 
-    public DetectStrategyService(JenkinsIntLogger logger, JenkinsProxyHelper jenkinsProxyHelper, String remoteTempWorkspacePath, JenkinsConfigService jenkinsConfigService) {
+    /**
+     * @param globalConfigSnapshot The global configuration of the build, so that the inherited download strategy matches its other settings. If null, the current
+     * global configuration is read.
+     */
+    public DetectStrategyService(
+        JenkinsIntLogger logger,
+        JenkinsProxyHelper jenkinsProxyHelper,
+        String remoteToolsPath,
+        JenkinsConfigService jenkinsConfigService,
+        @Nullable DetectArtifactRelayService detectArtifactRelayService,
+        @Nullable NodeCapabilityCache nodeCapabilityCache,
+        @Nullable DetectGlobalConfig.Snapshot globalConfigSnapshot
+    ) {
         this.logger = logger;
         this.jenkinsProxyHelper = jenkinsProxyHelper;
-        this.remoteTempWorkspacePath = remoteTempWorkspacePath;
+        this.remoteToolsPath = remoteToolsPath;
         this.jenkinsConfigService = jenkinsConfigService;
+        this.detectArtifactRelayService = detectArtifactRelayService;
+        this.nodeCapabilityCache = nodeCapabilityCache;
+        this.globalConfigSnapshot = globalConfigSnapshot;
     }
 
-    public DetectExecutionStrategy getExecutionStrategy(
-        IntEnvironmentVariables intEnvironmentVariables,
-        OperatingSystemType operatingSystemType,
-        String remoteJdkHome,
-        DetectDownloadStrategy detectDownloadStrategy
-    )
+    public DetectExecutionStrategy getExecutionStrategy(IntEnvironmentVariables intEnvironmentVariables, String remoteJdkHome, DetectDownloadStrategy detectDownloadStrategy)
         throws IntegrationException {
         String loggingMessage = "Running Detect using configured strategy: ";
 
         if (detectDownloadStrategy == null || detectDownloadStrategy instanceof InheritFromGlobalDownloadStrategy) {
-            DetectGlobalConfig detectGlobalConfig = jenkinsConfigService.getGlobalConfiguration(DetectGlobalConfig.class)
-                .orElseThrow(() -> new DetectJenkinsException("Could not find Detect configuration. Check Jenkins System Configuration to ensure Detect is configured correctly."));
-            detectDownloadStrategy = detectGlobalConfig.getDownloadStrategy();
+            DetectDownloadStrategy defaultDownloadStrategy;
+            if (globalConfigSnapshot != null) {
+                detectDownloadStrategy = globalConfigSnapshot.getDownloadStrategy();
+                defaultDownloadStrategy = new ScriptOrJarDownloadStrategy();
+            } else {
+                DetectGlobalConfig detectGlobalConfig = jenkinsConfigService.getGlobalConfiguration(DetectGlobalConfig.class)
+                    .orElseThrow(() -> new DetectJenkinsException("Could not find Detect configuration. Check Jenkins System Configuration to ensure Detect is configured correctly."));
+                detectDownloadStrategy = detectGlobalConfig.getDownloadStrategy();
+                defaultDownloadStrategy = detectGlobalConfig.getDefaultDownloadStrategy();
+            }
 
             if (detectDownloadStrategy == null) {
-                detectDownloadStrategy = detectGlobalConfig.getDefaultDownloadStrategy();
+                detectDownloadStrategy = defaultDownloadStrategy;
                 loggingMessage = "System configured strategy not found, running Detect using default configured system strategy: ";
             } else {
                 loggingMessage = "Running Detect using configured system strategy: ";
@@ -60,6 +111,14 @@ public class DetectStrategyService {
         logger.info(loggingMessage + detectDownloadStrategy.getDisplayName());
 
         String detectJarPath = intEnvironmentVariables.getValue(DetectJenkinsEnvironmentVariable.USER_PROVIDED_JAR_PATH.stringValue());
+        RemoteJavaInfo knownRemoteJavaInfo = null;
+        OperatingSystemType knownOperatingSystemType = null;
+        AirGapResolutionCache airGapResolutionCache = null;
+        if (nodeCapabilityCache != null) {
+            knownRemoteJavaInfo = nodeCapabilityCache.getRemoteJavaInfo(remoteJdkHome, intEnvironmentVariables.getVariables()).orElse(null);
+            knownOperatingSystemType = nodeCapabilityCache.getOperatingSystemType().orElse(null);
+            airGapResolutionCache = new AirGapResolutionCache(nodeCapabilityCache.getNodeName());
+        }
         DetectExecutionStrategy detectExecutionStrategy;
 
         if (detectDownloadStrategy instanceof AirGapDownloadStrategy) {
@@ -68,12 +127,31 @@ public class DetectStrategyService {
                 intEnvironmentVariables,
                 remoteJdkHome,
                 jenkinsConfigService,
-                (AirGapDownloadStrategy) detectDownloadStrategy
+                (AirGapDownloadStrategy) detectDownloadStrategy,
+                knownRemoteJavaInfo,
+                airGapResolutionCache
+            );
+        } else if (detectDownloadStrategy instanceof ControllerRelayDownloadStrategy) {
+            if (detectArtifactRelayService == null) {
+                throw new DetectJenkinsException("Detect cannot be relayed from the Jenkins controller because the controller is not available. Check Jenkins and environment.");
+            }
+            detectExecutionStrategy = new DetectRelayJarStrategy(
+                logger,
+                intEnvironmentVariables,
+                remoteJdkHome,
+                detectArtifactRelayService,
+                (ControllerRelayDownloadStrategy) detectDownloadStrategy,
+                knownRemoteJavaInfo
             );
         } else if (StringUtils.isNotBlank(detectJarPath)) {
-            detectExecutionStrategy = new DetectJarStrategy(logger, intEnvironmentVariables, remoteJdkHome, detectJarPath);
+            detectExecutionStrategy = new DetectJarStrategy(logger, intEnvironmentVariables, remoteJdkHome, detectJarPath, knownRemoteJavaInfo);
         } else {
-            detectExecutionStrategy = new DetectScriptStrategy(logger, jenkinsProxyHelper, operatingSystemType, remoteTempWorkspacePath);
+            long scriptCacheFreshnessSeconds = NumberUtils.toLong(
+                intEnvironmentVariables.getValue(DetectJenkinsEnvironmentVariable.SCRIPT_CACHE_TTL.stringValue()),
+                DetectScriptCache.DEFAULT_FRESHNESS_SECONDS
+            );
+            // When the node's operating system is not known yet, the script is chosen on the node itself, so no separate round trip is needed to find it out.
+            detectExecutionStrategy = new DetectScriptStrategy(logger, jenkinsProxyHelper, knownOperatingSystemType, remoteToolsPath, scriptCacheFreshnessSeconds);
         }
 
         return detectExecutionStrategy;
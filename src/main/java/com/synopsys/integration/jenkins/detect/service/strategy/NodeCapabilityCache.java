@@ -0,0 +1,106 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service.strategy;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+import com.synopsys.integration.util.OperatingSystemType;
+
+/**
+ * Remembers, on the Jenkins controller, what earlier builds learned about a node: its operating system and the Java that Detect runs with. Java information is only
+ * reused while the inputs it was resolved from (the node JDK, DETECT_JAVA_PATH, JAVA_HOME and PATH) are unchanged, and everything known about a node is dropped when it
+ * reconnects.
+ */
+public class NodeCapabilityCache {
+    private static final Map<String, NodeCapabilities> CAPABILITIES = new ConcurrentHashMap<>();
+
+    private final String nodeName;
+
+    public NodeCapabilityCache(String nodeName) {
+        this.nodeName = nodeName;
+    }
+
+    public static void invalidate(String nodeName) {
+        CAPABILITIES.remove(nodeName);
+    }
+
+    public static void invalidateAll() {
+        CAPABILITIES.clear();
+    }
+
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    public Optional<OperatingSystemType> getOperatingSystemType() {
+        return Optional.ofNullable(CAPABILITIES.get(nodeName))
+                   .map(nodeCapabilities -> nodeCapabilities.operatingSystemType);
+    }
+
+    public Optional<RemoteJavaInfo> getRemoteJavaInfo(@Nullable String remoteJdkHome, Map<String, String> environmentVariables) {
+        String javaKey = createJavaKey(remoteJdkHome, environmentVariables);
+        return Optional.ofNullable(CAPABILITIES.get(nodeName))
+                   .filter(nodeCapabilities -> javaKey.equals(nodeCapabilities.javaKey))
+                   .map(nodeCapabilities -> nodeCapabilities.remoteJavaInfo);
+    }
+
+    /**
+     * @return True if the Java that Detect runs with has been resolved on the node, whatever it was resolved from.
+     */
+    public boolean hasRemoteJavaInfo() {
+        return Optional.ofNullable(CAPABILITIES.get(nodeName))
+                   .map(nodeCapabilities -> null != nodeCapabilities.remoteJavaInfo)
+                   .orElse(false);
+    }
+
+    public void record(DetectSetupResult detectSetupResult, @Nullable String remoteJdkHome, Map<String, String> environmentVariables) {
+        String javaKey = createJavaKey(remoteJdkHome, environmentVariables);
+        CAPABILITIES.compute(nodeName, (name, previous) -> {
+            RemoteJavaInfo remoteJavaInfo = detectSetupResult.getRemoteJavaInfo().orElse(null);
+            if (null != remoteJavaInfo) {
+                return new NodeCapabilities(detectSetupResult.getOperatingSystemType(), javaKey, remoteJavaInfo);
+            }
+
+            // Script runs do not resolve Java, so whatever an earlier jar run learned is kept.
+            if (null != previous) {
+                return new NodeCapabilities(detectSetupResult.getOperatingSystemType(), previous.javaKey, previous.remoteJavaInfo);
+            }
+            return new NodeCapabilities(detectSetupResult.getOperatingSystemType(), null, null);
+        });
+    }
+
+    private String createJavaKey(@Nullable String remoteJdkHome, Map<String, String> environmentVariables) {
+        return String.join(
+            "|",
+            Objects.toString(remoteJdkHome, ""),
+            Objects.toString(environmentVariables.get(RemoteJavaService.DETECT_JAVA_PATH), ""),
+            Objects.toString(environmentVariables.get(RemoteJavaService.JAVA_HOME), ""),
+            Objects.toString(environmentVariables.get("PATH"), "")
+        );
+    }
+
+    private static class NodeCapabilities {
+        private final OperatingSystemType operatingSystemType;
+        @Nullable
+        private final String javaKey;
+        @Nullable
+        private final RemoteJavaInfo remoteJavaInfo;
+
+        private NodeCapabilities(OperatingSystemType operatingSystemType, @Nullable String javaKey, @Nullable RemoteJavaInfo remoteJavaInfo) {
+            this.operatingSystemType = operatingSystemType;
+            this.javaKey = javaKey;
+            this.remoteJavaInfo = remoteJavaInfo;
+        }
+    }
+
+}
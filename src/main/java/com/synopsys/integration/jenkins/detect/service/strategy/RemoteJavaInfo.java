@@ -0,0 +1,41 @@
+/*
+ * blackduck-detect
+ *
+ * Copyright (c) 2022 Synopsys, Inc.
+ *
+ * Use subject to the terms and conditions of the Synopsys End User Software License and Maintenance Agreement. All rights reserved worldwide.
+ */
+package com.synopsys.integration.jenkins.detect.service.strategy;
+
+import java.io.Serializable;
+import java.util.Optional;
+
+import javax.annotation.Nullable;
+
+public class RemoteJavaInfo implements Serializable {
+    private static final long serialVersionUID = 4705213977409935562L;
+
+    private final String executablePath;
+    private final String source;
+    @Nullable
+    private final String version;
+
+    public RemoteJavaInfo(String executablePath, String source, @Nullable String version) {
+        this.executablePath = executablePath;
+        this.source = source;
+        this.version = version;
+    }
+
+    public String getExecutablePath() {
+        return executablePath;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public Optional<String> getVersion() {
+        return Optional.ofNullable(version);
+    }
+
+}
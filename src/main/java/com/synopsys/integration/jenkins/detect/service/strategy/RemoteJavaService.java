@@ -10,10 +10,13 @@ package com.synopsys.integration.jenkins.detect.service.strategy;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.Objects;
 
+import javax.annotation.Nullable;
+
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.SystemUtils;
 
@@ -23,32 +26,55 @@ import com.synopsys.integration.log.LogLevel;
 public class RemoteJavaService {
     public static final String DETECT_JAVA_PATH = "DETECT_JAVA_PATH";
     public static final String JAVA_HOME = "JAVA_HOME";
+    public static final String NODE_ENVIRONMENT_SOURCE = "Node environment";
+    public static final String PATH_SOURCE = "PATH";
 
     private final JenkinsIntLogger logger;
     private final String remoteJdkHome;
     private final Map<String, String> environmentVariables;
+    private final RemoteJavaInfo knownRemoteJavaInfo;
 
     public RemoteJavaService(JenkinsIntLogger logger, String remoteJdkHome, Map<String, String> environmentVariables) {
+        this(logger, remoteJdkHome, environmentVariables, null);
+    }
+
+    /**
+     * @param knownRemoteJavaInfo Java information an earlier build already resolved on this node with the same inputs, or null to resolve it again.
+     */
+    public RemoteJavaService(JenkinsIntLogger logger, String remoteJdkHome, Map<String, String> environmentVariables, @Nullable RemoteJavaInfo knownRemoteJavaInfo) {
         this.logger = logger;
         this.remoteJdkHome = remoteJdkHome;
         this.environmentVariables = environmentVariables;
+        this.knownRemoteJavaInfo = knownRemoteJavaInfo;
     }
 
     public String getJavaExecutablePath() {
+        return resolveJava().getExecutablePath();
+    }
+
+    public RemoteJavaInfo resolveJava() {
+        if (null != knownRemoteJavaInfo && (knownRemoteJavaInfo.getVersion().isPresent() || !logger.getLogLevel().isLoggable(LogLevel.DEBUG))) {
+            logger.info("Running with JAVA: " + knownRemoteJavaInfo.getExecutablePath());
+            logger.debug("Path to Java executable was resolved by an earlier build on this node based on: " + knownRemoteJavaInfo.getSource());
+            knownRemoteJavaInfo.getVersion().ifPresent(version -> logger.debug("Java version: " + version));
+            return knownRemoteJavaInfo;
+        }
+
         String javaExecutableName = "java";
         if (SystemUtils.IS_OS_WINDOWS) {
             javaExecutableName = "java.exe";
         }
 
-        String javaExecutablePath = calculateJavaExecutablePath(javaExecutableName);
+        RemoteJavaInfo calculatedJava = calculateJavaExecutablePath(javaExecutableName);
+        String javaExecutablePath = calculatedJava.getExecutablePath();
         logger.info("Running with JAVA: " + javaExecutablePath);
 
-        logDebugData(javaExecutablePath);
+        String javaVersion = logDebugData(javaExecutablePath);
 
-        return javaExecutablePath;
+        return new RemoteJavaInfo(javaExecutablePath, calculatedJava.getSource(), javaVersion);
     }
 
-    private String calculateJavaExecutablePath(String javaExecutableName) {
+    private RemoteJavaInfo calculateJavaExecutablePath(String javaExecutableName) {
         String fullPathToJava = null;
         String javaPathSourceLogging = "";
 
@@ -56,7 +82,7 @@ public class RemoteJavaService {
         if (remoteJdkHome != null) {
             javaExecutablePath = new File(remoteJdkHome, "bin");
             javaExecutablePath = new File(javaExecutablePath, javaExecutableName);
-            javaPathSourceLogging = "Node environment";
+            javaPathSourceLogging = NODE_ENVIRONMENT_SOURCE;
         } else if (environmentVariables.containsKey(DETECT_JAVA_PATH)) {
             javaExecutablePath = new File(environmentVariables.get(DETECT_JAVA_PATH));
             javaPathSourceLogging = DETECT_JAVA_PATH + " environment variable";
@@ -73,35 +99,44 @@ public class RemoteJavaService {
             logger.warn("Could not set path to Java executable, falling back to PATH.");
         }
 
-        return (null != fullPathToJava) ? fullPathToJava : javaExecutableName;
+        if (null == fullPathToJava) {
+            return new RemoteJavaInfo(javaExecutableName, PATH_SOURCE, null);
+        }
+        return new RemoteJavaInfo(fullPathToJava, javaPathSourceLogging, null);
     }
 
-    private void logDebugData(String javaExecutablePath) {
-        if (logger.getLogLevel().isLoggable(LogLevel.DEBUG)) {
-            logger.debug("PATH: " + environmentVariables.get("PATH"));
-            try {
-                ProcessBuilder processBuilder = new ProcessBuilder(Arrays.asList(javaExecutablePath, "-version"));
-                processBuilder.environment().putAll(environmentVariables);
-                Process process = processBuilder.start();
-                process.waitFor();
-                logJavaVersion(process);
-            } catch (IOException e) {
-                logger.debug("Error starting process to get Java version: " + e.getMessage(), e);
-            } catch (InterruptedException e) {
-                logger.debug("Error running process to get Java version: " + e.getMessage(), e);
-                Thread.currentThread().interrupt();
-            }
+    private String logDebugData(String javaExecutablePath) {
+        if (!logger.getLogLevel().isLoggable(LogLevel.DEBUG)) {
+            return null;
+        }
+
+        logger.debug("PATH: " + environmentVariables.get("PATH"));
+        try {
+            ProcessBuilder processBuilder = new ProcessBuilder(Arrays.asList(javaExecutablePath, "-version"));
+            processBuilder.environment().putAll(environmentVariables);
+            processBuilder.redirectErrorStream(true);
+            Process process = processBuilder.start();
+            String javaVersionOutput = readJavaVersion(process);
+            process.waitFor();
+            return javaVersionOutput.trim().split("\\R", 2)[0];
+        } catch (IOException e) {
+            logger.debug("Error starting process to get Java version: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            logger.debug("Error running process to get Java version: " + e.getMessage(), e);
+            Thread.currentThread().interrupt();
         }
+        return null;
     }
 
-    private void logJavaVersion(Process process) {
-        try (InputStream errorStream = Objects.requireNonNull(process).getErrorStream();
-            InputStream inputSteam = Objects.requireNonNull(process).getInputStream()) {
+    private String readJavaVersion(Process process) {
+        try (InputStream inputSteam = Objects.requireNonNull(process).getInputStream()) {
+            String javaVersionOutput = IOUtils.toString(inputSteam, Charset.defaultCharset());
             logger.debug("Java version: ");
-            IOUtils.copy(errorStream, logger.getTaskListener().getLogger());
-            IOUtils.copy(inputSteam, logger.getTaskListener().getLogger());
+            logger.getTaskListener().getLogger().print(javaVersionOutput);
+            return javaVersionOutput;
         } catch (IOException e) {
             logger.debug("Error printing the JAVA version: " + e.getMessage(), e);
+            return "";
         }
     }
 }
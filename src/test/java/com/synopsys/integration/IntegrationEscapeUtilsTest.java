@@ -0,0 +1,69 @@
+package com.synopsys.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.text.StringEscapeUtils;
+import org.junit.jupiter.api.Test;
+
+public class IntegrationEscapeUtilsTest {
+    private static final String ALPHABET = "|&;<>()$`\\\"' \t\r\n*?[#~=%,abc-_/.:é😀";
+    private static final List<String> EDGE_CASES = Arrays.asList(
+        "",
+        "--detect.project.name=Test Project",
+        "\r",
+        "\n",
+        "\r\n",
+        "\r\r\n\n",
+        "line one\r\nline two\rline three\n",
+        "--detect.tools=DETECTOR,SIGNATURE_SCAN",
+        "$HOME `whoami` 'quoted' \"double\"",
+        "😀 emoji \ud83d",
+        "trailing\\"
+    );
+
+    @Test
+    public void testNullInput() {
+        assertNull(IntegrationEscapeUtils.escapePowerShell(null));
+        assertNull(IntegrationEscapeUtils.escapeXSI(null));
+    }
+
+    @Test
+    public void testUnchangedInputIsReturned() {
+        String argument = "/tmp/detect/detect8.sh";
+
+        assertSame(argument, IntegrationEscapeUtils.escapePowerShell(argument));
+        assertSame(argument, IntegrationEscapeUtils.escapeXSI(argument));
+    }
+
+    @Test
+    public void testEdgeCasesMatchTranslators() {
+        for (String input : EDGE_CASES) {
+            assertMatchesTranslators(input);
+        }
+    }
+
+    @Test
+    public void testRandomInputsMatchTranslators() {
+        Random random = new Random(20221016L);
+        for (int i = 0; i < 10000; i++) {
+            StringBuilder input = new StringBuilder();
+            int length = random.nextInt(24);
+            for (int j = 0; j < length; j++) {
+                input.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            assertMatchesTranslators(input.toString());
+        }
+    }
+
+    private void assertMatchesTranslators(String input) {
+        assertEquals(IntegrationEscapeUtils.ESCAPE_POWERSHELL.translate(input), IntegrationEscapeUtils.escapePowerShell(input), "PowerShell escaping differs for: " + input);
+        assertEquals(StringEscapeUtils.ESCAPE_XSI.translate(input), IntegrationEscapeUtils.escapeXSI(input), "XSI escaping differs for: " + input);
+    }
+
+}
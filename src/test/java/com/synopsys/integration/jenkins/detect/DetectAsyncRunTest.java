@@ -0,0 +1,201 @@
+package com.synopsys.integration.jenkins.detect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.mockito.Mockito;
+
+import com.synopsys.integration.jenkins.detect.extensions.ScriptOrJarDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.service.DetectManifestCheck;
+import com.synopsys.integration.jenkins.detect.service.DetectScanCoalescer;
+import com.synopsys.integration.jenkins.detect.service.DetectScanLedger;
+import com.synopsys.integration.jenkins.detect.service.process.AttachedDetectProcess;
+import com.synopsys.integration.jenkins.detect.service.process.DetectProcess;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+import com.synopsys.integration.util.IntEnvironmentVariables;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.util.StreamTaskListener;
+
+@DisabledOnOs(OS.WINDOWS)
+public class DetectAsyncRunTest {
+    private static final ScriptOrJarDownloadStrategy DOWNLOAD_STRATEGY = new ScriptOrJarDownloadStrategy();
+    private static final String PROJECT_VERSION_PROPERTIES = "--detect.project.name=Test --detect.project.version.name=1.0";
+
+    private final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    private final StreamTaskListener listener = new StreamTaskListener(byteArrayOutputStream);
+    private final DetectRunner detectRunner = Mockito.mock(DetectRunner.class);
+    private Path workspace;
+    private DetectAsyncRun detectAsyncRun;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        workspace = Files.createTempDirectory("testDetectAsyncRun");
+        Mockito.when(detectRunner.acquireRunPermitAsync(Mockito.any())).thenReturn(CompletableFuture.completedFuture(null));
+        Mockito.when(detectRunner.checkManifests(Mockito.anyString())).thenReturn(DetectManifestCheck.Result.NOT_CHECKED);
+        Mockito.when(detectRunner.claimScan(Mockito.anyString())).thenReturn(DetectScanLedger.Claim.NOT_TRACKED);
+        Mockito.when(detectRunner.registerForCoalescing(Mockito.anyString(), Mockito.any())).thenReturn(DetectScanCoalescer.Registration.NOT_REGISTERED);
+        Launcher launcher = new Launcher.LocalLauncher(listener);
+        FilePath workspacePath = new FilePath(workspace.toFile());
+        detectAsyncRun = new DetectAsyncRun(
+            detectRunner,
+            detectCommandLine -> AttachedDetectProcess.launch(launcher, workspacePath, listener, detectCommandLine),
+            JenkinsIntLogger.logToListener(listener)
+        );
+    }
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        FileUtils.deleteDirectory(workspace.toFile());
+    }
+
+    @Test
+    public void testExitCodeIsReported() throws Exception {
+        mockDetectCommand("echo Detect is running; exit 3");
+
+        CompletableFuture<Integer> exitCode = detectAsyncRun.start(null, "--detect.project.name=Test", DOWNLOAD_STRATEGY);
+
+        assertEquals(3, exitCode.get(30, TimeUnit.SECONDS));
+        assertTrue(byteArrayOutputStream.toString().contains("Detect is running"), "Detect output was not written to the build.");
+        Mockito.verify(detectRunner).logStart();
+        Mockito.verify(detectRunner).logEnd();
+    }
+
+    @Test
+    public void testStopKillsDetect() throws Exception {
+        Path marker = workspace.resolve("finished");
+        mockDetectCommand("sleep 30; touch " + marker);
+
+        CompletableFuture<Integer> exitCode = detectAsyncRun.start(null, "--detect.project.name=Test", DOWNLOAD_STRATEGY);
+        Mockito.verify(detectRunner, Mockito.timeout(10000)).logStart();
+        detectAsyncRun.stop();
+
+        assertThrows(CancellationException.class, () -> exitCode.get(30, TimeUnit.SECONDS));
+        Thread.sleep(500);
+        assertTrue(Files.notExists(marker), "Detect kept running after the step was stopped.");
+    }
+
+    @Test
+    public void testStopDoesNotWaitForALaunch() throws Exception {
+        CountDownLatch launching = new CountDownLatch(1);
+        CountDownLatch launchMayFinish = new CountDownLatch(1);
+        DetectProcess slowlyLaunchedProcess = Mockito.mock(DetectProcess.class);
+        mockDetectCommand("exit 0");
+        DetectAsyncRun slowlyLaunchedRun = new DetectAsyncRun(detectRunner, detectCommandLine -> {
+            launching.countDown();
+            launchMayFinish.await();
+            return slowlyLaunchedProcess;
+        }, JenkinsIntLogger.logToListener(listener));
+
+        CompletableFuture<Integer> exitCode = slowlyLaunchedRun.start(null, "--detect.project.name=Test", DOWNLOAD_STRATEGY);
+        assertTrue(launching.await(10, TimeUnit.SECONDS), "Detect was not launched.");
+        CompletableFuture<Void> stop = CompletableFuture.runAsync(slowlyLaunchedRun::stop);
+
+        assertThrows(CancellationException.class, () -> exitCode.get(10, TimeUnit.SECONDS));
+        stop.get(10, TimeUnit.SECONDS);
+        launchMayFinish.countDown();
+        Mockito.verify(slowlyLaunchedProcess, Mockito.timeout(10000)).kill();
+    }
+
+    @Test
+    public void testPollFailureIsReported() throws Exception {
+        DetectProcess failingProcess = Mockito.mock(DetectProcess.class);
+        Mockito.when(failingProcess.checkExitCode()).thenThrow(new IllegalStateException("The channel is closed"));
+        mockDetectCommand("exit 0");
+        DetectAsyncRun failingRun = new DetectAsyncRun(detectRunner, detectCommandLine -> failingProcess, JenkinsIntLogger.logToListener(listener));
+
+        CompletableFuture<Integer> exitCode = failingRun.start(null, "--detect.project.name=Test", DOWNLOAD_STRATEGY);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> exitCode.get(30, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testSetupFailureIsReported() throws Exception {
+        Mockito.when(detectRunner.prepareDetect(Mockito.any(), Mockito.anyString(), Mockito.any())).thenThrow(new IOException("Could not reach the node"));
+
+        CompletableFuture<Integer> exitCode = detectAsyncRun.start(null, "--detect.project.name=Test", DOWNLOAD_STRATEGY);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> exitCode.get(30, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof IOException);
+        Mockito.verify(detectRunner, Mockito.never()).logStart();
+    }
+
+    @Test
+    public void testIdenticalScanWaitsForTheFirst() throws Exception {
+        Map<String, String> environmentVariables = new HashMap<>();
+        environmentVariables.put(DetectJenkinsEnvironmentVariable.DEDUPLICATE_SCANS.stringValue(), "true");
+        environmentVariables.put("GIT_COMMIT", "0123abcd");
+        DetectScanLedger detectScanLedger = new DetectScanLedger(JenkinsIntLogger.logToListener(listener), environmentVariables);
+        Mockito.when(detectRunner.claimScan(Mockito.anyString())).thenAnswer(invocation -> detectScanLedger.claim(invocation.getArgument(0)));
+        mockDetectCommand("sleep 1; exit 0");
+        DetectAsyncRun identicalRun = new DetectAsyncRun(detectRunner, detectCommandLine -> {
+            throw new IOException("The identical scan should not be launched");
+        }, JenkinsIntLogger.logToListener(listener));
+
+        try {
+            CompletableFuture<Integer> exitCode = detectAsyncRun.start(null, PROJECT_VERSION_PROPERTIES, DOWNLOAD_STRATEGY);
+            Mockito.verify(detectRunner, Mockito.timeout(10000)).logStart();
+            CompletableFuture<Integer> identicalExitCode = identicalRun.start(null, PROJECT_VERSION_PROPERTIES, DOWNLOAD_STRATEGY);
+
+            assertEquals(0, exitCode.get(30, TimeUnit.SECONDS));
+            assertEquals(0, identicalExitCode.get(30, TimeUnit.SECONDS));
+            Mockito.verify(detectRunner, Mockito.times(1)).prepareDetect(Mockito.any(), Mockito.anyString(), Mockito.any());
+        } finally {
+            DetectScanLedger.invalidateAll();
+        }
+    }
+
+    @Test
+    public void testSupersededQueuedScanIsSkipped() throws Exception {
+        Map<String, String> environmentVariables = new HashMap<>();
+        environmentVariables.put(DetectJenkinsEnvironmentVariable.COALESCE_SCANS.stringValue(), "true");
+        environmentVariables.put("JOB_NAME", "project/main");
+        environmentVariables.put("BUILD_NUMBER", "1");
+        DetectScanCoalescer olderBuild = new DetectScanCoalescer(JenkinsIntLogger.logToListener(listener), new HashMap<>(environmentVariables));
+        environmentVariables.put("BUILD_NUMBER", "2");
+        DetectScanCoalescer newerBuild = new DetectScanCoalescer(JenkinsIntLogger.logToListener(listener), environmentVariables);
+        Mockito.when(detectRunner.registerForCoalescing(Mockito.anyString(), Mockito.any())).thenAnswer(invocation -> olderBuild.register(invocation.getArgument(0), invocation.getArgument(1)));
+        Mockito.when(detectRunner.acquireRunPermitAsync(Mockito.any())).thenReturn(new CompletableFuture<>());
+        mockDetectCommand("exit 0");
+
+        try {
+            CompletableFuture<Integer> exitCode = detectAsyncRun.start(null, PROJECT_VERSION_PROPERTIES, DOWNLOAD_STRATEGY);
+            Mockito.verify(detectRunner, Mockito.timeout(10000)).acquireRunPermitAsync(Mockito.any());
+            newerBuild.register(PROJECT_VERSION_PROPERTIES, () -> {});
+
+            assertEquals(0, exitCode.get(30, TimeUnit.SECONDS));
+            assertTrue(byteArrayOutputStream.toString().contains("coalesced into the scan of build #2"), "The coalesced scan was not recorded in the log.");
+            Mockito.verify(detectRunner, Mockito.never()).logStart();
+        } finally {
+            DetectScanCoalescer.invalidateAll();
+        }
+    }
+
+    private void mockDetectCommand(String script) throws Exception {
+        DetectCommandLine detectCommandLine = new DetectCommandLine(IntEnvironmentVariables.empty(), Arrays.asList("sh", "-c", script));
+        Mockito.when(detectRunner.prepareDetect(Mockito.any(), Mockito.anyString(), Mockito.any())).thenReturn(detectCommandLine);
+    }
+
+}
@@ -0,0 +1,195 @@
+package com.synopsys.integration.jenkins.detect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import com.synopsys.integration.jenkins.detect.extensions.ScriptOrJarDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.service.DetectManifestCheck;
+import com.synopsys.integration.jenkins.detect.service.DetectScanCoalescer;
+import com.synopsys.integration.jenkins.detect.service.DetectScanLedger;
+import com.synopsys.integration.jenkins.detect.service.process.AttachedDetectProcess;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+import com.synopsys.integration.util.IntEnvironmentVariables;
+
+import hudson.AbortException;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.Node;
+import hudson.util.StreamTaskListener;
+
+@DisabledOnOs(OS.WINDOWS)
+public class DetectBulkRunTest {
+    private static final ScriptOrJarDownloadStrategy DOWNLOAD_STRATEGY = new ScriptOrJarDownloadStrategy();
+    private static final String SLOW_NODE_NAME = "slow-agent";
+    private static final String FAST_NODE_NAME = "fast-agent";
+
+    private final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    private final StreamTaskListener listener = new StreamTaskListener(byteArrayOutputStream);
+    private final DetectRunner slowDetectRunner = Mockito.mock(DetectRunner.class);
+    private final DetectRunner fastDetectRunner = Mockito.mock(DetectRunner.class);
+    private final Node slowNode = Mockito.mock(Node.class);
+    private final Node fastNode = Mockito.mock(Node.class);
+    private Path slowNodeRoot;
+    private Path fastNodeRoot;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        slowNodeRoot = Files.createTempDirectory("testDetectBulkRunSlow");
+        fastNodeRoot = Files.createTempDirectory("testDetectBulkRunFast");
+        Mockito.when(slowNode.getNodeName()).thenReturn(SLOW_NODE_NAME);
+        Mockito.when(slowNode.getRootPath()).thenReturn(new FilePath(slowNodeRoot.toFile()));
+        Mockito.when(fastNode.getNodeName()).thenReturn(FAST_NODE_NAME);
+        Mockito.when(fastNode.getRootPath()).thenReturn(new FilePath(fastNodeRoot.toFile()));
+        mockDetectRunner(slowDetectRunner, "sleep 2; exit 0");
+        mockDetectRunner(fastDetectRunner, "ls; exit 0");
+    }
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        FileUtils.deleteDirectory(slowNodeRoot.toFile());
+        FileUtils.deleteDirectory(fastNodeRoot.toFile());
+    }
+
+    @Test
+    public void testIdleNodesTakeOverRepositories() throws Exception {
+        DetectBulkRun detectBulkRun = createBulkRun(Arrays.asList(slowNode, fastNode));
+        List<DetectBulkTarget> targets = createTargets("a", "b", "c", "d");
+
+        List<DetectBulkResult> bulkResults = detectBulkRun.start(targets, "", DOWNLOAD_STRATEGY).get(30, TimeUnit.SECONDS);
+
+        assertEquals(4, bulkResults.size());
+        assertEquals(Arrays.asList(0, 0, 0, 0), bulkResults.stream().map(DetectBulkResult::getExitCode).collect(Collectors.toList()));
+        assertEquals(SLOW_NODE_NAME, bulkResults.get(0).getNodeName());
+        assertEquals(FAST_NODE_NAME, bulkResults.get(1).getNodeName());
+        assertEquals(FAST_NODE_NAME, bulkResults.get(2).getNodeName(), "The idle node did not take over the last repository of the busy node.");
+        assertEquals(FAST_NODE_NAME, bulkResults.get(3).getNodeName());
+        String output = byteArrayOutputStream.toString();
+        assertTrue(output.contains("Scanning https://github.com/example/c.git on " + FAST_NODE_NAME), "The idle node did not scan the repository it took over.");
+        assertTrue(output.contains("1 were taken over"), "The summary was not logged.");
+        assertEquals(0, slowNodeRoot.resolve(DetectBulkRun.BULK_DIRECTORY).toFile().listFiles()[0].list().length, "The checkouts were not deleted.");
+    }
+
+    @Test
+    public void testFailedCheckoutDoesNotStopTheOthers() throws Exception {
+        DetectBulkRun detectBulkRun = createBulkRun(Collections.singletonList(fastNode));
+        List<DetectBulkTarget> targets = createTargets("a", "broken", "c");
+
+        List<DetectBulkResult> bulkResults = detectBulkRun.start(targets, "", DOWNLOAD_STRATEGY).get(30, TimeUnit.SECONDS);
+
+        assertEquals(0, bulkResults.get(0).getExitCode());
+        assertEquals(DetectBulkResult.NOT_SCANNED_EXIT_CODE, bulkResults.get(1).getExitCode());
+        assertTrue(bulkResults.get(1).getError().contains("Repository not found"));
+        assertEquals(0, bulkResults.get(2).getExitCode());
+        assertNull(bulkResults.get(2).getError());
+    }
+
+    @Test
+    public void testUnexpectedCheckoutFailureDoesNotStopTheOthers() throws Exception {
+        DetectBulkRun detectBulkRun = createBulkRun(Collections.singletonList(fastNode));
+        List<DetectBulkTarget> targets = createTargets("crashing", "b");
+
+        List<DetectBulkResult> bulkResults = detectBulkRun.start(targets, "", DOWNLOAD_STRATEGY).get(30, TimeUnit.SECONDS);
+
+        assertEquals(DetectBulkResult.NOT_SCANNED_EXIT_CODE, bulkResults.get(0).getExitCode());
+        assertTrue(bulkResults.get(0).getError().contains("Checkout crashed"));
+        assertEquals(0, bulkResults.get(1).getExitCode());
+    }
+
+    @Test
+    public void testProjectIsNamedAfterTheRepository() throws Exception {
+        DetectBulkRun detectBulkRun = createBulkRun(Collections.singletonList(fastNode));
+        List<DetectBulkTarget> targets = Collections.singletonList(DetectBulkTarget.parse("git@github.com:example/app.git#release/2.0"));
+
+        detectBulkRun.start(targets, "--detect.tools=DETECTOR", DOWNLOAD_STRATEGY).get(30, TimeUnit.SECONDS);
+
+        ArgumentCaptor<String> detectArguments = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(fastDetectRunner).prepareDetect(Mockito.any(), detectArguments.capture(), Mockito.any());
+        assertEquals("--detect.tools=DETECTOR --detect.project.name=app --detect.project.version.name=release/2.0", detectArguments.getValue());
+    }
+
+    @Test
+    public void testTargetsAreParsed() {
+        DetectBulkTarget target = DetectBulkTarget.parse(" https://github.com/example/lib/ ");
+        assertEquals("https://github.com/example/lib/", target.getRepository());
+        assertNull(target.getRef());
+        assertEquals("lib", target.getName());
+
+        target = DetectBulkTarget.parse("git@github.com:example/app.git#main");
+        assertEquals("git@github.com:example/app.git", target.getRepository());
+        assertEquals("main", target.getRef());
+        assertEquals("app", target.getName());
+    }
+
+    @Test
+    public void testNoNodesIsReported() {
+        DetectBulkRun detectBulkRun = createBulkRun(Collections.emptyList());
+
+        CompletableFuture<List<DetectBulkResult>> bulkResults = detectBulkRun.start(createTargets("a"), "", DOWNLOAD_STRATEGY);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> bulkResults.get(30, TimeUnit.SECONDS));
+        assertTrue(exception.getMessage().contains("no online nodes"));
+    }
+
+    private void mockDetectRunner(DetectRunner detectRunner, String script) throws Exception {
+        Mockito.when(detectRunner.acquireRunPermitAsync(Mockito.any())).thenReturn(CompletableFuture.completedFuture(null));
+        Mockito.when(detectRunner.checkManifests(Mockito.anyString())).thenReturn(DetectManifestCheck.Result.NOT_CHECKED);
+        Mockito.when(detectRunner.claimScan(Mockito.anyString())).thenReturn(DetectScanLedger.Claim.NOT_TRACKED);
+        Mockito.when(detectRunner.registerForCoalescing(Mockito.anyString(), Mockito.any())).thenReturn(DetectScanCoalescer.Registration.NOT_REGISTERED);
+        DetectCommandLine detectCommandLine = new DetectCommandLine(IntEnvironmentVariables.empty(), Arrays.asList("sh", "-c", script));
+        Mockito.when(detectRunner.prepareDetect(Mockito.any(), Mockito.anyString(), Mockito.any())).thenReturn(detectCommandLine);
+    }
+
+    private List<DetectBulkTarget> createTargets(String... names) {
+        return Arrays.stream(names)
+                   .map(name -> DetectBulkTarget.parse("https://github.com/example/" + name + ".git"))
+                   .collect(Collectors.toList());
+    }
+
+    private DetectBulkRun createBulkRun(List<Node> scanNodes) {
+        Launcher launcher = new Launcher.LocalLauncher(listener);
+        JenkinsIntLogger logger = JenkinsIntLogger.logToListener(listener);
+        return new DetectBulkRun(
+            scanNodes,
+            (node, target, directory) -> {
+                if ("broken".equals(target.getName())) {
+                    throw new AbortException("Repository not found.");
+                }
+                if ("crashing".equals(target.getName())) {
+                    throw new IllegalStateException("Checkout crashed.");
+                }
+                directory.child("pom.xml").write("<project/>", "UTF-8");
+            },
+            (node, checkout, target) -> new DetectAsyncRun(
+                node == slowNode ? slowDetectRunner : fastDetectRunner,
+                detectCommandLine -> AttachedDetectProcess.launch(launcher, checkout, listener, detectCommandLine),
+                logger
+            ),
+            logger,
+            1
+        );
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.synopsys.integration.jenkins.detect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.mockito.Mockito;
+
+import com.synopsys.integration.jenkins.detect.extensions.ScriptOrJarDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.service.DetectManifestCheck;
+import com.synopsys.integration.jenkins.detect.service.DetectScanCoalescer;
+import com.synopsys.integration.jenkins.detect.service.DetectScanLedger;
+import com.synopsys.integration.jenkins.detect.service.process.AttachedDetectProcess;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+import com.synopsys.integration.util.IntEnvironmentVariables;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.Node;
+import hudson.util.StreamTaskListener;
+
+@DisabledOnOs(OS.WINDOWS)
+public class DetectOffloadedRunTest {
+    private static final ScriptOrJarDownloadStrategy DOWNLOAD_STRATEGY = new ScriptOrJarDownloadStrategy();
+    private static final String DETECT_PROPERTIES = "--detect.project.name=Test --detect.project.version.name=1.0";
+
+    private final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    private final StreamTaskListener listener = new StreamTaskListener(byteArrayOutputStream);
+    private final DetectRunner detectRunner = Mockito.mock(DetectRunner.class);
+    private final Node scanNode = Mockito.mock(Node.class);
+    private Path workspace;
+    private Path scanNodeRoot;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        workspace = Files.createTempDirectory("testDetectOffloadedRun");
+        scanNodeRoot = Files.createTempDirectory("testDetectOffloadedRunNode");
+        FileUtils.touch(workspace.resolve("pom.xml").toFile());
+        FileUtils.touch(workspace.resolve("frontend/package-lock.json").toFile());
+        FileUtils.touch(workspace.resolve("frontend/node_modules/left-pad/package.json").toFile());
+        FileUtils.touch(workspace.resolve("src/main/java/Main.java").toFile());
+        FileUtils.touch(workspace.resolve("lib/vendored.jar").toFile());
+
+        Mockito.when(scanNode.getNodeName()).thenReturn("scan-agent");
+        Mockito.when(scanNode.getRootPath()).thenReturn(new FilePath(scanNodeRoot.toFile()));
+        Mockito.when(detectRunner.acquireRunPermitAsync(Mockito.any())).thenReturn(CompletableFuture.completedFuture(null));
+        Mockito.when(detectRunner.checkManifests(Mockito.anyString())).thenReturn(DetectManifestCheck.Result.NOT_CHECKED);
+        Mockito.when(detectRunner.claimScan(Mockito.anyString())).thenReturn(DetectScanLedger.Claim.NOT_TRACKED);
+        Mockito.when(detectRunner.registerForCoalescing(Mockito.anyString(), Mockito.any())).thenReturn(DetectScanCoalescer.Registration.NOT_REGISTERED);
+        DetectCommandLine detectCommandLine = new DetectCommandLine(IntEnvironmentVariables.empty(), Arrays.asList("sh", "-c", "find . -type f | sort; exit 0"));
+        Mockito.when(detectRunner.prepareDetect(Mockito.any(), Mockito.anyString(), Mockito.any())).thenReturn(detectCommandLine);
+    }
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        FileUtils.deleteDirectory(workspace.toFile());
+        FileUtils.deleteDirectory(scanNodeRoot.toFile());
+    }
+
+    @Test
+    public void testOnlyManifestsAreScannedOnTheScanningNode() throws Exception {
+        DetectOffloadedRun detectOffloadedRun = createOffloadedRun(Collections.singletonList(scanNode), false);
+
+        assertEquals(0, detectOffloadedRun.start(DETECT_PROPERTIES, DOWNLOAD_STRATEGY).get(30, TimeUnit.SECONDS));
+
+        assertTrue(detectOffloadedRun.getSnapshotTaken().isDone());
+        String output = byteArrayOutputStream.toString();
+        assertTrue(output.contains("./pom.xml"), "The manifest was not copied.");
+        assertTrue(output.contains("./frontend/package-lock.json"), "The lockfile was not copied.");
+        assertFalse(output.contains("Main.java"), "Source files should not be copied.");
+        assertFalse(output.contains("node_modules"), "Installed dependencies should not be copied.");
+        assertFalse(output.contains("vendored.jar"), "Binaries should only be copied when asked for.");
+        assertEquals(0, scanNodeRoot.resolve(DetectOffloadedRun.SNAPSHOTS_DIRECTORY).toFile().list().length, "The snapshot was not deleted.");
+    }
+
+    @Test
+    public void testBinariesAreCopiedWhenAskedFor() throws Exception {
+        DetectOffloadedRun detectOffloadedRun = createOffloadedRun(Collections.singletonList(scanNode), true);
+
+        detectOffloadedRun.start(DETECT_PROPERTIES, DOWNLOAD_STRATEGY).get(30, TimeUnit.SECONDS);
+
+        assertTrue(byteArrayOutputStream.toString().contains("./lib/vendored.jar"));
+    }
+
+    @Test
+    public void testNoNodesIsReported() {
+        DetectOffloadedRun detectOffloadedRun = createOffloadedRun(Collections.emptyList(), false);
+
+        CompletableFuture<Integer> exitCode = detectOffloadedRun.start(DETECT_PROPERTIES, DOWNLOAD_STRATEGY);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> exitCode.get(30, TimeUnit.SECONDS));
+        assertTrue(exception.getMessage().contains("no online nodes"));
+        assertTrue(detectOffloadedRun.getSnapshotTaken().isCompletedExceptionally());
+    }
+
+    private DetectOffloadedRun createOffloadedRun(List<Node> scanNodes, boolean includeBinaries) {
+        Launcher launcher = new Launcher.LocalLauncher(listener);
+        JenkinsIntLogger logger = JenkinsIntLogger.logToListener(listener);
+        return new DetectOffloadedRun(
+            new FilePath(workspace.toFile()),
+            scanNodes,
+            (node, snapshot) -> new DetectAsyncRun(detectRunner, detectCommandLine -> AttachedDetectProcess.launch(launcher, snapshot, listener, detectCommandLine), logger),
+            logger,
+            includeBinaries
+        );
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.synopsys.integration.jenkins.detect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.synopsys.integration.jenkins.detect.exception.DetectJenkinsException;
+import com.synopsys.integration.jenkins.detect.extensions.ScriptOrJarDownloadStrategy;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+
+public class DetectParallelPipelineCommandsTest {
+    private static final ScriptOrJarDownloadStrategy DOWNLOAD_STRATEGY = new ScriptOrJarDownloadStrategy();
+    private final JenkinsIntLogger mockedLogger = Mockito.mock(JenkinsIntLogger.class);
+
+    @Test
+    public void testStartDetectFailsIfAnyInvocationFailed() throws Exception {
+        DetectParallelRun mockedDetectParallelRun = mockParallelRun(new DetectInvocationResult(1, 0, 100), new DetectInvocationResult(2, 2, 200));
+
+        DetectParallelPipelineCommands detectCommands = new DetectParallelPipelineCommands(mockedDetectParallelRun, mockedLogger);
+        CompletableFuture<List<DetectInvocationResult>> invocationResults = detectCommands.startDetect(false, Arrays.asList("--one", "--two"), DOWNLOAD_STRATEGY);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, invocationResults::get);
+        assertTrue(exception.getCause() instanceof DetectJenkinsException);
+        assertTrue(exception.getCause().getMessage().contains("invocation 2: exit code 2"));
+    }
+
+    @Test
+    public void testStartDetectReturnsAllResults() throws Exception {
+        DetectParallelRun mockedDetectParallelRun = mockParallelRun(new DetectInvocationResult(1, 0, 100), new DetectInvocationResult(2, 2, 200));
+
+        DetectParallelPipelineCommands detectCommands = new DetectParallelPipelineCommands(mockedDetectParallelRun, mockedLogger);
+        List<DetectInvocationResult> invocationResults = detectCommands.startDetect(true, Arrays.asList("--one", "--two"), DOWNLOAD_STRATEGY).get();
+
+        assertEquals(2, invocationResults.size());
+        assertEquals(2, invocationResults.get(1).getExitCode());
+        Mockito.verify(mockedLogger).error(Mockito.anyString());
+
+        detectCommands.stopDetect();
+        Mockito.verify(mockedDetectParallelRun).stop();
+    }
+
+    private DetectParallelRun mockParallelRun(DetectInvocationResult... invocationResults) {
+        DetectParallelRun mockedDetectParallelRun = Mockito.mock(DetectParallelRun.class);
+        Mockito.when(mockedDetectParallelRun.start(Mockito.any(), Mockito.anyList(), Mockito.any(ScriptOrJarDownloadStrategy.class)))
+            .thenReturn(CompletableFuture.completedFuture(Collections.unmodifiableList(Arrays.asList(invocationResults))));
+        return mockedDetectParallelRun;
+    }
+}
@@ -0,0 +1,121 @@
+package com.synopsys.integration.jenkins.detect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.mockito.Mockito;
+
+import com.synopsys.integration.jenkins.detect.extensions.ScriptOrJarDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.service.process.AttachedDetectProcess;
+import com.synopsys.integration.jenkins.detect.service.process.PrefixedOutputStream;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+import com.synopsys.integration.util.IntEnvironmentVariables;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.util.StreamTaskListener;
+
+@DisabledOnOs(OS.WINDOWS)
+public class DetectParallelRunTest {
+    private static final ScriptOrJarDownloadStrategy DOWNLOAD_STRATEGY = new ScriptOrJarDownloadStrategy();
+
+    private final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    private final StreamTaskListener listener = new StreamTaskListener(byteArrayOutputStream);
+    private final DetectRunner detectRunner = Mockito.mock(DetectRunner.class);
+    private Path workspace;
+    private DetectParallelRun detectParallelRun;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        workspace = Files.createTempDirectory("testDetectParallelRun");
+        Mockito.when(detectRunner.acquireRunPermitAsync(Mockito.any())).thenReturn(CompletableFuture.completedFuture(null));
+        Launcher launcher = new Launcher.LocalLauncher(listener);
+        FilePath workspacePath = new FilePath(workspace.toFile());
+        detectParallelRun = new DetectParallelRun(
+            detectRunner,
+            invocation -> detectCommandLine -> {
+                StreamTaskListener prefixedListener = new StreamTaskListener(new PrefixedOutputStream(listener.getLogger(), "[Detect " + invocation + "] "), StandardCharsets.UTF_8);
+                return AttachedDetectProcess.launch(launcher, workspacePath, prefixedListener, detectCommandLine);
+            },
+            JenkinsIntLogger.logToListener(listener),
+            2
+        );
+    }
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        FileUtils.deleteDirectory(workspace.toFile());
+    }
+
+    @Test
+    public void testResultsAreReportedInOrder() throws Exception {
+        mockDetectCommands("sleep 1; echo first; exit 0", "echo second; exit 2", "echo third; exit 0");
+
+        List<DetectInvocationResult> invocationResults = detectParallelRun.start(null, Arrays.asList("--one", "--two", "--three"), DOWNLOAD_STRATEGY).get(30, TimeUnit.SECONDS);
+
+        assertEquals(3, invocationResults.size());
+        for (int i = 0; i < invocationResults.size(); i++) {
+            assertEquals(i + 1, invocationResults.get(i).getInvocation());
+        }
+        assertEquals(2, invocationResults.get(1).getExitCode());
+        assertTrue(invocationResults.get(0).getDurationMillis() >= 1000, "The duration of the first invocation was not measured.");
+        assertTrue(byteArrayOutputStream.toString().contains("[Detect 2] second"), "The output of an invocation was not marked with its number.");
+        Mockito.verify(detectRunner).prepareDetect(Mockito.any(), Mockito.anyList(), Mockito.any());
+    }
+
+    @Test
+    public void testParallelInvocationsAreCapped() throws Exception {
+        String script = String.format("touch %1$s/running-$$; ls %1$s | grep -c running- > %1$s/count-$$; sleep 1; rm %1$s/running-$$", workspace);
+        mockDetectCommands(script, script, script, script);
+
+        detectParallelRun.start(null, Arrays.asList("1", "2", "3", "4"), DOWNLOAD_STRATEGY).get(30, TimeUnit.SECONDS);
+
+        List<Integer> counts = new ArrayList<>();
+        try (DirectoryStream<Path> countFiles = Files.newDirectoryStream(workspace, "count-*")) {
+            for (Path countFile : countFiles) {
+                counts.add(Integer.valueOf(new String(Files.readAllBytes(countFile), StandardCharsets.UTF_8).trim()));
+            }
+        }
+        assertEquals(4, counts.size());
+        assertTrue(counts.stream().allMatch(count -> count <= 2), "More invocations ran at once than allowed: " + counts);
+    }
+
+    @Test
+    public void testSetupFailureIsReported() throws Exception {
+        Mockito.when(detectRunner.prepareDetect(Mockito.any(), Mockito.anyList(), Mockito.any())).thenThrow(new IOException("Could not reach the node"));
+
+        CompletableFuture<List<DetectInvocationResult>> invocationResults = detectParallelRun.start(null, Arrays.asList("--one", "--two"), DOWNLOAD_STRATEGY);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> invocationResults.get(30, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof IOException);
+    }
+
+    private void mockDetectCommands(String... scripts) throws Exception {
+        List<DetectCommandLine> detectCommandLines = new ArrayList<>();
+        for (String script : scripts) {
+            detectCommandLines.add(new DetectCommandLine(IntEnvironmentVariables.empty(), Arrays.asList("sh", "-c", script)));
+        }
+        Mockito.when(detectRunner.prepareDetect(Mockito.any(), Mockito.anyList(), Mockito.any())).thenReturn(detectCommandLines);
+    }
+
+}
@@ -1,9 +1,13 @@
 package com.synopsys.integration.jenkins.detect;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.commons.lang3.StringUtils;
 import org.junit.jupiter.api.BeforeEach;
@@ -83,4 +87,31 @@ public class DetectPipelineCommandsTest {
             fail("An unexpected exception occurred in the test code: ", e);
         }
     }
+
+    @Test
+    public void testStartDetectExitCodeFailure() throws Exception {
+        DetectAsyncRun mockedDetectAsyncRun = Mockito.mock(DetectAsyncRun.class);
+        Mockito.when(mockedDetectAsyncRun.start(Mockito.any(), Mockito.anyString(), Mockito.any(ScriptOrJarDownloadStrategy.class), Mockito.any())).thenReturn(CompletableFuture.completedFuture(1));
+
+        DetectPipelineCommands detectCommands = new DetectPipelineCommands(mockedDetectRunner, mockedLogger, mockedDetectAsyncRun);
+        CompletableFuture<Integer> exitCode = detectCommands.startDetect(false, StringUtils.EMPTY, DOWNLOAD_STRATEGY);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, exitCode::get);
+        assertTrue(exception.getCause() instanceof DetectJenkinsException);
+        Mockito.verify(mockedDetectRunner, Mockito.never()).runDetect(Mockito.any(), Mockito.anyString(), Mockito.any());
+    }
+
+    @Test
+    public void testStartDetectReturnExitCode() throws Exception {
+        DetectAsyncRun mockedDetectAsyncRun = Mockito.mock(DetectAsyncRun.class);
+        Mockito.when(mockedDetectAsyncRun.start(Mockito.any(), Mockito.anyString(), Mockito.any(ScriptOrJarDownloadStrategy.class), Mockito.any())).thenReturn(CompletableFuture.completedFuture(1));
+
+        DetectPipelineCommands detectCommands = new DetectPipelineCommands(mockedDetectRunner, mockedLogger, mockedDetectAsyncRun);
+
+        assertEquals(1, detectCommands.startDetect(true, StringUtils.EMPTY, DOWNLOAD_STRATEGY).get());
+        Mockito.verify(mockedLogger).error(Mockito.anyString());
+
+        detectCommands.stopDetect();
+        Mockito.verify(mockedDetectAsyncRun).stop();
+    }
 }
@@ -24,11 +24,13 @@ import com.synopsys.integration.jenkins.detect.extensions.DetectDownloadStrategy
 import com.synopsys.integration.jenkins.detect.extensions.ScriptOrJarDownloadStrategy;
 import com.synopsys.integration.jenkins.detect.extensions.global.DetectGlobalConfig;
 import com.synopsys.integration.jenkins.detect.extensions.tool.DetectAirGapInstallation;
+import com.synopsys.integration.jenkins.detect.service.BlackDuckHealthMonitor;
 import com.synopsys.integration.jenkins.detect.service.DetectArgumentService;
 import com.synopsys.integration.jenkins.detect.service.DetectEnvironmentService;
 import com.synopsys.integration.jenkins.detect.service.strategy.DetectAirGapJarStrategy;
 import com.synopsys.integration.jenkins.detect.service.strategy.DetectJarStrategy;
 import com.synopsys.integration.jenkins.detect.service.strategy.DetectScriptStrategy;
+import com.synopsys.integration.jenkins.detect.service.strategy.DetectSetupResult;
 import com.synopsys.integration.jenkins.detect.service.strategy.DetectStrategyService;
 import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
 import com.synopsys.integration.jenkins.service.JenkinsConfigService;
@@ -133,23 +135,39 @@ public class DetectRunnerTest {
         assertTrue(actualCommand.get(i).startsWith("--detect.phone.home.passthrough.jenkins.plugin.version="));
     }
 
+    @Test
+    public void testRunDetectOfflineWhileBlackDuckIsUnavailable() {
+        JenkinsRemotingService mockedRemotingService = getMockedRemotingService(OperatingSystemType.LINUX, DETECT_SHELL_PATH);
+        HashMap<String, String> environment = new HashMap<>();
+        environment.put(DetectJenkinsEnvironmentVariable.BLACK_DUCK_OUTAGE_MODE.stringValue(), "offline");
+        BlackDuckHealthMonitor blackDuckHealthMonitor = new BlackDuckHealthMonitor();
+        for (int failure = 0; failure < BlackDuckHealthMonitor.FAILURE_THRESHOLD; failure++) {
+            blackDuckHealthMonitor.recordFailure(10, "Black Duck could not be reached");
+        }
+
+        List<String> actualCommand = runDetectAndCaptureCommand(environment, mockedRemotingService, SCRIPTJAR_DOWNLOAD_STRATEGY, blackDuckHealthMonitor);
+
+        assertEquals("--detect.project.tags=alpha,beta,gamma,delta,epsilon", actualCommand.get(5));
+        assertEquals("--blackduck.offline.mode=true", actualCommand.get(6));
+    }
+
     private JenkinsRemotingService getMockedRemotingService(OperatingSystemType operatingSystemType, String detectPath) {
         JenkinsRemotingService mockedRemotingService = Mockito.mock(JenkinsRemotingService.class);
 
         try {
             Mockito.when(mockedRemotingService.call(Mockito.any(DetectJarStrategy.SetupCallableImpl.class)))
-                .thenReturn(new ArrayList<>(Arrays.asList(JDK_HOME, "-jar", detectPath)));
+                .thenReturn(new DetectSetupResult(operatingSystemType, new ArrayList<>(Arrays.asList(JDK_HOME, "-jar", detectPath)), null));
             Mockito.when(mockedRemotingService.call(Mockito.any(DetectAirGapJarStrategy.SetupCallableImpl.class)))
-                .thenReturn(new ArrayList<>(Arrays.asList(JDK_HOME, "-jar", DETECT_AIRGAP_JAR_PATH)));
+                .thenReturn(new DetectSetupResult(operatingSystemType, new ArrayList<>(Arrays.asList(JDK_HOME, "-jar", DETECT_AIRGAP_JAR_PATH)), null));
 
             if (operatingSystemType == OperatingSystemType.WINDOWS) {
                 Mockito.when(mockedRemotingService.call(Mockito.any(DetectScriptStrategy.SetupCallableImpl.class)))
-                    .thenReturn(new ArrayList<>(Arrays.asList("powershell", String.format("\"Import-Module '%s'; detect\"", detectPath))));
+                    .thenReturn(new DetectSetupResult(operatingSystemType, new ArrayList<>(Arrays.asList("powershell", String.format("\"Import-Module '%s'; detect\"", detectPath))), null));
             } else {
-                Mockito.when(mockedRemotingService.call(Mockito.any(DetectScriptStrategy.SetupCallableImpl.class))).thenReturn(new ArrayList<>(Arrays.asList("bash", detectPath)));
+                Mockito.when(mockedRemotingService.call(Mockito.any(DetectScriptStrategy.SetupCallableImpl.class)))
+                    .thenReturn(new DetectSetupResult(operatingSystemType, new ArrayList<>(Arrays.asList("bash", detectPath)), null));
             }
 
-            Mockito.when(mockedRemotingService.getRemoteOperatingSystemType()).thenReturn(operatingSystemType);
             Mockito.when(mockedRemotingService.launch(Mockito.any(), Mockito.any())).thenReturn(0);
         } catch (Exception e) {
             fail("Could not mock JenkinsRemotingService due to an unexpected exception. The test code likely requires fixing: ", e);
@@ -162,6 +180,15 @@ public class DetectRunnerTest {
         Map<String, String> environmentVariables,
         JenkinsRemotingService mockedRemotingService,
         DetectDownloadStrategy detectDownloadStrategy
+    ) {
+        return runDetectAndCaptureCommand(environmentVariables, mockedRemotingService, detectDownloadStrategy, null);
+    }
+
+    private List<String> runDetectAndCaptureCommand(
+        Map<String, String> environmentVariables,
+        JenkinsRemotingService mockedRemotingService,
+        DetectDownloadStrategy detectDownloadStrategy,
+        BlackDuckHealthMonitor blackDuckHealthMonitor
     ) {
         try {
             JenkinsIntLogger jenkinsIntLogger = JenkinsIntLogger.logToListener(null);
@@ -200,7 +227,9 @@ public class DetectRunnerTest {
             DetectArgumentService detectArgumentService = new DetectArgumentService(jenkinsIntLogger, mockedVersionHelper);
             DetectStrategyService detectStrategyService = new DetectStrategyService(jenkinsIntLogger, blankProxyHelper, WORKSPACE_TMP_REL_PATH, jenkinsConfigService);
 
-            DetectRunner detectRunner = new DetectRunner(detectEnvironmentService, mockedRemotingService, detectStrategyService, detectArgumentService, jenkinsIntLogger);
+            DetectRunner detectRunner = DetectRunner.builder(detectEnvironmentService, mockedRemotingService, detectStrategyService, detectArgumentService, jenkinsIntLogger)
+                                            .blackDuckHealthMonitor(blackDuckHealthMonitor)
+                                            .build();
 
             // run the method we're testing
             detectRunner.runDetect(null, DETECT_PROPERTY_INPUT, detectDownloadStrategy);
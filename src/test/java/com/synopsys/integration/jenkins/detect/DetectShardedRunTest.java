@@ -0,0 +1,132 @@
+package com.synopsys.integration.jenkins.detect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import com.synopsys.integration.jenkins.detect.extensions.ScriptOrJarDownloadStrategy;
+import com.synopsys.integration.jenkins.detect.service.DetectManifestCheck;
+import com.synopsys.integration.jenkins.detect.service.DetectScanCoalescer;
+import com.synopsys.integration.jenkins.detect.service.DetectScanLedger;
+import com.synopsys.integration.jenkins.detect.service.process.AttachedDetectProcess;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+import com.synopsys.integration.util.IntEnvironmentVariables;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.Node;
+import hudson.util.StreamTaskListener;
+
+@DisabledOnOs(OS.WINDOWS)
+public class DetectShardedRunTest {
+    private static final ScriptOrJarDownloadStrategy DOWNLOAD_STRATEGY = new ScriptOrJarDownloadStrategy();
+    private static final String NODE_NAME = "test-agent";
+    private static final String PROJECT_PROPERTIES = "--detect.project.name=Test --detect.project.version.name=1.0";
+
+    private final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    private final StreamTaskListener listener = new StreamTaskListener(byteArrayOutputStream);
+    private final DetectRunner detectRunner = Mockito.mock(DetectRunner.class);
+    private final Node node = Mockito.mock(Node.class);
+    private Path workspace;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        workspace = Files.createTempDirectory("testDetectShardedRun");
+        FileUtils.touch(workspace.resolve("backend/pom.xml").toFile());
+        FileUtils.touch(workspace.resolve("frontend/package.json").toFile());
+        Mockito.when(node.getNodeName()).thenReturn(NODE_NAME);
+        Mockito.when(detectRunner.acquireRunPermitAsync(Mockito.any())).thenReturn(CompletableFuture.completedFuture(null));
+        Mockito.when(detectRunner.checkManifests(Mockito.anyString())).thenReturn(DetectManifestCheck.Result.NOT_CHECKED);
+        Mockito.when(detectRunner.claimScan(Mockito.anyString())).thenReturn(DetectScanLedger.Claim.NOT_TRACKED);
+        Mockito.when(detectRunner.registerForCoalescing(Mockito.anyString(), Mockito.any())).thenReturn(DetectScanCoalescer.Registration.NOT_REGISTERED);
+        DetectCommandLine detectCommandLine = new DetectCommandLine(IntEnvironmentVariables.empty(), Arrays.asList("sh", "-c", "pwd; exit 0"));
+        Mockito.when(detectRunner.prepareDetect(Mockito.any(), Mockito.anyString(), Mockito.any())).thenReturn(detectCommandLine);
+    }
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        FileUtils.deleteDirectory(workspace.toFile());
+    }
+
+    @Test
+    public void testEachModuleIsScannedInItsOwnDirectory() throws Exception {
+        DetectShardedRun detectShardedRun = createShardedRun(Collections.singletonList(node));
+
+        List<DetectShardResult> shardResults = detectShardedRun.start(Collections.emptyList(), PROJECT_PROPERTIES, DOWNLOAD_STRATEGY).get(30, TimeUnit.SECONDS);
+
+        assertEquals(2, shardResults.size());
+        assertEquals("backend", shardResults.get(0).getSourcePath());
+        assertEquals("frontend", shardResults.get(1).getSourcePath());
+        assertEquals(NODE_NAME, shardResults.get(1).getNodeName());
+        String output = byteArrayOutputStream.toString();
+        assertTrue(output.contains(workspace.resolve("backend").toString()), "The first shard was not scanned in its directory.");
+        assertTrue(output.contains(workspace.resolve("frontend").toString()), "The second shard was not scanned in its directory.");
+        assertTrue(output.contains("scanned one after another"), "The wall-clock and summed times were not reported.");
+
+        ArgumentCaptor<String> detectArguments = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(detectRunner, Mockito.times(2)).prepareDetect(Mockito.any(), detectArguments.capture(), Mockito.any());
+        assertTrue(detectArguments.getAllValues().contains(PROJECT_PROPERTIES + " " + DetectShardedRun.CODE_LOCATION_SUFFIX_PROPERTY + "=shard-backend"));
+        assertTrue(detectArguments.getAllValues().contains(PROJECT_PROPERTIES + " " + DetectShardedRun.CODE_LOCATION_SUFFIX_PROPERTY + "=shard-frontend"));
+    }
+
+    @Test
+    public void testUserCodeLocationSuffixIsKept() throws Exception {
+        DetectShardedRun detectShardedRun = createShardedRun(Collections.singletonList(node));
+        String detectArgumentString = PROJECT_PROPERTIES + " --detect.project.codelocation.suffix=nightly";
+
+        detectShardedRun.start(Collections.singletonList("backend"), detectArgumentString, DOWNLOAD_STRATEGY).get(30, TimeUnit.SECONDS);
+
+        Mockito.verify(detectRunner).prepareDetect(Mockito.any(), Mockito.eq(detectArgumentString), Mockito.any());
+    }
+
+    @Test
+    public void testCodeLocationSuffixFollowsTheSourcePath() {
+        assertEquals("shard-services-api", DetectShardedRun.createCodeLocationSuffix("services/api"));
+        assertEquals("shard-web-app", DetectShardedRun.createCodeLocationSuffix("./web app/"));
+        assertEquals("shard-workspace", DetectShardedRun.createCodeLocationSuffix("."));
+    }
+
+    @Test
+    public void testNoNodesIsReported() {
+        DetectShardedRun detectShardedRun = createShardedRun(Collections.emptyList());
+
+        CompletableFuture<List<DetectShardResult>> shardResults = detectShardedRun.start(Collections.emptyList(), PROJECT_PROPERTIES, DOWNLOAD_STRATEGY);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> shardResults.get(30, TimeUnit.SECONDS));
+        assertTrue(exception.getMessage().contains("no online nodes"));
+    }
+
+    private DetectShardedRun createShardedRun(List<Node> shardNodes) {
+        Launcher launcher = new Launcher.LocalLauncher(listener);
+        JenkinsIntLogger logger = JenkinsIntLogger.logToListener(listener);
+        return new DetectShardedRun(
+            new FilePath(workspace.toFile()),
+            NODE_NAME,
+            shardNodes,
+            (shardNode, shardWorkspace, shard) -> new DetectAsyncRun(detectRunner, detectCommandLine -> AttachedDetectProcess.launch(launcher, shardWorkspace, listener, detectCommandLine), logger),
+            logger,
+            2
+        );
+    }
+
+}
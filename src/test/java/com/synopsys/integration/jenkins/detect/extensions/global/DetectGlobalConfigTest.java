@@ -1,6 +1,7 @@
 package com.synopsys.integration.jenkins.detect.extensions.global;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Rule;
@@ -23,4 +24,31 @@ public class DetectGlobalConfigTest {
         assertTrue(formValidation.getMessage().contains("password"));
         System.out.printf("Message: %s\n", formValidation.getMessage());
     }
+
+    @Test
+    public void testSnapshotIsReplacedNotModified() {
+        DetectGlobalConfig detectGlobalConfig = new DetectGlobalConfig();
+        detectGlobalConfig.setBlackDuckUrl("https://old.blackduck.domain.com");
+        DetectGlobalConfig.Snapshot oldSnapshot = detectGlobalConfig.getSnapshot();
+
+        detectGlobalConfig.setBlackDuckUrl("https://new.blackduck.domain.com");
+
+        assertEquals("https://old.blackduck.domain.com", oldSnapshot.getBlackDuckUrl());
+        assertEquals("https://new.blackduck.domain.com", detectGlobalConfig.getSnapshot().getBlackDuckUrl());
+        assertNotSame(oldSnapshot, detectGlobalConfig.getSnapshot());
+    }
+
+    @Test
+    public void testSettingsArePersisted() {
+        DetectGlobalConfig detectGlobalConfig = new DetectGlobalConfig();
+        detectGlobalConfig.setBlackDuckUrl("https://blackduck.domain.com");
+        detectGlobalConfig.setBlackDuckTimeout(30);
+        detectGlobalConfig.setTrustBlackDuckCertificates(true);
+
+        DetectGlobalConfig reloadedDetectGlobalConfig = new DetectGlobalConfig();
+
+        assertEquals("https://blackduck.domain.com", reloadedDetectGlobalConfig.getBlackDuckUrl());
+        assertEquals(30, reloadedDetectGlobalConfig.getBlackDuckTimeout());
+        assertTrue(reloadedDetectGlobalConfig.getTrustBlackDuckCertificates());
+    }
 }
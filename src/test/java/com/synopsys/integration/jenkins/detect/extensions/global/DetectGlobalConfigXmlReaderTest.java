@@ -0,0 +1,63 @@
+package com.synopsys.integration.jenkins.detect.extensions.global;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.jupiter.api.Test;
+
+public class DetectGlobalConfigXmlReaderTest {
+    private static final Set<String> ELEMENT_NAMES = new HashSet<>(Arrays.asList("blackDuckUrl", "blackDuckCredentialsId", "blackDuckTimeout", "trustBlackDuckCertificates"));
+
+    @Test
+    public void testReadsKnownValues() throws XMLStreamException {
+        String configXml = "<?xml version='1.1' encoding='UTF-8'?>\n"
+            + "<com.synopsys.integration.jenkins.detect.extensions.global.DetectGlobalConfig plugin=\"blackduck-detect\">\n"
+            + "  <blackDuckUrl> https://blackduck.domain.com </blackDuckUrl>\n"
+            + "  <blackDuckCredentialsId>api-token</blackDuckCredentialsId>\n"
+            + "  <trustBlackDuckCertificates>true</trustBlackDuckCertificates>\n"
+            + "  <blackDuckTimeout>30</blackDuckTimeout>\n"
+            + "  <downloadStrategy class=\"com.synopsys.integration.jenkins.detect.extensions.ScriptOrJarDownloadStrategy\"/>\n"
+            + "</com.synopsys.integration.jenkins.detect.extensions.global.DetectGlobalConfig>";
+
+        Map<String, String> values = DetectGlobalConfigXmlReader.readValues(new StringReader(configXml), ELEMENT_NAMES);
+
+        assertEquals("https://blackduck.domain.com", values.get("blackDuckUrl"));
+        assertEquals("api-token", values.get("blackDuckCredentialsId"));
+        assertEquals("true", values.get("trustBlackDuckCertificates"));
+        assertEquals("30", values.get("blackDuckTimeout"));
+        assertEquals(4, values.size());
+    }
+
+    @Test
+    public void testFirstElementWins() throws XMLStreamException {
+        String configXml = "<config><blackDuckUrl/><nested><blackDuckUrl>https://second.domain.com</blackDuckUrl></nested><blackDuckTimeout><![CDATA[45]]></blackDuckTimeout></config>";
+
+        Map<String, String> values = DetectGlobalConfigXmlReader.readValues(new StringReader(configXml), ELEMENT_NAMES);
+
+        assertFalse(values.containsKey("blackDuckUrl"), "An empty first element should not be replaced by a later one.");
+        assertEquals("45", values.get("blackDuckTimeout"));
+    }
+
+    @Test
+    public void testMalformedXmlIsRejected() {
+        String configXml = "<config><blackDuckUrl>https://blackduck.domain.com</blackDuckUrl>";
+
+        assertThrows(XMLStreamException.class, () -> DetectGlobalConfigXmlReader.readValues(new StringReader(configXml), ELEMENT_NAMES));
+    }
+
+    @Test
+    public void testExternalEntitiesAreNotResolved() {
+        String configXml = "<?xml version=\"1.0\"?><!DOCTYPE config [<!ENTITY secret SYSTEM \"file:///etc/passwd\">]><config><blackDuckUrl>&secret;</blackDuckUrl></config>";
+
+        assertThrows(XMLStreamException.class, () -> DetectGlobalConfigXmlReader.readValues(new StringReader(configXml), ELEMENT_NAMES));
+    }
+}
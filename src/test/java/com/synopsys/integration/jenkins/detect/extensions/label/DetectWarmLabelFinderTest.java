@@ -0,0 +1,78 @@
+package com.synopsys.integration.jenkins.detect.extensions.label;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.synopsys.integration.jenkins.detect.service.strategy.AirGapJarResolution;
+import com.synopsys.integration.jenkins.detect.service.strategy.AirGapResolutionCache;
+import com.synopsys.integration.jenkins.detect.service.strategy.DetectSetupResult;
+import com.synopsys.integration.jenkins.detect.service.strategy.NodeCapabilityCache;
+import com.synopsys.integration.jenkins.detect.service.strategy.RemoteJavaInfo;
+import com.synopsys.integration.jenkins.detect.service.strategy.RemoteJavaService;
+import com.synopsys.integration.util.OperatingSystemType;
+
+public class DetectWarmLabelFinderTest {
+    private static final String NODE_NAME = "test-agent";
+    private static final Map<String, String> ENVIRONMENT_VARIABLES = Collections.emptyMap();
+
+    @AfterEach
+    public void cleanUp() {
+        NodeCapabilityCache.invalidateAll();
+        AirGapResolutionCache.invalidateAll();
+    }
+
+    @Test
+    public void testColdNodeHasNoLabels() {
+        assertTrue(DetectWarmLabelFinder.findLabelNames(NODE_NAME).isEmpty());
+    }
+
+    @Test
+    public void testScriptRunWarmsNode() {
+        new NodeCapabilityCache(NODE_NAME).record(new DetectSetupResult(OperatingSystemType.LINUX, new ArrayList<>(), null), null, ENVIRONMENT_VARIABLES);
+
+        assertEquals(Collections.singleton(DetectWarmLabelFinder.WARM_LABEL), DetectWarmLabelFinder.findLabelNames(NODE_NAME));
+        assertTrue(DetectWarmLabelFinder.findLabelNames("another-agent").isEmpty(), "Labels must not leak between nodes.");
+    }
+
+    @Test
+    public void testAirGapJarRunLabelsJavaAndVersion() {
+        RemoteJavaInfo remoteJavaInfo = new RemoteJavaInfo("/usr/bin/java", RemoteJavaService.NODE_ENVIRONMENT_SOURCE, "openjdk 11");
+        new NodeCapabilityCache(NODE_NAME).record(new DetectSetupResult(OperatingSystemType.LINUX, new ArrayList<>(), remoteJavaInfo), null, ENVIRONMENT_VARIABLES);
+        new AirGapResolutionCache(NODE_NAME).record("Detect 8", "/opt/detect", new AirGapJarResolution("/opt/detect/synopsys-detect-8.2.0.jar", null));
+
+        assertEquals(
+            new HashSet<>(Arrays.asList("detect-warm", "detect-java", "detect-air-gap", "detect-8.x")),
+            DetectWarmLabelFinder.findLabelNames(NODE_NAME)
+        );
+    }
+
+    @Test
+    public void testReconnectedNodeIsCold() {
+        new NodeCapabilityCache(NODE_NAME).record(new DetectSetupResult(OperatingSystemType.LINUX, new ArrayList<>(), null), null, ENVIRONMENT_VARIABLES);
+        DetectWarmLabelFinder.refresh(NODE_NAME);
+
+        NodeCapabilityCache.invalidate(NODE_NAME);
+        DetectWarmLabelFinder.refresh(NODE_NAME);
+
+        assertTrue(DetectWarmLabelFinder.findLabelNames(NODE_NAME).isEmpty());
+    }
+
+    @Test
+    public void testOnlyDetectLabelsAreRecognized() {
+        assertTrue(DetectWarmLabelFinder.isDetectLabel("detect-warm"));
+        assertTrue(DetectWarmLabelFinder.isDetectLabel("detect-9.x"));
+        assertFalse(DetectWarmLabelFinder.isDetectLabel("detect-agents"));
+        assertFalse(DetectWarmLabelFinder.isDetectLabel("linux"));
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.synopsys.integration.jenkins.detect.extensions.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.synopsys.integration.jenkins.detect.DetectPipelineCommands;
+
+public class DetectScanRegistryTest {
+    private static final String RUN_ID = "test-job#1";
+
+    @Test
+    public void testRegisteredScanIsFound() {
+        CompletableFuture<Integer> futureExitCode = new CompletableFuture<>();
+        String handle = DetectScanRegistry.register(RUN_ID, Mockito.mock(DetectPipelineCommands.class)::stopDetect, futureExitCode);
+
+        assertTrue(handle.startsWith(DetectScanRegistry.HANDLE_PREFIX));
+        assertNotEquals(handle, DetectScanRegistry.register(RUN_ID, Mockito.mock(DetectPipelineCommands.class)::stopDetect, new CompletableFuture<>()));
+        assertSame(futureExitCode, DetectScanRegistry.get(handle).get().getFutureExitCode());
+
+        DetectScanRegistry.remove(handle);
+        assertFalse(DetectScanRegistry.get(handle).isPresent());
+        DetectScanRegistry.stopScans(RUN_ID);
+    }
+
+    @Test
+    public void testCompletedBuildStopsItsRunningScans() {
+        DetectPipelineCommands runningCommands = Mockito.mock(DetectPipelineCommands.class);
+        DetectPipelineCommands finishedCommands = Mockito.mock(DetectPipelineCommands.class);
+        DetectPipelineCommands otherBuildCommands = Mockito.mock(DetectPipelineCommands.class);
+        String runningHandle = DetectScanRegistry.register(RUN_ID, runningCommands::stopDetect, new CompletableFuture<>());
+        String finishedHandle = DetectScanRegistry.register(RUN_ID, finishedCommands::stopDetect, CompletableFuture.completedFuture(0));
+        String otherBuildHandle = DetectScanRegistry.register("test-job#2", otherBuildCommands::stopDetect, new CompletableFuture<>());
+
+        DetectScanRegistry.stopScans(RUN_ID);
+
+        Mockito.verify(runningCommands).stopDetect();
+        Mockito.verify(finishedCommands, Mockito.never()).stopDetect();
+        Mockito.verify(otherBuildCommands, Mockito.never()).stopDetect();
+        assertFalse(DetectScanRegistry.get(runningHandle).isPresent());
+        assertFalse(DetectScanRegistry.get(finishedHandle).isPresent());
+        assertTrue(DetectScanRegistry.get(otherBuildHandle).isPresent());
+        DetectScanRegistry.stopScans("test-job#2");
+    }
+
+}
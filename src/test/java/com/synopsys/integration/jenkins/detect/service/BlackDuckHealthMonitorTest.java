@@ -0,0 +1,76 @@
+package com.synopsys.integration.jenkins.detect.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+public class BlackDuckHealthMonitorTest {
+    private static final String FAILURE = "Black Duck could not be reached";
+
+    @Test
+    public void testCircuitOpensAfterConsecutiveFailures() {
+        BlackDuckHealthMonitor blackDuckHealthMonitor = new BlackDuckHealthMonitor();
+
+        for (int failure = 1; failure < BlackDuckHealthMonitor.FAILURE_THRESHOLD; failure++) {
+            blackDuckHealthMonitor.recordFailure(100, FAILURE);
+        }
+        blackDuckHealthMonitor.recordSuccess(100);
+        blackDuckHealthMonitor.recordFailure(100, FAILURE);
+        assertFalse(blackDuckHealthMonitor.isOpen(), "A success in between should start the count of failures over.");
+
+        for (int failure = 1; failure < BlackDuckHealthMonitor.FAILURE_THRESHOLD; failure++) {
+            blackDuckHealthMonitor.recordFailure(100, FAILURE);
+        }
+        assertTrue(blackDuckHealthMonitor.isOpen());
+        assertEquals("Unavailable", blackDuckHealthMonitor.getStatus().getState());
+        assertEquals(FAILURE, blackDuckHealthMonitor.getStatus().getLastFailure());
+    }
+
+    @Test
+    public void testRecoveryReleasesWaitingRuns() {
+        BlackDuckHealthMonitor blackDuckHealthMonitor = new BlackDuckHealthMonitor();
+        assertTrue(blackDuckHealthMonitor.awaitRecovery().isDone(), "Runs should not wait while the circuit is closed.");
+
+        for (int failure = 0; failure < BlackDuckHealthMonitor.FAILURE_THRESHOLD; failure++) {
+            blackDuckHealthMonitor.recordFailure(100, FAILURE);
+        }
+        CompletableFuture<Void> stoppedRun = blackDuckHealthMonitor.awaitRecovery();
+        CompletableFuture<Void> waitingRun = blackDuckHealthMonitor.awaitRecovery();
+        stoppedRun.cancel(false);
+        assertFalse(waitingRun.isDone(), "Stopping one waiting run should not release the others.");
+
+        blackDuckHealthMonitor.recordSuccess(100);
+
+        assertFalse(blackDuckHealthMonitor.isOpen());
+        assertTrue(waitingRun.isDone());
+        assertFalse(waitingRun.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testResetClosesTheCircuit() {
+        BlackDuckHealthMonitor blackDuckHealthMonitor = new BlackDuckHealthMonitor();
+        for (int failure = 0; failure < BlackDuckHealthMonitor.FAILURE_THRESHOLD; failure++) {
+            blackDuckHealthMonitor.recordFailure(100, FAILURE);
+        }
+        CompletableFuture<Void> waitingRun = blackDuckHealthMonitor.awaitRecovery();
+
+        blackDuckHealthMonitor.reset();
+
+        assertFalse(blackDuckHealthMonitor.isOpen());
+        assertTrue(waitingRun.isDone());
+        assertEquals(-1, blackDuckHealthMonitor.getStatus().getLastLatencyMillis());
+    }
+
+    @Test
+    public void testOutageModes() {
+        assertEquals(BlackDuckOutageMode.WAIT, BlackDuckOutageMode.resolve(" wait "));
+        assertEquals(BlackDuckOutageMode.OFFLINE, BlackDuckOutageMode.resolve("OFFLINE"));
+        assertEquals(BlackDuckOutageMode.RUN, BlackDuckOutageMode.resolve(null));
+        assertEquals(BlackDuckOutageMode.RUN, BlackDuckOutageMode.resolve("retry"));
+    }
+
+}
@@ -219,6 +219,17 @@ public class DetectArgumentServiceTest {
         commonValidation(detectCommandLine, expectedArgsFromEnvironment, expectedArgsFromPlugin);
     }
 
+    @Test
+    public void testFindProjectVersion() {
+        Map<String, String> environmentVariables = new LinkedHashMap<>();
+        environmentVariables.put("BRANCH_NAME", "main");
+        environmentVariables.put(DetectArgumentService.PROJECT_NAME_VARIABLE, "FromEnvironment");
+
+        assertEquals(Optional.of("Test / main"), DetectArgumentService.findProjectVersion(environmentVariables, "--detect.project.name=Test --detect.project.version.name=${BRANCH_NAME}"));
+        assertEquals(Optional.of("FromEnvironment / 1.0"), DetectArgumentService.findProjectVersion(environmentVariables, "--detect.project.version.name=1.0"));
+        assertEquals(Optional.empty(), DetectArgumentService.findProjectVersion(environmentVariables, "--detect.tools=DETECTOR"));
+    }
+
     private void commonValidation(List<String> detectCommandLine, Map<String, String> expectedPropertiesFromEnvironment, Map<String, String> expectedPropertiesFromPlugin) {
         assertEquals(expectedTestInvocationParameter, detectCommandLine.get(0));
 
@@ -0,0 +1,126 @@
+package com.synopsys.integration.jenkins.detect.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.synopsys.integration.jenkins.detect.DetectJenkinsEnvironmentVariable;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+
+import hudson.FilePath;
+import hudson.model.TaskListener;
+
+public class DetectManifestCheckTest {
+    private static final String DETECT_PROPERTIES = "--detect.project.name=Test --detect.project.version.name=${VERSION}";
+
+    private final Map<String, String> environmentVariables = new HashMap<>();
+    private ByteArrayOutputStream byteArrayOutputStream;
+    private JenkinsIntLogger logger;
+    private Path workspace;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        TaskListener taskListener = Mockito.mock(TaskListener.class);
+        byteArrayOutputStream = new ByteArrayOutputStream();
+        Mockito.when(taskListener.getLogger()).thenReturn(new PrintStream(byteArrayOutputStream));
+        logger = JenkinsIntLogger.logToListener(taskListener);
+
+        workspace = Files.createTempDirectory("testDetectManifestCheck");
+        environmentVariables.put(DetectJenkinsEnvironmentVariable.SKIP_UNCHANGED_MANIFESTS.stringValue(), "true");
+        environmentVariables.put("VERSION", "1.0");
+        writeFile("pom.xml", "<project/>");
+        writeFile("frontend/package-lock.json", StringUtils.repeat("{\"lockfileVersion\": 2}\n", 10000));
+        DetectManifestCheck.invalidateAll();
+    }
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        FileUtils.deleteDirectory(workspace.toFile());
+        DetectManifestCheck.invalidateAll();
+    }
+
+    @Test
+    public void testUnchangedManifestsSkipTheScan() throws Exception {
+        DetectManifestCheck.Result firstResult = check(DETECT_PROPERTIES);
+        assertFalse(firstResult.isUnchanged(), "A project version that was never scanned should be scanned.");
+        assertFalse(check(DETECT_PROPERTIES).isUnchanged(), "A scan that did not succeed should not be skipped next time.");
+
+        firstResult.recordSuccessfulScan();
+
+        assertTrue(check(DETECT_PROPERTIES).isUnchanged());
+        assertTrue(byteArrayOutputStream.toString().contains("Skipping Detect"), "The reason for skipping the scan was not logged.");
+    }
+
+    @Test
+    public void testChangesScanAgain() throws Exception {
+        check(DETECT_PROPERTIES).recordSuccessfulScan();
+
+        writeFile("frontend/package-lock.json", "{\"lockfileVersion\": 3}");
+        assertFalse(check(DETECT_PROPERTIES).isUnchanged(), "A changed lockfile should be scanned.");
+
+        check(DETECT_PROPERTIES).recordSuccessfulScan();
+        assertFalse(check(DETECT_PROPERTIES + " --detect.tools=DETECTOR").isUnchanged(), "Other Detect arguments should be scanned.");
+
+        environmentVariables.put("VERSION", "2.0");
+        assertFalse(check(DETECT_PROPERTIES).isUnchanged(), "Another project version should be scanned.");
+    }
+
+    @Test
+    public void testBuildOutputDoesNotChangeTheFingerprint() throws Exception {
+        check(DETECT_PROPERTIES).recordSuccessfulScan();
+
+        writeFile("frontend/node_modules/left-pad/package.json", "{}");
+        writeFile("target/classes/META-INF/maven/pom.xml", "<project/>");
+        writeFile(".git/pom.xml", "<project/>");
+
+        assertTrue(check(DETECT_PROPERTIES).isUnchanged());
+    }
+
+    @Test
+    public void testNotCheckedWithoutOptIn() throws Exception {
+        environmentVariables.remove(DetectJenkinsEnvironmentVariable.SKIP_UNCHANGED_MANIFESTS.stringValue());
+        assertSame(DetectManifestCheck.Result.NOT_CHECKED, check(DETECT_PROPERTIES));
+    }
+
+    @Test
+    public void testNotCheckedWithoutProjectVersion() throws Exception {
+        assertSame(DetectManifestCheck.Result.NOT_CHECKED, check("--detect.project.name=Test"));
+
+        environmentVariables.put(DetectArgumentService.PROJECT_VERSION_VARIABLE, "1.0");
+        assertNotEquals(DetectManifestCheck.Result.NOT_CHECKED, check("--detect.project.name=Test"));
+    }
+
+    @Test
+    public void testNotCheckedWithoutManifests() throws Exception {
+        FileUtils.cleanDirectory(workspace.toFile());
+        writeFile("README.md", "# Test");
+
+        assertSame(DetectManifestCheck.Result.NOT_CHECKED, check(DETECT_PROPERTIES));
+    }
+
+    private DetectManifestCheck.Result check(String detectProperties) throws Exception {
+        return new DetectManifestCheck(logger, environmentVariables, new FilePath(workspace.toFile())).check(detectProperties);
+    }
+
+    private void writeFile(String relativePath, String contents) throws IOException {
+        FileUtils.writeStringToFile(workspace.resolve(relativePath).toFile(), contents, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,265 @@
+package com.synopsys.integration.jenkins.detect.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+
+import hudson.model.TaskListener;
+
+public class DetectRunThrottleTest {
+    private static final String NODE_NAME = "test-agent";
+    private static final String NODE_KEY = DetectRunThrottle.NODE_PREFIX + NODE_NAME;
+
+    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    private ByteArrayOutputStream byteArrayOutputStream;
+    private JenkinsIntLogger logger;
+
+    @BeforeEach
+    public void setUp() {
+        TaskListener taskListener = Mockito.mock(TaskListener.class);
+        byteArrayOutputStream = new ByteArrayOutputStream();
+        Mockito.when(taskListener.getLogger()).thenReturn(new PrintStream(byteArrayOutputStream));
+        logger = JenkinsIntLogger.logToListener(taskListener);
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        executorService.shutdownNow();
+        DetectRunThrottle.reset();
+    }
+
+    @Test
+    public void testUnlimitedRunsAreNotTracked() throws InterruptedException {
+        DetectRunThrottle detectRunThrottle = new DetectRunThrottle(NODE_NAME, Collections.singleton("linux"), 0, 0, 0);
+
+        try (DetectRunThrottle.Permit firstPermit = detectRunThrottle.acquire(logger); DetectRunThrottle.Permit secondPermit = detectRunThrottle.acquire(logger)) {
+            assertTrue(DetectRunThrottle.getOccupancies().isEmpty());
+        }
+    }
+
+    @Test
+    public void testNodeLimitIsEnforced() throws Exception {
+        DetectRunThrottle detectRunThrottle = createNodeThrottle(NODE_NAME);
+        DetectRunThrottle.Permit firstPermit = detectRunThrottle.acquire(logger);
+
+        Future<DetectRunThrottle.Permit> waitingRun = executorService.submit(() -> detectRunThrottle.acquire(logger));
+        waitFor(() -> getOccupancy(NODE_KEY).getWaiting() == 1);
+        assertFalse(waitingRun.isDone(), "A run started while the node was at its limit.");
+
+        firstPermit.close();
+        waitingRun.get(5, TimeUnit.SECONDS).close();
+
+        DetectRunThrottle.Occupancy occupancy = getOccupancy(NODE_KEY);
+        assertEquals(0, occupancy.getCurrent());
+        assertEquals(1, occupancy.getPeak());
+        assertEquals(1, occupancy.getLimit());
+        assertTrue(byteArrayOutputStream.toString().contains("Waiting for a free Detect run slot"), "The wait was not logged to the build.");
+    }
+
+    @Test
+    public void testOtherNodesAreNotHeldUp() throws Exception {
+        DetectRunThrottle detectRunThrottle = createNodeThrottle(NODE_NAME);
+        DetectRunThrottle.Permit firstPermit = detectRunThrottle.acquire(logger);
+        Future<DetectRunThrottle.Permit> waitingRun = executorService.submit(() -> detectRunThrottle.acquire(logger));
+        waitFor(() -> getOccupancy(NODE_KEY).getWaiting() == 1);
+
+        Future<DetectRunThrottle.Permit> otherNodeRun = executorService.submit(() -> createNodeThrottle("another-agent").acquire(logger));
+        otherNodeRun.get(5, TimeUnit.SECONDS).close();
+
+        firstPermit.close();
+        waitingRun.get(5, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    public void testWaitingRunsStartInOrder() throws Exception {
+        DetectRunThrottle detectRunThrottle = createNodeThrottle(NODE_NAME);
+        DetectRunThrottle.Permit firstPermit = detectRunThrottle.acquire(logger);
+
+        Future<DetectRunThrottle.Permit> secondRun = executorService.submit(() -> detectRunThrottle.acquire(logger));
+        waitFor(() -> getOccupancy(NODE_KEY).getWaiting() == 1);
+        Future<DetectRunThrottle.Permit> thirdRun = executorService.submit(() -> detectRunThrottle.acquire(logger));
+        waitFor(() -> getOccupancy(NODE_KEY).getWaiting() == 2);
+
+        firstPermit.close();
+        DetectRunThrottle.Permit secondPermit = secondRun.get(5, TimeUnit.SECONDS);
+        assertFalse(thirdRun.isDone(), "A later run overtook an earlier one.");
+
+        secondPermit.close();
+        thirdRun.get(5, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    public void testGlobalAndLabelLimits() throws Exception {
+        DetectRunThrottle firstNodeThrottle = new DetectRunThrottle("first-agent", Collections.singleton("linux"), 0, 1, 2);
+        DetectRunThrottle secondNodeThrottle = new DetectRunThrottle("second-agent", Collections.singleton("linux"), 0, 1, 2);
+        DetectRunThrottle windowsNodeThrottle = new DetectRunThrottle("windows-agent", Collections.singleton("windows"), 0, 1, 2);
+
+        DetectRunThrottle.Permit firstPermit = firstNodeThrottle.acquire(logger);
+        Future<DetectRunThrottle.Permit> sameLabelRun = executorService.submit(() -> secondNodeThrottle.acquire(logger));
+        waitFor(() -> getOccupancy(DetectRunThrottle.LABEL_PREFIX + "linux").getWaiting() == 1);
+
+        // The global limit still has room, but the waiting run holds its place in the global queue.
+        Future<DetectRunThrottle.Permit> otherLabelRun = executorService.submit(() -> windowsNodeThrottle.acquire(logger));
+        waitFor(() -> getOccupancy(DetectRunThrottle.GLOBAL_NAME).getWaiting() == 2);
+        assertFalse(otherLabelRun.isDone(), "A later run overtook an earlier one competing for the same global limit.");
+
+        firstPermit.close();
+        DetectRunThrottle.Permit sameLabelPermit = sameLabelRun.get(5, TimeUnit.SECONDS);
+        DetectRunThrottle.Permit otherLabelPermit = otherLabelRun.get(5, TimeUnit.SECONDS);
+        assertEquals(2, getOccupancy(DetectRunThrottle.GLOBAL_NAME).getCurrent());
+
+        sameLabelPermit.close();
+        otherLabelPermit.close();
+    }
+
+    @Test
+    public void testInterruptedRunLeavesQueue() throws Exception {
+        DetectRunThrottle detectRunThrottle = createNodeThrottle(NODE_NAME);
+        DetectRunThrottle.Permit firstPermit = detectRunThrottle.acquire(logger);
+
+        Future<DetectRunThrottle.Permit> waitingRun = executorService.submit(() -> detectRunThrottle.acquire(logger));
+        waitFor(() -> getOccupancy(NODE_KEY).getWaiting() == 1);
+        waitingRun.cancel(true);
+        waitFor(() -> getOccupancy(NODE_KEY).getWaiting() == 0);
+
+        firstPermit.close();
+        try (DetectRunThrottle.Permit secondPermit = detectRunThrottle.acquire(logger)) {
+            firstPermit.close();
+            assertEquals(1, getOccupancy(NODE_KEY).getCurrent(), "Closing a permit twice released it twice.");
+        }
+    }
+
+    @Test
+    public void testProjectVersionLockSerializesScansWithoutTakingRunSlots() throws Exception {
+        String projectVersion = "Test / 1.0";
+        String projectVersionKey = DetectRunThrottle.PROJECT_VERSION_PREFIX + projectVersion;
+        DetectRunThrottle detectRunThrottle = new DetectRunThrottle(NODE_NAME, Collections.emptySet(), 0, 0, 2);
+
+        DetectRunThrottle.Permit firstPermit = detectRunThrottle.acquire(logger, projectVersion);
+        CompletableFuture<DetectRunThrottle.Permit> sameVersionRun = detectRunThrottle.acquireAsync(logger, projectVersion);
+        assertFalse(sameVersionRun.isDone(), "A run started while another run held the lock on its project version.");
+        assertEquals(1, getOccupancy(projectVersionKey).getWaiting());
+        assertEquals(1, getOccupancy(DetectRunThrottle.GLOBAL_NAME).getCurrent(), "A run waiting for the lock took a run slot.");
+
+        try (DetectRunThrottle.Permit otherVersionPermit = detectRunThrottle.acquireAsync(logger, "Test / 2.0").get(5, TimeUnit.SECONDS)) {
+            assertEquals(2, getOccupancy(DetectRunThrottle.GLOBAL_NAME).getCurrent());
+        }
+
+        firstPermit.close();
+        sameVersionRun.get(5, TimeUnit.SECONDS).close();
+        assertTrue(DetectRunThrottle.getOccupancies().stream().noneMatch(occupancy -> occupancy.getName().startsWith(DetectRunThrottle.PROJECT_VERSION_PREFIX)),
+            "Unlocked project versions should be forgotten.");
+        assertTrue(byteArrayOutputStream.toString().contains("the lock on project version Test / 1.0 after waiting"), "The lock wait was not logged to the build.");
+    }
+
+    @Test
+    public void testRunWaitingForProjectVersionLockDoesNotHoldUpOtherRuns() throws Exception {
+        String projectVersion = "Test / 1.0";
+        DetectRunThrottle detectRunThrottle = new DetectRunThrottle(NODE_NAME, Collections.singleton("linux"), 2, 2, 2);
+
+        DetectRunThrottle.Permit firstPermit = detectRunThrottle.acquire(logger, projectVersion);
+        CompletableFuture<DetectRunThrottle.Permit> sameVersionRun = detectRunThrottle.acquireAsync(logger, projectVersion);
+
+        try (DetectRunThrottle.Permit unlockedPermit = detectRunThrottle.acquireAsync(logger).get(5, TimeUnit.SECONDS)) {
+            assertFalse(sameVersionRun.isDone(), "A run started while another run held the lock on its project version.");
+        }
+
+        firstPermit.close();
+        sameVersionRun.get(5, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    public void testHigherPriorityLaneOvertakesWaitingRuns() throws Exception {
+        DetectRunThrottle.Permit firstPermit = createNodeThrottle(NODE_NAME).acquire(logger);
+        CompletableFuture<DetectRunThrottle.Permit> lowPriorityRun = createNodeThrottle(NODE_NAME, DetectScanPriority.LOW).acquireAsync(logger);
+        CompletableFuture<DetectRunThrottle.Permit> normalPriorityRun = createNodeThrottle(NODE_NAME).acquireAsync(logger);
+        CompletableFuture<DetectRunThrottle.Permit> highPriorityRun = createNodeThrottle(NODE_NAME, DetectScanPriority.HIGH).acquireAsync(logger);
+
+        firstPermit.close();
+        DetectRunThrottle.Permit highPriorityPermit = highPriorityRun.get(5, TimeUnit.SECONDS);
+        assertFalse(normalPriorityRun.isDone(), "A lower priority run started before a higher priority one.");
+
+        highPriorityPermit.close();
+        DetectRunThrottle.Permit normalPriorityPermit = normalPriorityRun.get(5, TimeUnit.SECONDS);
+        assertFalse(lowPriorityRun.isDone(), "A lower priority run started before a higher priority one.");
+
+        normalPriorityPermit.close();
+        lowPriorityRun.get(5, TimeUnit.SECONDS).close();
+        assertTrue(byteArrayOutputStream.toString().contains("in the High priority lane"), "The lane was not logged to the build.");
+    }
+
+    @Test
+    public void testLaneStatistics() throws Exception {
+        DetectRunThrottle.Permit firstPermit = createNodeThrottle(NODE_NAME).acquire(logger);
+        CompletableFuture<DetectRunThrottle.Permit> highPriorityRun = createNodeThrottle(NODE_NAME, DetectScanPriority.HIGH).acquireAsync(logger);
+
+        DetectRunThrottle.Lane waitingLane = getLane(DetectScanPriority.HIGH);
+        assertEquals(1, waitingLane.getWaiting());
+        assertEquals(0, waitingLane.getStarted());
+
+        firstPermit.close();
+        highPriorityRun.get(5, TimeUnit.SECONDS).close();
+
+        DetectRunThrottle.Lane startedLane = getLane(DetectScanPriority.HIGH);
+        assertEquals(0, startedLane.getWaiting());
+        assertEquals(1, startedLane.getStarted());
+        assertEquals(1, getLane(DetectScanPriority.NORMAL).getStarted());
+        assertTrue(DetectRunThrottle.getLanes().stream().noneMatch(lane -> lane.getName().equals(DetectScanPriority.LOW.getDisplayName())), "An unused lane was listed.");
+    }
+
+    private DetectRunThrottle createNodeThrottle(String nodeName, DetectScanPriority priority) {
+        return new DetectRunThrottle(nodeName, Collections.emptySet(), 1, 0, 0, priority);
+    }
+
+    private DetectRunThrottle.Lane getLane(DetectScanPriority priority) {
+        return DetectRunThrottle.getLanes().stream()
+                   .filter(lane -> lane.getName().equals(priority.getDisplayName()))
+                   .findFirst()
+                   .orElseThrow(() -> new AssertionError("No lane for " + priority));
+    }
+
+    private DetectRunThrottle createNodeThrottle(String nodeName) {
+        return new DetectRunThrottle(nodeName, Collections.emptySet(), 1, 0, 0);
+    }
+
+    private DetectRunThrottle.Occupancy getOccupancy(String name) {
+        return DetectRunThrottle.getOccupancies().stream()
+                   .filter(occupancy -> occupancy.getName().equals(name))
+                   .findFirst()
+                   .orElseThrow(() -> new AssertionError("No occupancy for " + name));
+    }
+
+    private void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                if (condition.getAsBoolean()) {
+                    return;
+                }
+            } catch (AssertionError ignored) {
+                // The occupancy has not been created yet.
+            }
+            Thread.sleep(10);
+        }
+        fail("Timed out waiting for the throttle.");
+    }
+
+}
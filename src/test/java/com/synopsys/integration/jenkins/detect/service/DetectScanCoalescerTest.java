@@ -0,0 +1,106 @@
+package com.synopsys.integration.jenkins.detect.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.synopsys.integration.jenkins.detect.DetectJenkinsEnvironmentVariable;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+
+import hudson.model.TaskListener;
+
+public class DetectScanCoalescerTest {
+    private static final String DETECT_PROPERTIES = "--detect.project.name=Test --detect.project.version.name=main";
+
+    private ByteArrayOutputStream byteArrayOutputStream;
+    private JenkinsIntLogger logger;
+
+    @BeforeEach
+    public void setUp() {
+        TaskListener taskListener = Mockito.mock(TaskListener.class);
+        byteArrayOutputStream = new ByteArrayOutputStream();
+        Mockito.when(taskListener.getLogger()).thenReturn(new PrintStream(byteArrayOutputStream));
+        logger = JenkinsIntLogger.logToListener(taskListener);
+        DetectScanCoalescer.invalidateAll();
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        DetectScanCoalescer.invalidateAll();
+    }
+
+    @Test
+    public void testNewerBuildSupersedesOlderBuild() {
+        AtomicInteger supersededScans = new AtomicInteger();
+
+        DetectScanCoalescer.Registration olderRegistration = createCoalescer("project/main", 1).register(DETECT_PROPERTIES, supersededScans::incrementAndGet);
+        assertFalse(olderRegistration.isSuperseded());
+
+        DetectScanCoalescer.Registration newerRegistration = createCoalescer("project/main", 2).register(DETECT_PROPERTIES, supersededScans::incrementAndGet);
+
+        assertTrue(olderRegistration.isSuperseded());
+        assertFalse(newerRegistration.isSuperseded());
+        assertEquals(1, supersededScans.get());
+        assertTrue(byteArrayOutputStream.toString().contains("coalesced into the scan of build #2 of project/main"), "The coalesced scan was not recorded in the log.");
+    }
+
+    @Test
+    public void testOlderBuildRegisteringLateIsSupersededRightAway() {
+        AtomicInteger supersededScans = new AtomicInteger();
+        createCoalescer("project/main", 5).register(DETECT_PROPERTIES, supersededScans::incrementAndGet);
+
+        DetectScanCoalescer.Registration lateRegistration = createCoalescer("project/main", 4).register(DETECT_PROPERTIES, supersededScans::incrementAndGet);
+
+        assertTrue(lateRegistration.isSuperseded());
+        assertEquals(1, supersededScans.get());
+    }
+
+    @Test
+    public void testOtherJobsAndScansAreNotSuperseded() {
+        DetectScanCoalescer.Registration registration = createCoalescer("project/main", 1).register(DETECT_PROPERTIES, () -> {});
+
+        createCoalescer("project/PR-7", 2).register(DETECT_PROPERTIES, () -> {});
+        createCoalescer("project/main", 2).register("--detect.project.name=Other --detect.project.version.name=main", () -> {});
+        createCoalescer("project/main", 1).register(DETECT_PROPERTIES, () -> {});
+
+        assertFalse(registration.isSuperseded());
+    }
+
+    @Test
+    public void testFinishedScanIsForgotten() {
+        DetectScanCoalescer.Registration newerRegistration = createCoalescer("project/main", 2).register(DETECT_PROPERTIES, () -> {});
+        newerRegistration.close();
+
+        assertFalse(createCoalescer("project/main", 1).register(DETECT_PROPERTIES, () -> {}).isSuperseded(), "A rebuild of an older build should scan once the newer scan has finished.");
+    }
+
+    @Test
+    public void testNotRegisteredWithoutOptIn() {
+        Map<String, String> environmentVariables = new HashMap<>();
+        environmentVariables.put("JOB_NAME", "project/main");
+        environmentVariables.put("BUILD_NUMBER", "1");
+
+        assertSame(DetectScanCoalescer.Registration.NOT_REGISTERED, new DetectScanCoalescer(logger, environmentVariables).register(DETECT_PROPERTIES, () -> {}));
+    }
+
+    private DetectScanCoalescer createCoalescer(String jobName, int buildNumber) {
+        Map<String, String> environmentVariables = new HashMap<>();
+        environmentVariables.put(DetectJenkinsEnvironmentVariable.COALESCE_SCANS.stringValue(), "true");
+        environmentVariables.put("JOB_NAME", jobName);
+        environmentVariables.put("BUILD_NUMBER", String.valueOf(buildNumber));
+        return new DetectScanCoalescer(logger, environmentVariables);
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.synopsys.integration.jenkins.detect.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.synopsys.integration.jenkins.detect.DetectJenkinsEnvironmentVariable;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+
+import hudson.model.TaskListener;
+
+public class DetectScanLedgerTest {
+    private static final String DETECT_PROPERTIES = "--detect.project.name=Test --detect.project.version.name=1.0";
+
+    private final Map<String, String> environmentVariables = new HashMap<>();
+    private ByteArrayOutputStream byteArrayOutputStream;
+    private DetectScanLedger detectScanLedger;
+
+    @BeforeEach
+    public void setUp() {
+        TaskListener taskListener = Mockito.mock(TaskListener.class);
+        byteArrayOutputStream = new ByteArrayOutputStream();
+        Mockito.when(taskListener.getLogger()).thenReturn(new PrintStream(byteArrayOutputStream));
+        environmentVariables.put(DetectJenkinsEnvironmentVariable.DEDUPLICATE_SCANS.stringValue(), "true");
+        environmentVariables.put("GIT_COMMIT", "0123abcd");
+        environmentVariables.put("BUILD_TAG", "jenkins-branch-1");
+        detectScanLedger = new DetectScanLedger(JenkinsIntLogger.logToListener(taskListener), environmentVariables);
+        DetectScanLedger.invalidateAll();
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        DetectScanLedger.invalidateAll();
+    }
+
+    @Test
+    public void testConcurrentIdenticalScanWaits() throws Exception {
+        DetectScanLedger.Claim firstClaim = detectScanLedger.claim(DETECT_PROPERTIES);
+        DetectScanLedger.Claim identicalClaim = detectScanLedger.claim(DETECT_PROPERTIES);
+
+        assertFalse(firstClaim.isDuplicate());
+        assertTrue(identicalClaim.isDuplicate());
+        CompletableFuture<Integer> scannedExitCode = identicalClaim.getScannedExitCode();
+        assertFalse(scannedExitCode.isDone(), "The identical scan should wait until the first one has finished.");
+
+        firstClaim.recordExitCode(0);
+
+        assertEquals(0, scannedExitCode.get(1, TimeUnit.SECONDS));
+        assertTrue(byteArrayOutputStream.toString().contains("jenkins-branch-1"), "The build that scanned was not named.");
+    }
+
+    @Test
+    public void testSuccessfulScanIsReused() throws Exception {
+        detectScanLedger.claim(DETECT_PROPERTIES).recordExitCode(0);
+
+        DetectScanLedger.Claim laterClaim = detectScanLedger.claim(DETECT_PROPERTIES);
+
+        assertTrue(laterClaim.isDuplicate());
+        assertEquals(0, laterClaim.getScannedExitCode().get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailedScanIsForgotten() throws Exception {
+        DetectScanLedger.Claim firstClaim = detectScanLedger.claim(DETECT_PROPERTIES);
+        DetectScanLedger.Claim identicalClaim = detectScanLedger.claim(DETECT_PROPERTIES);
+        firstClaim.recordExitCode(3);
+
+        assertEquals(3, identicalClaim.getScannedExitCode().get(1, TimeUnit.SECONDS), "A waiting build should share the result of the scan it waited for.");
+        assertFalse(detectScanLedger.claim(DETECT_PROPERTIES).isDuplicate(), "A later build should scan again after a failed scan.");
+    }
+
+    @Test
+    public void testAbandonedScanLetsTheWaitingBuildScan() {
+        DetectScanLedger.Claim firstClaim = detectScanLedger.claim(DETECT_PROPERTIES);
+        DetectScanLedger.Claim identicalClaim = detectScanLedger.claim(DETECT_PROPERTIES);
+
+        firstClaim.abandon();
+
+        assertThrows(ExecutionException.class, () -> identicalClaim.getScannedExitCode().get(1, TimeUnit.SECONDS));
+        assertFalse(detectScanLedger.claim(DETECT_PROPERTIES).isDuplicate());
+    }
+
+    @Test
+    public void testDifferentScansAreNotDuplicates() {
+        detectScanLedger.claim(DETECT_PROPERTIES).recordExitCode(0);
+
+        assertFalse(detectScanLedger.claim(DETECT_PROPERTIES + " --detect.tools=DETECTOR").isDuplicate());
+        environmentVariables.put("GIT_COMMIT", "4567cdef");
+        assertFalse(detectScanLedger.claim(DETECT_PROPERTIES).isDuplicate());
+    }
+
+    @Test
+    public void testNotTracked() {
+        environmentVariables.remove("GIT_COMMIT");
+        assertSame(DetectScanLedger.Claim.NOT_TRACKED, detectScanLedger.claim(DETECT_PROPERTIES));
+
+        environmentVariables.put("GIT_COMMIT", "0123abcd");
+        assertSame(DetectScanLedger.Claim.NOT_TRACKED, detectScanLedger.claim("--detect.project.name=Test"));
+
+        environmentVariables.remove(DetectJenkinsEnvironmentVariable.DEDUPLICATE_SCANS.stringValue());
+        assertSame(DetectScanLedger.Claim.NOT_TRACKED, detectScanLedger.claim(DETECT_PROPERTIES));
+    }
+
+}
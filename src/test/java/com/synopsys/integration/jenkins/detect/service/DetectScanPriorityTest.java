@@ -0,0 +1,33 @@
+package com.synopsys.integration.jenkins.detect.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.synopsys.integration.jenkins.detect.DetectJenkinsEnvironmentVariable;
+
+public class DetectScanPriorityTest {
+    private final Map<String, String> environmentVariables = Collections.singletonMap(DetectJenkinsEnvironmentVariable.SCAN_PRIORITY.stringValue(), "low");
+
+    @Test
+    public void testStepPriorityWins() {
+        assertEquals(DetectScanPriority.HIGH, DetectScanPriority.resolve("high", environmentVariables));
+        assertEquals(DetectScanPriority.HIGH, DetectScanPriority.resolve(" HIGH ", Collections.emptyMap()));
+    }
+
+    @Test
+    public void testEnvironmentPriorityIsUsedByDefault() {
+        assertEquals(DetectScanPriority.LOW, DetectScanPriority.resolve(null, environmentVariables));
+        assertEquals(DetectScanPriority.LOW, DetectScanPriority.resolve("", environmentVariables));
+    }
+
+    @Test
+    public void testUnknownPriorityIsNormal() {
+        assertEquals(DetectScanPriority.NORMAL, DetectScanPriority.resolve(null, Collections.emptyMap()));
+        assertEquals(DetectScanPriority.NORMAL, DetectScanPriority.resolve("urgent", environmentVariables));
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.synopsys.integration.jenkins.detect.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import hudson.AbortException;
+
+public class DetectShardPlannerTest {
+    private Path workspace;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        workspace = Files.createTempDirectory("testDetectShardPlanner");
+    }
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        FileUtils.deleteDirectory(workspace.toFile());
+    }
+
+    @Test
+    public void testModulesWithManifestsBecomeShards() throws IOException {
+        createFile("backend/pom.xml");
+        createFile("frontend/package.json");
+        createFile("docs/index.md");
+        createFile(".github/package.json");
+
+        assertEquals(Arrays.asList("backend", "frontend"), plan());
+    }
+
+    @Test
+    public void testModulesOfMultiModuleBuildBecomeShards() throws IOException {
+        createFile("pom.xml");
+        createFile("backend/pom.xml");
+        createFile("frontend/pom.xml");
+
+        assertEquals(Arrays.asList("backend", "frontend"), plan());
+    }
+
+    @Test
+    public void testWorkspaceWithOnlyRootManifestIsNotSplit() throws IOException {
+        createFile("settings.gradle");
+        createFile("src/main/java/Main.java");
+
+        assertEquals(Collections.singletonList(DetectShardPlanner.WHOLE_WORKSPACE), plan());
+    }
+
+    @Test
+    public void testWorkspaceWithoutModulesIsNotSplit() throws IOException {
+        createFile("docs/index.md");
+
+        assertEquals(Collections.singletonList(DetectShardPlanner.WHOLE_WORKSPACE), plan());
+    }
+
+    @Test
+    public void testGivenSourcePathsAreUsed() throws IOException {
+        createFile("services/a/go.mod");
+        createFile("services/b/go.mod");
+
+        assertEquals(Arrays.asList("services/a", "services/b"), new DetectShardPlanner(Arrays.asList("services/a", "services/b")).invoke(workspace.toFile(), null));
+        assertThrows(AbortException.class, () -> new DetectShardPlanner(Collections.singletonList("services/c")).invoke(workspace.toFile(), null));
+    }
+
+    private List<String> plan() throws IOException {
+        return new DetectShardPlanner(Collections.emptyList()).invoke(workspace.toFile(), null);
+    }
+
+    private void createFile(String relativePath) throws IOException {
+        File file = workspace.resolve(relativePath).toFile();
+        FileUtils.touch(file);
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.synopsys.integration.jenkins.detect.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.ByteArrayOutputStream;
@@ -11,6 +12,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import com.synopsys.integration.jenkins.detect.service.strategy.RemoteJavaInfo;
 import com.synopsys.integration.jenkins.detect.service.strategy.RemoteJavaService;
 import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
 import com.synopsys.integration.log.LogLevel;
@@ -99,4 +101,15 @@ public class RemoteJavaServiceTest {
         assertTrue(byteArrayOutputStream.toString().contains(expectedDetectJavaPath), "Log message does not contain correct Java path.");
         assertTrue(byteArrayOutputStream.toString().contains("DETECT_JAVA_PATH environment variable"), "Log message does not contain correct 'based on' message.");
     }
+
+    @Test
+    public void testKnownJavaSkipsProbes() {
+        environmentVariables.put(RemoteJavaService.JAVA_HOME, testJavaPath);
+        RemoteJavaInfo knownRemoteJavaInfo = new RemoteJavaInfo(expectedDetectJavaPath, RemoteJavaService.DETECT_JAVA_PATH + " environment variable", "openjdk version \"11.0.2\"");
+        RemoteJavaService remoteJavaService = new RemoteJavaService(logger, null, environmentVariables.getVariables(), knownRemoteJavaInfo);
+
+        assertEquals(expectedDetectJavaPath, remoteJavaService.getJavaExecutablePath(), "Java path resolved by an earlier build was not reused.");
+        assertTrue(byteArrayOutputStream.toString().contains("openjdk version \"11.0.2\""), "Log message does not contain the known Java version.");
+        assertFalse(byteArrayOutputStream.toString().contains("PATH: "), "Java should not have been probed again.");
+    }
 }
@@ -0,0 +1,129 @@
+package com.synopsys.integration.jenkins.detect.service.process;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import com.synopsys.integration.jenkins.detect.DetectAsyncRun;
+import com.synopsys.integration.jenkins.detect.DetectCommandLine;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+import com.synopsys.integration.util.IntEnvironmentVariables;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.util.StreamTaskListener;
+
+@DisabledOnOs(OS.WINDOWS)
+public class DurableDetectProcessTest {
+    private final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    private final StreamTaskListener listener = new StreamTaskListener(byteArrayOutputStream);
+    private Path parentDirectory;
+    private FilePath workspace;
+
+    @BeforeEach
+    public void setUp() throws IOException, InterruptedException {
+        parentDirectory = Files.createTempDirectory("testDurableDetectProcess");
+        workspace = new FilePath(parentDirectory.resolve("workspace").toFile());
+        workspace.mkdirs();
+    }
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        FileUtils.deleteDirectory(parentDirectory.toFile());
+    }
+
+    @Test
+    public void testOutputAndExitCodeAreReported() throws Exception {
+        DurableDetectProcess durableDetectProcess = launch("echo Detect is running; exit 3");
+
+        assertEquals(3, waitForExitCode(durableDetectProcess));
+        assertTrue(byteArrayOutputStream.toString().contains("Detect is running"), "Detect output was not written to the build.");
+        assertFalse(new FilePath(new File(durableDetectProcess.getControlDirectory())).exists(), "The control directory was not cleaned up.");
+    }
+
+    @Test
+    public void testLaunchDoesNotWaitForDetect() throws Exception {
+        DurableDetectProcess durableDetectProcess = launch("sleep 2; exit 0");
+
+        assertFalse(durableDetectProcess.checkExitCode().isPresent(), "Launching waited for Detect to finish.");
+        assertEquals(0, waitForExitCode(durableDetectProcess));
+    }
+
+    @Test
+    public void testLargeOutputIsCopiedCompletely() throws Exception {
+        DurableDetectProcess durableDetectProcess = launch("head -c 3000000 /dev/zero | tr '\\0' a; exit 0");
+
+        assertEquals(0, waitForExitCode(durableDetectProcess));
+        assertEquals(3000000, StringUtils.countMatches(byteArrayOutputStream.toString(), 'a'));
+    }
+
+    @Test
+    public void testKillStopsDetect() throws Exception {
+        Path marker = parentDirectory.resolve("finished");
+        DurableDetectProcess durableDetectProcess = launch("sleep 30; touch " + marker);
+        FilePath pidFile = new FilePath(new File(durableDetectProcess.getControlDirectory())).child(DurableDetectProcess.PID_FILE);
+        waitFor(pidFile);
+
+        durableDetectProcess.kill();
+
+        Thread.sleep(500);
+        assertTrue(Files.notExists(marker), "Detect kept running after it was killed.");
+    }
+
+    @Test
+    public void testResumedRunReportsExitCode() throws Exception {
+        DurableDetectProcess durableDetectProcess = launch("echo Detect is still running; exit 0");
+
+        DetectAsyncRun detectAsyncRun = DetectAsyncRun.resume(durableDetectProcess, JenkinsIntLogger.logToListener(listener));
+
+        assertEquals(0, detectAsyncRun.getExitCode().get(30, TimeUnit.SECONDS));
+        assertTrue(byteArrayOutputStream.toString().contains("Detect is still running"), "Detect output was not written to the build.");
+        assertTrue(byteArrayOutputStream.toString().contains("END OF DETECT"), "The end of Detect was not logged.");
+    }
+
+    private DurableDetectProcess launch(String script) throws IOException, InterruptedException {
+        DetectCommandLine detectCommandLine = new DetectCommandLine(IntEnvironmentVariables.empty(), Arrays.asList("sh", "-c", script));
+        return DurableDetectProcess.launch(new Launcher.LocalLauncher(listener), workspace, "", listener, detectCommandLine);
+    }
+
+    private int waitForExitCode(DurableDetectProcess durableDetectProcess) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + 30000;
+        while (System.currentTimeMillis() < deadline) {
+            Optional<Integer> exitCode = durableDetectProcess.checkExitCode();
+            if (exitCode.isPresent()) {
+                return exitCode.get();
+            }
+            Thread.sleep(50);
+        }
+        return fail("Timed out waiting for Detect.");
+    }
+
+    private void waitFor(FilePath filePath) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!filePath.exists()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting for " + filePath.getRemote());
+            }
+            Thread.sleep(50);
+        }
+    }
+
+}
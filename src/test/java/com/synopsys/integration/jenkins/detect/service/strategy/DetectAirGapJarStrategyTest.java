@@ -13,6 +13,7 @@ import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.Optional;
 import java.util.function.Function;
@@ -34,6 +35,7 @@ import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
 import com.synopsys.integration.jenkins.service.JenkinsConfigService;
 import com.synopsys.integration.log.LogLevel;
 import com.synopsys.integration.util.IntEnvironmentVariables;
+import com.synopsys.integration.util.OperatingSystemType;
 
 import hudson.model.TaskListener;
 import jenkins.security.MasterToSlaveCallable;
@@ -94,7 +96,7 @@ public class DetectAirGapJarStrategyTest {
             jenkinsConfigServiceMock,
             AIRGAP_DOWNLOAD_STRATEGY
         );
-        assertEquals(Function.identity(), detectAirGapJarStrategy.getArgumentEscaper());
+        assertEquals(Function.identity(), detectAirGapJarStrategy.getArgumentEscaper(OperatingSystemType.determineFromSystem()));
     }
 
     @ParameterizedTest
@@ -253,11 +255,73 @@ public class DetectAirGapJarStrategyTest {
         );
     }
 
+    @Test
+    public void testResolutionIsReused() throws IntegrationException, IOException, InterruptedException {
+        logger.setLogLevel(LogLevel.DEBUG);
+        AirGapResolutionCache airGapResolutionCache = new AirGapResolutionCache("testResolutionIsReused");
+
+        DetectSetupResult firstSetupResult = runWithResolutionCache(airGapResolutionCache);
+        DetectSetupResult secondSetupResult = runWithResolutionCache(airGapResolutionCache);
+
+        assertEquals(tempAirGapJar.getPath(), secondSetupResult.getInitialArguments().get(2));
+        assertEquals(firstSetupResult.getInitialArguments(), secondSetupResult.getInitialArguments());
+        assertTrue(byteArrayOutputStream.toString().contains("skipping the search for the jar"), "Second run should not have searched for the jar.");
+        AirGapResolutionCache.invalidate("testResolutionIsReused");
+    }
+
+    @Test
+    public void testResolutionForOtherHomeIsNotReused() throws IntegrationException {
+        AirGapResolutionCache airGapResolutionCache = new AirGapResolutionCache("testResolutionForOtherHomeIsNotReused");
+        runWithResolutionCache(airGapResolutionCache);
+
+        // Another build on the node whose environment expands the home to a different directory.
+        tempJarDirectoryPathName = createTempAirGapDirectory().getPath();
+        File otherAirGapJar = createTempAirGapJar(DetectAirGapJarStrategy.DETECT_JAR_PREFIX, DetectAirGapJarStrategy.DETECT_JAR_SUFFIX);
+        DetectSetupResult setupResult = runWithResolutionCache(airGapResolutionCache);
+
+        assertEquals(otherAirGapJar.getPath(), setupResult.getInitialArguments().get(2));
+        AirGapResolutionCache.invalidate("testResolutionForOtherHomeIsNotReused");
+    }
+
+    @Test
+    public void testChangedDirectoryIsSearchedAgain() throws IntegrationException, IOException {
+        AirGapResolutionCache airGapResolutionCache = new AirGapResolutionCache("testChangedDirectoryIsSearchedAgain");
+        runWithResolutionCache(airGapResolutionCache);
+
+        assertTrue(tempAirGapJar.delete(), "Could not remove the first Air Gap jar.");
+        File replacementAirGapJar = createTempAirGapJar(DetectAirGapJarStrategy.DETECT_JAR_PREFIX, DetectAirGapJarStrategy.DETECT_JAR_SUFFIX);
+        Files.setLastModifiedTime(Paths.get(tempJarDirectoryPathName), FileTime.fromMillis(System.currentTimeMillis() + 60000));
+
+        DetectSetupResult setupResult = runWithResolutionCache(airGapResolutionCache);
+
+        assertEquals(replacementAirGapJar.getPath(), setupResult.getInitialArguments().get(2));
+        AirGapResolutionCache.invalidate("testChangedDirectoryIsSearchedAgain");
+    }
+
+    private DetectSetupResult runWithResolutionCache(AirGapResolutionCache airGapResolutionCache) throws IntegrationException {
+        AirGapDownloadStrategy spiedAirGapDownloadStrategy = Mockito.spy(AIRGAP_DOWNLOAD_STRATEGY);
+        Mockito.when(spiedAirGapDownloadStrategy.getAirGapInstallationName()).thenReturn(AIRGAP_TOOL_NAME);
+        Mockito.when(detectAirGapInstallationMock.getHome()).thenReturn(tempJarDirectoryPathName);
+        DetectAirGapJarStrategy detectAirGapJarStrategy = new DetectAirGapJarStrategy(
+            logger,
+            environmentVariables,
+            REMOTE_JDK_HOME,
+            jenkinsConfigServiceMock,
+            spiedAirGapDownloadStrategy,
+            null,
+            airGapResolutionCache
+        );
+
+        DetectSetupResult detectSetupResult = detectAirGapJarStrategy.getSetupCallable().call();
+        detectAirGapJarStrategy.recordSetupResult(detectSetupResult);
+        return detectSetupResult;
+    }
+
     private void executeAndValidateSetupCallable(String javaHomeInput, String expectedJavaPath, String toolHomeDirectory, File expectedAirGapJar) {
         try {
             DetectAirGapJarStrategy detectAirGapJarStrategy = configureCallable(javaHomeInput, toolHomeDirectory);
-            MasterToSlaveCallable<ArrayList<String>, IntegrationException> setupCallable = detectAirGapJarStrategy.getSetupCallable();
-            ArrayList<String> airGapJarExecutionElements = setupCallable.call();
+            MasterToSlaveCallable<DetectSetupResult, IntegrationException> setupCallable = detectAirGapJarStrategy.getSetupCallable();
+            ArrayList<String> airGapJarExecutionElements = setupCallable.call().getInitialArguments();
             String resolvedExpectedJavaPath = resolveDirectory(expectedJavaPath);
 
             assertEquals(resolvedExpectedJavaPath, airGapJarExecutionElements.get(0));
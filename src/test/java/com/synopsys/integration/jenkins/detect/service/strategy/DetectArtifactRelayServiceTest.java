@@ -0,0 +1,151 @@
+package com.synopsys.integration.jenkins.detect.service.strategy;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.synopsys.integration.exception.IntegrationException;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+import com.synopsys.integration.jenkins.wrapper.JenkinsProxyHelper;
+
+import hudson.FilePath;
+import hudson.model.TaskListener;
+
+public class DetectArtifactRelayServiceTest {
+    private static final byte[] JAR_CONTENT = "not really a jar".getBytes(StandardCharsets.UTF_8);
+    private static final String JAR_PATH = "/artifactory/synopsys-detect-8.0.0.jar";
+    private static final String LATEST_PATH = "/api/storage/synopsys-detect";
+    private static final String VERSIONS_PATH = "/artifactory/versions/";
+
+    private final AtomicInteger jarDownloads = new AtomicInteger();
+
+    private HttpServer httpServer;
+    private String baseUrl;
+    private Path controllerStoreDirectory;
+    private Path agentStoreDirectory;
+    private ByteArrayOutputStream logs;
+    private DetectArtifactRelayService detectArtifactRelayService;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        logs = new ByteArrayOutputStream();
+        TaskListener mockedTaskListener = Mockito.mock(TaskListener.class);
+        Mockito.when(mockedTaskListener.getLogger()).thenReturn(new PrintStream(logs));
+        JenkinsIntLogger logger = JenkinsIntLogger.logToListener(mockedTaskListener);
+
+        httpServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        httpServer.createContext(JAR_PATH, this::serveJar);
+        httpServer.createContext(LATEST_PATH, this::serveLatest);
+        httpServer.createContext(VERSIONS_PATH, this::serveVersion);
+        httpServer.start();
+        baseUrl = String.format("http://localhost:%d", httpServer.getAddress().getPort());
+
+        controllerStoreDirectory = Files.createTempDirectory("testRelayController");
+        agentStoreDirectory = Files.createTempDirectory("testRelayAgent");
+
+        detectArtifactRelayService = new DetectArtifactRelayService(
+            logger,
+            new JenkinsProxyHelper(),
+            controllerStoreDirectory,
+            new FilePath(agentStoreDirectory.toFile()),
+            baseUrl + LATEST_PATH,
+            3600
+        );
+    }
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        httpServer.stop(0);
+        FileUtils.deleteDirectory(controllerStoreDirectory.toFile());
+        FileUtils.deleteDirectory(agentStoreDirectory.toFile());
+    }
+
+    @Test
+    public void testRelayLatestJar() throws IntegrationException, IOException, InterruptedException {
+        String relayedJarPath = detectArtifactRelayService.relayDetectJar(null);
+
+        File relayedJar = new File(relayedJarPath);
+        assertArrayEquals(JAR_CONTENT, Files.readAllBytes(relayedJar.toPath()));
+        assertEquals(DigestUtils.sha256Hex(JAR_CONTENT), relayedJar.getParentFile().getName(), "Relayed jar is not stored by checksum.");
+        assertEquals(agentStoreDirectory.toFile().getCanonicalPath(), relayedJar.getParentFile().getParentFile().getCanonicalPath());
+    }
+
+    @Test
+    public void testRelaySkippedWhenAgentHasChecksum() throws IntegrationException, IOException, InterruptedException {
+        String firstRelayedJarPath = detectArtifactRelayService.relayDetectJar(baseUrl + JAR_PATH);
+        String secondRelayedJarPath = detectArtifactRelayService.relayDetectJar(baseUrl + JAR_PATH);
+
+        assertEquals(firstRelayedJarPath, secondRelayedJarPath);
+        assertEquals(1, jarDownloads.get(), "Jar should only be downloaded once by the controller.");
+        assertTrue(logs.toString().contains("is already present on this node"), "Second relay should not copy the jar again.");
+    }
+
+    @Test
+    public void testRelayToNewAgent() throws IntegrationException, IOException, InterruptedException {
+        detectArtifactRelayService.relayDetectJar(baseUrl + JAR_PATH);
+        FileUtils.cleanDirectory(agentStoreDirectory.toFile());
+
+        String relayedJarPath = detectArtifactRelayService.relayDetectJar(baseUrl + JAR_PATH);
+
+        assertArrayEquals(JAR_CONTENT, Files.readAllBytes(Paths.get(relayedJarPath)));
+        assertEquals(1, jarDownloads.get(), "Jar should be relayed from the controller store without downloading it again.");
+    }
+
+    @Test
+    public void testSupersededChecksumsAreRemoved() throws IntegrationException, IOException, InterruptedException {
+        String latestRelayedJarPath = null;
+        for (int minorVersion = 0; minorVersion <= DetectArtifactRelayService.RETAINED_CHECKSUMS; minorVersion++) {
+            latestRelayedJarPath = detectArtifactRelayService.relayDetectJar(String.format("%s%ssynopsys-detect-8.%d.0.jar", baseUrl, VERSIONS_PATH, minorVersion));
+        }
+
+        File latestChecksumDirectory = new File(latestRelayedJarPath).getParentFile();
+        File[] controllerChecksumDirectories = controllerStoreDirectory.toFile().listFiles(file -> file.isDirectory() && !DetectArtifactRelayService.DOWNLOADS_DIRECTORY.equals(file.getName()));
+        File[] agentChecksumDirectories = agentStoreDirectory.toFile().listFiles(File::isDirectory);
+        assertEquals(DetectArtifactRelayService.RETAINED_CHECKSUMS, controllerChecksumDirectories.length, "Superseded checksums should be removed from the controller store.");
+        assertEquals(DetectArtifactRelayService.RETAINED_CHECKSUMS, agentChecksumDirectories.length, "Superseded checksums should be removed from the agent store.");
+        assertTrue(controllerStoreDirectory.resolve(latestChecksumDirectory.getName()).toFile().isDirectory(), "The latest checksum should stay in the controller store.");
+        assertTrue(latestChecksumDirectory.isDirectory(), "The latest checksum should stay in the agent store.");
+    }
+
+    private void serveJar(HttpExchange exchange) throws IOException {
+        jarDownloads.incrementAndGet();
+        respond(exchange, JAR_CONTENT);
+    }
+
+    private void serveVersion(HttpExchange exchange) throws IOException {
+        respond(exchange, exchange.getRequestURI().getPath().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void serveLatest(HttpExchange exchange) throws IOException {
+        String latest = String.format("{\"properties\":{\"%s\":[\"%s%s\"]}}", DetectArtifactRelayService.DETECT_LATEST_PROPERTY, baseUrl, JAR_PATH);
+        respond(exchange, latest.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void respond(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+}
@@ -28,6 +28,7 @@ import com.synopsys.integration.exception.IntegrationException;
 import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
 import com.synopsys.integration.log.LogLevel;
 import com.synopsys.integration.util.IntEnvironmentVariables;
+import com.synopsys.integration.util.OperatingSystemType;
 
 import hudson.model.TaskListener;
 import jenkins.security.MasterToSlaveCallable;
@@ -68,7 +69,7 @@ public class DetectJarStrategyTest {
     @Test
     public void testArgumentEscaper() {
         DetectJarStrategy detectJarStrategy = new DetectJarStrategy(logger, environmentVariables, REMOTE_JDK_HOME, DETECT_JAR_PATH);
-        assertEquals(Function.identity(), detectJarStrategy.getArgumentEscaper());
+        assertEquals(Function.identity(), detectJarStrategy.getArgumentEscaper(OperatingSystemType.determineFromSystem()));
     }
 
     @ParameterizedTest
@@ -146,8 +147,8 @@ public class DetectJarStrategyTest {
     private void executeAndValidateSetupCallable(String javaHomeInput, String expectedJavaPath) {
         try {
             DetectJarStrategy detectJarStrategy = new DetectJarStrategy(logger, environmentVariables, javaHomeInput, DETECT_JAR_PATH);
-            MasterToSlaveCallable<ArrayList<String>, IntegrationException> setupCallable = detectJarStrategy.getSetupCallable();
-            ArrayList<String> jarExecutionElements = setupCallable.call();
+            MasterToSlaveCallable<DetectSetupResult, IntegrationException> setupCallable = detectJarStrategy.getSetupCallable();
+            ArrayList<String> jarExecutionElements = setupCallable.call().getInitialArguments();
             String resolvedExpectedJavaPath = resolveDirectory(expectedJavaPath);
 
             assertEquals(resolvedExpectedJavaPath, jarExecutionElements.get(0));
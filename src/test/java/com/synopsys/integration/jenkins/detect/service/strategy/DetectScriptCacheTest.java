@@ -0,0 +1,141 @@
+package com.synopsys.integration.jenkins.detect.service.strategy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.synopsys.integration.exception.IntegrationException;
+import com.synopsys.integration.jenkins.extensions.JenkinsIntLogger;
+import com.synopsys.integration.rest.client.IntHttpClient;
+import com.synopsys.integration.rest.proxy.ProxyInfo;
+
+import hudson.model.TaskListener;
+
+public class DetectScriptCacheTest {
+    private static final String SCRIPT_NAME = "detect8.sh";
+    private static final String SCRIPT_CONTENT = "#!/bin/bash\necho detect\n";
+    private static final String ETAG = "\"abc123\"";
+
+    private final AtomicInteger fullResponses = new AtomicInteger();
+    private final AtomicInteger notModifiedResponses = new AtomicInteger();
+
+    private HttpServer httpServer;
+    private String scriptUrl;
+    private Path cacheDirectory;
+    private JenkinsIntLogger logger;
+    private IntHttpClient intHttpClient;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        TaskListener mockedTaskListener = Mockito.mock(TaskListener.class);
+        Mockito.when(mockedTaskListener.getLogger()).thenReturn(new PrintStream(new ByteArrayOutputStream()));
+        logger = JenkinsIntLogger.logToListener(mockedTaskListener);
+        intHttpClient = new IntHttpClient(logger, new Gson(), 10, false, ProxyInfo.NO_PROXY_INFO);
+
+        httpServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        httpServer.createContext("/" + SCRIPT_NAME, this::serveScript);
+        httpServer.start();
+        scriptUrl = String.format("http://localhost:%d/%s", httpServer.getAddress().getPort(), SCRIPT_NAME);
+
+        cacheDirectory = Files.createTempDirectory("testDetectScriptCache");
+    }
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        if (httpServer != null) {
+            httpServer.stop(0);
+        }
+        FileUtils.deleteDirectory(cacheDirectory.toFile());
+    }
+
+    @Test
+    public void testDownloadsWhenNotCached() throws IntegrationException, IOException {
+        Path script = new DetectScriptCache(logger, cacheDirectory, 3600).getOrDownload(intHttpClient, scriptUrl, SCRIPT_NAME);
+
+        assertEquals(SCRIPT_CONTENT, new String(Files.readAllBytes(script), StandardCharsets.UTF_8));
+        assertTrue(Files.exists(cacheDirectory.resolve(SCRIPT_NAME + DetectScriptCache.METADATA_SUFFIX)), "Cache metadata was not written.");
+        assertEquals(1, fullResponses.get());
+    }
+
+    @Test
+    public void testFreshCopyIsServedWithoutRequest() throws IntegrationException, IOException {
+        DetectScriptCache detectScriptCache = new DetectScriptCache(logger, cacheDirectory, 3600);
+        detectScriptCache.getOrDownload(intHttpClient, scriptUrl, SCRIPT_NAME);
+        long hits = DetectScriptCache.getHitCount();
+
+        detectScriptCache.getOrDownload(intHttpClient, scriptUrl, SCRIPT_NAME);
+
+        assertEquals(1, fullResponses.get());
+        assertEquals(0, notModifiedResponses.get());
+        assertTrue(DetectScriptCache.getHitCount() > hits, "Cache hit was not counted.");
+    }
+
+    @Test
+    public void testStaleCopyIsRevalidated() throws IntegrationException, IOException {
+        DetectScriptCache detectScriptCache = new DetectScriptCache(logger, cacheDirectory, 0);
+        detectScriptCache.getOrDownload(intHttpClient, scriptUrl, SCRIPT_NAME);
+
+        Path script = detectScriptCache.getOrDownload(intHttpClient, scriptUrl, SCRIPT_NAME);
+
+        assertEquals(1, fullResponses.get());
+        assertEquals(1, notModifiedResponses.get());
+        assertEquals(SCRIPT_CONTENT, new String(Files.readAllBytes(script), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testCachedCopyIsServedWhenUnreachable() throws IntegrationException, IOException {
+        DetectScriptCache detectScriptCache = new DetectScriptCache(logger, cacheDirectory, 0);
+        detectScriptCache.getOrDownload(intHttpClient, scriptUrl, SCRIPT_NAME);
+        httpServer.stop(0);
+        httpServer = null;
+
+        Path script = detectScriptCache.getOrDownload(intHttpClient, scriptUrl, SCRIPT_NAME);
+
+        assertEquals(SCRIPT_CONTENT, new String(Files.readAllBytes(script), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testFailsWhenUnreachableAndNotCached() {
+        httpServer.stop(0);
+        httpServer = null;
+
+        DetectScriptCache detectScriptCache = new DetectScriptCache(logger, cacheDirectory, 3600);
+        assertThrows(IntegrationException.class, () -> detectScriptCache.getOrDownload(intHttpClient, scriptUrl, SCRIPT_NAME));
+    }
+
+    private void serveScript(HttpExchange exchange) throws IOException {
+        if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            notModifiedResponses.incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        fullResponses.incrementAndGet();
+        byte[] body = SCRIPT_CONTENT.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("ETag", ETAG);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+}
@@ -109,7 +109,7 @@ public class DetectScriptStrategyCallableTest {
             String expectedScriptPath = new File(toolsDirectoryPath, DetectScriptStrategy.DETECT_INSTALL_DIRECTORY).getPath();
 
             DetectScriptStrategy detectScriptStrategy = new DetectScriptStrategy(defaultLogger, defaultProxyHelper, operatingSystemType, toolsDirectoryPath);
-            ArrayList<String> scriptStrategyArgs = detectScriptStrategy.getSetupCallable().call();
+            ArrayList<String> scriptStrategyArgs = detectScriptStrategy.getSetupCallable().call().getInitialArguments();
             File remoteScriptFile = new File(parseScriptStrategyArgs(scriptStrategyArgs));
 
             assertEquals(expectedScriptPath, remoteScriptFile.getParent(), String.format("Script was not downloaded to <%s>", expectedScriptPath));
@@ -55,7 +55,7 @@ public class DetectScriptStrategyTest {
         DetectScriptStrategy detectScriptStrategy = new DetectScriptStrategy(defaultLogger, defaultProxyHelper, OperatingSystemType.LINUX, null);
         String expectedEscapedString = "\\|\\&\\;\\<\\>\\(\\)\\$\\`\\\\\\\"\\'\\ \\\t\\*\\?\\[\\#\\~\\=\\%,";
 
-        String escapedString = detectScriptStrategy.getArgumentEscaper().apply(unescapedSpecialCharacters);
+        String escapedString = detectScriptStrategy.getArgumentEscaper(OperatingSystemType.LINUX).apply(unescapedSpecialCharacters);
 
         assertEquals(escapedString, expectedEscapedString);
     }
@@ -65,7 +65,7 @@ public class DetectScriptStrategyTest {
         DetectScriptStrategy detectScriptStrategy = new DetectScriptStrategy(defaultLogger, defaultProxyHelper, OperatingSystemType.MAC, null);
         String expectedEscapedString = "\\|\\&\\;\\<\\>\\(\\)\\$\\`\\\\\\\"\\'\\ \\\t\\*\\?\\[\\#\\~\\=\\%,";
 
-        String escapedString = detectScriptStrategy.getArgumentEscaper().apply(unescapedSpecialCharacters);
+        String escapedString = detectScriptStrategy.getArgumentEscaper(OperatingSystemType.MAC).apply(unescapedSpecialCharacters);
 
         assertEquals(escapedString, expectedEscapedString);
     }
@@ -75,7 +75,7 @@ public class DetectScriptStrategyTest {
         DetectScriptStrategy detectScriptStrategy = new DetectScriptStrategy(defaultLogger, defaultProxyHelper, OperatingSystemType.WINDOWS, null);
         String expectedEscapedString = "`|`&`;`<`>`(`)`$```\\`\"`'` `\t`*`?`[`#`~`=`%`,";
 
-        String escapedString = detectScriptStrategy.getArgumentEscaper().apply(unescapedSpecialCharacters);
+        String escapedString = detectScriptStrategy.getArgumentEscaper(OperatingSystemType.WINDOWS).apply(unescapedSpecialCharacters);
 
         assertEquals(expectedEscapedString, escapedString);
     }
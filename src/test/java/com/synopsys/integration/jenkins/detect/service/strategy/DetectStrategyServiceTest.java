@@ -38,13 +38,14 @@ public class DetectStrategyServiceTest {
     private ByteArrayOutputStream byteArrayOutputStream;
     private DetectStrategyService detectStrategyService;
     private JenkinsConfigService jenkinsConfigService;
+    private JenkinsIntLogger logger;
 
     @BeforeEach
     public void setup() {
         TaskListener taskListener = Mockito.mock(TaskListener.class);
         byteArrayOutputStream = new ByteArrayOutputStream();
         Mockito.when(taskListener.getLogger()).thenReturn(new PrintStream(byteArrayOutputStream));
-        JenkinsIntLogger logger = JenkinsIntLogger.logToListener(taskListener);
+        logger = JenkinsIntLogger.logToListener(taskListener);
 
         jenkinsConfigService = Mockito.mock(JenkinsConfigService.class);
         detectStrategyService = new DetectStrategyService(logger, null, null, jenkinsConfigService);
@@ -87,14 +88,26 @@ public class DetectStrategyServiceTest {
         assertTrue(byteArrayOutputStream.toString().contains(ScriptOrJarDownloadStrategy.DISPLAY_NAME), "Log does not contain message with correct download strategy.");
     }
 
+    @Test
+    public void testInheritFromGlobalConfigSnapshot() {
+        DetectGlobalConfig mockDetectGlobalConfig = Mockito.mock(DetectGlobalConfig.class);
+        Mockito.when(jenkinsConfigService.getGlobalConfiguration(DetectGlobalConfig.class)).thenReturn(Optional.of(mockDetectGlobalConfig));
+        Mockito.when(mockDetectGlobalConfig.getDownloadStrategy()).thenReturn(SCRIPTJAR_DOWNLOAD_STRATEGY);
+        DetectGlobalConfig.Snapshot globalConfigSnapshot = new DetectGlobalConfig.Snapshot.Builder().downloadStrategy(AIRGAP_DOWNLOAD_STRATEGY).build();
+        detectStrategyService = new DetectStrategyService(logger, null, null, jenkinsConfigService, null, null, globalConfigSnapshot);
+
+        DetectExecutionStrategy detectExecutionStrategy = testGetExecutionStrategy(intEnvironmentVariables, INHERIT_DOWNLOAD_STRATEGY);
+        assertEquals(DetectAirGapJarStrategy.class, detectExecutionStrategy.getClass(), "The strategy was not taken from the snapshot of the build.");
+    }
+
     @Test
     public void testInheritFromGlobalStrategyFailure() {
-        assertThrows(DetectJenkinsException.class, () -> detectStrategyService.getExecutionStrategy(intEnvironmentVariables, null, null, INHERIT_DOWNLOAD_STRATEGY));
+        assertThrows(DetectJenkinsException.class, () -> detectStrategyService.getExecutionStrategy(intEnvironmentVariables, null, INHERIT_DOWNLOAD_STRATEGY));
     }
 
     @Test
     public void testNullStrategyFailure() {
-        assertThrows(DetectJenkinsException.class, () -> detectStrategyService.getExecutionStrategy(intEnvironmentVariables, null, null, null));
+        assertThrows(DetectJenkinsException.class, () -> detectStrategyService.getExecutionStrategy(intEnvironmentVariables, null, null));
     }
 
     @Test
@@ -123,7 +136,7 @@ public class DetectStrategyServiceTest {
     public DetectExecutionStrategy testGetExecutionStrategy(IntEnvironmentVariables intEnvironmentVariables, DetectDownloadStrategy downloadStrategy) {
         DetectExecutionStrategy executionStrategy = null;
         try {
-            executionStrategy = detectStrategyService.getExecutionStrategy(intEnvironmentVariables, null, null, downloadStrategy);
+            executionStrategy = detectStrategyService.getExecutionStrategy(intEnvironmentVariables, null, downloadStrategy);
         } catch (Exception e) {
             fail("An unexpected exception occurred in the test code: ", e);
         }
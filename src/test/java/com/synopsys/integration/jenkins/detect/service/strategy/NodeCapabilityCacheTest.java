@@ -0,0 +1,79 @@
+package com.synopsys.integration.jenkins.detect.service.strategy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.synopsys.integration.util.OperatingSystemType;
+
+public class NodeCapabilityCacheTest {
+    private static final String NODE_NAME = "test-agent";
+    private static final String REMOTE_JDK_HOME = "/test/remote/jdk/home";
+    private static final RemoteJavaInfo REMOTE_JAVA_INFO = new RemoteJavaInfo("/test/remote/jdk/home/bin/java", RemoteJavaService.NODE_ENVIRONMENT_SOURCE, "openjdk 11");
+
+    private final Map<String, String> environmentVariables = new HashMap<>();
+    private NodeCapabilityCache nodeCapabilityCache;
+
+    @BeforeEach
+    public void setUp() {
+        environmentVariables.put(RemoteJavaService.JAVA_HOME, "/test/java/home");
+        nodeCapabilityCache = new NodeCapabilityCache(NODE_NAME);
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        NodeCapabilityCache.invalidateAll();
+    }
+
+    @Test
+    public void testRecordedJarRunIsReused() {
+        nodeCapabilityCache.record(createJarSetupResult(), REMOTE_JDK_HOME, environmentVariables);
+
+        assertEquals(OperatingSystemType.LINUX, nodeCapabilityCache.getOperatingSystemType().orElse(null));
+        assertEquals(REMOTE_JAVA_INFO, nodeCapabilityCache.getRemoteJavaInfo(REMOTE_JDK_HOME, environmentVariables).orElse(null));
+        assertEquals(REMOTE_JAVA_INFO, new NodeCapabilityCache(NODE_NAME).getRemoteJavaInfo(REMOTE_JDK_HOME, environmentVariables).orElse(null));
+        assertFalse(new NodeCapabilityCache("another-agent").getOperatingSystemType().isPresent(), "Capabilities must not leak between nodes.");
+    }
+
+    @Test
+    public void testChangedJavaInputsAreNotReused() {
+        nodeCapabilityCache.record(createJarSetupResult(), REMOTE_JDK_HOME, environmentVariables);
+
+        assertFalse(nodeCapabilityCache.getRemoteJavaInfo(null, environmentVariables).isPresent(), "Java resolved from the node JDK was reused without it.");
+
+        environmentVariables.put(RemoteJavaService.JAVA_HOME, "/another/java/home");
+        assertFalse(nodeCapabilityCache.getRemoteJavaInfo(REMOTE_JDK_HOME, environmentVariables).isPresent(), "Java was reused after JAVA_HOME changed.");
+        assertTrue(nodeCapabilityCache.getOperatingSystemType().isPresent());
+    }
+
+    @Test
+    public void testScriptRunKeepsKnownJava() {
+        nodeCapabilityCache.record(createJarSetupResult(), REMOTE_JDK_HOME, environmentVariables);
+        nodeCapabilityCache.record(new DetectSetupResult(OperatingSystemType.LINUX, new ArrayList<>(Arrays.asList("bash", "/tmp/detect8.sh")), null), REMOTE_JDK_HOME, environmentVariables);
+
+        assertEquals(REMOTE_JAVA_INFO, nodeCapabilityCache.getRemoteJavaInfo(REMOTE_JDK_HOME, environmentVariables).orElse(null));
+    }
+
+    @Test
+    public void testInvalidate() {
+        nodeCapabilityCache.record(createJarSetupResult(), REMOTE_JDK_HOME, environmentVariables);
+
+        NodeCapabilityCache.invalidate(NODE_NAME);
+
+        assertFalse(nodeCapabilityCache.getOperatingSystemType().isPresent());
+        assertFalse(nodeCapabilityCache.getRemoteJavaInfo(REMOTE_JDK_HOME, environmentVariables).isPresent());
+    }
+
+    private DetectSetupResult createJarSetupResult() {
+        return new DetectSetupResult(OperatingSystemType.LINUX, new ArrayList<>(Arrays.asList(REMOTE_JAVA_INFO.getExecutablePath(), "-jar", "/tmp/detect.jar")), REMOTE_JAVA_INFO);
+    }
+}